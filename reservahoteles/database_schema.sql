@@ -65,9 +65,42 @@ CREATE TABLE IF NOT EXISTS tarifas (
 
 -- =====================================================
 -- TABLA: reservas
+-- Particionada por mes de fecha_inicio (reservas_AAAA_MM). Las
+-- consultas que acotan fecha_inicio solo leen los meses del rango;
+-- las que filtran por solapamiento (fecha_fin > X) deben acotar
+-- también fecha_inicio > X - 366, que es correcto por el límite
+-- de ck_reservas_duracion. La clave primaria incluye fecha_inicio
+-- porque en una tabla particionada toda clave única debe incluir
+-- la columna de partición; id_reserva sigue siendo único porque
+-- sale de una sola secuencia.
+-- Las filas de fechas sin partición van a reservas_otras_fechas
+-- hasta que crear_particiones_reservas crea su mes.
 -- =====================================================
+
+-- Migración desde la tabla sin particionar: se renombra con sus
+-- índices y la secuencia de id_reserva pasa a la tabla nueva. Los
+-- datos se copian más abajo, una vez creadas las particiones.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class
+               WHERE oid = to_regclass('reservas') AND relkind = 'r') THEN
+        ALTER TABLE reservas RENAME TO reservas_sin_particionar;
+        ALTER TABLE reservas_sin_particionar ALTER COLUMN id_reserva DROP DEFAULT;
+        ALTER SEQUENCE reservas_id_reserva_seq OWNED BY NONE;
+        ALTER INDEX reservas_pkey RENAME TO reservas_sin_particionar_pkey;
+        DROP INDEX IF EXISTS idx_reservas_disponibilidad;
+        DROP INDEX IF EXISTS idx_reservas_lote;
+        DROP INDEX IF EXISTS uq_reservas_clave_idempotencia;
+        DROP INDEX IF EXISTS idx_reservas_busqueda;
+        DROP INDEX IF EXISTS idx_reservas_busqueda_tipo;
+    END IF;
+END;
+$$;
+
+CREATE SEQUENCE IF NOT EXISTS reservas_id_reserva_seq;
+
 CREATE TABLE IF NOT EXISTS reservas (
-    id_reserva SERIAL PRIMARY KEY,
+    id_reserva INT NOT NULL DEFAULT nextval('reservas_id_reserva_seq'),
     id_hotel INT NOT NULL,
     id_tipo INT NOT NULL,
     fecha_inicio DATE NOT NULL,
@@ -77,14 +110,372 @@ CREATE TABLE IF NOT EXISTS reservas (
     total_calculado DECIMAL(10,2) NOT NULL CHECK (total_calculado >= 0),
     fecha_creacion TIMESTAMP DEFAULT NOW(),
     estado VARCHAR(20) DEFAULT 'Confirmada' CHECK (estado IN ('Confirmada', 'Cancelada', 'Completada')),
+    -- Lote de creación: las reservas creadas en una misma solicitud
+    -- comparten id_lote y pueden cancelarse juntas con un solo UPDATE
+    id_lote UUID,
+    -- Clave de idempotencia enviada por el cliente (cabecera Idempotency-Key);
+    -- la unicidad la garantiza reservas_claves_idempotencia
+    clave_idempotencia VARCHAR(100),
+    PRIMARY KEY (id_reserva, fecha_inicio),
     FOREIGN KEY (id_hotel) REFERENCES hoteles(id_hotel) ON DELETE RESTRICT,
     FOREIGN KEY (id_tipo) REFERENCES tipos_habitacion(id_tipo) ON DELETE RESTRICT,
+    CHECK (fecha_fin > fecha_inicio),
+    CONSTRAINT ck_reservas_duracion CHECK (fecha_fin - fecha_inicio <= 366)
+) PARTITION BY RANGE (fecha_inicio);
+
+ALTER SEQUENCE reservas_id_reserva_seq OWNED BY reservas.id_reserva;
+
+CREATE TABLE IF NOT EXISTS reservas_otras_fechas PARTITION OF reservas DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_reservas_disponibilidad
+    ON reservas (id_hotel, id_tipo, estado, fecha_inicio, fecha_fin);
+
+CREATE INDEX IF NOT EXISTS idx_reservas_lote
+    ON reservas (id_lote)
+    WHERE id_lote IS NOT NULL;
+
+-- Búsqueda de la respuesta original de una clave repetida
+CREATE INDEX IF NOT EXISTS idx_reservas_clave_idempotencia
+    ON reservas (clave_idempotencia)
+    WHERE clave_idempotencia IS NOT NULL;
+
+-- Búsqueda de recepción con paginación por clave sobre (fecha_inicio, id_reserva):
+-- el índice posiciona cada página directamente y las columnas incluidas permiten
+-- responder con un index-only scan sin leer la tabla
+CREATE INDEX IF NOT EXISTS idx_reservas_busqueda
+    ON reservas (id_hotel, fecha_inicio, id_reserva)
+    INCLUDE (id_tipo, fecha_fin, numero_personas, cantidad_habitaciones, total_calculado, estado);
+
+CREATE INDEX IF NOT EXISTS idx_reservas_busqueda_tipo
+    ON reservas (id_hotel, id_tipo, fecha_inicio, id_reserva)
+    INCLUDE (fecha_fin, numero_personas, cantidad_habitaciones, total_calculado, estado);
+
+-- =====================================================
+-- TABLA: reservas_claves_idempotencia
+-- Una misma clave no puede crear dos reservas. Sustituye al índice
+-- único sobre reservas.clave_idempotencia, que en la tabla
+-- particionada solo podría ser único por mes.
+-- =====================================================
+CREATE TABLE IF NOT EXISTS reservas_claves_idempotencia (
+    clave_idempotencia VARCHAR(100) PRIMARY KEY,
+    id_reserva INT NOT NULL,
+    fecha_inicio DATE NOT NULL
+);
+
+-- =====================================================
+-- FUNCIÓN: crear_particiones_reservas
+-- Crea las particiones mensuales que faltan para los meses que
+-- tocan [p_desde, p_hasta). Si reservas_otras_fechas ya tiene
+-- filas de un mes, se pasan a la partición nueva (se borran y se
+-- vuelven a insertar, así que los triggers ven el movimiento).
+-- Devuelve el número de particiones creadas.
+-- =====================================================
+CREATE OR REPLACE FUNCTION crear_particiones_reservas(
+    p_desde DATE,
+    p_hasta DATE
+)
+RETURNS INT AS $$
+DECLARE
+    v_inicio DATE := date_trunc('month', p_desde)::date;
+    v_fin DATE;
+    v_nombre TEXT;
+    v_creadas INT := 0;
+BEGIN
+    WHILE v_inicio < p_hasta LOOP
+        v_fin := (v_inicio + interval '1 month')::date;
+        v_nombre := 'reservas_' || to_char(v_inicio, 'YYYY_MM');
+
+        IF to_regclass(v_nombre) IS NULL THEN
+            IF EXISTS (SELECT 1 FROM reservas_otras_fechas
+                       WHERE fecha_inicio >= v_inicio AND fecha_inicio < v_fin) THEN
+                CREATE TEMP TABLE reservas_por_mover (LIKE reservas) ON COMMIT DROP;
+                WITH movidas AS (
+                    DELETE FROM reservas_otras_fechas
+                    WHERE fecha_inicio >= v_inicio AND fecha_inicio < v_fin
+                    RETURNING *
+                )
+                INSERT INTO reservas_por_mover SELECT * FROM movidas;
+
+                EXECUTE format('CREATE TABLE %I PARTITION OF reservas FOR VALUES FROM (%L) TO (%L)',
+                               v_nombre, v_inicio, v_fin);
+                INSERT INTO reservas SELECT * FROM reservas_por_mover;
+                DROP TABLE reservas_por_mover;
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF reservas FOR VALUES FROM (%L) TO (%L)',
+                               v_nombre, v_inicio, v_fin);
+            END IF;
+            v_creadas := v_creadas + 1;
+        END IF;
+
+        v_inicio := v_fin;
+    END LOOP;
+
+    RETURN v_creadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Particiones de los meses con reservas en la tabla sin particionar y de
+-- los dos años siguientes; después las crea ArchivoReservas cada noche
+DO $$
+DECLARE
+    v_desde DATE := CURRENT_DATE;
+BEGIN
+    IF to_regclass('reservas_sin_particionar') IS NOT NULL THEN
+        SELECT LEAST(v_desde, MIN(fecha_inicio)) INTO v_desde FROM reservas_sin_particionar;
+    END IF;
+    PERFORM crear_particiones_reservas(v_desde, (CURRENT_DATE + interval '27 months')::date);
+
+    IF to_regclass('reservas_sin_particionar') IS NOT NULL THEN
+        INSERT INTO reservas (id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas,
+                              cantidad_habitaciones, total_calculado, fecha_creacion, estado,
+                              id_lote, clave_idempotencia)
+        SELECT id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas,
+               cantidad_habitaciones, total_calculado, fecha_creacion, estado,
+               id_lote, clave_idempotencia
+        FROM reservas_sin_particionar;
+
+        INSERT INTO reservas_claves_idempotencia (clave_idempotencia, id_reserva, fecha_inicio)
+        SELECT clave_idempotencia, id_reserva, fecha_inicio
+        FROM reservas_sin_particionar
+        WHERE clave_idempotencia IS NOT NULL;
+
+        DROP TABLE reservas_sin_particionar;
+    END IF;
+END;
+$$;
+
+-- =====================================================
+-- TABLA: ocupacion_diaria
+-- Habitaciones ocupadas por reservas confirmadas en cada noche.
+-- La mantiene el trigger trg_reservas_ocupacion_diaria; no se
+-- escribe directamente desde la aplicación.
+-- =====================================================
+CREATE TABLE IF NOT EXISTS ocupacion_diaria (
+    id_hotel INT NOT NULL,
+    id_tipo INT NOT NULL,
+    fecha DATE NOT NULL,
+    habitaciones_ocupadas INT NOT NULL DEFAULT 0 CHECK (habitaciones_ocupadas >= 0),
+    PRIMARY KEY (id_hotel, id_tipo, fecha),
+    FOREIGN KEY (id_hotel) REFERENCES hoteles(id_hotel) ON DELETE CASCADE,
+    FOREIGN KEY (id_tipo) REFERENCES tipos_habitacion(id_tipo) ON DELETE RESTRICT
+);
+
+-- =====================================================
+-- FUNCIÓN: ajustar_ocupacion_diaria
+-- Suma p_delta habitaciones a cada noche de [p_fecha_inicio, p_fecha_fin)
+-- Un delta negativo solo puede restar de noches que ya existen: se
+-- aplica con UPDATE, porque en un INSERT ... ON CONFLICT la fila
+-- propuesta (negativa) viola el CHECK antes de llegar al conflicto.
+-- =====================================================
+CREATE OR REPLACE FUNCTION ajustar_ocupacion_diaria(
+    p_id_hotel INT,
+    p_id_tipo INT,
+    p_fecha_inicio DATE,
+    p_fecha_fin DATE,
+    p_delta INT
+)
+RETURNS VOID AS $$
+BEGIN
+    IF p_delta < 0 THEN
+        UPDATE ocupacion_diaria
+        SET habitaciones_ocupadas = habitaciones_ocupadas + p_delta
+        WHERE id_hotel = p_id_hotel
+          AND id_tipo = p_id_tipo
+          AND fecha >= p_fecha_inicio
+          AND fecha < p_fecha_fin;
+        RETURN;
+    END IF;
+
+    INSERT INTO ocupacion_diaria (id_hotel, id_tipo, fecha, habitaciones_ocupadas)
+    SELECT p_id_hotel, p_id_tipo, n.noche::date, p_delta
+    FROM generate_series(p_fecha_inicio, p_fecha_fin - 1, interval '1 day') AS n(noche)
+    ON CONFLICT (id_hotel, id_tipo, fecha)
+    DO UPDATE SET habitaciones_ocupadas = ocupacion_diaria.habitaciones_ocupadas + EXCLUDED.habitaciones_ocupadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =====================================================
+-- TRIGGER: trg_reservas_ocupacion_diaria
+-- Mantiene ocupacion_diaria al insertar, modificar o eliminar reservas.
+-- Solo cuentan las reservas en estado 'Confirmada', así que pasar a
+-- 'Cancelada' o 'Completada' libera las noches.
+-- =====================================================
+CREATE OR REPLACE FUNCTION actualizar_ocupacion_diaria()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.estado = 'Confirmada' THEN
+        PERFORM ajustar_ocupacion_diaria(OLD.id_hotel, OLD.id_tipo, OLD.fecha_inicio, OLD.fecha_fin,
+                                         -OLD.cantidad_habitaciones);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.estado = 'Confirmada' THEN
+        PERFORM ajustar_ocupacion_diaria(NEW.id_hotel, NEW.id_tipo, NEW.fecha_inicio, NEW.fecha_fin,
+                                         NEW.cantidad_habitaciones);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_reservas_ocupacion_diaria ON reservas;
+
+CREATE TRIGGER trg_reservas_ocupacion_diaria
+AFTER INSERT OR DELETE OR UPDATE OF id_hotel, id_tipo, fecha_inicio, fecha_fin, cantidad_habitaciones, estado
+ON reservas
+FOR EACH ROW
+EXECUTE FUNCTION actualizar_ocupacion_diaria();
+
+-- =====================================================
+-- FUNCIÓN: verificar_ocupacion_diaria
+-- Compara ocupacion_diaria con lo que resulta de sumar las
+-- reservas confirmadas y devuelve las noches que difieren.
+-- Solo revisa las noches desde p_desde: las pasadas ya no se
+-- venden y recorrerlas haría la verificación cada vez más cara.
+-- =====================================================
+DROP FUNCTION IF EXISTS verificar_ocupacion_diaria();
+
+CREATE OR REPLACE FUNCTION verificar_ocupacion_diaria(p_desde DATE DEFAULT CURRENT_DATE)
+RETURNS TABLE (
+    id_hotel INT,
+    id_tipo INT,
+    fecha DATE,
+    esperado INT,
+    registrado INT
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH calculada AS (
+        SELECT r.id_hotel, r.id_tipo, n.noche::date AS fecha,
+               SUM(r.cantidad_habitaciones)::INT AS ocupadas
+        FROM reservas r
+        CROSS JOIN LATERAL generate_series(GREATEST(r.fecha_inicio, p_desde), r.fecha_fin - 1,
+                                           interval '1 day') AS n(noche)
+        WHERE r.estado = 'Confirmada'
+          AND r.fecha_fin > p_desde
+          AND r.fecha_inicio > p_desde - 366
+        GROUP BY r.id_hotel, r.id_tipo, n.noche
+    ),
+    registrada AS (
+        SELECT o.id_hotel, o.id_tipo, o.fecha, o.habitaciones_ocupadas
+        FROM ocupacion_diaria o
+        WHERE o.fecha >= p_desde
+    )
+    SELECT
+        COALESCE(e.id_hotel, o.id_hotel),
+        COALESCE(e.id_tipo, o.id_tipo),
+        COALESCE(e.fecha, o.fecha),
+        COALESCE(e.ocupadas, 0),
+        COALESCE(o.habitaciones_ocupadas, 0)
+    FROM calculada e
+    FULL OUTER JOIN registrada o
+        ON o.id_hotel = e.id_hotel AND o.id_tipo = e.id_tipo AND o.fecha = e.fecha
+    WHERE COALESCE(e.ocupadas, 0) <> COALESCE(o.habitaciones_ocupadas, 0);
+END;
+$$ LANGUAGE plpgsql;
+
+-- =====================================================
+-- FUNCIÓN: reconstruir_ocupacion_diaria
+-- Recalcula ocupacion_diaria desde reservas: las noches desde
+-- p_desde, o todas si es NULL. Bloquea la tabla de reservas
+-- contra escrituras mientras se reconstruye.
+-- =====================================================
+DROP FUNCTION IF EXISTS reconstruir_ocupacion_diaria();
+
+CREATE OR REPLACE FUNCTION reconstruir_ocupacion_diaria(p_desde DATE DEFAULT NULL)
+RETURNS INT AS $$
+DECLARE
+    v_filas INT;
+BEGIN
+    LOCK TABLE reservas IN SHARE MODE;
+    DELETE FROM ocupacion_diaria WHERE p_desde IS NULL OR fecha >= p_desde;
+
+    INSERT INTO ocupacion_diaria (id_hotel, id_tipo, fecha, habitaciones_ocupadas)
+    SELECT r.id_hotel, r.id_tipo, n.noche::date, SUM(r.cantidad_habitaciones)
+    FROM reservas r
+    CROSS JOIN LATERAL generate_series(GREATEST(r.fecha_inicio, COALESCE(p_desde, r.fecha_inicio)),
+                                       r.fecha_fin - 1, interval '1 day') AS n(noche)
+    WHERE r.estado = 'Confirmada'
+      AND (p_desde IS NULL OR (r.fecha_fin > p_desde AND r.fecha_inicio > p_desde - 366))
+    GROUP BY r.id_hotel, r.id_tipo, n.noche;
+
+    GET DIAGNOSTICS v_filas = ROW_COUNT;
+    RETURN v_filas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =====================================================
+-- TABLA: esquema_versiones
+-- Versión con la que se calcularon los datos derivados. Al cambiar
+-- cómo se calcula ocupacion_diaria se sube VERSION_OCUPACION abajo
+-- y la siguiente ejecución del script la reconstruye una vez.
+-- =====================================================
+CREATE TABLE IF NOT EXISTS esquema_versiones (
+    componente VARCHAR(50) PRIMARY KEY,
+    version INT NOT NULL
+);
+
+-- Se reconstruye solo si la tabla está vacía (primera ejecución o
+-- migración) o si cambió su versión; volver a ejecutar el script
+-- no bloquea las reservas recalculando todo.
+DO $$
+DECLARE
+    VERSION_OCUPACION CONSTANT INT := 2;
+    v_version INT;
+BEGIN
+    SELECT version INTO v_version FROM esquema_versiones WHERE componente = 'ocupacion_diaria';
+    IF v_version IS DISTINCT FROM VERSION_OCUPACION
+       OR NOT EXISTS (SELECT 1 FROM ocupacion_diaria) THEN
+        PERFORM reconstruir_ocupacion_diaria();
+        INSERT INTO esquema_versiones (componente, version)
+        VALUES ('ocupacion_diaria', VERSION_OCUPACION)
+        ON CONFLICT (componente) DO UPDATE SET version = EXCLUDED.version;
+    END IF;
+END;
+$$;
+
+-- =====================================================
+-- TABLA: retenciones
+-- Habitaciones apartadas durante el pago, con vencimiento.
+-- Solo guarda las retenciones vigentes: se borran al liberarse,
+-- al vencer o al convertirse en reserva, así que la tabla es
+-- pequeña y solo se lee al arrancar la aplicación.
+-- =====================================================
+CREATE TABLE IF NOT EXISTS retenciones (
+    id_retencion UUID PRIMARY KEY,
+    id_hotel INT NOT NULL,
+    id_tipo INT NOT NULL,
+    fecha_inicio DATE NOT NULL,
+    fecha_fin DATE NOT NULL,
+    cantidad_habitaciones SMALLINT NOT NULL CHECK (cantidad_habitaciones > 0),
+    expira_en TIMESTAMPTZ NOT NULL,
+    FOREIGN KEY (id_hotel) REFERENCES hoteles(id_hotel) ON DELETE CASCADE,
+    FOREIGN KEY (id_tipo) REFERENCES tipos_habitacion(id_tipo) ON DELETE RESTRICT,
     CHECK (fecha_fin > fecha_inicio)
 );
 
+CREATE INDEX IF NOT EXISTS idx_retenciones_hotel_tipo
+    ON retenciones (id_hotel, id_tipo);
+
+CREATE INDEX IF NOT EXISTS idx_retenciones_expira
+    ON retenciones (expira_en);
+
+-- =====================================================
+-- VISTA: retenciones_por_noche
+-- Habitaciones retenidas en cada noche por retenciones no vencidas.
+-- Las vencidas que aún no se han borrado no cuentan.
+-- =====================================================
+CREATE OR REPLACE VIEW retenciones_por_noche AS
+SELECT r.id_hotel, r.id_tipo, n.noche::date AS fecha,
+       SUM(r.cantidad_habitaciones)::INT AS habitaciones_retenidas
+FROM retenciones r
+CROSS JOIN LATERAL generate_series(r.fecha_inicio, r.fecha_fin - 1, interval '1 day') AS n(noche)
+WHERE r.expira_en > NOW()
+GROUP BY r.id_hotel, r.id_tipo, n.noche;
+
 -- =====================================================
 -- FUNCIÓN: verificar_disponibilidad_pool
--- Verifica la disponibilidad de habitaciones en un pool
+-- Verifica la disponibilidad de habitaciones en un pool.
+-- Lee ocupacion_diaria y retenciones_por_noche: lo disponible es
+-- el inventario menos la noche más ocupada del rango, contando
+-- como ocupadas las habitaciones retenidas.
 -- =====================================================
 CREATE OR REPLACE FUNCTION verificar_disponibilidad_pool(
     p_id_hotel INT,
@@ -104,12 +495,12 @@ BEGIN
         th.nombre::VARCHAR as tipo_habitacion,
         COALESCE(ih.cantidad_total, 0)::INTEGER as cantidad_total,
         GREATEST(0, COALESCE(ih.cantidad_total, 0) - COALESCE(
-            (SELECT SUM(r.cantidad_habitaciones)
-             FROM reservas r
-             WHERE r.id_hotel = p_id_hotel
-               AND r.id_tipo = p_id_tipo
-               AND r.estado = 'Confirmada'
-               AND NOT (r.fecha_fin <= p_fecha_inicio OR r.fecha_inicio >= p_fecha_fin)
+            (SELECT MAX(COALESCE(o.habitaciones_ocupadas, 0) + COALESCE(rn.habitaciones_retenidas, 0))
+             FROM generate_series(p_fecha_inicio, p_fecha_fin - 1, interval '1 day') AS n(noche)
+             LEFT JOIN ocupacion_diaria o
+                ON o.id_hotel = p_id_hotel AND o.id_tipo = p_id_tipo AND o.fecha = n.noche::date
+             LEFT JOIN retenciones_por_noche rn
+                ON rn.id_hotel = p_id_hotel AND rn.id_tipo = p_id_tipo AND rn.fecha = n.noche::date
             ), 0
         ))::INTEGER as cantidad_disponible,
         th.capacidad_personas::INTEGER
@@ -194,14 +585,29 @@ $$ LANGUAGE plpgsql;
 -- =====================================================
 -- FUNCIÓN: crear_reserva
 -- Crea una nueva reserva en el sistema
+-- p_total_calculado: total cotizado por la aplicación (noche a noche);
+-- si es NULL se usa calcular_precio_reserva
+-- p_clave_idempotencia: si ya existe una reserva con esa clave no se
+-- crea otra (reservas_claves_idempotencia)
+-- p_id_retencion: retención que se convierte en la reserva. Se borra
+-- si corresponde al hotel, tipo y fechas; si además no ha vencido y
+-- cubre las habitaciones pedidas, no se vuelve a verificar la
+-- disponibilidad ni se bloquea el inventario
 -- =====================================================
+DROP FUNCTION IF EXISTS crear_reserva(INT, INT, DATE, DATE, INT, INT);
+DROP FUNCTION IF EXISTS crear_reserva(INT, INT, DATE, DATE, INT, INT, DECIMAL);
+DROP FUNCTION IF EXISTS crear_reserva(INT, INT, DATE, DATE, INT, INT, DECIMAL, VARCHAR);
+
 CREATE OR REPLACE FUNCTION crear_reserva(
     p_id_hotel INT,
     p_id_tipo INT,
     p_fecha_inicio DATE,
     p_fecha_fin DATE,
     p_numero_personas INT,
-    p_cantidad_habitaciones INT
+    p_cantidad_habitaciones INT,
+    p_total_calculado DECIMAL DEFAULT NULL,
+    p_clave_idempotencia VARCHAR DEFAULT NULL,
+    p_id_retencion UUID DEFAULT NULL
 )
 RETURNS TABLE (
     id_reserva INT,
@@ -213,13 +619,37 @@ DECLARE
     v_precio_total DECIMAL;
     v_id_reserva INT;
     v_disponibilidad INT;
+    v_retenida BOOLEAN := false;
 BEGIN
-    -- Verificar disponibilidad
-    SELECT cantidad_disponible INTO v_disponibilidad
-    FROM verificar_disponibilidad_pool(p_id_hotel, p_id_tipo, p_fecha_inicio, p_fecha_fin)
-    LIMIT 1;
+    -- Comprobar la retención: sus habitaciones ya estaban apartadas. Se bloquea aquí
+    -- y se consume solo si la reserva llega a insertarse
+    IF p_id_retencion IS NOT NULL THEN
+        SELECT r.expira_en > NOW() AND r.cantidad_habitaciones >= p_cantidad_habitaciones
+        INTO v_retenida
+        FROM retenciones r
+        WHERE r.id_retencion = p_id_retencion
+          AND r.id_hotel = p_id_hotel
+          AND r.id_tipo = p_id_tipo
+          AND r.fecha_inicio = p_fecha_inicio
+          AND r.fecha_fin = p_fecha_fin
+        FOR UPDATE;
+    END IF;
+
+    IF NOT COALESCE(v_retenida, false) THEN
+        -- Bloquear el inventario del tipo de habitación para serializar reservas concurrentes
+        PERFORM 1
+        FROM inventario_habitaciones
+        WHERE id_hotel = p_id_hotel
+          AND id_tipo = p_id_tipo
+        FOR UPDATE;
+
+        -- Verificar disponibilidad
+        SELECT cantidad_disponible INTO v_disponibilidad
+        FROM verificar_disponibilidad_pool(p_id_hotel, p_id_tipo, p_fecha_inicio, p_fecha_fin)
+        LIMIT 1;
+    END IF;
     
-    IF v_disponibilidad < p_cantidad_habitaciones THEN
+    IF NOT COALESCE(v_retenida, false) AND v_disponibilidad < p_cantidad_habitaciones THEN
         RETURN QUERY
         SELECT 
             NULL::INT as id_reserva,
@@ -230,38 +660,70 @@ BEGIN
     END IF;
     
     -- Calcular precio
-    SELECT precio_total INTO v_precio_total
-    FROM calcular_precio_reserva(
-        p_id_hotel, 
-        p_id_tipo, 
-        p_fecha_inicio, 
-        p_fecha_fin, 
-        p_cantidad_habitaciones, 
-        p_numero_personas
-    )
-    LIMIT 1;
+    IF p_total_calculado IS NOT NULL THEN
+        v_precio_total := p_total_calculado;
+    ELSE
+        SELECT precio_total INTO v_precio_total
+        FROM calcular_precio_reserva(
+            p_id_hotel, 
+            p_id_tipo, 
+            p_fecha_inicio, 
+            p_fecha_fin, 
+            p_cantidad_habitaciones, 
+            p_numero_personas
+        )
+        LIMIT 1;
+    END IF;
     
     -- Crear reserva
-    INSERT INTO reservas (
-        id_hotel,
-        id_tipo,
-        fecha_inicio,
-        fecha_fin,
-        numero_personas,
-        cantidad_habitaciones,
-        total_calculado,
-        estado
-    ) VALUES (
-        p_id_hotel,
-        p_id_tipo,
-        p_fecha_inicio,
-        p_fecha_fin,
-        p_numero_personas,
-        p_cantidad_habitaciones,
-        v_precio_total,
-        'Confirmada'
-    )
-    RETURNING id_reserva INTO v_id_reserva;
+    BEGIN
+        INSERT INTO reservas (
+            id_hotel,
+            id_tipo,
+            fecha_inicio,
+            fecha_fin,
+            numero_personas,
+            cantidad_habitaciones,
+            total_calculado,
+            estado,
+            clave_idempotencia
+        ) VALUES (
+            p_id_hotel,
+            p_id_tipo,
+            p_fecha_inicio,
+            p_fecha_fin,
+            p_numero_personas,
+            p_cantidad_habitaciones,
+            v_precio_total,
+            'Confirmada',
+            p_clave_idempotencia
+        )
+        RETURNING reservas.id_reserva INTO v_id_reserva;
+
+        IF p_clave_idempotencia IS NOT NULL THEN
+            INSERT INTO reservas_claves_idempotencia (clave_idempotencia, id_reserva, fecha_inicio)
+            VALUES (p_clave_idempotencia, v_id_reserva, p_fecha_inicio);
+        END IF;
+
+        -- Consumir la retención dentro del bloque: si la clave ya fue usada, la
+        -- repetición no se lleva la retención de la reserva original
+        IF p_id_retencion IS NOT NULL THEN
+            DELETE FROM retenciones r
+            WHERE r.id_retencion = p_id_retencion
+              AND r.id_hotel = p_id_hotel
+              AND r.id_tipo = p_id_tipo
+              AND r.fecha_inicio = p_fecha_inicio
+              AND r.fecha_fin = p_fecha_fin;
+        END IF;
+    EXCEPTION WHEN unique_violation THEN
+        RETURN QUERY
+        SELECT 
+            NULL::INT as id_reserva,
+            false as exito,
+            'La clave de idempotencia ya fue usada'::VARCHAR as mensaje,
+            0::DECIMAL as total_calculado;
+        RETURN;
+    END;
     
     RETURN QUERY
     SELECT 
@@ -309,6 +771,245 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
+-- =====================================================
+-- TABLA: cambios_version
+-- Versión global de los cambios notificados a las instancias de la
+-- aplicación: una fila que cada transacción con cambios incrementa una
+-- vez, al confirmarse (los triggers de notificación son diferidos). El
+-- bloqueo de la fila ordena las versiones igual que las confirmaciones y
+-- una transacción revertida deshace su incremento, así que las versiones
+-- llegan seguidas y una que falta es una notificación perdida.
+-- Sustituye a la secuencia cambios_version_seq, que dejaba huecos.
+-- =====================================================
+CREATE TABLE IF NOT EXISTS cambios_version (
+    id BOOLEAN PRIMARY KEY DEFAULT true CHECK (id),
+    version BIGINT NOT NULL
+);
+
+INSERT INTO cambios_version (id, version) VALUES (true, 0)
+ON CONFLICT (id) DO NOTHING;
+
+DROP SEQUENCE IF EXISTS cambios_version_seq;
+
+-- =====================================================
+-- FUNCIÓN: version_cambio
+-- Versión de la transacción actual: la primera llamada incrementa
+-- cambios_version y la guarda en 'reservas.version_cambio' (solo para
+-- la transacción) junto con su identificador; las siguientes la reutilizan.
+-- =====================================================
+CREATE OR REPLACE FUNCTION version_cambio()
+RETURNS BIGINT AS $$
+DECLARE
+    v_transaccion TEXT := txid_current()::TEXT;
+    v_guardada TEXT := current_setting('reservas.version_cambio', true);
+    v_version BIGINT;
+BEGIN
+    IF split_part(v_guardada, ':', 1) = v_transaccion THEN
+        RETURN split_part(v_guardada, ':', 2)::BIGINT;
+    END IF;
+    UPDATE cambios_version SET version = version + 1 RETURNING version INTO v_version;
+    PERFORM set_config('reservas.version_cambio', v_transaccion || ':' || v_version, true);
+    RETURN v_version;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =====================================================
+-- FUNCIÓN: notificar_cambio
+-- Publica en el canal 'reservas_cambios' la tabla y la combinación
+-- hotel/tipo de cada fila modificada. La notificación se entrega al
+-- confirmar la transacción y se descarta si se revierte. Si un UPDATE
+-- cambia el hotel o el tipo se notifican ambas combinaciones.
+-- Carga: {"version": 42, "instancia": "…", "tabla": "reservas", "idHotel": 1,
+-- "idTipo": 2} ('temporadas' no lleva hotel ni tipo). Todas las filas
+-- de una transacción llevan la misma versión. 'instancia' es el valor de
+-- 'reservas.instancia' en la sesión (la aplicación lo fija en cada
+-- conexión del pool); es null en los cambios hechos fuera de la aplicación.
+-- El argumento del trigger, si lo hay, es el nombre de la tabla que se
+-- publica: en una tabla particionada TG_TABLE_NAME es el de la partición
+-- (reservas_2025_07).
+-- =====================================================
+CREATE OR REPLACE FUNCTION notificar_cambio()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_anterior JSONB;
+    v_nueva JSONB;
+    v_version BIGINT := version_cambio();
+    v_instancia TEXT := NULLIF(current_setting('reservas.instancia', true), '');
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        v_anterior := to_jsonb(OLD);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        v_nueva := to_jsonb(NEW);
+    END IF;
+
+    IF v_nueva IS NOT NULL THEN
+        PERFORM pg_notify('reservas_cambios', json_build_object(
+            'version', v_version,
+            'instancia', v_instancia,
+            'tabla', COALESCE(TG_ARGV[0], TG_TABLE_NAME),
+            'idHotel', (v_nueva->>'id_hotel')::INT,
+            'idTipo', (v_nueva->>'id_tipo')::INT
+        )::TEXT);
+    END IF;
+    IF v_anterior IS NOT NULL AND (v_nueva IS NULL
+            OR v_anterior->'id_hotel' IS DISTINCT FROM v_nueva->'id_hotel'
+            OR v_anterior->'id_tipo' IS DISTINCT FROM v_nueva->'id_tipo') THEN
+        PERFORM pg_notify('reservas_cambios', json_build_object(
+            'version', v_version,
+            'instancia', v_instancia,
+            'tabla', COALESCE(TG_ARGV[0], TG_TABLE_NAME),
+            'idHotel', (v_anterior->>'id_hotel')::INT,
+            'idTipo', (v_anterior->>'id_tipo')::INT
+        )::TEXT);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =====================================================
+-- TRIGGERS: trg_*_notificar_cambio
+-- Reservas y retenciones cambian la ocupación; tarifas y temporadas
+-- los precios; inventario_habitaciones el total de habitaciones.
+-- Son diferidos: se ejecutan al confirmar, así que cambios_version queda
+-- bloqueada solo mientras se confirma.
+-- =====================================================
+DROP TRIGGER IF EXISTS trg_reservas_notificar_cambio ON reservas;
+CREATE CONSTRAINT TRIGGER trg_reservas_notificar_cambio
+AFTER INSERT OR DELETE OR UPDATE OF id_hotel, id_tipo, fecha_inicio, fecha_fin, cantidad_habitaciones, estado
+ON reservas
+DEFERRABLE INITIALLY DEFERRED
+FOR EACH ROW
+EXECUTE FUNCTION notificar_cambio('reservas');
+
+DROP TRIGGER IF EXISTS trg_retenciones_notificar_cambio ON retenciones;
+CREATE CONSTRAINT TRIGGER trg_retenciones_notificar_cambio
+AFTER INSERT OR DELETE OR UPDATE ON retenciones
+DEFERRABLE INITIALLY DEFERRED
+FOR EACH ROW
+EXECUTE FUNCTION notificar_cambio();
+
+DROP TRIGGER IF EXISTS trg_tarifas_notificar_cambio ON tarifas;
+CREATE CONSTRAINT TRIGGER trg_tarifas_notificar_cambio
+AFTER INSERT OR DELETE OR UPDATE ON tarifas
+DEFERRABLE INITIALLY DEFERRED
+FOR EACH ROW
+EXECUTE FUNCTION notificar_cambio();
+
+DROP TRIGGER IF EXISTS trg_temporadas_notificar_cambio ON temporadas;
+CREATE CONSTRAINT TRIGGER trg_temporadas_notificar_cambio
+AFTER INSERT OR DELETE OR UPDATE ON temporadas
+DEFERRABLE INITIALLY DEFERRED
+FOR EACH ROW
+EXECUTE FUNCTION notificar_cambio();
+
+DROP TRIGGER IF EXISTS trg_inventario_notificar_cambio ON inventario_habitaciones;
+CREATE CONSTRAINT TRIGGER trg_inventario_notificar_cambio
+AFTER INSERT OR DELETE OR UPDATE ON inventario_habitaciones
+DEFERRABLE INITIALLY DEFERRED
+FOR EACH ROW
+EXECUTE FUNCTION notificar_cambio();
+
+-- =====================================================
+-- ESQUEMA: archivo
+-- Particiones de reservas ya archivadas (archivo.reservas_AAAA_MM).
+-- No está en el search_path de la aplicación.
+-- =====================================================
+CREATE SCHEMA IF NOT EXISTS archivo;
+
+-- =====================================================
+-- FUNCIÓN: archivar_particion_reservas
+-- Saca de reservas la partición mensual más antigua que termina
+-- antes de p_antes y cuyas estancias terminaron todas antes de
+-- p_antes, la pasa al esquema archivo y le quita los índices salvo
+-- la clave primaria. La compactación (VACUUM FULL) la hace después
+-- la aplicación fuera de la transacción.
+-- Las reservas confirmadas de la partición se descuentan antes de
+-- ocupacion_diaria (DETACH no dispara los triggers de fila) y se
+-- borran sus claves de idempotencia.
+-- Como DETACH tampoco publica cambios, se notifica en 'reservas_cambios'
+-- con la tabla 'archivo' (sin hotel ni tipo) y la versión de la
+-- transacción, para que todas las instancias, también la que archiva,
+-- recarguen el libro de disponibilidad y la analítica.
+-- DETACH necesita un bloqueo exclusivo sobre reservas hasta el final
+-- de la transacción: si no lo obtiene en p_espera_bloqueo la función
+-- falla sin archivar nada, para no dejar en cola las consultas.
+-- Devuelve el nombre de la partición archivada, o NULL si no queda
+-- ninguna por archivar.
+-- =====================================================
+CREATE OR REPLACE FUNCTION archivar_particion_reservas(
+    p_antes DATE,
+    p_espera_bloqueo INTERVAL DEFAULT interval '2 seconds'
+)
+RETURNS TEXT AS $$
+DECLARE
+    v_nombre TEXT;
+    v_inicio DATE;
+    v_terminadas BOOLEAN;
+    v_indice TEXT;
+BEGIN
+    FOR v_nombre IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'reservas'::regclass
+          AND c.relname ~ '^reservas_[0-9]{4}_[0-9]{2}$'
+        ORDER BY c.relname
+    LOOP
+        v_inicio := to_date(substr(v_nombre, 10), 'YYYY_MM');
+        EXIT WHEN v_inicio + interval '1 month' > p_antes;
+        CONTINUE WHEN to_regclass('archivo.' || v_nombre) IS NOT NULL;
+
+        EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I WHERE fecha_fin > $1)', v_nombre)
+        INTO v_terminadas
+        USING p_antes;
+        CONTINUE WHEN NOT v_terminadas;
+
+        EXECUTE format(
+            'UPDATE ocupacion_diaria o
+             SET habitaciones_ocupadas = GREATEST(0, o.habitaciones_ocupadas - a.ocupadas)
+             FROM (
+                 SELECT r.id_hotel, r.id_tipo, n.noche::date AS fecha,
+                        SUM(r.cantidad_habitaciones)::INT AS ocupadas
+                 FROM %I r
+                 CROSS JOIN LATERAL generate_series(r.fecha_inicio, r.fecha_fin - 1, interval ''1 day'') AS n(noche)
+                 WHERE r.estado = ''Confirmada''
+                 GROUP BY r.id_hotel, r.id_tipo, n.noche
+             ) a
+             WHERE o.id_hotel = a.id_hotel AND o.id_tipo = a.id_tipo AND o.fecha = a.fecha',
+            v_nombre);
+        DELETE FROM ocupacion_diaria
+        WHERE fecha < p_antes AND habitaciones_ocupadas = 0;
+
+        DELETE FROM reservas_claves_idempotencia
+        WHERE fecha_inicio >= v_inicio AND fecha_inicio < v_inicio + interval '1 month';
+
+        PERFORM set_config('lock_timeout', (extract(epoch FROM p_espera_bloqueo) * 1000)::BIGINT || 'ms', true);
+        EXECUTE format('ALTER TABLE reservas DETACH PARTITION %I', v_nombre);
+        EXECUTE format('ALTER TABLE %I SET SCHEMA archivo', v_nombre);
+
+        PERFORM pg_notify('reservas_cambios', json_build_object(
+            'version', version_cambio(),
+            'instancia', NULLIF(current_setting('reservas.instancia', true), ''),
+            'tabla', 'archivo'
+        )::TEXT);
+
+        FOR v_indice IN
+            SELECT i.indexrelid::regclass::TEXT
+            FROM pg_index i
+            WHERE i.indrelid = format('archivo.%I', v_nombre)::regclass
+              AND NOT i.indisprimary
+        LOOP
+            EXECUTE 'DROP INDEX ' || v_indice;
+        END LOOP;
+
+        RETURN v_nombre;
+    END LOOP;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
 -- =====================================================
 -- FIN DEL SCRIPT
 -- =====================================================
@@ -0,0 +1,180 @@
+package reservahoteles.reservahoteles.Controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Tarifa;
+import reservahoteles.reservahoteles.Entity.Temporada;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+import reservahoteles.reservahoteles.Repository.TarifaRepository;
+import reservahoteles.reservahoteles.Repository.TemporadaRepository;
+import reservahoteles.reservahoteles.Repository.TipoHabitacionRepository;
+import reservahoteles.reservahoteles.Service.ConsultasCompartidas;
+import reservahoteles.reservahoteles.Service.DisponibilidadLedger;
+import reservahoteles.reservahoteles.Service.ExportacionService;
+import reservahoteles.reservahoteles.Service.IdempotenciaStore;
+import reservahoteles.reservahoteles.Service.PricingEngine;
+import reservahoteles.reservahoteles.Service.ReservaLocks;
+import reservahoteles.reservahoteles.Service.ReservaServiceImpl;
+import reservahoteles.reservahoteles.Service.RetencionService;
+import reservahoteles.reservahoteles.Service.TarifaCache;
+
+/**
+ * Recorrido completo de los endpoints de lectura de reservas a través de Spring
+ * MVC: enlace de parámetros, validación, servicio, libro de disponibilidad,
+ * caché de tarifas y serialización de la respuesta.
+ *
+ * Los repositorios se simulan porque las funciones plpgsql no se pueden ejecutar
+ * fuera de PostgreSQL; tras la carga inicial, estas rutas no acceden a la base de
+ * datos, por lo que lo medido es el costo propio de la aplicación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservaControllerBenchmark {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(30);
+	private static final LocalDate FIN = INICIO.plusDays(3);
+
+	private MockMvc mockMvc;
+	private String cuerpoCalculoPrecio;
+	private String etagDisponibilidad;
+
+	@Setup
+	public void setUp() throws Exception {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(1);
+		hotel.setNombre("Hotel Barranquilla");
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(1);
+		tipo.setNombre("Estándar");
+		tipo.setCapacidadPersonas(4);
+		Temporada temporada = new Temporada();
+		temporada.setIdTemporada(1);
+		temporada.setNombre("Alta");
+		temporada.setFechaInicio(INICIO.minusDays(60));
+		temporada.setFechaFin(FIN.plusDays(60));
+		temporada.setAnio(INICIO.getYear());
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setIdInventario(1);
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(20);
+		Tarifa tarifa = new Tarifa();
+		tarifa.setIdTarifa(1);
+		tarifa.setHotel(hotel);
+		tarifa.setTipoHabitacion(tipo);
+		tarifa.setTemporada(temporada);
+		tarifa.setPrecioBaseNoche(new BigDecimal("250000.00"));
+		tarifa.setPrecioPersonaAdicional(new BigDecimal("40000.00"));
+
+		ReservaRepository reservaRepository = mock(ReservaRepository.class);
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		TarifaRepository tarifaRepository = mock(TarifaRepository.class);
+		TemporadaRepository temporadaRepository = mock(TemporadaRepository.class);
+		TipoHabitacionRepository tipoHabitacionRepository = mock(TipoHabitacionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(List.of());
+		when(temporadaRepository.findAll()).thenReturn(List.of(temporada));
+		when(tipoHabitacionRepository.findAll()).thenReturn(List.of(tipo));
+		when(tarifaRepository.findConDetalle(anyInt(), anyInt(), anyInt()))
+				.thenReturn(Optional.of(tarifa));
+
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		DisponibilidadLedger ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository,
+				retencionRepository, evento -> {
+				}, 365);
+		ledger.recargar();
+		TarifaCache tarifaCache = new TarifaCache(tarifaRepository, temporadaRepository, tipoHabitacionRepository,
+				new SimpleMeterRegistry(), 1000, Duration.ofHours(1));
+		ReservaLocks locks = new ReservaLocks();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		ReservaServiceImpl service = new ReservaServiceImpl(reservaRepository, ledger, locks,
+				tarifaCache, new PricingEngine(tarifaCache), transactionTemplate,
+				new SimpleMeterRegistry(), new IdempotenciaStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)),
+				evento -> { }, new ConsultasCompartidas(new SimpleMeterRegistry(), Duration.ZERO),
+				new RetencionService(retencionRepository, reservaRepository, ledger, locks, transactionTemplate,
+						Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 512));
+
+		mockMvc = MockMvcBuilders
+				.standaloneSetup(new ReservaController(service, mock(ExportacionService.class)))
+				.build();
+		etagDisponibilidad = mockMvc.perform(disponibilidad()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		cuerpoCalculoPrecio = """
+				{"idHotel":1,"idTipo":1,"fechaInicio":"%s","fechaFin":"%s","numeroPersonas":5,"cantidadHabitaciones":1}
+				""".formatted(INICIO, FIN);
+	}
+
+	@Benchmark
+	public MvcResult consultarDisponibilidad() throws Exception {
+		return mockMvc.perform(disponibilidad()).andReturn();
+	}
+
+	/** Revalidación con un ETag vigente: 304 sin calcular ni serializar la respuesta. */
+	@Benchmark
+	public MvcResult consultarDisponibilidadNoModificada() throws Exception {
+		return mockMvc.perform(disponibilidad().header(HttpHeaders.IF_NONE_MATCH, etagDisponibilidad)).andReturn();
+	}
+
+	@Benchmark
+	public MvcResult obtenerTarifas() throws Exception {
+		return mockMvc.perform(get("/api/reservas/tarifas")
+				.param("idHotel", "1")
+				.param("idTipo", "1")
+				.param("fechaInicio", INICIO.toString())).andReturn();
+	}
+
+	@Benchmark
+	public MvcResult calcularPrecio() throws Exception {
+		return mockMvc.perform(post("/api/reservas/calcular-precio")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(cuerpoCalculoPrecio)).andReturn();
+	}
+
+	private MockHttpServletRequestBuilder disponibilidad() {
+		return get("/api/reservas/disponibilidad")
+				.param("idHotel", "1")
+				.param("idTipo", "1")
+				.param("fechaInicio", INICIO.toString())
+				.param("fechaFin", FIN.toString());
+	}
+}
@@ -0,0 +1,82 @@
+package reservahoteles.reservahoteles.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Costo de serializar a JSON las respuestas de los endpoints de reservas con
+ * Jackson, el mismo mapeador que usa Spring MVC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacionBenchmark {
+
+	private JsonMapper mapper;
+	private List<DisponibilidadResponse> disponibilidad;
+	private List<TarifaResponse> tarifas;
+	private CalculoPrecioResponse calculoPrecio;
+	private CrearReservaResponse crearReserva;
+
+	@Setup
+	public void setUp() {
+		mapper = JsonMapper.builder().build();
+		disponibilidad = List.of(new DisponibilidadResponse("Estándar", 20, 12, 4));
+		tarifas = List.of(
+				new TarifaResponse(1, "Hotel Barranquilla", "Estándar", "Alta",
+						new BigDecimal("250000.00"), new BigDecimal("40000.00")),
+				new TarifaResponse(2, "Hotel Barranquilla", "Premium", "Alta",
+						new BigDecimal("320000.00"), new BigDecimal("50000.00")));
+
+		LocalDate inicio = LocalDate.of(2026, 7, 1);
+		List<PrecioNoche> noches = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			noches.add(new PrecioNoche(inicio.plusDays(i), "Alta", new BigDecimal("250000.00"),
+					new BigDecimal("40000.00"), new BigDecimal("290000.00")));
+		}
+		calculoPrecio = new CalculoPrecioResponse(new BigDecimal("2030000.00"), new BigDecimal("250000.00"), 7,
+				"Alta", new DesglosePrecio(new BigDecimal("250000.00"), 7, 1, new BigDecimal("1750000.00"), 1,
+						new BigDecimal("40000.00"), new BigDecimal("280000.00"), noches));
+		crearReserva = new CrearReservaResponse(1234, true, "Reserva creada exitosamente",
+				new BigDecimal("2030000.00"));
+	}
+
+	@Benchmark
+	public byte[] serializarDisponibilidad() {
+		return mapper.writeValueAsBytes(disponibilidad);
+	}
+
+	@Benchmark
+	public byte[] serializarTarifas() {
+		return mapper.writeValueAsBytes(tarifas);
+	}
+
+	@Benchmark
+	public byte[] serializarCalculoPrecio() {
+		return mapper.writeValueAsBytes(calculoPrecio);
+	}
+
+	@Benchmark
+	public byte[] serializarCrearReserva() {
+		return mapper.writeValueAsBytes(crearReserva);
+	}
+}
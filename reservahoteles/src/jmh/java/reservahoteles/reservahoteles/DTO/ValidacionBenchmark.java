@@ -0,0 +1,88 @@
+package reservahoteles.reservahoteles.DTO;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * Costo de la validación de Bean Validation que aplica {@code @Valid} sobre los
+ * cuerpos de calcular-precio y crear reserva.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidacionBenchmark {
+
+	private ValidatorFactory factory;
+	private Validator validator;
+	private CalculoPrecioRequest calculoValido;
+	private CrearReservaRequest reservaValida;
+	private CrearReservaRequest reservaInvalida;
+
+	@Setup
+	public void setUp() {
+		factory = Validation.buildDefaultValidatorFactory();
+		validator = factory.getValidator();
+
+		calculoValido = new CalculoPrecioRequest();
+		calculoValido.setIdHotel(1);
+		calculoValido.setIdTipo(1);
+		calculoValido.setFechaInicio(LocalDate.now().plusDays(10));
+		calculoValido.setFechaFin(LocalDate.now().plusDays(13));
+		calculoValido.setNumeroPersonas(2);
+		calculoValido.setCantidadHabitaciones(1);
+
+		reservaValida = new CrearReservaRequest();
+		reservaValida.setIdHotel(1);
+		reservaValida.setIdTipo(1);
+		reservaValida.setFechaInicio(LocalDate.now().plusDays(10));
+		reservaValida.setFechaFin(LocalDate.now().plusDays(13));
+		reservaValida.setNumeroPersonas(2);
+		reservaValida.setCantidadHabitaciones(1);
+
+		reservaInvalida = new CrearReservaRequest();
+		reservaInvalida.setIdHotel(1);
+		reservaInvalida.setNumeroPersonas(0);
+		reservaInvalida.setCantidadHabitaciones(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		factory.close();
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<CalculoPrecioRequest>> validarCalculoPrecio() {
+		return validator.validate(calculoValido);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<CrearReservaRequest>> validarCrearReserva() {
+		return validator.validate(reservaValida);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<CrearReservaRequest>> validarCrearReservaInvalida() {
+		return validator.validate(reservaInvalida);
+	}
+}
@@ -0,0 +1,120 @@
+package reservahoteles.reservahoteles.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+
+/**
+ * Latencia de 'obtenerTarifas' con el acceso de Hibernate ({@link ReservaConsultasHibernate})
+ * frente al de JDBC ({@link ReservaConsultasJdbc}), sobre la misma conexión.
+ *
+ * Usa H2 en memoria en modo PostgreSQL con las tablas de catálogo reducidas a las
+ * columnas de la consulta. H2 no tiene sentencias preparadas en el servidor, así
+ * que la diferencia medida es el costo propio de cada camino (creación de la
+ * consulta nativa, enlace de parámetros y mapeo de filas); en PostgreSQL el camino
+ * JDBC además reutiliza el plan preparado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccesoDatosBenchmark {
+
+	private static final int ID_HOTEL = 1;
+	private static final int TIPOS = 8;
+	private static final LocalDate FECHA = LocalDate.of(2025, 7, 15);
+
+	/** Tipo de habitación consultado; 0 consulta todos los tipos del hotel. */
+	@Param({ "0", "3" })
+	private int idTipo;
+
+	private SingleConnectionDataSource dataSource;
+	private LocalContainerEntityManagerFactoryBean fabrica;
+	private EntityManager entityManager;
+	private ReservaConsultas hibernate;
+	private ReservaConsultas jdbc;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:acceso;MODE=PostgreSQL", "sa", "", true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE hoteles (id_hotel INT PRIMARY KEY, nombre VARCHAR(100) NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE tipos_habitacion (id_tipo INT PRIMARY KEY, nombre VARCHAR(50) NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE temporadas (id_temporada INT PRIMARY KEY, nombre VARCHAR(50) NOT NULL, " +
+				"fecha_inicio DATE NOT NULL, fecha_fin DATE NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE tarifas (id_tarifa INT PRIMARY KEY, id_hotel INT NOT NULL, " +
+				"id_tipo INT NOT NULL, id_temporada INT NOT NULL, precio_base_noche NUMERIC(12, 2) NOT NULL, " +
+				"precio_persona_adicional NUMERIC(12, 2) NOT NULL)");
+		jdbcTemplate.execute("CREATE INDEX idx_tarifas_hotel ON tarifas (id_hotel, id_tipo)");
+		jdbcTemplate.execute("INSERT INTO hoteles SELECT x, CONCAT('Hotel ', x) FROM SYSTEM_RANGE(1, 20)");
+		jdbcTemplate.execute("INSERT INTO tipos_habitacion SELECT x, CONCAT('Tipo ', x) FROM SYSTEM_RANGE(1, " + TIPOS + ")");
+		jdbcTemplate.execute("INSERT INTO temporadas VALUES " +
+				"(1, 'Baja', DATE '2025-01-01', DATE '2025-06-14'), " +
+				"(2, 'Alta', DATE '2025-06-15', DATE '2025-08-31'), " +
+				"(3, 'Media', DATE '2025-09-01', DATE '2025-12-31')");
+		jdbcTemplate.execute("INSERT INTO tarifas SELECT ROWNUM(), h.x, t.x, s.x, 200000 + t.x * 10000, 40000 " +
+				"FROM SYSTEM_RANGE(1, 20) h, SYSTEM_RANGE(1, " + TIPOS + ") t, SYSTEM_RANGE(1, 3) s");
+		jdbcTemplate.execute("ANALYZE");
+
+		fabrica = new LocalContainerEntityManagerFactoryBean();
+		fabrica.setDataSource(dataSource);
+		fabrica.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		fabrica.setPackagesToScan();
+		fabrica.afterPropertiesSet();
+		EntityManagerFactory emf = fabrica.getObject();
+		entityManager = emf.createEntityManager();
+
+		RepositorioMetricas metricas = new RepositorioMetricas(new SimpleMeterRegistry());
+		hibernate = new ReservaConsultasHibernate(entityManager, metricas);
+		jdbc = new ReservaConsultasJdbc(jdbcTemplate, metricas);
+
+		// Los dos caminos deben devolver las mismas tarifas para que la comparación valga
+		if (!hibernate().equals(jdbc()) || jdbc().isEmpty()) {
+			throw new IllegalStateException("Hibernate y JDBC devuelven tarifas distintas: "
+					+ hibernate() + " / " + jdbc());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		entityManager.close();
+		fabrica.destroy();
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public List<TarifaResponse> hibernate() {
+		return hibernate.obtenerTarifas(ID_HOTEL, idTipo > 0 ? idTipo : null, FECHA);
+	}
+
+	@Benchmark
+	public List<TarifaResponse> jdbc() {
+		return jdbc.obtenerTarifas(ID_HOTEL, idTipo > 0 ? idTipo : null, FECHA);
+	}
+}
@@ -0,0 +1,123 @@
+package reservahoteles.reservahoteles.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+
+/**
+ * Latencia de la búsqueda de reservas en la página 1 frente a una página profunda,
+ * con paginación por clave ({@link ReservaCustomRepositoryImpl#buscarReservas}) y con
+ * OFFSET como referencia.
+ *
+ * Usa H2 en memoria en modo PostgreSQL con la tabla 'reservas' reducida a las
+ * columnas de la búsqueda y el índice 'idx_reservas_busqueda' sin columnas
+ * incluidas. Las cifras absolutas no son las de PostgreSQL, pero sí la forma: con
+ * la clave la página 1000 cuesta lo mismo que la página 1, con OFFSET crece con
+ * el número de página.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BusquedaPaginadaBenchmark {
+
+	private static final int ID_HOTEL = 1;
+	private static final int POR_PAGINA = 50;
+	private static final int RESERVAS = 100_000;
+	private static final LocalDate DESDE = LocalDate.of(2025, 1, 1);
+	private static final LocalDate HASTA = LocalDate.of(2030, 1, 1);
+
+	@Param({ "1", "1000" })
+	private int pagina;
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private ReservaCustomRepositoryImpl repositorio;
+	private LocalDate despuesDeFecha;
+	private Integer despuesDeId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:busqueda;MODE=PostgreSQL;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE reservas (" +
+				"id_reserva INT PRIMARY KEY, id_hotel INT NOT NULL, id_tipo INT NOT NULL, " +
+				"fecha_inicio DATE NOT NULL, fecha_fin DATE NOT NULL, numero_personas INT NOT NULL, " +
+				"cantidad_habitaciones INT NOT NULL, total_calculado NUMERIC(12, 2) NOT NULL, " +
+				"estado VARCHAR(20) NOT NULL)");
+		jdbcTemplate.execute("INSERT INTO reservas SELECT x, " + ID_HOTEL + ", MOD(x, 4) + 1, " +
+				"DATEADD(DAY, MOD(x * 7919, 1800), DATE '2025-01-01'), " +
+				"DATEADD(DAY, MOD(x * 7919, 1800) + 3, DATE '2025-01-01'), 2, 1, 450000.00, " +
+				"CASE WHEN MOD(x, 10) = 0 THEN 'Cancelada' ELSE 'Confirmada' END " +
+				"FROM SYSTEM_RANGE(1, " + RESERVAS + ")");
+		jdbcTemplate.execute("CREATE INDEX idx_reservas_busqueda ON reservas (id_hotel, fecha_inicio, id_reserva)");
+		jdbcTemplate.execute("ANALYZE");
+
+		RepositorioMetricas metricas = new RepositorioMetricas(new SimpleMeterRegistry());
+		repositorio = new ReservaCustomRepositoryImpl(jdbcTemplate, metricas,
+				new ReservaConsultasJdbc(jdbcTemplate, metricas));
+
+		// Posición de la última fila de la página anterior, como la devolvería el cursor
+		if (pagina > 1) {
+			ReservaResumen ultima = jdbcTemplate.queryForObject(
+					"SELECT id_reserva, fecha_inicio FROM reservas WHERE id_hotel = ? " +
+					"ORDER BY id_hotel, fecha_inicio, id_reserva LIMIT 1 OFFSET ?",
+					(rs, fila) -> {
+						ReservaResumen resumen = new ReservaResumen();
+						resumen.setIdReserva(rs.getInt(1));
+						resumen.setFechaInicio(rs.getObject(2, LocalDate.class));
+						return resumen;
+					},
+					ID_HOTEL, (pagina - 1) * POR_PAGINA - 1);
+			despuesDeFecha = ultima.getFechaInicio();
+			despuesDeId = ultima.getIdReserva();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public List<ReservaResumen> porClave() {
+		return repositorio.buscarReservas(ID_HOTEL, null, DESDE, HASTA, null,
+				despuesDeFecha, despuesDeId, POR_PAGINA);
+	}
+
+	@Benchmark
+	public List<ReservaResumen> porOffset() {
+		return jdbcTemplate.query("SELECT " +
+				"id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, " +
+				"cantidad_habitaciones, total_calculado, estado " +
+				"FROM reservas " +
+				"WHERE id_hotel = ? AND fecha_inicio >= ? AND fecha_inicio < ? " +
+				"ORDER BY id_hotel, fecha_inicio, id_reserva LIMIT ? OFFSET ?",
+				(rs, fila) -> new ReservaResumen(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+						rs.getObject(4, LocalDate.class), rs.getObject(5, LocalDate.class),
+						rs.getInt(6), rs.getInt(7), rs.getBigDecimal(8), rs.getString(9)),
+				ID_HOTEL, DESDE, HASTA, POR_PAGINA, (pagina - 1) * POR_PAGINA);
+	}
+}
@@ -0,0 +1,143 @@
+package reservahoteles.reservahoteles.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+
+/**
+ * Tiempo de crear 'reservas' reservas de una en una ('crear_reserva' en su propia
+ * transacción, como POST /api/reservas) frente a crearlas como un lote (una
+ * transacción con el bloqueo de inventario, una consulta de disponibilidad por
+ * rangos y una inserción por lotes, como POST /api/reservas/lote).
+ *
+ * Necesita PostgreSQL: usa la base desechable de {@link BaseDatosPrueba}
+ * (variable RESERVAS_TEST_DB_URL), que se vacía en cada iteración. Las reservas se
+ * reparten entre las tres combinaciones con inventario y por noches distintas, y
+ * el inventario alcanza para todas, así que ningún camino rechaza reservas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoteReservasBenchmark {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(30);
+	private static final int[][] COMBINACIONES = { { 1, 1 }, { 1, 2 }, { 2, 1 } };
+
+	@Param({ "10", "100" })
+	private int reservas;
+
+	private SingleConnectionDataSource dataSource;
+	private TransactionTemplate transactionTemplate;
+	private ReservaCustomRepositoryImpl repositorio;
+	private List<CrearReservaRequest> solicitudes;
+	private List<BigDecimal> totales;
+	private List<RangoCombinacion> rangos;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String url = System.getenv(BaseDatosPrueba.VARIABLE);
+		if (url == null || url.isBlank()) {
+			throw new IllegalStateException("LoteReservasBenchmark necesita " + BaseDatosPrueba.VARIABLE);
+		}
+		// Aplica database_schema.sql antes de abrir la conexión del benchmark
+		BaseDatosPrueba.dataSource();
+		dataSource = new SingleConnectionDataSource(url,
+				System.getenv().getOrDefault("RESERVAS_TEST_DB_USER", "postgres"),
+				System.getenv().getOrDefault("RESERVAS_TEST_DB_PASSWORD", ""), true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		RepositorioMetricas metricas = new RepositorioMetricas(new SimpleMeterRegistry());
+		repositorio = new ReservaCustomRepositoryImpl(jdbcTemplate, metricas,
+				new ReservaConsultasJdbc(jdbcTemplate, metricas));
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+		solicitudes = new ArrayList<>(reservas);
+		totales = new ArrayList<>(reservas);
+		for (int i = 0; i < reservas; i++) {
+			int[] combinacion = COMBINACIONES[i % COMBINACIONES.length];
+			CrearReservaRequest request = new CrearReservaRequest();
+			request.setIdHotel(combinacion[0]);
+			request.setIdTipo(combinacion[1]);
+			request.setFechaInicio(INICIO.plusDays(i % 20));
+			request.setFechaFin(INICIO.plusDays(i % 20 + 2));
+			request.setNumeroPersonas(2);
+			request.setCantidadHabitaciones(1);
+			solicitudes.add(request);
+			totales.add(BigDecimal.valueOf(200));
+		}
+		rangos = new ArrayList<>();
+		for (int[] combinacion : COMBINACIONES) {
+			rangos.add(new RangoCombinacion(combinacion[0], combinacion[1], INICIO, INICIO.plusDays(21)));
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void vaciar() {
+		BaseDatosPrueba.reiniciar().update("UPDATE inventario_habitaciones SET cantidad_total = 1000000");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		dataSource.destroy();
+	}
+
+	@Benchmark
+	public int individuales() {
+		int creadas = 0;
+		for (int i = 0; i < solicitudes.size(); i++) {
+			CrearReservaRequest request = solicitudes.get(i);
+			BigDecimal total = totales.get(i);
+			CrearReservaResponse response = transactionTemplate.execute(status -> {
+				repositorio.bloquearInventario(request.getIdHotel(), request.getIdTipo());
+				return repositorio.crearReserva(request, total, null);
+			});
+			if (Boolean.TRUE.equals(response.getExito())) {
+				creadas++;
+			}
+		}
+		return creadas;
+	}
+
+	@Benchmark
+	public int lote() {
+		return transactionTemplate.execute(status -> {
+			for (int[] combinacion : COMBINACIONES) {
+				repositorio.bloquearInventario(combinacion[0], combinacion[1]);
+			}
+			List<DisponibilidadNochesResponse> disponibilidad = repositorio.verificarDisponibilidadPorNoche(rangos);
+			if (disponibilidad.size() != COMBINACIONES.length) {
+				throw new IllegalStateException("Disponibilidad incompleta: " + disponibilidad);
+			}
+			return repositorio.insertarReservas(solicitudes, totales, UUID.randomUUID()).size();
+		});
+	}
+}
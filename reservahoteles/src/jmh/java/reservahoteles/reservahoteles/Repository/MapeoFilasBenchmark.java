@@ -0,0 +1,61 @@
+package reservahoteles.reservahoteles.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+
+/**
+ * Costo de convertir las filas {@code Object[]} de las consultas nativas en DTOs,
+ * con los mismos tipos que entrega Hibernate para cada columna.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapeoFilasBenchmark {
+
+	@Param({ "1", "100" })
+	private int filas;
+
+	private List<Object[]> disponibilidad;
+	private List<Object[]> tarifas;
+
+	@Setup
+	public void setUp() {
+		disponibilidad = new ArrayList<>(filas);
+		tarifas = new ArrayList<>(filas);
+		for (int i = 0; i < filas; i++) {
+			disponibilidad.add(new Object[] { "Estándar", 20, 12, 4 });
+			tarifas.add(new Object[] { i, "Hotel Barranquilla", "Estándar", "Alta",
+					new BigDecimal("250000.00"), new BigDecimal("40000.00") });
+		}
+	}
+
+	@Benchmark
+	public List<DisponibilidadResponse> mapearDisponibilidad() {
+		return ReservaConsultasHibernate.mapearDisponibilidad(disponibilidad);
+	}
+
+	@Benchmark
+	public List<TarifaResponse> mapearTarifas() {
+		return ReservaConsultasHibernate.mapearTarifas(tarifas);
+	}
+}
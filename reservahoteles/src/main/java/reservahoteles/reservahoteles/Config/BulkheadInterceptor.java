@@ -0,0 +1,110 @@
+package reservahoteles.reservahoteles.Config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Set;
+
+/**
+ * Aplica {@link DbBulkhead} a los endpoints de reservas, retenciones y analítica:
+ * las consultas de disponibilidad, tarifas, cálculo de precio, búsqueda y analítica
+ * usan el compartimento de lectura; la creación, cancelación y cierre de reservas y
+ * las retenciones el de escritura, y la exportación el suyo. Si no hay permiso
+ * responde 503 con 'Retry-After'.
+ *
+ * Las solicitudes asíncronas liberan el permiso al pasar a otro hilo, salvo la
+ * exportación: su cuerpo se escribe fuera del hilo de la solicitud y usa la conexión
+ * durante todo ese tiempo, así que conserva el permiso hasta que termina el
+ * despacho asíncrono.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ATRIBUTO_PERMISO = BulkheadInterceptor.class.getName() + ".permiso";
+
+    private static final Set<String> RUTAS_LECTURA = Set.of(
+        "/api/reservas/disponibilidad",
+        "/api/reservas/disponibilidad/lote",
+        "/api/reservas/tarifas",
+        "/api/reservas/calcular-precio",
+        "/api/reservas/buscar",
+        "/api/reservas/sugerencias",
+        "/api/analitica/ocupacion"
+    );
+
+    private static final Set<String> RUTAS_ESCRITURA = Set.of(
+        "/api/reservas",
+        "/api/reservas/lote",
+        "/api/reservas/retenciones"
+    );
+
+    private static final String RUTA_EXPORTACION = "/api/reservas/exportar";
+    private static final String PREFIJO_RETENCIONES = "/api/reservas/retenciones/";
+
+    private final DbBulkhead bulkhead;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        DbBulkhead.Tipo tipo = clasificar(request);
+        if (tipo == null) {
+            return true;
+        }
+        if (!bulkhead.adquirir(tipo)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return false;
+        }
+        request.setAttribute(ATRIBUTO_PERMISO, tipo);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        liberar(request);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(ATRIBUTO_PERMISO) != DbBulkhead.Tipo.EXPORTACION) {
+            liberar(request);
+        }
+    }
+
+    private void liberar(HttpServletRequest request) {
+        Object tipo = request.getAttribute(ATRIBUTO_PERMISO);
+        if (tipo != null) {
+            request.removeAttribute(ATRIBUTO_PERMISO);
+            bulkhead.liberar((DbBulkhead.Tipo) tipo);
+        }
+    }
+
+    static DbBulkhead.Tipo clasificar(HttpServletRequest request) {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        if (RUTAS_LECTURA.contains(ruta)) {
+            return DbBulkhead.Tipo.LECTURA;
+        }
+        if (RUTA_EXPORTACION.equals(ruta)) {
+            return DbBulkhead.Tipo.EXPORTACION;
+        }
+        if ("DELETE".equals(request.getMethod()) && ruta.startsWith(PREFIJO_RETENCIONES)) {
+            return DbBulkhead.Tipo.ESCRITURA;
+        }
+        if ("POST".equals(request.getMethod()) && (RUTAS_ESCRITURA.contains(ruta)
+                || ruta.startsWith("/api/reservas/") && (ruta.endsWith("/cancelar") || ruta.endsWith("/completar")))) {
+            return DbBulkhead.Tipo.ESCRITURA;
+        }
+        return null;
+    }
+}
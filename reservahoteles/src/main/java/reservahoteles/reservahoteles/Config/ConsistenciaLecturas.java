@@ -0,0 +1,26 @@
+package reservahoteles.reservahoteles.Config;
+
+/**
+ * Marca del hilo actual para leer de la base de datos primaria aunque la
+ * transacción sea de solo lectura (read-your-writes): la réplica puede no tener
+ * todavía lo que el mismo cliente acaba de escribir.
+ */
+public final class ConsistenciaLecturas {
+
+    private static final ThreadLocal<Boolean> PRIMARIA = new ThreadLocal<>();
+
+    private ConsistenciaLecturas() {
+    }
+
+    public static void fijarPrimaria() {
+        PRIMARIA.set(Boolean.TRUE);
+    }
+
+    public static void liberar() {
+        PRIMARIA.remove();
+    }
+
+    public static boolean primariaFijada() {
+        return PRIMARIA.get() != null;
+    }
+}
@@ -0,0 +1,72 @@
+package reservahoteles.reservahoteles.Config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes con réplica de lectura: una solicitud que escribe reservas
+ * (las que usan el compartimento de escritura de {@link BulkheadInterceptor}:
+ * crear, cancelar, completar) deja una cookie que, durante
+ * 'reservas.replica.fijar-primaria', hace que las lecturas del mismo cliente
+ * vayan a la primaria. La cookie no depende de la instancia, así que funciona
+ * detrás del balanceador. La propia solicitud que escribe también lee de la
+ * primaria.
+ */
+public class ConsistenciaLecturasInterceptor implements AsyncHandlerInterceptor {
+
+    static final String COOKIE = "reservas-primaria";
+
+    private final Duration fijarPrimaria;
+
+    public ConsistenciaLecturasInterceptor(Duration fijarPrimaria) {
+        this.fijarPrimaria = fijarPrimaria;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (BulkheadInterceptor.clasificar(request) == DbBulkhead.Tipo.ESCRITURA) {
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, "1")
+                .path("/api/reservas")
+                .maxAge(fijarPrimaria)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build()
+                .toString());
+            ConsistenciaLecturas.fijarPrimaria();
+        } else if (tieneCookie(request)) {
+            ConsistenciaLecturas.fijarPrimaria();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ConsistenciaLecturas.liberar();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ConsistenciaLecturas.liberar();
+    }
+
+    private static boolean tieneCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
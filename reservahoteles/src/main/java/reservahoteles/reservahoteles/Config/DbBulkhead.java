@@ -0,0 +1,136 @@
+package reservahoteles.reservahoteles.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compartimentos de concurrencia hacia la base de datos.
+ *
+ * Lecturas, escrituras y exportaciones tienen permisos separados cuya suma es el
+ * tamaño del pool de Hikari ('spring.datasource.hikari.maximum-pool-size'), de modo
+ * que una ráfaga de consultas o una exportación larga no pueden dejar sin conexión
+ * a la creación de reservas. La escritura recibe 'reservas.bulkhead.escritura.proporcion'
+ * del pool (al menos un permiso), las exportaciones 'reservas.bulkhead.exportacion.permisos'
+ * y las lecturas el resto, con un mínimo de uno. Con réplica de lectura el reparto
+ * no cambia, porque si la réplica se retrasa las lecturas vuelven a la primaria.
+ *
+ * Cuando la cola de un compartimento supera su límite, o la espera supera el
+ * tiempo máximo, la solicitud se rechaza de inmediato en lugar de quedar bloqueada
+ * en 'getConnection'.
+ */
+@Slf4j
+@Component
+public class DbBulkhead {
+
+    public enum Tipo { LECTURA, ESCRITURA, EXPORTACION }
+
+    private final Compartimento lectura;
+    private final Compartimento escritura;
+    private final Compartimento exportacion;
+
+    public DbBulkhead(MeterRegistry meterRegistry,
+                      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanoPool,
+                      @Value("${reservas.bulkhead.escritura.proporcion:0.4}") double proporcionEscritura,
+                      @Value("${reservas.bulkhead.exportacion.permisos:1}") int permisosExportacion,
+                      @Value("${reservas.bulkhead.cola-maxima:50}") int colaMaxima,
+                      @Value("${reservas.bulkhead.espera-maxima:PT2S}") Duration esperaMaxima) {
+        int permisosEscritura = Math.max(1, (int) Math.round(tamanoPool * proporcionEscritura));
+        int permisosLectura = Math.max(1, tamanoPool - permisosEscritura - permisosExportacion);
+        log.info("Compartimentos sobre un pool de {} conexiones: lectura {}, escritura {}, exportación {}",
+            tamanoPool, permisosLectura, permisosEscritura, permisosExportacion);
+        this.lectura = new Compartimento("lectura", permisosLectura, colaMaxima, esperaMaxima, meterRegistry);
+        this.escritura = new Compartimento("escritura", permisosEscritura, colaMaxima, esperaMaxima, meterRegistry);
+        // Una exportación tarda minutos: no tiene sentido hacerla esperar en cola
+        this.exportacion = new Compartimento("exportacion", permisosExportacion, 0, Duration.ZERO, meterRegistry);
+    }
+
+    /**
+     * Intenta obtener un permiso del compartimento indicado.
+     *
+     * @return true si se obtuvo el permiso; el llamador debe liberarlo con {@link #liberar(Tipo)}
+     */
+    public boolean adquirir(Tipo tipo) {
+        return compartimento(tipo).adquirir();
+    }
+
+    public void liberar(Tipo tipo) {
+        compartimento(tipo).semaforo.release();
+    }
+
+    int permisosDisponibles(Tipo tipo) {
+        return compartimento(tipo).semaforo.availablePermits();
+    }
+
+    private Compartimento compartimento(Tipo tipo) {
+        return switch (tipo) {
+            case LECTURA -> lectura;
+            case ESCRITURA -> escritura;
+            case EXPORTACION -> exportacion;
+        };
+    }
+
+    private static final class Compartimento {
+        private final Semaphore semaforo;
+        private final int colaMaxima;
+        private final long esperaMaximaNanos;
+        private final AtomicInteger enCola = new AtomicInteger();
+        private final Timer espera;
+        private final Counter rechazos;
+
+        private Compartimento(String nombre, int permisos, int colaMaxima, Duration esperaMaxima,
+                              MeterRegistry meterRegistry) {
+            this.semaforo = new Semaphore(permisos, true);
+            this.colaMaxima = colaMaxima;
+            this.esperaMaximaNanos = esperaMaxima.toNanos();
+            this.espera = Timer.builder("reservas.bulkhead.espera")
+                .tag("compartimento", nombre)
+                .register(meterRegistry);
+            this.rechazos = Counter.builder("reservas.bulkhead.rechazos")
+                .tag("compartimento", nombre)
+                .register(meterRegistry);
+            Gauge.builder("reservas.bulkhead.cola", enCola, AtomicInteger::get)
+                .tag("compartimento", nombre)
+                .register(meterRegistry);
+            Gauge.builder("reservas.bulkhead.permisos.disponibles", semaforo, Semaphore::availablePermits)
+                .tag("compartimento", nombre)
+                .register(meterRegistry);
+        }
+
+        private boolean adquirir() {
+            if (semaforo.tryAcquire()) {
+                espera.record(0, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            if (enCola.incrementAndGet() > colaMaxima) {
+                enCola.decrementAndGet();
+                rechazos.increment();
+                return false;
+            }
+            long inicio = System.nanoTime();
+            try {
+                boolean adquirido = semaforo.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+                if (!adquirido) {
+                    rechazos.increment();
+                }
+                return adquirido;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rechazos.increment();
+                return false;
+            } finally {
+                enCola.decrementAndGet();
+                espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package reservahoteles.reservahoteles.Config;
+
+import org.springframework.boot.EnvironmentPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Identificador de esta instancia de la aplicación ('reservas.instancia.id').
+ *
+ * Si no se configura, se genera uno al arrancar y se fija en el Environment, para
+ * que todas las referencias lean el mismo valor (un '${random.uuid}' se
+ * resolvería distinto en cada una). Cada conexión del pool lo guarda en la sesión
+ * ('spring.datasource.hikari.connection-init-sql') y las notificaciones de cambio
+ * lo llevan, de modo que {@code CoherenciaCaches} reconoce las propias.
+ */
+public class InstanciaEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PROPIEDAD = "reservas.instancia.id";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.containsProperty(PROPIEDAD)) {
+            environment.getPropertySources().addLast(new MapPropertySource("reservas-instancia",
+                Map.of(PROPIEDAD, UUID.randomUUID().toString())));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package reservahoteles.reservahoteles.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Réplica de lectura ('reservas.replica.habilitada=true').
+ *
+ * Sustituye el DataSource de Spring Boot por {@link LecturaEscrituraDataSource}
+ * sobre dos pools de Hikari: el de la primaria, configurado como siempre con
+ * 'spring.datasource.*', y el de la réplica, con 'reservas.replica.url' y su propio
+ * tamaño en 'reservas.replica.hikari.*'. El usuario y la contraseña de la réplica
+ * son los de la primaria si no se indican.
+ */
+@Configuration
+@ConditionalOnProperty(name = "reservas.replica.habilitada", havingValue = "true")
+public class LecturaEscrituraConfig {
+
+    @Bean
+    ReplicaLectura replicaLectura(DataSourceProperties propiedades,
+                                  Environment environment,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${reservas.replica.url}") String url,
+                                  @Value("${reservas.replica.username:}") String usuario,
+                                  @Value("${reservas.replica.password:}") String contrasena,
+                                  @Value("${reservas.replica.retraso-maximo:PT5S}") Duration retrasoMaximo) {
+        HikariDataSource pool = pool(
+            url,
+            StringUtils.hasText(usuario) ? usuario : propiedades.determineUsername(),
+            StringUtils.hasText(contrasena) ? contrasena : propiedades.determinePassword(),
+            propiedades.determineDriverClassName(),
+            "reservas-replica");
+        Binder.get(environment).bind("reservas.replica.hikari", Bindable.ofInstance(pool));
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new ReplicaLectura(pool, retrasoMaximo, meterRegistry);
+    }
+
+    @Bean
+    DataSource dataSource(DataSourceProperties propiedades,
+                          Environment environment,
+                          MeterRegistry meterRegistry,
+                          ReplicaLectura replicaLectura) {
+        HikariDataSource pool = pool(
+            propiedades.determineUrl(),
+            propiedades.determineUsername(),
+            propiedades.determinePassword(),
+            propiedades.determineDriverClassName(),
+            "reservas");
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new LecturaEscrituraDataSource(pool, replicaLectura, meterRegistry);
+    }
+
+    @Bean
+    ConsistenciaLecturasInterceptor consistenciaLecturasInterceptor(
+            @Value("${reservas.replica.fijar-primaria:PT5S}") Duration fijarPrimaria) {
+        return new ConsistenciaLecturasInterceptor(fijarPrimaria);
+    }
+
+    private static HikariDataSource pool(String url, String usuario, String contrasena, String driver,
+                                         String nombre) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername(usuario);
+        pool.setPassword(contrasena);
+        pool.setDriverClassName(driver);
+        pool.setPoolName(nombre);
+        return pool;
+    }
+}
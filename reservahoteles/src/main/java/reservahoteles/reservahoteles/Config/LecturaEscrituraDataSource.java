@@ -0,0 +1,96 @@
+package reservahoteles.reservahoteles.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * DataSource que envía las transacciones de solo lectura a la réplica y el resto
+ * a la primaria.
+ *
+ * La decisión se toma con la primera sentencia y no al empezar la transacción
+ * ({@link LazyConnectionDataSourceProxy}): el gestor de transacciones pide la
+ * conexión antes de marcar la transacción como de solo lectura. Una lectura va a
+ * la primaria si la réplica no está disponible, si obtener la conexión de la
+ * réplica falla, o si el hilo fijó la primaria ({@link ConsistenciaLecturas}).
+ *
+ * Al cerrarse cierra el pool de la primaria; el de la réplica lo cierra
+ * {@link ReplicaLectura}.
+ */
+public class LecturaEscrituraDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private final DataSource primaria;
+
+    public LecturaEscrituraDataSource(DataSource primaria, ReplicaLectura replica, MeterRegistry meterRegistry) {
+        super(new Enrutador(primaria, replica, meterRegistry));
+        this.primaria = primaria;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (primaria instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    enum Destino { PRIMARIA, REPLICA }
+
+    static final class Enrutador extends AbstractRoutingDataSource {
+
+        private final DataSource primaria;
+        private final ReplicaLectura replica;
+        private final Counter lecturasReplica;
+        private final Counter lecturasPrimaria;
+        private final Counter fallos;
+
+        Enrutador(DataSource primaria, ReplicaLectura replica, MeterRegistry meterRegistry) {
+            this.primaria = primaria;
+            this.replica = replica;
+            this.lecturasReplica = Counter.builder("reservas.replica.lecturas")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+            this.lecturasPrimaria = Counter.builder("reservas.replica.lecturas")
+                .tag("destino", "primaria")
+                .register(meterRegistry);
+            this.fallos = Counter.builder("reservas.replica.fallos").register(meterRegistry);
+            setTargetDataSources(Map.of(Destino.PRIMARIA, primaria, Destino.REPLICA, replica.dataSource()));
+            setDefaultTargetDataSource(primaria);
+            afterPropertiesSet();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return Destino.PRIMARIA;
+            }
+            if (ConsistenciaLecturas.primariaFijada() || !replica.disponible()) {
+                lecturasPrimaria.increment();
+                return Destino.PRIMARIA;
+            }
+            lecturasReplica.increment();
+            return Destino.REPLICA;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            DataSource destino = determineTargetDataSource();
+            if (destino == primaria) {
+                return primaria.getConnection();
+            }
+            try {
+                return destino.getConnection();
+            } catch (SQLException e) {
+                fallos.increment();
+                replica.marcarNoDisponible(e);
+                return primaria.getConnection();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package reservahoteles.reservahoteles.Config;
+
+import reservahoteles.reservahoteles.Repository.RepositorioMetricas;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    static MetricasDataSourcePostProcessor metricasDataSourcePostProcessor(
+            ObjectProvider<RepositorioMetricas> metricas) {
+        return new MetricasDataSourcePostProcessor(metricas);
+    }
+}
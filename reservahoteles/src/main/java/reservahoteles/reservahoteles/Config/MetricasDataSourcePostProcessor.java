@@ -0,0 +1,70 @@
+package reservahoteles.reservahoteles.Config;
+
+import reservahoteles.reservahoteles.Repository.RepositorioMetricas;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Envuelve el DataSource para medir la espera por conexión de cada método del
+ * repositorio (fase 'conexion' de {@link RepositorioMetricas}).
+ *
+ * El envoltorio es un {@link DelegatingDataSource}, así que las métricas propias
+ * de Hikari (conexiones activas, inactivas, pendientes y tiempo de adquisición)
+ * se siguen publicando sobre el pool original.
+ */
+public class MetricasDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<RepositorioMetricas> metricas;
+
+    public MetricasDataSourcePostProcessor(ObjectProvider<RepositorioMetricas> metricas) {
+        this.metricas = metricas;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof LazyConnectionDataSourceProxy proxy) {
+            // La conexión real se obtiene en la primera sentencia: se mide el destino
+            if (!(proxy.getTargetDataSource() instanceof DataSourceMedido)) {
+                proxy.setTargetDataSource(new DataSourceMedido(proxy.getTargetDataSource(), metricas));
+            }
+            return bean;
+        }
+        if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceMedido)) {
+            return new DataSourceMedido(dataSource, metricas);
+        }
+        return bean;
+    }
+
+    private static final class DataSourceMedido extends DelegatingDataSource {
+
+        private final ObjectProvider<RepositorioMetricas> metricas;
+
+        private DataSourceMedido(DataSource dataSource, ObjectProvider<RepositorioMetricas> metricas) {
+            super(dataSource);
+            this.metricas = metricas;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long inicio = System.nanoTime();
+            Connection connection = super.getConnection();
+            metricas.getObject().registrarConexion(System.nanoTime() - inicio);
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            long inicio = System.nanoTime();
+            Connection connection = super.getConnection(username, password);
+            metricas.getObject().registrarConexion(System.nanoTime() - inicio);
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package reservahoteles.reservahoteles.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de la réplica de lectura y su estado.
+ *
+ * Cada 'reservas.replica.verificacion' se mide el retraso de replicación en la
+ * propia réplica. La réplica solo recibe lecturas mientras responde y su retraso
+ * no supera 'reservas.replica.retraso-maximo'; al arrancar no se usa hasta la
+ * primera verificación correcta. Un error al obtener una conexión la marca como
+ * no disponible hasta la siguiente verificación.
+ */
+@Slf4j
+public class ReplicaLectura implements AutoCloseable {
+
+    /**
+     * Segundos desde la última transacción reproducida, o 0 si la réplica ya
+     * reprodujo todo lo recibido (sin escrituras en la primaria la marca de tiempo
+     * envejece aunque no haya retraso). Fuera de recuperación, por ejemplo si la
+     * URL apunta a la primaria en un entorno local, el retraso es 0.
+     */
+    private static final String RETRASO =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource dataSource;
+    private final long retrasoMaximoMillis;
+
+    private final AtomicLong retrasoMillis = new AtomicLong(-1);
+    private volatile boolean disponible;
+
+    public ReplicaLectura(DataSource dataSource, Duration retrasoMaximo, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.retrasoMaximoMillis = retrasoMaximo.toMillis();
+        Gauge.builder("reservas.replica.retraso", retrasoMillis, AtomicLong::get)
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        Gauge.builder("reservas.replica.disponible", this, replica -> replica.disponible ? 1 : 0)
+            .register(meterRegistry);
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public boolean disponible() {
+        return disponible;
+    }
+
+    @Scheduled(fixedDelayString = "${reservas.replica.verificacion:PT5S}")
+    public void verificar() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(RETRASO)) {
+            rs.next();
+            long retraso = Math.round(rs.getDouble(1) * 1000);
+            retrasoMillis.set(retraso);
+            if (retraso > retrasoMaximoMillis) {
+                cambiar(false, "retraso de " + retraso + " ms");
+            } else {
+                cambiar(true, "retraso de " + retraso + " ms");
+            }
+        } catch (SQLException e) {
+            retrasoMillis.set(-1);
+            cambiar(false, e.getMessage());
+        }
+    }
+
+    /**
+     * Deja de usar la réplica hasta la siguiente verificación.
+     */
+    public void marcarNoDisponible(SQLException causa) {
+        cambiar(false, causa.getMessage());
+    }
+
+    private void cambiar(boolean nuevo, String motivo) {
+        if (disponible != nuevo) {
+            disponible = nuevo;
+            if (nuevo) {
+                log.info("Réplica de lectura disponible ({})", motivo);
+            } else {
+                log.warn("Réplica de lectura no disponible, las lecturas van a la primaria: {}", motivo);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (dataSource instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package reservahoteles.reservahoteles.Config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final BulkheadInterceptor bulkheadInterceptor;
+    private final ObjectProvider<ConsistenciaLecturasInterceptor> consistenciaLecturasInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkheadInterceptor)
+            .addPathPatterns("/api/reservas", "/api/reservas/**", "/api/analitica/**");
+        consistenciaLecturasInterceptor.ifAvailable(interceptor ->
+            registry.addInterceptor(interceptor).addPathPatterns("/api/reservas", "/api/reservas/**"));
+    }
+}
@@ -0,0 +1,50 @@
+package reservahoteles.reservahoteles.Controller;
+
+import reservahoteles.reservahoteles.DTO.CacheEstadisticasResponse;
+import reservahoteles.reservahoteles.Service.TarifaCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Consulta e invalidación manual de las cachés. Los cambios de tarifas y temporadas
+ * llegan a cada instancia por {@code CoherenciaCaches}; la invalidación manual
+ * sirve cuando esa escucha está deshabilitada o caída, y puede desactivarse con
+ * 'reservas.admin.invalidar-cache'.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final TarifaCache tarifaCache;
+    private final boolean invalidacionHabilitada;
+
+    public AdminController(TarifaCache tarifaCache,
+                           @Value("${reservas.admin.invalidar-cache:true}") boolean invalidacionHabilitada) {
+        this.tarifaCache = tarifaCache;
+        this.invalidacionHabilitada = invalidacionHabilitada;
+    }
+
+    @GetMapping("/cache/tarifas")
+    public ResponseEntity<List<CacheEstadisticasResponse>> estadisticasTarifas() {
+        return ResponseEntity.ok(tarifaCache.estadisticas());
+    }
+
+    /**
+     * Invalida las tarifas de esta instancia de un hotel, de un tipo o de ambos; sin
+     * filtros, todas. Responde 404 si la invalidación manual está desactivada.
+     */
+    @DeleteMapping("/cache/tarifas")
+    public ResponseEntity<Void> invalidarTarifas(
+            @RequestParam(required = false) Integer idHotel,
+            @RequestParam(required = false) Integer idTipo
+    ) {
+        if (!invalidacionHabilitada) {
+            return ResponseEntity.notFound().build();
+        }
+        tarifaCache.invalidar(idHotel, idTipo);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,39 @@
+package reservahoteles.reservahoteles.Controller;
+
+import reservahoteles.reservahoteles.DTO.AnaliticaResponse;
+import reservahoteles.reservahoteles.Service.AnaliticaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@RestController
+@RequestMapping("/api/analitica")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AnaliticaController {
+
+    private static final int MAXIMO_NOCHES = 3660;
+
+    private final AnaliticaService analiticaService;
+
+    @GetMapping("/ocupacion")
+    public ResponseEntity<AnaliticaResponse> ocupacion(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) Integer idHotel,
+            @RequestParam(required = false) Integer idTipo
+    ) {
+        long noches = ChronoUnit.DAYS.between(fechaDesde, fechaHasta);
+        if (noches <= 0 || noches > MAXIMO_NOCHES) {
+            return ResponseEntity.badRequest().build();
+        }
+        return analiticaService.calcular(fechaDesde, fechaHasta, idHotel, idTipo)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
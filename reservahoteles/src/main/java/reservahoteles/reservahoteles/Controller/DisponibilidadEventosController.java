@@ -0,0 +1,54 @@
+package reservahoteles.reservahoteles.Controller;
+
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Service.DisponibilidadFeed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Flujo de disponibilidad en tiempo real. El cliente se suscribe con un
+ * 'EventSource' a un hotel, tipo y rango de noches, y recibe un evento
+ * 'disponibilidad' al abrir la conexión y cada vez que cambia la cantidad
+ * disponible del rango. Los rangos que el libro en memoria no cubre se rechazan
+ * con 422: sus cambios no generan eventos.
+ */
+@RestController
+@RequestMapping("/api/reservas/disponibilidad")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DisponibilidadEventosController {
+
+    private static final String REINTENTO_SEGUNDOS = "30";
+
+    private final DisponibilidadFeed disponibilidadFeed;
+
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribir(
+            @RequestParam Integer idHotel,
+            @RequestParam Integer idTipo,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin
+    ) {
+        long noches = ChronoUnit.DAYS.between(fechaInicio, fechaFin);
+        if (noches <= 0 || noches > ReservaRepository.MAXIMO_NOCHES) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!disponibilidadFeed.cubre(idHotel, idTipo, fechaInicio, fechaFin)) {
+            return ResponseEntity.unprocessableContent().build();
+        }
+        return disponibilidadFeed.suscribir(idHotel, idTipo, fechaInicio, fechaFin)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, REINTENTO_SEGUNDOS)
+                .build());
+    }
+}
@@ -0,0 +1,101 @@
+package reservahoteles.reservahoteles.Controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sirve la página principal con los enlaces a 'app.js' y 'styles.css' reescritos a
+ * sus URLs con huella de contenido (por ejemplo '/app-5f1c...js').
+ *
+ * Los recursos con huella se cachean un año en el navegador, porque cualquier cambio
+ * de contenido cambia la URL. La página en sí se entrega con 'no-cache' y un ETag
+ * de su contenido, así que el navegador la revalida en cada visita y descubre las
+ * URLs nuevas. El ETag es débil, como en las respuestas JSON, para que la página
+ * también se comprima.
+ */
+@Controller
+@RequiredArgsConstructor
+public class PaginaController {
+
+    private static final String PAGINA = "static/index.html";
+    private static final Pattern ENLACE = Pattern.compile("(src|href)=\"([^\":/]+\\.(?:js|css))\"");
+
+    private final ResourceUrlProvider resourceUrlProvider;
+
+    private volatile Pagina pagina;
+
+    @GetMapping(value = {"/", "/index.html"}, produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<String> index(WebRequest webRequest) {
+        Pagina actual = pagina();
+        if (webRequest.checkNotModified(actual.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(actual.etag())
+                .cacheControl(CacheControl.noCache())
+                .build();
+        }
+        return ResponseEntity.ok()
+            .eTag(actual.etag())
+            .cacheControl(CacheControl.noCache())
+            .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+            .body(actual.html());
+    }
+
+    /**
+     * Reescribe la página la primera vez que se pide; los recursos estáticos no
+     * cambian mientras la aplicación está en ejecución.
+     *
+     * Las peticiones que llegan antes de terminar el arranque (Tomcat atiende antes
+     * de que {@link ResourceUrlProvider} detecte los recursos) reciben la página con
+     * los enlaces originales, que no se guarda.
+     */
+    private Pagina pagina() {
+        Pagina actual = pagina;
+        if (actual == null) {
+            actual = reescribir();
+            if (actual.completa()) {
+                pagina = actual;
+            }
+        }
+        return actual;
+    }
+
+    private Pagina reescribir() {
+        String original;
+        try {
+            original = new ClassPathResource(PAGINA).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + PAGINA, e);
+        }
+        Matcher enlace = ENLACE.matcher(original);
+        StringBuilder html = new StringBuilder(original.length());
+        boolean completa = true;
+        while (enlace.find()) {
+            String url = resourceUrlProvider.getForLookupPath("/" + enlace.group(2));
+            completa &= url != null;
+            enlace.appendReplacement(html, Matcher.quoteReplacement(
+                enlace.group(1) + "=\"" + (url != null ? url : enlace.group(2)) + "\""));
+        }
+        enlace.appendTail(html);
+        String contenido = html.toString();
+        return new Pagina(contenido,
+            "W/\"" + DigestUtils.md5DigestAsHex(contenido.getBytes(StandardCharsets.UTF_8)) + "\"", completa);
+    }
+
+    private record Pagina(String html, String etag, boolean completa) {
+    }
+}
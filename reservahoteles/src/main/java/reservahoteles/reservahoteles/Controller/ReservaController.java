@@ -2,19 +2,43 @@ package reservahoteles.reservahoteles.Controller;
 
 import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
 import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.BusquedaReservasResponse;
 import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CambioEstadoResponse;
 import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteResponse;
+import reservahoteles.reservahoteles.DTO.CursorBusqueda;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteResponse;
 import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.SugerenciaReserva;
+import reservahoteles.reservahoteles.DTO.FormatoExportacion;
 import reservahoteles.reservahoteles.DTO.TarifaResponse;
+import reservahoteles.reservahoteles.Service.ClaveIdempotenciaReutilizadaException;
+import reservahoteles.reservahoteles.Service.ExportacionService;
 import reservahoteles.reservahoteles.Service.ReservaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/reservas")
@@ -22,29 +46,80 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class ReservaController {
 
+    private static final int MAXIMO_NOCHES_LOTE = 366;
+    private static final int MAXIMO_LIMITE_BUSQUEDA = 200;
+    private static final int MAXIMO_DIAS_SUGERENCIAS = 30;
+    private static final int MAXIMO_SUGERENCIAS = 50;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAXIMO_LARGO_CLAVE = 100;
+    private static final Set<String> ESTADOS = Set.of("Confirmada", "Cancelada", "Completada");
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
+
+    private static final CacheControl CACHE_DISPONIBILIDAD = CacheControl.noCache();
+
     private final ReservaService reservaService;
+    private final ExportacionService exportacionService;
+
+    @Value("${reservas.http.tarifas.max-age:PT5M}")
+    private Duration maxAgeTarifas = Duration.ofMinutes(5);
 
+    /**
+     * Disponibilidad de una combinación hotel/tipo. Cuando el libro en memoria puede
+     * responder, la respuesta lleva un ETag con la versión de la combinación y un
+     * 'If-None-Match' vigente recibe 304 sin calcular la disponibilidad.
+     */
     @GetMapping("/disponibilidad")
     public ResponseEntity<List<DisponibilidadResponse>> consultarDisponibilidad(
             @RequestParam Integer idHotel,
             @RequestParam Integer idTipo,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            WebRequest webRequest
     ) {
+        String etag = reservaService.versionDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin)
+            .map(version -> etag("d", version))
+            .orElse(null);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_DISPONIBILIDAD).build();
+        }
         List<DisponibilidadResponse> disponibilidad = 
             reservaService.consultarDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CACHE_DISPONIBILIDAD).body(disponibilidad);
+    }
+
+    @PostMapping("/disponibilidad/lote")
+    public ResponseEntity<DisponibilidadLoteResponse> consultarDisponibilidadLote(
+            @Valid @RequestBody DisponibilidadLoteRequest request
+    ) {
+        long noches = ChronoUnit.DAYS.between(request.getFechaInicio(), request.getFechaFin());
+        if (noches <= 0 || noches > MAXIMO_NOCHES_LOTE) {
+            return ResponseEntity.badRequest().build();
+        }
+        DisponibilidadLoteResponse disponibilidad = reservaService.consultarDisponibilidadLote(request);
         return ResponseEntity.ok(disponibilidad);
     }
 
+    /**
+     * Tarifas vigentes en una fecha, con un ETag de la versión de las tarifas de la
+     * combinación. Como solo cambian al invalidar o recargar la caché, el cliente
+     * puede reutilizarlas durante 'reservas.http.tarifas.max-age' sin preguntar.
+     */
     @GetMapping("/tarifas")
     public ResponseEntity<List<TarifaResponse>> obtenerTarifas(
             @RequestParam Integer idHotel,
             @RequestParam Integer idTipo,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            WebRequest webRequest
     ) {
+        String etag = etag("t", reservaService.versionTarifas(idHotel, idTipo));
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeTarifas).mustRevalidate();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
         List<TarifaResponse> tarifas = 
             reservaService.obtenerTarifas(idHotel, idTipo, fechaInicio);
-        return ResponseEntity.ok(tarifas);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(tarifas);
     }
 
     @PostMapping("/calcular-precio")
@@ -55,11 +130,126 @@ public class ReservaController {
         return ResponseEntity.ok(precio);
     }
 
+    @PostMapping("/sugerencias")
+    public ResponseEntity<List<SugerenciaReserva>> sugerirAlternativas(
+            @Valid @RequestBody CrearReservaRequest request,
+            @RequestParam(defaultValue = "7") int dias,
+            @RequestParam(defaultValue = "true") boolean otrosTipos,
+            @RequestParam(defaultValue = "true") boolean otrosHoteles,
+            @RequestParam(defaultValue = "10") int limite
+    ) {
+        long noches = ChronoUnit.DAYS.between(request.getFechaInicio(), request.getFechaFin());
+        if (noches <= 0 || noches > MAXIMO_NOCHES_LOTE || dias < 0 || dias > MAXIMO_DIAS_SUGERENCIAS
+                || limite <= 0 || limite > MAXIMO_SUGERENCIAS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<SugerenciaReserva> sugerencias = 
+            reservaService.sugerirAlternativas(request, dias, otrosTipos, otrosHoteles, limite);
+        return ResponseEntity.ok(sugerencias);
+    }
+
+    @GetMapping("/buscar")
+    public ResponseEntity<BusquedaReservasResponse> buscarReservas(
+            @RequestParam Integer idHotel,
+            @RequestParam(required = false) Integer idTipo,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite
+    ) {
+        if (!fechaHasta.isAfter(fechaDesde) || (estado != null && !ESTADOS.contains(estado))
+                || limite <= 0 || limite > MAXIMO_LIMITE_BUSQUEDA) {
+            return ResponseEntity.badRequest().build();
+        }
+        CursorBusqueda posicion;
+        try {
+            posicion = cursor != null ? CursorBusqueda.decodificar(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        BusquedaReservasResponse response = 
+            reservaService.buscarReservas(idHotel, idTipo, fechaDesde, fechaHasta, estado, posicion, limite);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping
     public ResponseEntity<CrearReservaResponse> crearReserva(
-            @Valid @RequestBody CrearReservaRequest request
+            @Valid @RequestBody CrearReservaRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String claveIdempotencia
+    ) {
+        if (claveIdempotencia != null && claveIdempotencia.length() > MAXIMO_LARGO_CLAVE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(reservaService.crearReserva(request, claveIdempotencia));
+        } catch (ClaveIdempotenciaReutilizadaException e) {
+            return ResponseEntity.unprocessableContent().build();
+        }
+    }
+
+    @PostMapping("/lote")
+    public ResponseEntity<CrearReservasLoteResponse> crearReservas(
+            @Valid @RequestBody CrearReservasLoteRequest request
     ) {
-        CrearReservaResponse response = reservaService.crearReserva(request);
+        CrearReservasLoteResponse response = reservaService.crearReservas(request);
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarReservas(
+            @RequestParam(required = false) Integer idHotel,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) String estado,
+            @RequestParam(defaultValue = "CSV") FormatoExportacion formato
+    ) {
+        if (!fechaHasta.isAfter(fechaDesde) || (estado != null && !ESTADOS.contains(estado))) {
+            return ResponseEntity.badRequest().build();
+        }
+        String archivo = "reservas-" + fechaDesde + "-" + fechaHasta
+            + (formato == FormatoExportacion.NDJSON ? ".ndjson" : ".csv");
+        StreamingResponseBody cuerpo = salida ->
+            exportacionService.exportar(idHotel, fechaDesde, fechaHasta, estado, formato, salida);
+        return ResponseEntity.ok()
+            .contentType(formato == FormatoExportacion.NDJSON ? APPLICATION_NDJSON : TEXT_CSV)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(archivo).build().toString())
+            .body(cuerpo);
+    }
+
+    @PostMapping("/{idReserva}/cancelar")
+    public ResponseEntity<CambioEstadoResponse> cancelarReserva(
+            @PathVariable Integer idReserva,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String claveIdempotencia
+    ) {
+        CambioEstadoResponse response = reservaService.cancelarReserva(idReserva, claveIdempotencia);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{idReserva}/completar")
+    public ResponseEntity<CambioEstadoResponse> completarReserva(
+            @PathVariable Integer idReserva,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String claveIdempotencia
+    ) {
+        CambioEstadoResponse response = reservaService.completarReserva(idReserva, claveIdempotencia);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/lote/{idLote}/cancelar")
+    public ResponseEntity<CambioEstadoResponse> cancelarLote(
+            @PathVariable UUID idLote,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String claveIdempotencia
+    ) {
+        CambioEstadoResponse response = reservaService.cancelarLote(idLote, claveIdempotencia);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * ETag débil: la misma versión se entrega con o sin compresión gzip, y Tomcat no
+     * comprime respuestas con ETag fuerte.
+     */
+    private static String etag(String recurso, String version) {
+        return "W/\"" + recurso + version + "\"";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package reservahoteles.reservahoteles.Controller;
+
+import reservahoteles.reservahoteles.DTO.CrearRetencionRequest;
+import reservahoteles.reservahoteles.DTO.RetencionResponse;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Service.RetencionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Retenciones de habitaciones mientras el cliente paga. La reserva se crea después
+ * con POST /api/reservas indicando el 'idRetencion' devuelto aquí.
+ */
+@RestController
+@RequestMapping("/api/reservas/retenciones")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class RetencionController {
+
+    private final RetencionService retencionService;
+
+    @PostMapping
+    public ResponseEntity<RetencionResponse> retener(
+            @Valid @RequestBody CrearRetencionRequest request
+    ) {
+        long noches = ChronoUnit.DAYS.between(request.getFechaInicio(), request.getFechaFin());
+        if (noches <= 0 || noches > ReservaRepository.MAXIMO_NOCHES) {
+            return ResponseEntity.badRequest().build();
+        }
+        RetencionResponse response = retencionService.retener(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{idRetencion}")
+    public ResponseEntity<RetencionResponse> liberar(
+            @PathVariable UUID idRetencion
+    ) {
+        RetencionResponse response = retencionService.liberar(idRetencion);
+        return ResponseEntity.ok(response);
+    }
+}
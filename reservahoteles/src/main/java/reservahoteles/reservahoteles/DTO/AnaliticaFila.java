@@ -0,0 +1,24 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnaliticaFila {
+    private Integer idHotel;
+    private String hotel;
+    private Integer idTipo;
+    private String tipoHabitacion;
+    private String temporada;
+    private Long nochesDisponibles;
+    private Long nochesVendidas;
+    private BigDecimal ocupacion;
+    private BigDecimal adr;
+    private BigDecimal revpar;
+    private BigDecimal ingresos;
+    private BigDecimal tarifaBase;
+}
@@ -0,0 +1,18 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnaliticaResponse {
+    private LocalDate fechaDesde;
+    private LocalDate fechaHasta;
+    private LocalDateTime actualizado;
+    private List<AnaliticaFila> filas;
+}
@@ -0,0 +1,14 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BusquedaReservasResponse {
+    private List<ReservaResumen> reservas;
+    private String siguienteCursor;
+}
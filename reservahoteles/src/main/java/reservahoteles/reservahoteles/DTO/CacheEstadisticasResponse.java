@@ -0,0 +1,17 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheEstadisticasResponse {
+    private String cache;
+    private Long entradas;
+    private Long aciertos;
+    private Long fallos;
+    private Long desalojos;
+    private Double tasaAciertos;
+}
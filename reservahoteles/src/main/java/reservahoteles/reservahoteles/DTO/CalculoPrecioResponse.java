@@ -13,5 +13,5 @@ public class CalculoPrecioResponse {
     private BigDecimal precioPorNoche;
     private Integer numeroNoches;
     private String temporada;
-    private String desglose;
+    private DesglosePrecio desglose;
 }
@@ -0,0 +1,16 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CambioEstadoResponse {
+    private List<Integer> idReservas;
+    private String estado;
+    private Boolean exito;
+    private String mensaje;
+}
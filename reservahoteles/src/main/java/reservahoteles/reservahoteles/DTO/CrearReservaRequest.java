@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import java.time.LocalDate;
+import java.util.UUID;
 
 @Data
 public class CrearReservaRequest {
@@ -26,4 +27,7 @@ public class CrearReservaRequest {
     @NotNull(message = "La cantidad de habitaciones es requerida")
     @Min(value = 1, message = "Debe reservar al menos 1 habitación")
     private Integer cantidadHabitaciones;
+
+    /** Retención obtenida antes del pago; sus habitaciones pasan a la reserva. */
+    private UUID idRetencion;
 }
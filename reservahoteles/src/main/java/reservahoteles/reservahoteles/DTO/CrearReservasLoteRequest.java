@@ -0,0 +1,16 @@
+package reservahoteles.reservahoteles.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CrearReservasLoteRequest {
+    @NotEmpty(message = "El lote debe contener al menos una reserva")
+    @Size(max = 500, message = "El lote no puede contener más de 500 reservas")
+    private List<@Valid CrearReservaRequest> reservas;
+
+    private ModoLote modo = ModoLote.MEJOR_ESFUERZO;
+}
@@ -0,0 +1,20 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CrearReservasLoteResponse {
+    private UUID idLote;
+    private ModoLote modo;
+    private Integer exitosas;
+    private Integer fallidas;
+    private Long duracionMs;
+    private Double reservasPorSegundo;
+    private List<CrearReservaResponse> resultados;
+}
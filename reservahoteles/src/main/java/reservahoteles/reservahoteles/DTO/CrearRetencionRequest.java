@@ -0,0 +1,29 @@
+package reservahoteles.reservahoteles.DTO;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+public class CrearRetencionRequest {
+    @NotNull(message = "El ID del hotel es requerido")
+    private Integer idHotel;
+    
+    @NotNull(message = "El tipo de habitación es requerido")
+    private Integer idTipo;
+    
+    @NotNull(message = "La fecha de inicio es requerida")
+    private LocalDate fechaInicio;
+    
+    @NotNull(message = "La fecha de fin es requerida")
+    private LocalDate fechaFin;
+    
+    @NotNull(message = "La cantidad de habitaciones es requerida")
+    @Min(value = 1, message = "Debe retener al menos 1 habitación")
+    private Integer cantidadHabitaciones;
+
+    /** Minutos que dura la retención; sin valor se usa la duración configurada. */
+    @Min(value = 1, message = "La retención debe durar al menos 1 minuto")
+    private Integer minutos;
+}
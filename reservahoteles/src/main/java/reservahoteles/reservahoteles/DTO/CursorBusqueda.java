@@ -0,0 +1,42 @@
+package reservahoteles.reservahoteles.DTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de la última fila entregada en una búsqueda de reservas, usada como
+ * punto de partida de la página siguiente.
+ *
+ * Se envía al cliente como texto opaco (Base64 URL de 'fecha_inicio:id_reserva')
+ * para que no dependa del orden interno de la consulta.
+ */
+public record CursorBusqueda(LocalDate fechaInicio, Integer idReserva) {
+
+    public static CursorBusqueda de(ReservaResumen reserva) {
+        return new CursorBusqueda(reserva.getFechaInicio(), reserva.getIdReserva());
+    }
+
+    /**
+     * @throws IllegalArgumentException si el texto no es un cursor válido
+     */
+    public static CursorBusqueda decodificar(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = texto.indexOf(':');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return new CursorBusqueda(LocalDate.parse(texto.substring(0, separador)),
+                Integer.valueOf(texto.substring(separador + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+
+    public String codificar() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((fechaInicio + ":" + idReserva).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,21 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DesglosePrecio {
+    private BigDecimal precioBaseNoche;
+    private Integer numeroNoches;
+    private Integer cantidadHabitaciones;
+    private BigDecimal subtotalHabitaciones;
+    private Integer personasExtra;
+    private BigDecimal precioPersonaAdicional;
+    private BigDecimal subtotalPersonasExtra;
+    private List<PrecioNoche> noches;
+}
@@ -0,0 +1,23 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * Disponibilidad enviada a un suscriptor del flujo de eventos. 'cambio' es la
+ * diferencia con el último valor enviado a ese suscriptor (0 en el primero).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DisponibilidadEvento {
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Integer cantidadTotal;
+    private Integer cantidadDisponible;
+    private Integer cambio;
+}
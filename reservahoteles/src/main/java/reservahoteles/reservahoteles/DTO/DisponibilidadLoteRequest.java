@@ -0,0 +1,21 @@
+package reservahoteles.reservahoteles.DTO;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class DisponibilidadLoteRequest {
+    /**
+     * Combinaciones a consultar. Una lista vacía, o un idHotel/idTipo null,
+     * equivale a todas las combinaciones con inventario.
+     */
+    private List<ParHotelTipo> pares;
+
+    @NotNull(message = "La fecha de inicio es requerida")
+    private LocalDate fechaInicio;
+
+    @NotNull(message = "La fecha de fin es requerida")
+    private LocalDate fechaFin;
+}
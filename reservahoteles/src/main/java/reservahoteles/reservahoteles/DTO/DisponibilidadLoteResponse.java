@@ -0,0 +1,16 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DisponibilidadLoteResponse {
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private List<DisponibilidadNochesResponse> resultados;
+}
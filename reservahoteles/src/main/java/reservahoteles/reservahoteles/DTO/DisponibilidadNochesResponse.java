@@ -0,0 +1,19 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DisponibilidadNochesResponse {
+    private Integer idHotel;
+    private Integer idTipo;
+    private String tipoHabitacion;
+    private Integer cantidadTotal;
+    private Integer capacidadPersonas;
+    private Integer cantidadDisponible;
+    private List<Integer> disponiblesPorNoche;
+}
@@ -0,0 +1,6 @@
+package reservahoteles.reservahoteles.DTO;
+
+public enum FormatoExportacion {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,8 @@
+package reservahoteles.reservahoteles.DTO;
+
+public enum ModoLote {
+    /** Si una reserva del lote no puede crearse, no se crea ninguna. */
+    TODO_O_NADA,
+    /** Se crean las reservas que tienen disponibilidad y se informan las demás como fallidas. */
+    MEJOR_ESFUERZO
+}
@@ -0,0 +1,13 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ParHotelTipo {
+    private Integer idHotel;
+    private Integer idTipo;
+}
@@ -0,0 +1,18 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PrecioNoche {
+    private LocalDate fecha;
+    private String temporada;
+    private BigDecimal precioBaseNoche;
+    private BigDecimal precioPersonaAdicional;
+    private BigDecimal subtotal;
+}
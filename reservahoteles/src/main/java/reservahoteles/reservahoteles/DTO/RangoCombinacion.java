@@ -0,0 +1,21 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Combinación hotel/tipo con el rango de noches que se quiere consultar
+ * (desde fechaInicio hasta la noche anterior a fechaFin).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RangoCombinacion {
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+}
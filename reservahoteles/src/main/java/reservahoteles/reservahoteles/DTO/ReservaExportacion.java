@@ -0,0 +1,26 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservaExportacion {
+    private Integer idReserva;
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Integer numeroPersonas;
+    private Integer cantidadHabitaciones;
+    private BigDecimal totalCalculado;
+    private String estado;
+    private LocalDateTime fechaCreacion;
+    private UUID idLote;
+}
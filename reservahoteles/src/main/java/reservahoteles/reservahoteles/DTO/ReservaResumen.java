@@ -0,0 +1,22 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservaResumen {
+    private Integer idReserva;
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Integer numeroPersonas;
+    private Integer cantidadHabitaciones;
+    private BigDecimal totalCalculado;
+    private String estado;
+}
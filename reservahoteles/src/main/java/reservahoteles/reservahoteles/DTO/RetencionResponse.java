@@ -0,0 +1,17 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RetencionResponse {
+    private UUID idRetencion;
+    private Boolean exito;
+    private String mensaje;
+    private Instant expiraEn;
+}
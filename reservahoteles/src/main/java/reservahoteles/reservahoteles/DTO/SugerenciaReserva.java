@@ -0,0 +1,22 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SugerenciaReserva {
+    private Integer idHotel;
+    private Integer idTipo;
+    private String tipoHabitacion;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Integer diasDiferencia;
+    private Integer habitacionesDisponibles;
+    private BigDecimal totalEstimado;
+    private BigDecimal precioPorNoche;
+}
@@ -0,0 +1,24 @@
+package reservahoteles.reservahoteles.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TarifaTemporada {
+    private Integer idTarifa;
+    private Integer idHotel;
+    private String hotel;
+    private Integer idTipo;
+    private String tipoHabitacion;
+    private Integer idTemporada;
+    private String temporada;
+    private LocalDate fechaInicioTemporada;
+    private LocalDate fechaFinTemporada;
+    private BigDecimal precioBaseNoche;
+    private BigDecimal precioPersonaAdicional;
+}
@@ -2,10 +2,17 @@ package reservahoteles.reservahoteles.Entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.PartitionKey;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
+/**
+ * Reserva confirmada, cancelada o completada. La tabla está particionada por mes
+ * de 'fecha_inicio' y su clave primaria es (id_reserva, fecha_inicio); los UPDATE
+ * y DELETE de Hibernate incluyen 'fecha_inicio' para leer solo su partición.
+ */
 @Data
 @Entity
 @Table(name = "reservas")
@@ -23,6 +30,7 @@ public class Reserva {
     @JoinColumn(name = "id_tipo", nullable = false)
     private TipoHabitacion tipoHabitacion;
 
+    @PartitionKey
     @Column(name = "fecha_inicio", nullable = false)
     private LocalDate fechaInicio;
 
@@ -43,4 +51,11 @@ public class Reserva {
 
     @Column(length = 20)
     private String estado = "Confirmada";
+
+    @Column(name = "id_lote")
+    private UUID idLote;
+
+    /** Única a través de 'reservas_claves_idempotencia', no de un índice de esta tabla. */
+    @Column(name = "clave_idempotencia", length = 100)
+    private String claveIdempotencia;
 }
@@ -0,0 +1,39 @@
+package reservahoteles.reservahoteles.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Habitaciones apartadas mientras el cliente paga. Solo existen las retenciones
+ * vigentes: la fila se borra al liberarse, al vencer o al convertirse en reserva.
+ */
+@Data
+@Entity
+@Table(name = "retenciones")
+public class Retencion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id_retencion")
+    private UUID idRetencion;
+
+    @Column(name = "id_hotel", nullable = false)
+    private Integer idHotel;
+
+    @Column(name = "id_tipo", nullable = false)
+    private Integer idTipo;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDate fechaInicio;
+
+    @Column(name = "fecha_fin", nullable = false)
+    private LocalDate fechaFin;
+
+    @Column(name = "cantidad_habitaciones", nullable = false)
+    private Short cantidadHabitaciones;
+
+    @Column(name = "expira_en", nullable = false)
+    private Instant expiraEn;
+}
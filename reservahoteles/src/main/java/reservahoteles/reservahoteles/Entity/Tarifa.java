@@ -0,0 +1,33 @@
+package reservahoteles.reservahoteles.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+@Entity
+@Table(name = "tarifas")
+public class Tarifa {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_tarifa")
+    private Integer idTarifa;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_hotel", nullable = false)
+    private Hotel hotel;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_tipo", nullable = false)
+    private TipoHabitacion tipoHabitacion;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_temporada", nullable = false)
+    private Temporada temporada;
+
+    @Column(name = "precio_base_noche", nullable = false, precision = 10, scale = 2)
+    private BigDecimal precioBaseNoche;
+
+    @Column(name = "precio_persona_adicional", precision = 10, scale = 2)
+    private BigDecimal precioPersonaAdicional;
+}
@@ -0,0 +1,29 @@
+package reservahoteles.reservahoteles.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "temporadas")
+public class Temporada {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_temporada")
+    private Integer idTemporada;
+
+    @Column(nullable = false, length = 50)
+    private String nombre;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDate fechaInicio;
+
+    @Column(name = "fecha_fin", nullable = false)
+    private LocalDate fechaFin;
+
+    @Column(nullable = false)
+    private Integer anio;
+
+    private String descripcion;
+}
@@ -0,0 +1,15 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventarioHabitacionesRepository extends JpaRepository<InventarioHabitaciones, Integer> {
+
+    @Query("SELECT i FROM InventarioHabitaciones i JOIN FETCH i.hotel JOIN FETCH i.tipoHabitacion")
+    List<InventarioHabitaciones> findAllConDetalle();
+}
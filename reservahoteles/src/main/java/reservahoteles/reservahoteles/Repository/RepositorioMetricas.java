@@ -0,0 +1,100 @@
+package reservahoteles.reservahoteles.Repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Temporizadores por método del repositorio de reservas, divididos en fases.
+ *
+ * Cada método publica 'reservas.repositorio' con las etiquetas 'metodo' y 'fase':
+ * - conexion: espera por una conexión del pool (registrada por el DataSource)
+ * - ejecucion: ejecución de la consulta o función almacenada, sin la espera de conexión
+ * - mapeo: conversión de las filas en DTOs
+ *
+ * Las conexiones que se obtienen al abrir una transacción, antes de entrar a un
+ * método del repositorio, se registran con el método 'transaccion'. Las etiquetas
+ * se limitan al nombre del método y la fase para que la cardinalidad no crezca.
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositorioMetricas {
+
+    private static final String METRICA = "reservas.repositorio";
+    private static final String SIN_METODO = "transaccion";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Medicion> actual = new ThreadLocal<>();
+
+    /**
+     * Ejecuta la consulta registrando su duración en la fase 'ejecucion'. El tiempo
+     * de espera por conexión que ocurra durante la consulta se descuenta y se
+     * registra aparte en la fase 'conexion'.
+     */
+    public <T> T ejecutar(String metodo, Supplier<T> consulta) {
+        Medicion anterior = actual.get();
+        Medicion medicion = new Medicion(metodo);
+        actual.set(medicion);
+        long inicio = System.nanoTime();
+        try {
+            return consulta.get();
+        } finally {
+            long duracion = System.nanoTime() - inicio;
+            if (anterior != null) {
+                actual.set(anterior);
+            } else {
+                actual.remove();
+            }
+            timer(metodo, "ejecucion").record(Math.max(0, duracion - medicion.conexionNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Ejecuta la conversión de filas registrando su duración en la fase 'mapeo'.
+     */
+    public <T> T mapear(String metodo, Supplier<T> mapeo) {
+        long inicio = System.nanoTime();
+        try {
+            return mapeo.get();
+        } finally {
+            timer(metodo, "mapeo").record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Registra la espera por una conexión del pool y la atribuye al método del
+     * repositorio que se está ejecutando en el hilo actual.
+     */
+    public void registrarConexion(long nanos) {
+        Medicion medicion = actual.get();
+        if (medicion != null) {
+            medicion.conexionNanos += nanos;
+        }
+        timer(medicion != null ? medicion.metodo : SIN_METODO, "conexion").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String metodo, String fase) {
+        return timers.computeIfAbsent(metodo + '.' + fase, clave -> Timer.builder(METRICA)
+            .tag("metodo", metodo)
+            .tag("fase", fase)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+    }
+
+    private static final class Medicion {
+        private final String metodo;
+        private long conexionNanos;
+
+        private Medicion(String metodo) {
+            this.metodo = metodo;
+        }
+    }
+}
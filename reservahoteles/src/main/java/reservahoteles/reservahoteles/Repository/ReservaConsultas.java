@@ -0,0 +1,47 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas a funciones almacenadas y de catálogo que usa
+ * {@link ReservaCustomRepositoryImpl}.
+ *
+ * Hay dos implementaciones con el mismo SQL y los mismos resultados, elegidas con
+ * 'reservas.repositorio.acceso':
+ * - hibernate (por defecto): consultas nativas del EntityManager
+ * - jdbc: JdbcTemplate con SQL constante, fechas enlazadas como LocalDate y filas
+ *   mapeadas directamente a los DTOs
+ */
+interface ReservaConsultas {
+
+    List<DisponibilidadResponse> verificarDisponibilidad(Integer idHotel, Integer idTipo,
+                                                         LocalDate fechaInicio, LocalDate fechaFin);
+
+    List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(LocalDate fechaInicio, LocalDate fechaFin);
+
+    List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(List<RangoCombinacion> rangos);
+
+    List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio);
+
+    CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request);
+
+    CrearReservaResponse crearReserva(CrearReservaRequest request, BigDecimal totalCalculado,
+                                      String claveIdempotencia);
+
+    void bloquearInventario(Integer idHotel, Integer idTipo);
+
+    int verificarOcupacionDiaria(LocalDate desde);
+
+    int reconstruirOcupacionDiaria(LocalDate desde);
+}
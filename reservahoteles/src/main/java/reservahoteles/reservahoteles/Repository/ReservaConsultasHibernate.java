@@ -0,0 +1,349 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DesglosePrecio;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Consultas nativas con el EntityManager de Hibernate. Es el acceso por defecto.
+ *
+ * Las fechas se envían como texto con un cast '::date' y cada fila llega como
+ * Object[], que se convierte al DTO en la fase 'mapeo' de {@link RepositorioMetricas}.
+ * El EntityManager inyectado es el compartido de Spring, que usa el de la
+ * transacción actual.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "reservas.repositorio.acceso", havingValue = "hibernate", matchIfMissing = true)
+class ReservaConsultasHibernate implements ReservaConsultas {
+
+    private final EntityManager entityManager;
+    private final RepositorioMetricas metricas;
+
+    @Override
+    public List<DisponibilidadResponse> verificarDisponibilidad(Integer idHotel, Integer idTipo, 
+                                                                  LocalDate fechaInicio, LocalDate fechaFin) {
+        String sql = "SELECT * FROM verificar_disponibilidad_pool(?, ?, ?::date, ?::date)";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, idHotel)
+            .setParameter(2, idTipo)
+            .setParameter(3, fechaInicio.toString())
+            .setParameter(4, fechaFin.toString());
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("verificarDisponibilidad", () -> query.getResultList());
+        return metricas.mapear("verificarDisponibilidad", () -> mapearDisponibilidad(results));
+    }
+
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(LocalDate fechaInicio, LocalDate fechaFin) {
+        String sql = "SELECT " +
+                    "ih.id_hotel, " +
+                    "ih.id_tipo, " +
+                    "th.nombre, " +
+                    "ih.cantidad_total, " +
+                    "th.capacidad_personas, " +
+                    "GREATEST(0, ih.cantidad_total - COALESCE(o.habitaciones_ocupadas, 0) " +
+                    "- COALESCE(rn.habitaciones_retenidas, 0)) as disponibles " +
+                    "FROM inventario_habitaciones ih " +
+                    "INNER JOIN tipos_habitacion th ON ih.id_tipo = th.id_tipo " +
+                    "CROSS JOIN generate_series(?::date, ?::date - 1, interval '1 day') AS n(noche) " +
+                    "LEFT JOIN ocupacion_diaria o ON o.id_hotel = ih.id_hotel " +
+                    "AND o.id_tipo = ih.id_tipo " +
+                    "AND o.fecha = n.noche::date " +
+                    "LEFT JOIN retenciones_por_noche rn ON rn.id_hotel = ih.id_hotel " +
+                    "AND rn.id_tipo = ih.id_tipo " +
+                    "AND rn.fecha = n.noche::date " +
+                    "ORDER BY ih.id_hotel, ih.id_tipo, n.noche";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, fechaInicio.toString())
+            .setParameter(2, fechaFin.toString());
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("verificarDisponibilidadPorNoche", () -> query.getResultList());
+        return metricas.mapear("verificarDisponibilidadPorNoche", () -> mapearDisponibilidadPorNoche(results));
+    }
+
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(List<RangoCombinacion> rangos) {
+        String sql = "SELECT " +
+                    "ih.id_hotel, " +
+                    "ih.id_tipo, " +
+                    "th.nombre, " +
+                    "ih.cantidad_total, " +
+                    "th.capacidad_personas, " +
+                    "GREATEST(0, ih.cantidad_total - COALESCE(o.habitaciones_ocupadas, 0) " +
+                    "- COALESCE(rn.habitaciones_retenidas, 0)) as disponibles " +
+                    "FROM unnest(?::int[], ?::int[], ?::date[], ?::date[]) AS c(id_hotel, id_tipo, desde, hasta) " +
+                    "INNER JOIN inventario_habitaciones ih ON ih.id_hotel = c.id_hotel AND ih.id_tipo = c.id_tipo " +
+                    "INNER JOIN tipos_habitacion th ON ih.id_tipo = th.id_tipo " +
+                    "CROSS JOIN LATERAL generate_series(c.desde, c.hasta - 1, interval '1 day') AS n(noche) " +
+                    "LEFT JOIN ocupacion_diaria o ON o.id_hotel = ih.id_hotel " +
+                    "AND o.id_tipo = ih.id_tipo " +
+                    "AND o.fecha = n.noche::date " +
+                    "LEFT JOIN retenciones_por_noche rn ON rn.id_hotel = ih.id_hotel " +
+                    "AND rn.id_tipo = ih.id_tipo " +
+                    "AND rn.fecha = n.noche::date " +
+                    "ORDER BY ih.id_hotel, ih.id_tipo, n.noche";
+
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, arreglo(rangos, RangoCombinacion::getIdHotel))
+            .setParameter(2, arreglo(rangos, RangoCombinacion::getIdTipo))
+            .setParameter(3, arreglo(rangos, RangoCombinacion::getFechaInicio))
+            .setParameter(4, arreglo(rangos, RangoCombinacion::getFechaFin));
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("verificarDisponibilidadPorNoche", () -> query.getResultList());
+        return metricas.mapear("verificarDisponibilidadPorNoche", () -> mapearDisponibilidadPorNoche(results));
+    }
+
+    @Override
+    public List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio) {
+        String sql = "SELECT " +
+                    "t.id_tarifa, " +
+                    "hot.nombre as hotel, " +
+                    "th.nombre as tipo_habitacion, " +
+                    "temp.nombre as temporada, " +
+                    "t.precio_base_noche, " +
+                    "t.precio_persona_adicional " +
+                    "FROM tarifas t " +
+                    "INNER JOIN hoteles hot ON t.id_hotel = hot.id_hotel " +
+                    "INNER JOIN tipos_habitacion th ON t.id_tipo = th.id_tipo " +
+                    "INNER JOIN temporadas temp ON t.id_temporada = temp.id_temporada " +
+                    "WHERE t.id_hotel = ? " +
+                    "AND (?::int IS NULL OR t.id_tipo = ?::int) " +
+                    "AND ?::date BETWEEN temp.fecha_inicio::date AND temp.fecha_fin::date " +
+                    "ORDER BY th.nombre";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, idHotel)
+            .setParameter(2, idTipo)
+            .setParameter(3, idTipo)
+            .setParameter(4, fechaInicio.toString());
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("obtenerTarifas", () -> query.getResultList());
+        return metricas.mapear("obtenerTarifas", () -> mapearTarifas(results));
+    }
+
+    @Override
+    public CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request) {
+        String sql = "SELECT " +
+                    "precio_total, " +
+                    "precio_por_noche, " +
+                    "numero_noches, " +
+                    "temporada, " +
+                    "(desglose->>'subtotal_habitaciones')::numeric, " +
+                    "(desglose->>'personas_extra')::int, " +
+                    "(desglose->>'precio_persona_adicional')::numeric, " +
+                    "(desglose->>'subtotal_personas_extra')::numeric " +
+                    "FROM calcular_precio_reserva(?, ?, ?::date, ?::date, ?, ?)";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, request.getIdHotel())
+            .setParameter(2, request.getIdTipo())
+            .setParameter(3, request.getFechaInicio().toString())
+            .setParameter(4, request.getFechaFin().toString())
+            .setParameter(5, request.getCantidadHabitaciones())
+            .setParameter(6, request.getNumeroPersonas());
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("calcularPrecio", () -> query.getResultList());
+        return metricas.mapear("calcularPrecio", () -> mapearPrecio(results, request.getCantidadHabitaciones()));
+    }
+
+    @Override
+    public CrearReservaResponse crearReserva(CrearReservaRequest request, BigDecimal totalCalculado,
+                                             String claveIdempotencia) {
+        String sql = "SELECT * FROM crear_reserva(?, ?, ?::date, ?::date, ?, ?" +
+                    (totalCalculado != null ? ", p_total_calculado => ?" : "") +
+                    (claveIdempotencia != null ? ", p_clave_idempotencia => ?" : "") +
+                    (request.getIdRetencion() != null ? ", p_id_retencion => ?::uuid" : "") +
+                    ")";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, request.getIdHotel())
+            .setParameter(2, request.getIdTipo())
+            .setParameter(3, request.getFechaInicio().toString())
+            .setParameter(4, request.getFechaFin().toString())
+            .setParameter(5, request.getNumeroPersonas())
+            .setParameter(6, request.getCantidadHabitaciones());
+        int posicion = 7;
+        if (totalCalculado != null) {
+            query.setParameter(posicion++, totalCalculado);
+        }
+        if (claveIdempotencia != null) {
+            query.setParameter(posicion++, claveIdempotencia);
+        }
+        if (request.getIdRetencion() != null) {
+            query.setParameter(posicion, request.getIdRetencion().toString());
+        }
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = metricas.ejecutar("crearReserva", () -> query.getResultList());
+        return metricas.mapear("crearReserva", () -> mapearCreacion(results));
+    }
+
+    @Override
+    public void bloquearInventario(Integer idHotel, Integer idTipo) {
+        String sql = "SELECT id_inventario FROM inventario_habitaciones " +
+                    "WHERE id_hotel = ? AND id_tipo = ? " +
+                    "FOR UPDATE";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, idHotel)
+            .setParameter(2, idTipo);
+        
+        metricas.ejecutar("bloquearInventario", () -> query.getResultList());
+    }
+
+    @Override
+    public int verificarOcupacionDiaria(LocalDate desde) {
+        String sql = "SELECT COUNT(*) FROM verificar_ocupacion_diaria(?::date)";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, desde.toString());
+        
+        Object result = metricas.ejecutar("verificarOcupacionDiaria", () -> query.getSingleResult());
+        return ((Number) result).intValue();
+    }
+
+    @Override
+    public int reconstruirOcupacionDiaria(LocalDate desde) {
+        String sql = "SELECT reconstruir_ocupacion_diaria(?::date)";
+        
+        Query query = entityManager.createNativeQuery(sql)
+            .setParameter(1, desde.toString());
+        
+        Object result = metricas.ejecutar("reconstruirOcupacionDiaria", () -> query.getSingleResult());
+        return ((Number) result).intValue();
+    }
+
+    static List<DisponibilidadResponse> mapearDisponibilidad(List<Object[]> results) {
+        List<DisponibilidadResponse> responses = new ArrayList<>();
+        
+        for (Object[] row : results) {
+            DisponibilidadResponse response = new DisponibilidadResponse(
+                row[0] != null ? row[0].toString() : "Desconocido",
+                row[1] != null ? ((Number) row[1]).intValue() : 0,
+                row[2] != null ? ((Number) row[2]).intValue() : 0,
+                row[3] != null ? ((Number) row[3]).intValue() : 0
+            );
+            responses.add(response);
+        }
+        
+        return responses;
+    }
+
+    /** Literal de arreglo de PostgreSQL ('{1,2,3}') con un valor de cada rango. */
+    private static String arreglo(List<RangoCombinacion> rangos, Function<RangoCombinacion, Object> valor) {
+        return rangos.stream().map(r -> String.valueOf(valor.apply(r))).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static List<DisponibilidadNochesResponse> mapearDisponibilidadPorNoche(List<Object[]> results) {
+        List<DisponibilidadNochesResponse> responses = new ArrayList<>();
+        DisponibilidadNochesResponse actual = null;
+        
+        for (Object[] row : results) {
+            int idHotel = ((Number) row[0]).intValue();
+            int idTipo = ((Number) row[1]).intValue();
+            int disponibles = ((Number) row[5]).intValue();
+            if (actual == null || actual.getIdHotel() != idHotel || actual.getIdTipo() != idTipo) {
+                actual = new DisponibilidadNochesResponse(
+                    idHotel,
+                    idTipo,
+                    row[2] != null ? row[2].toString() : "Desconocido",
+                    row[3] != null ? ((Number) row[3]).intValue() : 0,
+                    row[4] != null ? ((Number) row[4]).intValue() : 0,
+                    disponibles,
+                    new ArrayList<>()
+                );
+                responses.add(actual);
+            }
+            actual.getDisponiblesPorNoche().add(disponibles);
+            actual.setCantidadDisponible(Math.min(actual.getCantidadDisponible(), disponibles));
+        }
+        
+        return responses;
+    }
+
+    static List<TarifaResponse> mapearTarifas(List<Object[]> results) {
+        List<TarifaResponse> responses = new ArrayList<>();
+        
+        for (Object[] row : results) {
+            TarifaResponse response = new TarifaResponse(
+                row[0] != null ? ((Number) row[0]).intValue() : null,
+                row[1] != null ? row[1].toString() : null,
+                row[2] != null ? row[2].toString() : null,
+                row[3] != null ? row[3].toString() : null,
+                row[4] != null ? new BigDecimal(row[4].toString()) : null,
+                row[5] != null ? new BigDecimal(row[5].toString()) : null
+            );
+            responses.add(response);
+        }
+        
+        return responses;
+    }
+
+    private static CalculoPrecioResponse mapearPrecio(List<Object[]> results, Integer cantidadHabitaciones) {
+        if (!results.isEmpty()) {
+            Object[] row = results.get(0);
+            BigDecimal precioPorNoche = row[1] != null ? new BigDecimal(row[1].toString()) : null;
+            Integer numeroNoches = row[2] != null ? ((Number) row[2]).intValue() : null;
+            DesglosePrecio desglose = new DesglosePrecio(
+                precioPorNoche,
+                numeroNoches,
+                cantidadHabitaciones,
+                row[4] != null ? new BigDecimal(row[4].toString()) : null,
+                row[5] != null ? ((Number) row[5]).intValue() : null,
+                row[6] != null ? new BigDecimal(row[6].toString()) : null,
+                row[7] != null ? new BigDecimal(row[7].toString()) : null,
+                List.of()
+            );
+            return new CalculoPrecioResponse(
+                row[0] != null ? new BigDecimal(row[0].toString()) : null,
+                precioPorNoche,
+                numeroNoches,
+                row[3] != null ? row[3].toString() : null,
+                desglose
+            );
+        }
+        
+        return null;
+    }
+
+    private static CrearReservaResponse mapearCreacion(List<Object[]> results) {
+        if (!results.isEmpty()) {
+            Object[] row = results.get(0);
+            return new CrearReservaResponse(
+                (Integer) row[0],
+                (Boolean) row[1],
+                (String) row[2],
+                (BigDecimal) row[3]
+            );
+        }
+        
+        return new CrearReservaResponse(null, false, "Error al crear reserva", BigDecimal.ZERO);
+    }
+}
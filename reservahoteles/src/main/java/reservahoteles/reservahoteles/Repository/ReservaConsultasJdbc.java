@@ -0,0 +1,320 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DesglosePrecio;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consultas con {@link JdbcTemplate}, sin pasar por Hibernate.
+ *
+ * - Cada consulta usa un texto SQL constante (crear_reserva recibe siempre sus nueve
+ *   argumentos, con NULL cuando no hay total, clave o retención), así que el driver de
+ *   PostgreSQL la prepara en el servidor a partir de la quinta ejecución
+ *   (prepareThreshold) y reutiliza el plan en cada conexión del pool.
+ * - Las fechas se enlazan como {@link LocalDate} con tipo 'date', sin convertirlas a
+ *   texto ni castearlas en el SQL.
+ * - Cada fila se lee directamente al DTO, sin Object[] intermedios.
+ *
+ * Como las filas se mapean mientras se leen, la fase 'ejecucion' de
+ * {@link RepositorioMetricas} incluye el mapeo y no se registra una fase 'mapeo'.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "reservas.repositorio.acceso", havingValue = "jdbc")
+class ReservaConsultasJdbc implements ReservaConsultas {
+
+    private static final String SQL_DISPONIBILIDAD =
+        "SELECT tipo_habitacion, cantidad_total, cantidad_disponible, capacidad_personas " +
+        "FROM verificar_disponibilidad_pool(?, ?, ?, ?)";
+
+    private static final String SQL_DISPONIBILIDAD_POR_NOCHE = "SELECT " +
+        "ih.id_hotel, " +
+        "ih.id_tipo, " +
+        "th.nombre, " +
+        "ih.cantidad_total, " +
+        "th.capacidad_personas, " +
+        "GREATEST(0, ih.cantidad_total - COALESCE(o.habitaciones_ocupadas, 0) " +
+        "- COALESCE(rn.habitaciones_retenidas, 0)) as disponibles " +
+        "FROM inventario_habitaciones ih " +
+        "INNER JOIN tipos_habitacion th ON ih.id_tipo = th.id_tipo " +
+        "CROSS JOIN generate_series(?, ? - 1, interval '1 day') AS n(noche) " +
+        "LEFT JOIN ocupacion_diaria o ON o.id_hotel = ih.id_hotel " +
+        "AND o.id_tipo = ih.id_tipo " +
+        "AND o.fecha = n.noche::date " +
+        "LEFT JOIN retenciones_por_noche rn ON rn.id_hotel = ih.id_hotel " +
+        "AND rn.id_tipo = ih.id_tipo " +
+        "AND rn.fecha = n.noche::date " +
+        "ORDER BY ih.id_hotel, ih.id_tipo, n.noche";
+
+    private static final String SQL_DISPONIBILIDAD_POR_RANGOS = "SELECT " +
+        "ih.id_hotel, " +
+        "ih.id_tipo, " +
+        "th.nombre, " +
+        "ih.cantidad_total, " +
+        "th.capacidad_personas, " +
+        "GREATEST(0, ih.cantidad_total - COALESCE(o.habitaciones_ocupadas, 0) " +
+        "- COALESCE(rn.habitaciones_retenidas, 0)) as disponibles " +
+        "FROM unnest(?::int[], ?::int[], ?::date[], ?::date[]) AS c(id_hotel, id_tipo, desde, hasta) " +
+        "INNER JOIN inventario_habitaciones ih ON ih.id_hotel = c.id_hotel AND ih.id_tipo = c.id_tipo " +
+        "INNER JOIN tipos_habitacion th ON ih.id_tipo = th.id_tipo " +
+        "CROSS JOIN LATERAL generate_series(c.desde, c.hasta - 1, interval '1 day') AS n(noche) " +
+        "LEFT JOIN ocupacion_diaria o ON o.id_hotel = ih.id_hotel " +
+        "AND o.id_tipo = ih.id_tipo " +
+        "AND o.fecha = n.noche::date " +
+        "LEFT JOIN retenciones_por_noche rn ON rn.id_hotel = ih.id_hotel " +
+        "AND rn.id_tipo = ih.id_tipo " +
+        "AND rn.fecha = n.noche::date " +
+        "ORDER BY ih.id_hotel, ih.id_tipo, n.noche";
+
+    static final String SQL_TARIFAS = "SELECT " +
+        "t.id_tarifa, " +
+        "hot.nombre as hotel, " +
+        "th.nombre as tipo_habitacion, " +
+        "temp.nombre as temporada, " +
+        "t.precio_base_noche, " +
+        "t.precio_persona_adicional " +
+        "FROM tarifas t " +
+        "INNER JOIN hoteles hot ON t.id_hotel = hot.id_hotel " +
+        "INNER JOIN tipos_habitacion th ON t.id_tipo = th.id_tipo " +
+        "INNER JOIN temporadas temp ON t.id_temporada = temp.id_temporada " +
+        "WHERE t.id_hotel = ? " +
+        "AND (?::int IS NULL OR t.id_tipo = ?::int) " +
+        "AND ? BETWEEN temp.fecha_inicio::date AND temp.fecha_fin::date " +
+        "ORDER BY th.nombre";
+
+    private static final String SQL_PRECIO = "SELECT " +
+        "precio_total, " +
+        "precio_por_noche, " +
+        "numero_noches, " +
+        "temporada, " +
+        "(desglose->>'subtotal_habitaciones')::numeric, " +
+        "(desglose->>'personas_extra')::int, " +
+        "(desglose->>'precio_persona_adicional')::numeric, " +
+        "(desglose->>'subtotal_personas_extra')::numeric " +
+        "FROM calcular_precio_reserva(?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_CREAR_RESERVA =
+        "SELECT id_reserva, exito, mensaje, total_calculado " +
+        "FROM crear_reserva(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_BLOQUEAR_INVENTARIO = "SELECT id_inventario FROM inventario_habitaciones " +
+        "WHERE id_hotel = ? AND id_tipo = ? " +
+        "FOR UPDATE";
+
+    private static final RowMapper<DisponibilidadResponse> DISPONIBILIDAD = (rs, fila) ->
+        new DisponibilidadResponse(
+            textoODefecto(rs, 1),
+            rs.getInt(2),
+            rs.getInt(3),
+            rs.getInt(4)
+        );
+
+    static final RowMapper<TarifaResponse> TARIFA = (rs, fila) ->
+        new TarifaResponse(
+            rs.getObject(1, Integer.class),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getBigDecimal(5),
+            rs.getBigDecimal(6)
+        );
+
+    private static final RowMapper<CrearReservaResponse> CREACION = (rs, fila) ->
+        new CrearReservaResponse(
+            rs.getObject(1, Integer.class),
+            rs.getObject(2, Boolean.class),
+            rs.getString(3),
+            rs.getBigDecimal(4)
+        );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositorioMetricas metricas;
+
+    @Override
+    public List<DisponibilidadResponse> verificarDisponibilidad(Integer idHotel, Integer idTipo,
+                                                                LocalDate fechaInicio, LocalDate fechaFin) {
+        return metricas.ejecutar("verificarDisponibilidad", () -> jdbcTemplate.query(SQL_DISPONIBILIDAD, ps -> {
+            ps.setObject(1, idHotel, Types.INTEGER);
+            ps.setObject(2, idTipo, Types.INTEGER);
+            ps.setObject(3, fechaInicio, Types.DATE);
+            ps.setObject(4, fechaFin, Types.DATE);
+        }, DISPONIBILIDAD));
+    }
+
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(LocalDate fechaInicio, LocalDate fechaFin) {
+        List<DisponibilidadNochesResponse> responses = new ArrayList<>();
+        metricas.ejecutar("verificarDisponibilidadPorNoche", () -> {
+            jdbcTemplate.query(SQL_DISPONIBILIDAD_POR_NOCHE, ps -> {
+                ps.setObject(1, fechaInicio, Types.DATE);
+                ps.setObject(2, fechaFin, Types.DATE);
+            }, rs -> {
+                agregarNoche(responses, rs);
+            });
+            return null;
+        });
+        return responses;
+    }
+
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(List<RangoCombinacion> rangos) {
+        List<DisponibilidadNochesResponse> responses = new ArrayList<>();
+        metricas.ejecutar("verificarDisponibilidadPorNoche", () -> {
+            jdbcTemplate.query(SQL_DISPONIBILIDAD_POR_RANGOS, ps -> {
+                Connection conexion = ps.getConnection();
+                ps.setArray(1, conexion.createArrayOf("integer",
+                    rangos.stream().map(RangoCombinacion::getIdHotel).toArray()));
+                ps.setArray(2, conexion.createArrayOf("integer",
+                    rangos.stream().map(RangoCombinacion::getIdTipo).toArray()));
+                ps.setArray(3, conexion.createArrayOf("date",
+                    rangos.stream().map(r -> Date.valueOf(r.getFechaInicio())).toArray()));
+                ps.setArray(4, conexion.createArrayOf("date",
+                    rangos.stream().map(r -> Date.valueOf(r.getFechaFin())).toArray()));
+            }, rs -> {
+                agregarNoche(responses, rs);
+            });
+            return null;
+        });
+        return responses;
+    }
+
+    /**
+     * Añade la noche de la fila actual a la última combinación de 'responses', o
+     * empieza una nueva si la fila es de otra combinación.
+     */
+    private static void agregarNoche(List<DisponibilidadNochesResponse> responses, ResultSet rs) throws SQLException {
+        int idHotel = rs.getInt(1);
+        int idTipo = rs.getInt(2);
+        int disponibles = rs.getInt(6);
+        DisponibilidadNochesResponse actual = responses.isEmpty() ? null : responses.get(responses.size() - 1);
+        if (actual == null || actual.getIdHotel() != idHotel || actual.getIdTipo() != idTipo) {
+            actual = new DisponibilidadNochesResponse(
+                idHotel,
+                idTipo,
+                textoODefecto(rs, 3),
+                rs.getInt(4),
+                rs.getInt(5),
+                disponibles,
+                new ArrayList<>()
+            );
+            responses.add(actual);
+        }
+        actual.getDisponiblesPorNoche().add(disponibles);
+        actual.setCantidadDisponible(Math.min(actual.getCantidadDisponible(), disponibles));
+    }
+
+    @Override
+    public List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio) {
+        return metricas.ejecutar("obtenerTarifas", () -> jdbcTemplate.query(SQL_TARIFAS, ps -> {
+            ps.setObject(1, idHotel, Types.INTEGER);
+            ps.setObject(2, idTipo, Types.INTEGER);
+            ps.setObject(3, idTipo, Types.INTEGER);
+            ps.setObject(4, fechaInicio, Types.DATE);
+        }, TARIFA));
+    }
+
+    @Override
+    public CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request) {
+        List<CalculoPrecioResponse> results = metricas.ejecutar("calcularPrecio", () ->
+            jdbcTemplate.query(SQL_PRECIO, ps -> {
+                ps.setObject(1, request.getIdHotel(), Types.INTEGER);
+                ps.setObject(2, request.getIdTipo(), Types.INTEGER);
+                ps.setObject(3, request.getFechaInicio(), Types.DATE);
+                ps.setObject(4, request.getFechaFin(), Types.DATE);
+                ps.setObject(5, request.getCantidadHabitaciones(), Types.INTEGER);
+                ps.setObject(6, request.getNumeroPersonas(), Types.INTEGER);
+            }, (rs, fila) -> mapearPrecio(rs, request.getCantidadHabitaciones())));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public CrearReservaResponse crearReserva(CrearReservaRequest request, BigDecimal totalCalculado,
+                                             String claveIdempotencia) {
+        List<CrearReservaResponse> results = metricas.ejecutar("crearReserva", () ->
+            jdbcTemplate.query(SQL_CREAR_RESERVA, ps -> {
+                ps.setObject(1, request.getIdHotel(), Types.INTEGER);
+                ps.setObject(2, request.getIdTipo(), Types.INTEGER);
+                ps.setObject(3, request.getFechaInicio(), Types.DATE);
+                ps.setObject(4, request.getFechaFin(), Types.DATE);
+                ps.setObject(5, request.getNumeroPersonas(), Types.INTEGER);
+                ps.setObject(6, request.getCantidadHabitaciones(), Types.INTEGER);
+                ps.setObject(7, totalCalculado, Types.NUMERIC);
+                ps.setObject(8, claveIdempotencia, Types.VARCHAR);
+                ps.setObject(9, request.getIdRetencion(), Types.OTHER);
+            }, CREACION));
+        if (!results.isEmpty()) {
+            return results.get(0);
+        }
+
+        return new CrearReservaResponse(null, false, "Error al crear reserva", BigDecimal.ZERO);
+    }
+
+    @Override
+    public void bloquearInventario(Integer idHotel, Integer idTipo) {
+        metricas.ejecutar("bloquearInventario", () ->
+            jdbcTemplate.queryForList(SQL_BLOQUEAR_INVENTARIO, Integer.class, idHotel, idTipo));
+    }
+
+    @Override
+    public int verificarOcupacionDiaria(LocalDate desde) {
+        Integer result = metricas.ejecutar("verificarOcupacionDiaria", () ->
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM verificar_ocupacion_diaria(?)", Integer.class, desde));
+        return result != null ? result : 0;
+    }
+
+    @Override
+    public int reconstruirOcupacionDiaria(LocalDate desde) {
+        Integer result = metricas.ejecutar("reconstruirOcupacionDiaria", () ->
+            jdbcTemplate.queryForObject("SELECT reconstruir_ocupacion_diaria(?)", Integer.class, desde));
+        return result != null ? result : 0;
+    }
+
+    private static CalculoPrecioResponse mapearPrecio(ResultSet rs, Integer cantidadHabitaciones) throws SQLException {
+        BigDecimal precioPorNoche = rs.getBigDecimal(2);
+        Integer numeroNoches = rs.getObject(3, Integer.class);
+        DesglosePrecio desglose = new DesglosePrecio(
+            precioPorNoche,
+            numeroNoches,
+            cantidadHabitaciones,
+            rs.getBigDecimal(5),
+            rs.getObject(6, Integer.class),
+            rs.getBigDecimal(7),
+            rs.getBigDecimal(8),
+            List.of()
+        );
+        return new CalculoPrecioResponse(
+            rs.getBigDecimal(1),
+            precioPorNoche,
+            numeroNoches,
+            rs.getString(4),
+            desglose
+        );
+    }
+
+    private static String textoODefecto(ResultSet rs, int columna) throws SQLException {
+        String valor = rs.getString(columna);
+        return valor != null ? valor : "Desconocido";
+    }
+}
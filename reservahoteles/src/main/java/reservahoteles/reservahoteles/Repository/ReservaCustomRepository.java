@@ -3,22 +3,56 @@ package reservahoteles.reservahoteles.Repository;
 
 import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
 import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
 import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.ReservaExportacion;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
 import reservahoteles.reservahoteles.DTO.TarifaResponse;
 import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
 import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ReservaCustomRepository {
     
     List<DisponibilidadResponse> verificarDisponibilidad(Integer idHotel, Integer idTipo, 
                                                          LocalDate fechaInicio, LocalDate fechaFin);
     
+    List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(LocalDate fechaInicio, LocalDate fechaFin);
+
+    List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(List<RangoCombinacion> rangos);
+    
     List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio);
     
     CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request);
     
-    CrearReservaResponse crearReserva(CrearReservaRequest request);
+    CrearReservaResponse crearReserva(CrearReservaRequest request, BigDecimal totalCalculado,
+                                      String claveIdempotencia);
+
+    List<Integer> insertarReservas(List<CrearReservaRequest> requests, List<BigDecimal> totales, UUID idLote);
+
+    void bloquearInventario(Integer idHotel, Integer idTipo);
+
+    List<ReservaResumen> buscarReservas(Integer idHotel, Integer idTipo, LocalDate fechaDesde, LocalDate fechaHasta,
+                                        String estado, LocalDate despuesDeFecha, Integer despuesDeId, int limite);
+
+    void recorrerReservas(Integer idHotel, LocalDate fechaDesde, LocalDate fechaHasta, String estado,
+                          Consumer<ReservaExportacion> consumidor);
+
+    void recorrerReservasVendidas(int despuesDeId, Consumer<ReservaResumen> consumidor);
+
+    int verificarOcupacionDiaria(LocalDate desde);
+
+    int reconstruirOcupacionDiaria(LocalDate desde);
+
+    int crearParticiones(LocalDate desde, LocalDate hasta);
+
+    String archivarParticion(LocalDate antes);
+
+    void compactarParticionArchivada(String particion);
 }
\ No newline at end of file
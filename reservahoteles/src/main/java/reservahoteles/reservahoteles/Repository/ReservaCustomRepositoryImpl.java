@@ -4,24 +4,55 @@ import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
 import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
 import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
 import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.DesglosePrecio;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
 import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.ReservaExportacion;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
 import reservahoteles.reservahoteles.DTO.TarifaResponse;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
-
+/**
+ * Implementación de las consultas nativas del repositorio de reservas.
+ * 
+ * Las consultas a funciones almacenadas y de catálogo se delegan en
+ * {@link ReservaConsultas}, cuya implementación se elige con la propiedad
+ * 'reservas.repositorio.acceso' (Hibernate o JDBC). Las operaciones de lote, cursor,
+ * paginación y mantenimiento de particiones usan siempre {@link JdbcTemplate}.
+ */
 @Repository
+@RequiredArgsConstructor
 public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
 
-    @PersistenceContext
-    private EntityManager entityManager;
+    private static final Pattern PARTICION = Pattern.compile("reservas_\\d{4}_\\d{2}");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositorioMetricas metricas;
+    private final ReservaConsultas consultas;
+
+    @Value("${reservas.exportacion.fetch-size:1000}")
+    private int fetchSizeExportacion;
 
     /**
      * Verifica la disponibilidad de habitaciones en un hotel para un tipo específico
@@ -44,29 +75,43 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
     @Override
     public List<DisponibilidadResponse> verificarDisponibilidad(Integer idHotel, Integer idTipo, 
                                                                   LocalDate fechaInicio, LocalDate fechaFin) {
-        String sql = "SELECT * FROM verificar_disponibilidad_pool(?, ?, ?::date, ?::date)";
-        
-        Query query = entityManager.createNativeQuery(sql)
-            .setParameter(1, idHotel)
-            .setParameter(2, idTipo)
-            .setParameter(3, fechaInicio.toString())
-            .setParameter(4, fechaFin.toString());
-        
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-        List<DisponibilidadResponse> responses = new ArrayList<>();
-        
-        for (Object[] row : results) {
-            DisponibilidadResponse response = new DisponibilidadResponse(
-                row[0] != null ? row[0].toString() : "Desconocido",
-                row[1] != null ? ((Number) row[1]).intValue() : 0,
-                row[2] != null ? ((Number) row[2]).intValue() : 0,
-                row[3] != null ? ((Number) row[3]).intValue() : 0
-            );
-            responses.add(response);
-        }
-        
-        return responses;
+        return consultas.verificarDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin);
+    }
+
+    /**
+     * Calcula en una sola consulta la disponibilidad noche a noche de todas las
+     * combinaciones hotel/tipo con inventario dentro de un rango de fechas.
+     * 
+     * Genera las noches del rango con 'generate_series', las cruza con el inventario
+     * y toma la ocupación de cada noche de 'ocupacion_diaria'. Sustituye a una llamada
+     * de 'verificar_disponibilidad_pool' por combinación cuando se consulta una
+     * cuadrícula completa de hoteles y tipos.
+     * 
+     * @param fechaInicio Primera noche del rango
+     * @param fechaFin Fecha de salida (la noche de esta fecha no se incluye)
+     * @return Una fila por combinación hotel/tipo, ordenadas por hotel y tipo, con:
+     *         - Datos del tipo de habitación e inventario total
+     *         - Habitaciones disponibles en cada noche del rango
+     *         - Mínimo de habitaciones disponibles en el rango
+     */
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(LocalDate fechaInicio, LocalDate fechaFin) {
+        return consultas.verificarDisponibilidadPorNoche(fechaInicio, fechaFin);
+    }
+
+    /**
+     * Igual que {@link #verificarDisponibilidadPorNoche(LocalDate, LocalDate)}, pero
+     * solo para las combinaciones indicadas y cada una en su propio rango de noches.
+     * Los creadores de lotes la usan para no recorrer todos los hoteles y tipos
+     * desde la primera hasta la última fecha del lote.
+     *
+     * @param rangos Combinaciones con su rango; como mucho uno por combinación
+     * @return Una fila por combinación con inventario, ordenadas por hotel y tipo;
+     *         'disponiblesPorNoche' empieza en la fechaInicio de su rango
+     */
+    @Override
+    public List<DisponibilidadNochesResponse> verificarDisponibilidadPorNoche(List<RangoCombinacion> rangos) {
+        return consultas.verificarDisponibilidadPorNoche(rangos);
     }
 
     /**
@@ -91,45 +136,7 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      */
     @Override
     public List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio) {
-        String sql = "SELECT " +
-                    "t.id_tarifa, " +
-                    "hot.nombre as hotel, " +
-                    "th.nombre as tipo_habitacion, " +
-                    "temp.nombre as temporada, " +
-                    "t.precio_base_noche, " +
-                    "t.precio_persona_adicional " +
-                    "FROM tarifas t " +
-                    "INNER JOIN hoteles hot ON t.id_hotel = hot.id_hotel " +
-                    "INNER JOIN tipos_habitacion th ON t.id_tipo = th.id_tipo " +
-                    "INNER JOIN temporadas temp ON t.id_temporada = temp.id_temporada " +
-                    "WHERE t.id_hotel = ? " +
-                    "AND (? IS NULL OR t.id_tipo = ?) " +
-                    "AND ?::date BETWEEN temp.fecha_inicio::date AND temp.fecha_fin::date " +
-                    "ORDER BY th.nombre";
-        
-        Query query = entityManager.createNativeQuery(sql)
-            .setParameter(1, idHotel)
-            .setParameter(2, idTipo)
-            .setParameter(3, idTipo)
-            .setParameter(4, fechaInicio.toString());
-        
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-        List<TarifaResponse> responses = new ArrayList<>();
-        
-        for (Object[] row : results) {
-            TarifaResponse response = new TarifaResponse(
-                row[0] != null ? ((Number) row[0]).intValue() : null,
-                row[1] != null ? row[1].toString() : null,
-                row[2] != null ? row[2].toString() : null,
-                row[3] != null ? row[3].toString() : null,
-                row[4] != null ? new BigDecimal(row[4].toString()) : null,
-                row[5] != null ? new BigDecimal(row[5].toString()) : null
-            );
-            responses.add(response);
-        }
-        
-        return responses;
+        return consultas.obtenerTarifas(idHotel, idTipo, fechaInicio);
     }
 
     /**
@@ -143,8 +150,11 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      * - La temporada aplicable según las fechas
      * - Los precios base y por persona adicional de la tarifa vigente
      * 
-     * El resultado incluye un desglose detallado en formato JSON que se convierte
-     * a texto para evitar problemas de mapeo con tipos JSONB de PostgreSQL.
+     * Los campos del desglose JSONB se extraen como columnas individuales, de modo
+     * que el resultado se mapea directamente a un {@link DesglosePrecio} tipado.
+     * 
+     * El servicio cotiza con el motor de precios en memoria; este método se conserva
+     * como referencia para verificar que ambos cálculos coinciden.
      * 
      * @param request Objeto con los parámetros de cálculo:
      *                - ID del hotel
@@ -158,42 +168,12 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      *         - Precio por noche
      *         - Número de noches
      *         - Temporada aplicable
-     *         - Desglose detallado en formato JSON (como texto)
+     *         - Desglose detallado
      * @return null si no se puede calcular el precio
      */
     @Override
     public CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request) {
-        String sql = "SELECT " +
-                    "precio_total, " +
-                    "precio_por_noche, " +
-                    "numero_noches, " +
-                    "temporada, " +
-                    "desglose::text " +
-                    "FROM calcular_precio_reserva(?, ?, ?::date, ?::date, ?, ?)";
-        
-        Query query = entityManager.createNativeQuery(sql)
-            .setParameter(1, request.getIdHotel())
-            .setParameter(2, request.getIdTipo())
-            .setParameter(3, request.getFechaInicio().toString())
-            .setParameter(4, request.getFechaFin().toString())
-            .setParameter(5, request.getCantidadHabitaciones())
-            .setParameter(6, request.getNumeroPersonas());
-        
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-        
-        if (!results.isEmpty()) {
-            Object[] row = results.get(0);
-            return new CalculoPrecioResponse(
-                row[0] != null ? new BigDecimal(row[0].toString()) : null,
-                row[1] != null ? new BigDecimal(row[1].toString()) : null,
-                row[2] != null ? ((Number) row[2]).intValue() : null,
-                row[3] != null ? row[3].toString() : null,
-                row[4] != null ? row[4].toString() : null
-            );
-        }
-        
-        return null;
+        return consultas.calcularPrecio(request);
     }
 
     /**
@@ -201,8 +181,9 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      * 
      * Este método invoca la función almacenada 'crear_reserva' que:
      * - Valida la disponibilidad de habitaciones para las fechas solicitadas
-     * - Calcula el precio total de la reserva
-     * - Inserta el registro en la tabla de reservas
+     * - Usa el total recibido o, si es null, calcula el precio total de la reserva
+     * - Inserta el registro en la tabla de reservas, con la clave de idempotencia
+     *   si se indicó (una clave repetida devuelve un resultado fallido)
      * - Retorna el resultado de la operación con el ID de la reserva creada
      * 
      * La función maneja internamente la lógica de negocio y validaciones,
@@ -215,6 +196,8 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      *                - Fecha de fin de la reserva
      *                - Número de personas
      *                - Cantidad de habitaciones
+     * @param totalCalculado Total cotizado por el motor de precios (puede ser null)
+     * @param claveIdempotencia Clave enviada en 'Idempotency-Key' (puede ser null)
      * @return Respuesta con el resultado de la creación:
      *         - ID de la reserva creada (si fue exitosa)
      *         - Indicador de éxito o fallo
@@ -223,30 +206,344 @@ public class ReservaCustomRepositoryImpl implements ReservaCustomRepository {
      * @return Respuesta con error si no se puede crear la reserva
      */
     @Override
-    public CrearReservaResponse crearReserva(CrearReservaRequest request) {
-        String sql = "SELECT * FROM crear_reserva(?, ?, ?::date, ?::date, ?, ?)";
+    public CrearReservaResponse crearReserva(CrearReservaRequest request, BigDecimal totalCalculado,
+                                             String claveIdempotencia) {
+        return consultas.crearReserva(request, totalCalculado, claveIdempotencia);
+    }
+
+    /**
+     * Inserta un grupo de reservas confirmadas con un único lote JDBC.
+     * 
+     * Todas las filas se envían en un solo 'executeBatch' sobre la conexión de la
+     * transacción actual, de modo que el lote completo paga un único commit. No
+     * verifica disponibilidad: el llamador debe haberla comprobado con el inventario
+     * bloqueado.
+     * 
+     * @param requests Reservas a insertar
+     * @param totales Total calculado de cada reserva, en el mismo orden
+     * @param idLote Identificador común del lote, para poder cancelarlo completo
+     * @return Identificadores generados, en el mismo orden que las reservas
+     */
+    @Override
+    public List<Integer> insertarReservas(List<CrearReservaRequest> requests, List<BigDecimal> totales,
+                                          UUID idLote) {
+        String sql = "INSERT INTO reservas (" +
+                    "id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, " +
+                    "cantidad_habitaciones, total_calculado, estado, id_lote" +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, 'Confirmada', ?)";
+        
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        metricas.ejecutar("insertarReservas", () -> jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(sql, new String[] {"id_reserva"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    CrearReservaRequest request = requests.get(i);
+                    ps.setInt(1, request.getIdHotel());
+                    ps.setInt(2, request.getIdTipo());
+                    ps.setObject(3, request.getFechaInicio());
+                    ps.setObject(4, request.getFechaFin());
+                    ps.setInt(5, request.getNumeroPersonas());
+                    ps.setInt(6, request.getCantidadHabitaciones());
+                    ps.setBigDecimal(7, totales.get(i));
+                    ps.setObject(8, idLote);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return requests.size();
+                }
+            },
+            keyHolder
+        ));
+        
+        return metricas.mapear("insertarReservas", () -> {
+            List<Integer> ids = new ArrayList<>(requests.size());
+            for (Map<String, Object> keys : keyHolder.getKeyList()) {
+                ids.add(((Number) keys.get("id_reserva")).intValue());
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Bloquea la fila de inventario de la combinación hotel/tipo hasta el final de
+     * la transacción actual.
+     * 
+     * Con 'SELECT ... FOR UPDATE' sobre 'inventario_habitaciones', dos transacciones
+     * que reservan el mismo tipo de habitación en el mismo hotel se serializan en la
+     * base de datos, aunque provengan de instancias distintas de la aplicación. La
+     * segunda espera al commit de la primera y su verificación de disponibilidad ve
+     * la reserva ya insertada. Combinaciones distintas bloquean filas distintas y
+     * no compiten entre sí.
+     * 
+     * Debe invocarse dentro de una transacción activa.
+     * 
+     * @param idHotel Identificador único del hotel
+     * @param idTipo Identificador del tipo de habitación
+     */
+    @Override
+    public void bloquearInventario(Integer idHotel, Integer idTipo) {
+        consultas.bloquearInventario(idHotel, idTipo);
+    }
+
+    /**
+     * Busca reservas de un hotel con paginación por clave (keyset) sobre
+     * (fecha_inicio, id_reserva).
+     * 
+     * En lugar de OFFSET, cada página continúa después de la última fila de la
+     * anterior con la comparación de filas '(fecha_inicio, id_reserva) > (?, ?)',
+     * así que el índice posiciona directamente el inicio de la página y el costo no
+     * depende de cuántas páginas se hayan recorrido. Solo se leen columnas de
+     * 'reservas' cubiertas por 'idx_reservas_busqueda' / 'idx_reservas_busqueda_tipo',
+     * sin cargar entidades ni sus relaciones.
+     * 
+     * Los filtros opcionales se agregan al SQL solo cuando se indican, para que el
+     * plan no dependa de condiciones 'IS NULL OR'. El ORDER BY repite las columnas
+     * fijadas por igualdad para coincidir exactamente con el índice usado y evitar
+     * un ordenamiento aparte.
+     * 
+     * @param idHotel Hotel a consultar
+     * @param idTipo Tipo de habitación (null para todos)
+     * @param fechaDesde Primera fecha de inicio incluida
+     * @param fechaHasta Fecha de inicio a partir de la cual ya no se incluye
+     * @param estado Estado de las reservas (null para todos)
+     * @param despuesDeFecha Fecha de inicio de la última fila de la página anterior (null en la primera)
+     * @param despuesDeId Id de la última fila de la página anterior (null en la primera)
+     * @param limite Número máximo de filas
+     * @return Reservas ordenadas por fecha de inicio e id
+     */
+    @Override
+    public List<ReservaResumen> buscarReservas(Integer idHotel, Integer idTipo, LocalDate fechaDesde,
+                                               LocalDate fechaHasta, String estado, LocalDate despuesDeFecha,
+                                               Integer despuesDeId, int limite) {
+        StringBuilder sql = new StringBuilder("SELECT " +
+                    "id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, " +
+                    "cantidad_habitaciones, total_calculado, estado " +
+                    "FROM reservas " +
+                    "WHERE id_hotel = ? AND fecha_inicio >= ? AND fecha_inicio < ? ");
+        List<Object> parametros = new ArrayList<>(List.of(idHotel, fechaDesde, fechaHasta));
+        String orden = "ORDER BY id_hotel, fecha_inicio, id_reserva ";
+        if (idTipo != null) {
+            sql.append("AND id_tipo = ? ");
+            parametros.add(idTipo);
+            orden = "ORDER BY id_hotel, id_tipo, fecha_inicio, id_reserva ";
+        }
+        if (estado != null) {
+            sql.append("AND estado = ? ");
+            parametros.add(estado);
+        }
+        if (despuesDeFecha != null && despuesDeId != null) {
+            sql.append("AND (fecha_inicio, id_reserva) > (?, ?) ");
+            parametros.add(despuesDeFecha);
+            parametros.add(despuesDeId);
+        }
+        sql.append(orden).append("LIMIT ?");
+        parametros.add(limite);
         
-        Query query = entityManager.createNativeQuery(sql)
-            .setParameter(1, request.getIdHotel())
-            .setParameter(2, request.getIdTipo())
-            .setParameter(3, request.getFechaInicio().toString())
-            .setParameter(4, request.getFechaFin().toString())
-            .setParameter(5, request.getNumeroPersonas())
-            .setParameter(6, request.getCantidadHabitaciones());
+        List<ReservaResumen> resultados = new ArrayList<>(limite);
+        metricas.ejecutar("buscarReservas", () -> {
+            jdbcTemplate.query(sql.toString(), rs -> {
+                resultados.add(new ReservaResumen(
+                    rs.getInt(1),
+                    rs.getInt(2),
+                    rs.getInt(3),
+                    rs.getObject(4, LocalDate.class),
+                    rs.getObject(5, LocalDate.class),
+                    rs.getInt(6),
+                    rs.getInt(7),
+                    rs.getBigDecimal(8),
+                    rs.getString(9)
+                ));
+            }, parametros.toArray());
+            return null;
+        });
+        return resultados;
+    }
+
+    /**
+     * Recorre las reservas filtradas fila por fila, sin acumularlas en memoria.
+     * 
+     * Usa un cursor de solo avance con 'fetchSize', de modo que el driver de
+     * PostgreSQL trae las filas por bloques en lugar de cargar el resultado completo.
+     * No pasa por Hibernate, así que el contexto de persistencia no crece. El driver
+     * solo usa cursor dentro de una transacción (sin autocommit), por lo que debe
+     * invocarse dentro de una transacción de solo lectura.
+     * 
+     * @param idHotel Hotel a exportar (null para todos)
+     * @param fechaDesde Primera fecha de inicio incluida
+     * @param fechaHasta Fecha de inicio a partir de la cual ya no se incluye
+     * @param estado Estado de las reservas (null para todos)
+     * @param consumidor Recibe cada reserva en orden de id
+     */
+    @Override
+    public void recorrerReservas(Integer idHotel, LocalDate fechaDesde, LocalDate fechaHasta, String estado,
+                                 Consumer<ReservaExportacion> consumidor) {
+        String sql = "SELECT " +
+                    "id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, " +
+                    "cantidad_habitaciones, total_calculado, estado, fecha_creacion, id_lote " +
+                    "FROM reservas " +
+                    "WHERE fecha_inicio >= ? AND fecha_inicio < ? " +
+                    "AND (?::int IS NULL OR id_hotel = ?::int) " +
+                    "AND (?::varchar IS NULL OR estado = ?::varchar) " +
+                    "ORDER BY id_reserva";
         
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
+        metricas.ejecutar("recorrerReservas", () -> {
+            jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSizeExportacion);
+                    ps.setObject(1, fechaDesde);
+                    ps.setObject(2, fechaHasta);
+                    ps.setObject(3, idHotel, Types.INTEGER);
+                    ps.setObject(4, idHotel, Types.INTEGER);
+                    ps.setString(5, estado);
+                    ps.setString(6, estado);
+                    return ps;
+                },
+                rs -> {
+                    Timestamp fechaCreacion = rs.getTimestamp(10);
+                    consumidor.accept(new ReservaExportacion(
+                        rs.getInt(1),
+                        rs.getInt(2),
+                        rs.getInt(3),
+                        rs.getObject(4, LocalDate.class),
+                        rs.getObject(5, LocalDate.class),
+                        rs.getInt(6),
+                        rs.getInt(7),
+                        rs.getBigDecimal(8),
+                        rs.getString(9),
+                        fechaCreacion != null ? fechaCreacion.toLocalDateTime() : null,
+                        rs.getObject(11, UUID.class)
+                    ));
+                }
+            );
+            return null;
+        });
+    }
+
+    /**
+     * Recorre fila por fila las reservas no canceladas con id mayor al indicado, en
+     * orden de id. Se usa para cargar y actualizar la instantánea de analítica.
+     * 
+     * Igual que la exportación, usa un cursor con 'fetchSize' y debe llamarse dentro
+     * de una transacción para que el controlador de PostgreSQL no cargue todo el
+     * resultado en memoria.
+     * 
+     * @param despuesDeId Último id ya cargado (0 para todas)
+     * @param consumidor Recibe cada reserva en orden de id
+     */
+    @Override
+    public void recorrerReservasVendidas(int despuesDeId, Consumer<ReservaResumen> consumidor) {
+        String sql = "SELECT " +
+                    "id_reserva, id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, " +
+                    "cantidad_habitaciones, total_calculado, estado " +
+                    "FROM reservas " +
+                    "WHERE id_reserva > ? AND estado <> 'Cancelada' " +
+                    "ORDER BY id_reserva";
         
-        if (!results.isEmpty()) {
-            Object[] row = results.get(0);
-            return new CrearReservaResponse(
-                (Integer) row[0],
-                (Boolean) row[1],
-                (String) row[2],
-                (BigDecimal) row[3]
+        metricas.ejecutar("recorrerReservasVendidas", () -> {
+            jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSizeExportacion);
+                    ps.setInt(1, despuesDeId);
+                    return ps;
+                },
+                rs -> {
+                    consumidor.accept(new ReservaResumen(
+                        rs.getInt(1),
+                        rs.getInt(2),
+                        rs.getInt(3),
+                        rs.getObject(4, LocalDate.class),
+                        rs.getObject(5, LocalDate.class),
+                        rs.getInt(6),
+                        rs.getInt(7),
+                        rs.getBigDecimal(8),
+                        rs.getString(9)
+                    ));
+                }
             );
+            return null;
+        });
+    }
+
+    /**
+     * Compara 'ocupacion_diaria' con la ocupación que resulta de sumar las reservas
+     * confirmadas, usando la función almacenada 'verificar_ocupacion_diaria'.
+     * 
+     * @param desde Primera noche a comparar; las anteriores no se revisan
+     * @return Número de combinaciones hotel/tipo/noche cuya ocupación registrada
+     *         difiere de la calculada
+     */
+    @Override
+    public int verificarOcupacionDiaria(LocalDate desde) {
+        return consultas.verificarOcupacionDiaria(desde);
+    }
+
+    /**
+     * Recalcula 'ocupacion_diaria' desde la tabla de reservas con la función
+     * almacenada 'reconstruir_ocupacion_diaria', a partir de la noche indicada.
+     * 
+     * La función bloquea la tabla de reservas contra escrituras hasta el final de la
+     * transacción actual, por lo que debe invocarse dentro de una transacción corta.
+     * 
+     * @param desde Primera noche a recalcular; las anteriores no se tocan
+     * @return Número de filas de ocupación generadas
+     */
+    @Override
+    public int reconstruirOcupacionDiaria(LocalDate desde) {
+        return consultas.reconstruirOcupacionDiaria(desde);
+    }
+
+    /**
+     * Crea las particiones mensuales de 'reservas' que falten para el rango, con la
+     * función almacenada 'crear_particiones_reservas'.
+     *
+     * @param desde Primer día del rango (se crea desde el mes que lo contiene)
+     * @param hasta Fin del rango, excluido
+     * @return Número de particiones creadas
+     */
+    @Override
+    public int crearParticiones(LocalDate desde, LocalDate hasta) {
+        Integer result = metricas.ejecutar("crearParticiones", () ->
+            jdbcTemplate.queryForObject("SELECT crear_particiones_reservas(?, ?)", Integer.class, desde, hasta));
+        return result != null ? result : 0;
+    }
+
+    /**
+     * Pasa al esquema 'archivo' la partición más antigua de 'reservas' anterior a la
+     * fecha indicada cuyas estancias hayan terminado, con la función almacenada
+     * 'archivar_particion_reservas'. Debe llamarse en una transacción propia: la
+     * función bloquea 'reservas' hasta el commit.
+     *
+     * @param antes Las particiones deben terminar en esta fecha o antes
+     * @return Nombre de la partición archivada, o null si no queda ninguna
+     */
+    @Override
+    public String archivarParticion(LocalDate antes) {
+        return metricas.ejecutar("archivarParticion", () ->
+            jdbcTemplate.queryForObject("SELECT archivar_particion_reservas(?)", String.class, antes));
+    }
+
+    /**
+     * Reescribe una partición archivada sin espacio libre ni filas muertas
+     * (VACUUM FULL) y actualiza sus estadísticas. VACUUM no puede ejecutarse dentro
+     * de una transacción, así que debe llamarse fuera de ellas. Solo bloquea la
+     * tabla archivada.
+     *
+     * @param particion Nombre devuelto por {@link #archivarParticion}
+     */
+    @Override
+    public void compactarParticionArchivada(String particion) {
+        if (!PARTICION.matcher(particion).matches()) {
+            throw new IllegalArgumentException("Partición no válida: " + particion);
         }
-        
-        return new CrearReservaResponse(null, false, "Error al crear reserva", BigDecimal.ZERO);
+        metricas.ejecutar("compactarParticionArchivada", () -> {
+            jdbcTemplate.execute("VACUUM (FULL, ANALYZE) archivo." + particion);
+            return null;
+        });
     }
-}
+}
\ No newline at end of file
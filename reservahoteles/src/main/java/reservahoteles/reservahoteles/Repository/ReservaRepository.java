@@ -1,10 +1,104 @@
 package reservahoteles.reservahoteles.Repository;
 
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
 import reservahoteles.reservahoteles.Entity.Reserva;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
 @Repository
 public interface ReservaRepository extends JpaRepository<Reserva, Integer>,
         ReservaCustomRepository {
+
+    /**
+     * Noches máximas de una reserva (restricción 'ck_reservas_duracion'). Una
+     * reserva que ocupa noches a partir de una fecha empezó como mucho este número
+     * de días antes, lo que permite acotar 'fecha_inicio', la columna por la que
+     * está particionada la tabla, en las consultas por solapamiento.
+     */
+    int MAXIMO_NOCHES = 366;
+
+    /**
+     * Devuelve las reservas confirmadas que siguen ocupando alguna noche a partir
+     * de la fecha indicada, proyectadas como
+     * [idHotel, idTipo, fechaInicio, fechaFin, cantidadHabitaciones].
+     */
+    default List<Object[]> findOcupacionConfirmadaDesde(LocalDate desde) {
+        return findOcupacionConfirmada(desde, desde.minusDays(MAXIMO_NOCHES));
+    }
+
+    /**
+     * Igual que {@link #findOcupacionConfirmadaDesde(LocalDate)}, para una sola
+     * combinación hotel/tipo.
+     */
+    default List<Object[]> findOcupacionConfirmadaDesde(Integer idHotel, Integer idTipo, LocalDate desde) {
+        return findOcupacionConfirmada(idHotel, idTipo, desde, desde.minusDays(MAXIMO_NOCHES));
+    }
+
+    /**
+     * Reservas confirmadas con 'fechaFin' posterior a 'desde'. 'inicioMinimo' no
+     * cambia el resultado si es como mucho 'desde' menos {@link #MAXIMO_NOCHES},
+     * pero deja fuera de la consulta las particiones de meses anteriores.
+     */
+    @Query("SELECT r.hotel.idHotel, r.tipoHabitacion.idTipo, r.fechaInicio, r.fechaFin, r.cantidadHabitaciones " +
+           "FROM Reserva r WHERE r.estado = 'Confirmada' AND r.fechaFin > :desde " +
+           "AND r.fechaInicio > :inicioMinimo")
+    List<Object[]> findOcupacionConfirmada(@Param("desde") LocalDate desde,
+                                           @Param("inicioMinimo") LocalDate inicioMinimo);
+
+    @Query("SELECT r.hotel.idHotel, r.tipoHabitacion.idTipo, r.fechaInicio, r.fechaFin, r.cantidadHabitaciones " +
+           "FROM Reserva r WHERE r.estado = 'Confirmada' AND r.fechaFin > :desde " +
+           "AND r.fechaInicio > :inicioMinimo " +
+           "AND r.hotel.idHotel = :idHotel AND r.tipoHabitacion.idTipo = :idTipo")
+    List<Object[]> findOcupacionConfirmada(@Param("idHotel") Integer idHotel,
+                                           @Param("idTipo") Integer idTipo,
+                                           @Param("desde") LocalDate desde,
+                                           @Param("inicioMinimo") LocalDate inicioMinimo);
+
+    /**
+     * Devuelve la respuesta original de la reserva creada con una clave de
+     * idempotencia, para responder a una repetición sin crear otra reserva.
+     */
+    @Query("SELECT new reservahoteles.reservahoteles.DTO.CrearReservaResponse(" +
+           "r.idReserva, true, 'Reserva creada exitosamente', r.totalCalculado) " +
+           "FROM Reserva r WHERE r.claveIdempotencia = :clave")
+    Optional<CrearReservaResponse> findRespuestaPorClaveIdempotencia(@Param("clave") String clave);
+
+    /**
+     * Cambia el estado de una reserva solo si sigue en el estado esperado. La
+     * condición se evalúa en el mismo UPDATE, así que dos cambios concurrentes
+     * sobre la misma reserva no pueden aplicarse ambos.
+     *
+     * @return 1 si la reserva cambió de estado, 0 si no existe o estaba en otro estado
+     */
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = :nuevo WHERE r.idReserva = :idReserva AND r.estado = :esperado")
+    int actualizarEstado(@Param("idReserva") Integer idReserva,
+                         @Param("esperado") String esperado,
+                         @Param("nuevo") String nuevo);
+
+    /**
+     * Bloquea y devuelve las reservas confirmadas de un lote de creación.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reserva r WHERE r.idLote = :idLote AND r.estado = 'Confirmada'")
+    List<Reserva> findConfirmadasPorLote(@Param("idLote") UUID idLote);
+
+    /**
+     * Cancela con una sola sentencia todas las reservas confirmadas de un lote.
+     *
+     * @return número de reservas canceladas
+     */
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = 'Cancelada' WHERE r.idLote = :idLote AND r.estado = 'Confirmada'")
+    int cancelarLote(@Param("idLote") UUID idLote);
 }
@@ -0,0 +1,62 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.Entity.Retencion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RetencionRepository extends JpaRepository<Retencion, UUID> {
+
+    /**
+     * Devuelve las retenciones que siguen vigentes en el instante indicado.
+     */
+    @Query("SELECT r FROM Retencion r WHERE r.expiraEn > :ahora")
+    List<Retencion> findVigentes(@Param("ahora") Instant ahora);
+
+    /**
+     * Devuelve las retenciones de una combinación hotel/tipo que siguen vigentes
+     * en el instante indicado.
+     */
+    @Query("SELECT r FROM Retencion r WHERE r.idHotel = :idHotel AND r.idTipo = :idTipo AND r.expiraEn > :ahora")
+    List<Retencion> findVigentes(@Param("idHotel") Integer idHotel,
+                                 @Param("idTipo") Integer idTipo,
+                                 @Param("ahora") Instant ahora);
+
+    /**
+     * Borra una retención sin leerla antes.
+     *
+     * @return 1 si existía, 0 si ya se había liberado, vencido o convertido
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Retencion r WHERE r.idRetencion = :idRetencion")
+    int eliminar(@Param("idRetencion") UUID idRetencion);
+
+    /**
+     * Borra con una sola sentencia las retenciones indicadas.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Retencion r WHERE r.idRetencion IN :ids")
+    int eliminarTodas(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Borra las retenciones vencidas de cualquier instancia, incluidas las de una
+     * instancia que se detuvo antes de vencerlas.
+     *
+     * @return número de retenciones borradas
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Retencion r WHERE r.expiraEn <= :ahora")
+    int eliminarVencidas(@Param("ahora") Instant ahora);
+}
@@ -0,0 +1,24 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.Entity.Tarifa;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TarifaRepository extends JpaRepository<Tarifa, Integer> {
+
+    @Query("SELECT t FROM Tarifa t JOIN FETCH t.hotel JOIN FETCH t.tipoHabitacion JOIN FETCH t.temporada")
+    List<Tarifa> findAllConDetalle();
+
+    @Query("SELECT t FROM Tarifa t JOIN FETCH t.hotel JOIN FETCH t.tipoHabitacion JOIN FETCH t.temporada " +
+           "WHERE t.hotel.idHotel = :idHotel AND t.tipoHabitacion.idTipo = :idTipo " +
+           "AND t.temporada.idTemporada = :idTemporada")
+    Optional<Tarifa> findConDetalle(@Param("idHotel") Integer idHotel,
+                                    @Param("idTipo") Integer idTipo,
+                                    @Param("idTemporada") Integer idTemporada);
+}
@@ -0,0 +1,9 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.Entity.Temporada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TemporadaRepository extends JpaRepository<Temporada, Integer> {
+}
@@ -0,0 +1,9 @@
+package reservahoteles.reservahoteles.Repository;
+
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TipoHabitacionRepository extends JpaRepository<TipoHabitacion, Integer> {
+}
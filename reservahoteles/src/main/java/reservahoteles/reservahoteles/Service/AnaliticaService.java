@@ -0,0 +1,171 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.AnaliticaResponse;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Tarifa;
+import reservahoteles.reservahoteles.Entity.Temporada;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.TarifaRepository;
+import reservahoteles.reservahoteles.Repository.TemporadaRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Analítica de ocupación e ingresos (ocupación, ADR y RevPAR) sobre una
+ * instantánea en memoria.
+ *
+ * La instantánea se carga completa al arrancar y cada noche, y entre cargas se
+ * actualiza de forma incremental con las reservas nuevas (id mayor al último leído)
+ * y las cancelaciones recibidas como {@link ReservaCambiadaEvent}. Las consultas
+ * solo usan memoria y los hilos de un pool propio, así que no compiten por el pool
+ * de conexiones con las reservas.
+ *
+ * Una reserva confirmada con un id menor al último leído (transacción que terminó
+ * después de otra más reciente) o cancelada desde otra instancia no se ve hasta la
+ * siguiente carga completa.
+ */
+@Slf4j
+@Component
+public class AnaliticaService {
+
+    private static final String CANCELADA = "Cancelada";
+
+    private final ReservaRepository reservaRepository;
+    private final InventarioHabitacionesRepository inventarioRepository;
+    private final TarifaRepository tarifaRepository;
+    private final TemporadaRepository temporadaRepository;
+    private final TransactionTemplate lectura;
+    private final ForkJoinPool pool;
+
+    private final Set<Integer> canceladasPendientes = ConcurrentHashMap.newKeySet();
+
+    private volatile AnaliticaSnapshot snapshot;
+
+    public AnaliticaService(ReservaRepository reservaRepository,
+                            InventarioHabitacionesRepository inventarioRepository,
+                            TarifaRepository tarifaRepository,
+                            TemporadaRepository temporadaRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${reservas.analitica.paralelismo:0}") int paralelismo) {
+        this.reservaRepository = reservaRepository;
+        this.inventarioRepository = inventarioRepository;
+        this.tarifaRepository = tarifaRepository;
+        this.temporadaRepository = temporadaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            recargar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar la instantánea de analítica: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Carga la instantánea completa: inventario, temporadas, tarifas y todas las
+     * reservas no canceladas.
+     */
+    @Scheduled(cron = "${reservas.analitica.recarga-cron:0 45 3 * * *}")
+    public synchronized void recargar() {
+        canceladasPendientes.clear();
+        AnaliticaSnapshot nuevo = lectura.execute(status -> {
+            AnaliticaSnapshot.Cargador cargador = AnaliticaSnapshot.cargador();
+            for (InventarioHabitaciones item : inventarioRepository.findAllConDetalle()) {
+                cargador.inventario(item.getHotel().getIdHotel(), item.getHotel().getNombre(),
+                    item.getTipoHabitacion().getIdTipo(), item.getTipoHabitacion().getNombre(),
+                    item.getCantidadTotal());
+            }
+            for (Temporada temporada : temporadaRepository.findAll()) {
+                cargador.temporada(temporada.getIdTemporada(), temporada.getNombre(),
+                    temporada.getFechaInicio(), temporada.getFechaFin());
+            }
+            for (Tarifa tarifa : tarifaRepository.findAllConDetalle()) {
+                cargador.tarifa(tarifa.getHotel().getIdHotel(), tarifa.getTipoHabitacion().getIdTipo(),
+                    tarifa.getTemporada().getIdTemporada(), tarifa.getPrecioBaseNoche());
+            }
+            reservaRepository.recorrerReservasVendidas(0, cargador::reserva);
+            return cargador.construir(LocalDateTime.now());
+        });
+        this.snapshot = nuevo;
+        log.info("Instantánea de analítica cargada: {} reservas hasta id {}", nuevo.filas(), nuevo.ultimoId());
+    }
+
+    /**
+     * Agrega las reservas creadas y aplica las cancelaciones recibidas desde la
+     * última actualización.
+     */
+    @Scheduled(fixedDelayString = "${reservas.analitica.refresco:PT1M}")
+    public synchronized void refrescar() {
+        AnaliticaSnapshot actual = snapshot;
+        if (actual == null) {
+            return;
+        }
+        List<Integer> canceladas = new ArrayList<>(canceladasPendientes);
+        List<ReservaResumen> nuevas = new ArrayList<>();
+        try {
+            lectura.executeWithoutResult(status ->
+                reservaRepository.recorrerReservasVendidas(actual.ultimoId(), nuevas::add));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo actualizar la instantánea de analítica: {}", e.getMessage());
+            return;
+        }
+        if (nuevas.isEmpty() && canceladas.isEmpty()) {
+            return;
+        }
+        this.snapshot = actual.actualizar(nuevas, canceladas, LocalDateTime.now());
+        canceladas.forEach(canceladasPendientes::remove);
+        log.debug("Instantánea de analítica actualizada: {} reservas nuevas, {} canceladas",
+            nuevas.size(), canceladas.size());
+    }
+
+    @EventListener
+    public void alCambiarReserva(ReservaCambiadaEvent evento) {
+        if (CANCELADA.equals(evento.getEstadoNuevo())) {
+            canceladasPendientes.add(evento.getIdReserva());
+        }
+    }
+
+    /**
+     * Calcula la analítica de las noches de [fechaDesde, fechaHasta), opcionalmente
+     * filtrada por hotel y tipo de habitación.
+     *
+     * @return el resultado, o vacío si la instantánea todavía no está cargada
+     */
+    public Optional<AnaliticaResponse> calcular(LocalDate fechaDesde, LocalDate fechaHasta,
+                                                Integer idHotel, Integer idTipo) {
+        AnaliticaSnapshot actual = snapshot;
+        if (actual == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new AnaliticaResponse(fechaDesde, fechaHasta, actual.actualizado(),
+            actual.calcular(fechaDesde, fechaHasta, idHotel, idTipo, pool)));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,434 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.AnaliticaFila;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Instantánea columnar de reservas, inventario, temporadas y tarifas para la
+ * analítica de ocupación e ingresos.
+ *
+ * Cada columna es un arreglo primitivo: las fechas se guardan como día epoch, los
+ * montos en centavos y el hotel/tipo de cada reserva como índice de su combinación
+ * de inventario. Recorrer todas las reservas no crea objetos y reparte bien entre
+ * hilos. La instantánea es inmutable; una actualización crea otra con columnas
+ * copiadas, así que las consultas en curso no ven cambios a medias.
+ */
+final class AnaliticaSnapshot {
+
+    static final String SIN_TEMPORADA = "Sin temporada";
+
+    private static final BigDecimal CIEN = BigDecimal.valueOf(100);
+
+    // Inventario: una entrada por combinación hotel/tipo, ordenadas por hotel y tipo
+    private final int[] hoteles;
+    private final int[] tipos;
+    private final int[] cantidades;
+    private final String[] nombresHotel;
+    private final String[] nombresTipo;
+    private final Map<Long, Integer> combinaciones;
+
+    // Temporadas ordenadas por fecha de inicio (fin incluido, como en PricingEngine)
+    private final String[] nombresTemporada;
+    private final int[] iniciosTemporada;
+    private final int[] finesTemporada;
+
+    // Tarifa base en centavos por [combinación * temporadas + temporada], -1 si no hay
+    private final long[] tarifas;
+
+    // Reservas no canceladas, ordenadas por id
+    private final int filas;
+    private final int[] idsReserva;
+    private final int[] combinacionReserva;
+    private final int[] iniciosReserva;
+    private final int[] finesReserva;
+    private final int[] habitaciones;
+    private final long[] totales;
+
+    private final int ultimoId;
+    private final LocalDateTime actualizado;
+
+    private AnaliticaSnapshot(Cargador cargador, int filas, int[] idsReserva, int[] combinacionReserva,
+                              int[] iniciosReserva, int[] finesReserva, int[] habitaciones, long[] totales,
+                              int ultimoId, LocalDateTime actualizado) {
+        this(cargador.hoteles, cargador.tipos, cargador.cantidades, cargador.nombresHotel,
+            cargador.nombresTipo, cargador.combinaciones, cargador.nombresTemporada,
+            cargador.iniciosTemporada, cargador.finesTemporada, cargador.tarifas,
+            filas, idsReserva, combinacionReserva, iniciosReserva, finesReserva, habitaciones, totales,
+            ultimoId, actualizado);
+    }
+
+    private AnaliticaSnapshot(int[] hoteles, int[] tipos, int[] cantidades, String[] nombresHotel,
+                              String[] nombresTipo, Map<Long, Integer> combinaciones, String[] nombresTemporada,
+                              int[] iniciosTemporada, int[] finesTemporada, long[] tarifas,
+                              int filas, int[] idsReserva, int[] combinacionReserva, int[] iniciosReserva,
+                              int[] finesReserva, int[] habitaciones, long[] totales,
+                              int ultimoId, LocalDateTime actualizado) {
+        this.hoteles = hoteles;
+        this.tipos = tipos;
+        this.cantidades = cantidades;
+        this.nombresHotel = nombresHotel;
+        this.nombresTipo = nombresTipo;
+        this.combinaciones = combinaciones;
+        this.nombresTemporada = nombresTemporada;
+        this.iniciosTemporada = iniciosTemporada;
+        this.finesTemporada = finesTemporada;
+        this.tarifas = tarifas;
+        this.filas = filas;
+        this.idsReserva = idsReserva;
+        this.combinacionReserva = combinacionReserva;
+        this.iniciosReserva = iniciosReserva;
+        this.finesReserva = finesReserva;
+        this.habitaciones = habitaciones;
+        this.totales = totales;
+        this.ultimoId = ultimoId;
+        this.actualizado = actualizado;
+    }
+
+    static Cargador cargador() {
+        return new Cargador();
+    }
+
+    int filas() {
+        return filas;
+    }
+
+    /**
+     * Id de la última reserva leída, incluidas las que no tienen inventario y no se
+     * guardaron. Las actualizaciones incrementales continúan desde aquí.
+     */
+    int ultimoId() {
+        return ultimoId;
+    }
+
+    LocalDateTime actualizado() {
+        return actualizado;
+    }
+
+    /**
+     * Crea una instantánea con las reservas nuevas agregadas al final y las
+     * canceladas en cero.
+     *
+     * @param nuevas Reservas no canceladas con id mayor a {@link #ultimoId()}, en orden de id
+     * @param canceladas Ids de reservas canceladas desde la última actualización
+     */
+    AnaliticaSnapshot actualizar(List<ReservaResumen> nuevas, Collection<Integer> canceladas,
+                                 LocalDateTime actualizado) {
+        int capacidad = filas + nuevas.size();
+        int[] ids = Arrays.copyOf(idsReserva, capacidad);
+        int[] combinacion = Arrays.copyOf(combinacionReserva, capacidad);
+        int[] inicios = Arrays.copyOf(iniciosReserva, capacidad);
+        int[] fines = Arrays.copyOf(finesReserva, capacidad);
+        int[] cantidad = Arrays.copyOf(habitaciones, capacidad);
+        long[] total = Arrays.copyOf(totales, capacidad);
+
+        int n = filas;
+        int ultimo = ultimoId;
+        for (ReservaResumen reserva : nuevas) {
+            ultimo = Math.max(ultimo, reserva.getIdReserva());
+            Integer indice = combinaciones.get(clave(reserva.getIdHotel(), reserva.getIdTipo()));
+            if (indice == null) {
+                continue;
+            }
+            ids[n] = reserva.getIdReserva();
+            combinacion[n] = indice;
+            inicios[n] = (int) reserva.getFechaInicio().toEpochDay();
+            fines[n] = (int) reserva.getFechaFin().toEpochDay();
+            cantidad[n] = reserva.getCantidadHabitaciones();
+            total[n] = centavos(reserva.getTotalCalculado());
+            n++;
+        }
+        for (Integer idReserva : canceladas) {
+            int posicion = Arrays.binarySearch(ids, 0, n, idReserva);
+            if (posicion >= 0) {
+                cantidad[posicion] = 0;
+                total[posicion] = 0;
+            }
+        }
+        return new AnaliticaSnapshot(hoteles, tipos, cantidades, nombresHotel, nombresTipo, combinaciones,
+            nombresTemporada, iniciosTemporada, finesTemporada, tarifas,
+            n, ids, combinacion, inicios, fines, cantidad, total, ultimo, actualizado);
+    }
+
+    /**
+     * Calcula ocupación, ADR y RevPAR por hotel, tipo de habitación y temporada para
+     * las noches de [desde, hasta).
+     *
+     * Las reservas se reparten entre los hilos del pool con un stream paralelo; cada
+     * hilo acumula noches vendidas e ingresos en su propio arreglo y los arreglos se
+     * suman al final, sin sincronización por fila. El total de cada reserva se
+     * reparte en partes iguales entre sus noches (el resto de centavos va a la primera).
+     *
+     * @param idHotel Hotel a incluir (null para todos)
+     * @param idTipo Tipo de habitación a incluir (null para todos)
+     * @return Una fila por combinación y temporada con noches dentro del rango
+     */
+    List<AnaliticaFila> calcular(LocalDate desde, LocalDate hasta, Integer idHotel, Integer idTipo,
+                                 ForkJoinPool pool) {
+        int inicio = (int) desde.toEpochDay();
+        int noches = (int) (hasta.toEpochDay() - inicio);
+        int cubetas = nombresTemporada.length + 1;
+
+        int[] cubetaPorNoche = new int[noches];
+        long[] nochesPorCubeta = new long[cubetas];
+        for (int i = 0; i < noches; i++) {
+            int cubeta = temporada(inicio + i);
+            cubetaPorNoche[i] = cubeta;
+            nochesPorCubeta[cubeta]++;
+        }
+
+        boolean[] incluidas = new boolean[hoteles.length];
+        for (int c = 0; c < hoteles.length; c++) {
+            incluidas[c] = (idHotel == null || idHotel == hoteles[c]) && (idTipo == null || idTipo == tipos[c]);
+        }
+
+        long[] acumulado = pool.submit(() -> IntStream.range(0, filas).parallel()
+            .collect(
+                () -> new long[hoteles.length * cubetas * 2],
+                (parcial, fila) -> acumular(parcial, fila, inicio, noches, cubetaPorNoche, cubetas, incluidas),
+                AnaliticaSnapshot::sumar))
+            .join();
+
+        List<AnaliticaFila> resultado = new ArrayList<>();
+        for (int c = 0; c < hoteles.length; c++) {
+            if (!incluidas[c]) {
+                continue;
+            }
+            for (int cubeta = 0; cubeta < cubetas; cubeta++) {
+                if (nochesPorCubeta[cubeta] == 0) {
+                    continue;
+                }
+                int posicion = (c * cubetas + cubeta) * 2;
+                long disponibles = cantidades[c] * nochesPorCubeta[cubeta];
+                long vendidas = acumulado[posicion];
+                long ingresos = acumulado[posicion + 1];
+                boolean conTemporada = cubeta < nombresTemporada.length;
+                long tarifa = conTemporada ? tarifas[c * nombresTemporada.length + cubeta] : -1;
+                resultado.add(new AnaliticaFila(
+                    hoteles[c],
+                    nombresHotel[c],
+                    tipos[c],
+                    nombresTipo[c],
+                    conTemporada ? nombresTemporada[cubeta] : SIN_TEMPORADA,
+                    disponibles,
+                    vendidas,
+                    BigDecimal.valueOf(vendidas).multiply(CIEN)
+                        .divide(BigDecimal.valueOf(disponibles), 2, RoundingMode.HALF_UP),
+                    dividirCentavos(ingresos, vendidas),
+                    dividirCentavos(ingresos, disponibles),
+                    BigDecimal.valueOf(ingresos, 2),
+                    tarifa >= 0 ? BigDecimal.valueOf(tarifa, 2) : null
+                ));
+            }
+        }
+        return resultado;
+    }
+
+    private void acumular(long[] parcial, int fila, int inicio, int noches, int[] cubetaPorNoche,
+                          int cubetas, boolean[] incluidas) {
+        int c = combinacionReserva[fila];
+        if (!incluidas[c] || habitaciones[fila] == 0) {
+            return;
+        }
+        int entrada = iniciosReserva[fila];
+        int salida = finesReserva[fila];
+        int desde = Math.max(entrada, inicio);
+        int hasta = Math.min(salida, inicio + noches);
+        if (desde >= hasta) {
+            return;
+        }
+        int estadia = salida - entrada;
+        long porNoche = totales[fila] / estadia;
+        long resto = totales[fila] % estadia;
+        for (int dia = desde; dia < hasta; dia++) {
+            int posicion = (c * cubetas + cubetaPorNoche[dia - inicio]) * 2;
+            parcial[posicion] += habitaciones[fila];
+            parcial[posicion + 1] += dia == entrada ? porNoche + resto : porNoche;
+        }
+    }
+
+    private static void sumar(long[] acumulado, long[] parcial) {
+        for (int i = 0; i < acumulado.length; i++) {
+            acumulado[i] += parcial[i];
+        }
+    }
+
+    /**
+     * Índice de la primera temporada que contiene el día, o el índice de
+     * "sin temporada" si ninguna lo contiene.
+     */
+    private int temporada(int dia) {
+        for (int t = 0; t < nombresTemporada.length; t++) {
+            if (dia >= iniciosTemporada[t] && dia <= finesTemporada[t]) {
+                return t;
+            }
+        }
+        return nombresTemporada.length;
+    }
+
+    private static BigDecimal dividirCentavos(long centavos, long divisor) {
+        if (divisor == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return BigDecimal.valueOf(centavos).divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+            .movePointLeft(2);
+    }
+
+    private static long centavos(BigDecimal monto) {
+        return monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long clave(int idHotel, int idTipo) {
+        return ((long) idHotel << 32) | (idTipo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Arma una instantánea a partir de las filas leídas de la base de datos. El
+     * inventario, las temporadas y las tarifas se indican antes de las reservas,
+     * porque cada reserva se guarda con el índice de su combinación de inventario.
+     */
+    static final class Cargador {
+
+        private final List<Object[]> inventario = new ArrayList<>();
+        private final List<Object[]> temporadas = new ArrayList<>();
+        private final List<Object[]> tarifasLeidas = new ArrayList<>();
+
+        private int[] hoteles;
+        private int[] tipos;
+        private int[] cantidades;
+        private String[] nombresHotel;
+        private String[] nombresTipo;
+        private Map<Long, Integer> combinaciones;
+        private String[] nombresTemporada;
+        private int[] iniciosTemporada;
+        private int[] finesTemporada;
+        private long[] tarifas;
+
+        private int filas;
+        private int ultimoId;
+        private int[] idsReserva = new int[1024];
+        private int[] combinacionReserva = new int[1024];
+        private int[] iniciosReserva = new int[1024];
+        private int[] finesReserva = new int[1024];
+        private int[] habitaciones = new int[1024];
+        private long[] totales = new long[1024];
+
+        private Cargador() {
+        }
+
+        Cargador inventario(int idHotel, String hotel, int idTipo, String tipoHabitacion, int cantidadTotal) {
+            inventario.add(new Object[] { idHotel, hotel, idTipo, tipoHabitacion, cantidadTotal });
+            return this;
+        }
+
+        Cargador temporada(int idTemporada, String nombre, LocalDate fechaInicio, LocalDate fechaFin) {
+            temporadas.add(new Object[] { idTemporada, nombre, fechaInicio, fechaFin });
+            return this;
+        }
+
+        Cargador tarifa(int idHotel, int idTipo, int idTemporada, BigDecimal precioBaseNoche) {
+            tarifasLeidas.add(new Object[] { idHotel, idTipo, idTemporada, precioBaseNoche });
+            return this;
+        }
+
+        Cargador reserva(ReservaResumen reserva) {
+            if (combinaciones == null) {
+                indexar();
+            }
+            ultimoId = Math.max(ultimoId, reserva.getIdReserva());
+            Integer indice = combinaciones.get(clave(reserva.getIdHotel(), reserva.getIdTipo()));
+            if (indice == null) {
+                return this;
+            }
+            if (filas == idsReserva.length) {
+                int capacidad = filas * 2;
+                idsReserva = Arrays.copyOf(idsReserva, capacidad);
+                combinacionReserva = Arrays.copyOf(combinacionReserva, capacidad);
+                iniciosReserva = Arrays.copyOf(iniciosReserva, capacidad);
+                finesReserva = Arrays.copyOf(finesReserva, capacidad);
+                habitaciones = Arrays.copyOf(habitaciones, capacidad);
+                totales = Arrays.copyOf(totales, capacidad);
+            }
+            idsReserva[filas] = reserva.getIdReserva();
+            combinacionReserva[filas] = indice;
+            iniciosReserva[filas] = (int) reserva.getFechaInicio().toEpochDay();
+            finesReserva[filas] = (int) reserva.getFechaFin().toEpochDay();
+            habitaciones[filas] = reserva.getCantidadHabitaciones();
+            totales[filas] = centavos(reserva.getTotalCalculado());
+            filas++;
+            return this;
+        }
+
+        AnaliticaSnapshot construir(LocalDateTime actualizado) {
+            if (combinaciones == null) {
+                indexar();
+            }
+            return new AnaliticaSnapshot(this, filas,
+                Arrays.copyOf(idsReserva, filas),
+                Arrays.copyOf(combinacionReserva, filas),
+                Arrays.copyOf(iniciosReserva, filas),
+                Arrays.copyOf(finesReserva, filas),
+                Arrays.copyOf(habitaciones, filas),
+                Arrays.copyOf(totales, filas),
+                ultimoId, actualizado);
+        }
+
+        private void indexar() {
+            inventario.sort(Comparator.<Object[]>comparingInt(fila -> (Integer) fila[0])
+                .thenComparingInt(fila -> (Integer) fila[2]));
+            int combinacionesTotales = inventario.size();
+            hoteles = new int[combinacionesTotales];
+            tipos = new int[combinacionesTotales];
+            cantidades = new int[combinacionesTotales];
+            nombresHotel = new String[combinacionesTotales];
+            nombresTipo = new String[combinacionesTotales];
+            combinaciones = new HashMap<>();
+            for (int c = 0; c < combinacionesTotales; c++) {
+                Object[] fila = inventario.get(c);
+                hoteles[c] = (Integer) fila[0];
+                nombresHotel[c] = (String) fila[1];
+                tipos[c] = (Integer) fila[2];
+                nombresTipo[c] = (String) fila[3];
+                cantidades[c] = (Integer) fila[4];
+                combinaciones.put(clave(hoteles[c], tipos[c]), c);
+            }
+
+            temporadas.sort(Comparator.comparing(fila -> (LocalDate) fila[2]));
+            int temporadasTotales = temporadas.size();
+            nombresTemporada = new String[temporadasTotales];
+            iniciosTemporada = new int[temporadasTotales];
+            finesTemporada = new int[temporadasTotales];
+            Map<Integer, Integer> indiceTemporada = new HashMap<>();
+            for (int t = 0; t < temporadasTotales; t++) {
+                Object[] fila = temporadas.get(t);
+                indiceTemporada.put((Integer) fila[0], t);
+                nombresTemporada[t] = (String) fila[1];
+                iniciosTemporada[t] = (int) ((LocalDate) fila[2]).toEpochDay();
+                finesTemporada[t] = (int) ((LocalDate) fila[3]).toEpochDay();
+            }
+
+            tarifas = new long[combinacionesTotales * temporadasTotales];
+            Arrays.fill(tarifas, -1);
+            for (Object[] fila : tarifasLeidas) {
+                Integer c = combinaciones.get(clave((Integer) fila[0], (Integer) fila[1]));
+                Integer t = indiceTemporada.get((Integer) fila[2]);
+                if (c != null && t != null) {
+                    tarifas[c * temporadasTotales + t] = centavos((BigDecimal) fila[3]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Mantenimiento nocturno de las particiones mensuales de 'reservas'.
+ *
+ * Crea con 'reservas.archivo.meses-adelante' meses de antelación las particiones
+ * de los meses que vienen, para que las reservas nuevas no caigan en la partición
+ * por defecto, y archiva las de meses cuyas estancias terminaron hace más de
+ * 'reservas.archivo.meses-retencion' meses. Cada partición se saca de 'reservas' en
+ * su propia transacción, que bloquea la tabla solo un momento, y se compacta
+ * después fuera de la transacción. Las reservas archivadas quedan en el esquema
+ * 'archivo' y dejan de aparecer en búsquedas, exportaciones y analítica.
+ */
+@Slf4j
+@Component
+public class ArchivoReservas {
+
+    private final ReservaRepository reservaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int mesesAdelante;
+    private final int mesesRetencion;
+    private final Counter creadas;
+    private final Counter archivadas;
+
+    public ArchivoReservas(ReservaRepository reservaRepository,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${reservas.archivo.meses-adelante:27}") int mesesAdelante,
+                           @Value("${reservas.archivo.meses-retencion:24}") int mesesRetencion) {
+        this.reservaRepository = reservaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.mesesAdelante = mesesAdelante;
+        this.mesesRetencion = mesesRetencion;
+        this.creadas = Counter.builder("reservas.archivo.particiones")
+            .tag("accion", "creada")
+            .register(meterRegistry);
+        this.archivadas = Counter.builder("reservas.archivo.particiones")
+            .tag("accion", "archivada")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${reservas.archivo.cron:0 15 4 * * *}")
+    public void mantener() {
+        LocalDate hoy = LocalDate.now();
+        crearParticiones(hoy);
+        archivar(hoy.withDayOfMonth(1).minusMonths(mesesRetencion));
+    }
+
+    private void crearParticiones(LocalDate hoy) {
+        try {
+            Integer nuevas = transactionTemplate.execute(status ->
+                reservaRepository.crearParticiones(hoy, hoy.plusMonths(mesesAdelante)));
+            if (nuevas != null && nuevas > 0) {
+                creadas.increment(nuevas);
+                log.info("Particiones de reservas creadas: {}", nuevas);
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron crear las particiones de reservas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archiva una partición por transacción hasta que no quede ninguna anterior a
+     * 'antes'. Si una falla (por ejemplo, por no obtener el bloqueo a tiempo) se
+     * deja para la próxima ejecución.
+     */
+    private void archivar(LocalDate antes) {
+        while (true) {
+            String particion;
+            try {
+                particion = transactionTemplate.execute(status -> reservaRepository.archivarParticion(antes));
+            } catch (RuntimeException e) {
+                log.warn("No se pudo archivar una partición de reservas, se reintenta en la próxima ejecución: {}",
+                    e.getMessage());
+                return;
+            }
+            if (particion == null) {
+                return;
+            }
+
+            archivadas.increment();
+            log.info("Partición {} archivada en el esquema 'archivo'", particion);
+            try {
+                reservaRepository.compactarParticionArchivada(particion);
+            } catch (RuntimeException e) {
+                log.warn("No se pudo compactar archivo.{}: {}", particion, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package reservahoteles.reservahoteles.Service;
+
+/**
+ * Una clave de idempotencia ya usada llegó con otro cuerpo de solicitud. El
+ * controlador responde 422: repetir la operación original sería devolver una
+ * reserva distinta de la pedida.
+ */
+public class ClaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ClaveIdempotenciaReutilizadaException(String clave) {
+        super("La clave de idempotencia '" + clave + "' ya se usó con otra solicitud");
+    }
+}
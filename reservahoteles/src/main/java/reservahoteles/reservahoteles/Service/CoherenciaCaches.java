@@ -0,0 +1,369 @@
+package reservahoteles.reservahoteles.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coherencia de las cachés en memoria entre varias instancias de la aplicación.
+ *
+ * Los triggers 'trg_*_notificar_cambio' publican con NOTIFY, en el canal
+ * 'reservas_cambios', cada fila modificada de reservas, retenciones, tarifas,
+ * temporadas e inventario_habitaciones, con la versión de su transacción (una por
+ * confirmación, en orden y sin huecos; ver 'cambios_version') y la instancia que
+ * hizo el cambio.
+ * Esta clase mantiene una conexión propia, fuera del pool, con LISTEN sobre ese
+ * canal, y traduce cada notificación en una invalidación acotada:
+ *
+ * - reservas y retenciones: se relee la ocupación de la combinación hotel/tipo en
+ *   el libro de disponibilidad;
+ * - tarifas: se invalidan las tarifas de la combinación hotel/tipo;
+ * - temporadas: se invalida toda la caché de tarifas y el catálogo;
+ * - inventario_habitaciones: se recarga el libro completo;
+ * - archivo (una partición de reservas archivada por 'archivar_particion_reservas'):
+ *   se resincroniza todo y se recarga la instantánea de analítica.
+ *
+ * Las notificaciones que llegan juntas se agrupan, así que una ráfaga de cambios
+ * sobre la misma combinación se aplica una vez. Las de los cambios de esta
+ * instancia ('reservas.instancia.id'), que ya se aplicaron en memoria, solo
+ * cuentan para las versiones, salvo las de archivo, que nada aplica en memoria.
+ *
+ * Si falta una versión durante más de 'reservas.cambios.espera-hueco', si la
+ * conexión se pierde (NOTIFY no guarda nada para quien no escucha) o si una
+ * combinación no puede releerse, se resincroniza todo: recarga del libro e
+ * invalidación completa de las tarifas.
+ */
+@Slf4j
+@Component
+public class CoherenciaCaches {
+
+    static final String CANAL = "reservas_cambios";
+
+    private static final String VERSION_ACTUAL = "SELECT version FROM cambios_version";
+
+    private final DisponibilidadLedger disponibilidadLedger;
+    private final TarifaCache tarifaCache;
+    private final AnaliticaService analiticaService;
+    private final JsonMapper jsonMapper;
+    private final String instancia;
+    private final String url;
+    private final String usuario;
+    private final String contrasena;
+    private final boolean habilitada;
+    private final Duration esperaHueco;
+    private final Duration latido;
+    private final Duration reintento;
+    private final Counter cambiosRecibidos;
+    private final Counter resincronizaciones;
+
+    private final AtomicLong ultimaVersion = new AtomicLong();
+    private SecuenciaCambios secuencia = new SecuenciaCambios(0);
+    private boolean resincronizacionPendiente;
+    private volatile boolean activa;
+    private volatile Connection conexion;
+    private Thread hilo;
+
+    public CoherenciaCaches(DisponibilidadLedger disponibilidadLedger,
+                            TarifaCache tarifaCache,
+                            AnaliticaService analiticaService,
+                            JsonMapper jsonMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${reservas.instancia.id}") String instancia,
+                            @Value("${spring.datasource.url}") String url,
+                            @Value("${spring.datasource.username:}") String usuario,
+                            @Value("${spring.datasource.password:}") String contrasena,
+                            @Value("${reservas.cambios.habilitado:true}") boolean habilitada,
+                            @Value("${reservas.cambios.espera-hueco:PT2S}") Duration esperaHueco,
+                            @Value("${reservas.cambios.latido:PT30S}") Duration latido,
+                            @Value("${reservas.cambios.reintento:PT5S}") Duration reintento) {
+        this.disponibilidadLedger = disponibilidadLedger;
+        this.tarifaCache = tarifaCache;
+        this.analiticaService = analiticaService;
+        this.jsonMapper = jsonMapper;
+        this.instancia = instancia;
+        this.url = url;
+        this.usuario = usuario;
+        this.contrasena = contrasena;
+        this.habilitada = habilitada;
+        this.esperaHueco = esperaHueco;
+        this.latido = latido;
+        this.reintento = reintento;
+        this.cambiosRecibidos = Counter.builder("reservas.cambios.recibidos").register(meterRegistry);
+        this.resincronizaciones = Counter.builder("reservas.cambios.resincronizaciones").register(meterRegistry);
+        Gauge.builder("reservas.cambios.version", ultimaVersion, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Empieza a escuchar antes de que las cachés se carguen (en ApplicationReadyEvent),
+     * para que ningún cambio confirmado entre la carga y el LISTEN se pierda. La
+     * conexión se abre en un hilo propio: el arranque no espera a la base de datos.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public synchronized void iniciar() {
+        if (!habilitada || hilo != null) {
+            return;
+        }
+        activa = true;
+        hilo = new Thread(this::escuchar, "cambios-listener");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        activa = false;
+        if (hilo != null) {
+            hilo.interrupt();
+            cerrarConexion();
+        }
+    }
+
+    private void escuchar() {
+        boolean primera = true;
+        while (activa) {
+            try (Connection actual = conectar()) {
+                conexion = actual;
+                PGConnection pg = actual.unwrap(PGConnection.class);
+                long version;
+                try (Statement statement = actual.createStatement()) {
+                    statement.execute("LISTEN " + CANAL);
+                    try (ResultSet rs = statement.executeQuery(VERSION_ACTUAL)) {
+                        rs.next();
+                        version = rs.getLong(1);
+                    }
+                }
+                reiniciar(version);
+                log.info("Escuchando cambios en '{}' desde la versión {}", CANAL, version);
+                // Lo cargado antes de este LISTEN pudo perderse cambios: en la primera
+                // conexión solo si el libro ya estaba cargado, y siempre al reconectar
+                if (!primera || disponibilidadLedger.isCargado()) {
+                    resincronizar("conexión de escucha " + (primera ? "abierta tras la carga" : "restablecida"));
+                }
+                primera = false;
+                recibir(actual, pg);
+            } catch (SQLException | RuntimeException e) {
+                if (activa) {
+                    log.warn("Conexión de escucha de cambios no disponible, se reintenta en {}: {}", reintento, e.getMessage());
+                    dormir(reintento);
+                }
+            } finally {
+                conexion = null;
+            }
+        }
+    }
+
+    private void recibir(Connection actual, PGConnection pg) throws SQLException {
+        long esperaMillis = Math.min(1000, esperaHueco.toMillis());
+        long ultimoMensaje = System.currentTimeMillis();
+        while (activa) {
+            PGNotification[] notificaciones = pg.getNotifications((int) esperaMillis);
+            long ahora = System.currentTimeMillis();
+            List<String> cargas = new ArrayList<>();
+            if (notificaciones != null) {
+                for (PGNotification notificacion : notificaciones) {
+                    cargas.add(notificacion.getParameter());
+                }
+            }
+            if (!cargas.isEmpty()) {
+                ultimoMensaje = ahora;
+            } else if (ahora - ultimoMensaje >= latido.toMillis()) {
+                if (!actual.isValid((int) Math.max(1, latido.toSeconds()))) {
+                    throw new SQLException("La conexión de escucha no responde");
+                }
+                ultimoMensaje = ahora;
+            }
+            procesar(cargas, ahora);
+        }
+    }
+
+    /**
+     * Aplica un grupo de notificaciones recibidas juntas y comprueba los huecos de
+     * versión. Si el grupo provoca una resincronización, sus invalidaciones no se
+     * aplican por separado porque la resincronización ya las incluye; lo mismo si
+     * incluye un archivo de partición, que además recarga la analítica.
+     */
+    void procesar(List<String> cargas, long ahoraMillis) {
+        Set<Invalidacion> invalidaciones = new LinkedHashSet<>();
+        for (String carga : cargas) {
+            Cambio cambio;
+            try {
+                cambio = jsonMapper.readValue(carga, Cambio.class);
+            } catch (JacksonException e) {
+                log.warn("Notificación de cambio no reconocida: {}", carga);
+                resincronizacionPendiente = true;
+                continue;
+            }
+            cambiosRecibidos.increment();
+            secuencia.registrar(cambio.version(), ahoraMillis);
+            Invalidacion invalidacion = Invalidacion.de(cambio);
+            if (invalidacion != null
+                    && (invalidacion.destino() == Destino.ARCHIVO || !instancia.equals(cambio.instancia()))) {
+                invalidaciones.add(invalidacion);
+            }
+        }
+        ultimaVersion.set(secuencia.ultima());
+        boolean archivo = invalidaciones.remove(Invalidacion.ARCHIVO);
+
+        if (secuencia.huecoVencido(ahoraMillis, esperaHueco.toMillis())) {
+            resincronizaciones.increment();
+            log.warn("No llegó la notificación de la versión {} en {}, se resincroniza",
+                secuencia.ultima() + 1, esperaHueco);
+            secuencia.saltarHuecos();
+            ultimaVersion.set(secuencia.ultima());
+            resincronizacionPendiente = true;
+        }
+        if (archivo) {
+            resincronizar("partición de reservas archivada");
+            recargarAnalitica();
+            return;
+        }
+        if (resincronizacionPendiente) {
+            resincronizar("notificaciones perdidas o no aplicadas");
+            return;
+        }
+        for (Invalidacion invalidacion : invalidaciones) {
+            aplicar(invalidacion);
+        }
+    }
+
+    /**
+     * Empieza a contar las versiones desde la indicada, la última confirmada en el
+     * momento del LISTEN.
+     */
+    void reiniciar(long version) {
+        secuencia = new SecuenciaCambios(version);
+        ultimaVersion.set(version);
+    }
+
+    private void aplicar(Invalidacion invalidacion) {
+        try {
+            switch (invalidacion.destino()) {
+                case OCUPACION -> {
+                    if (!disponibilidadLedger.recargarCombinacion(invalidacion.idHotel(), invalidacion.idTipo())
+                            && disponibilidadLedger.isCargado()) {
+                        log.warn("No se pudo releer la ocupación de {}, se resincronizará", invalidacion);
+                        resincronizacionPendiente = true;
+                    }
+                }
+                case TARIFAS -> tarifaCache.invalidar(invalidacion.idHotel(), invalidacion.idTipo());
+                case TEMPORADAS -> tarifaCache.invalidar(null, null);
+                case INVENTARIO -> disponibilidadLedger.recargar();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo aplicar el cambio {}, se resincronizará: {}", invalidacion, e.getMessage());
+            resincronizacionPendiente = true;
+        }
+    }
+
+    /**
+     * Recarga el libro de disponibilidad e invalida toda la caché de tarifas. Si
+     * falla, se reintenta con el siguiente grupo de notificaciones o latido.
+     */
+    private void resincronizar(String motivo) {
+        log.info("Resincronizando cachés: {}", motivo);
+        resincronizacionPendiente = true;
+        try {
+            tarifaCache.invalidar(null, null);
+            if (disponibilidadLedger.isCargado()) {
+                disponibilidadLedger.recargar();
+            }
+            resincronizacionPendiente = false;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo resincronizar las cachés: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a cargar la instantánea de analítica sin las reservas archivadas. Si
+     * falla, las sigue contando hasta la recarga nocturna.
+     */
+    private void recargarAnalitica() {
+        try {
+            analiticaService.recargar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo recargar la analítica tras archivar: {}", e.getMessage());
+        }
+    }
+
+    private Connection conectar() throws SQLException {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("user", usuario);
+        propiedades.setProperty("password", contrasena);
+        propiedades.setProperty("ApplicationName", "reservas-cambios");
+        propiedades.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(url, propiedades);
+    }
+
+    private void cerrarConexion() {
+        Connection actual = conexion;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (SQLException e) {
+                log.debug("Error al cerrar la conexión de escucha: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void dormir(Duration duracion) {
+        try {
+            Thread.sleep(duracion.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Carga de una notificación de 'notificar_cambio'.
+     */
+    record Cambio(long version, String instancia, String tabla, Integer idHotel, Integer idTipo) {
+    }
+
+    private enum Destino { OCUPACION, TARIFAS, TEMPORADAS, INVENTARIO, ARCHIVO }
+
+    private record Invalidacion(Destino destino, Integer idHotel, Integer idTipo) {
+
+        private static final Invalidacion ARCHIVO = new Invalidacion(Destino.ARCHIVO, null, null);
+
+        /**
+         * @return la invalidación que corresponde al cambio, o null si la tabla no
+         *         afecta a ninguna caché
+         */
+        private static Invalidacion de(Cambio cambio) {
+            if (cambio.tabla() == null) {
+                return null;
+            }
+            return switch (cambio.tabla()) {
+                case "reservas", "retenciones" -> new Invalidacion(Destino.OCUPACION, cambio.idHotel(), cambio.idTipo());
+                case "tarifas" -> new Invalidacion(Destino.TARIFAS, cambio.idHotel(), cambio.idTipo());
+                case "temporadas" -> new Invalidacion(Destino.TEMPORADAS, null, null);
+                case "inventario_habitaciones" -> new Invalidacion(Destino.INVENTARIO, null, null);
+                case "archivo" -> ARCHIVO;
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Consultas de disponibilidad que llegan a la base de datos agrupadas con
+ * {@link SingleFlight}, de modo que una ráfaga de solicitudes idénticas ocupa
+ * una sola conexión del pool.
+ *
+ * Solo se agrupan las rutas que no resuelve el libro en memoria; las tarifas ya
+ * se cargan una sola vez por clave en {@link TarifaCache}.
+ */
+@Component
+public class ConsultasCompartidas {
+
+    private final SingleFlight<ClaveDisponibilidad, List<DisponibilidadResponse>> disponibilidad;
+    private final SingleFlight<ClaveRango, List<DisponibilidadNochesResponse>> disponibilidadPorNoche;
+
+    public ConsultasCompartidas(MeterRegistry meterRegistry,
+                                @Value("${reservas.singleflight.ttl:PT0.2S}") Duration ttl) {
+        this.disponibilidad = new SingleFlight<>("verificarDisponibilidad", ttl, meterRegistry);
+        this.disponibilidadPorNoche = new SingleFlight<>("verificarDisponibilidadPorNoche", ttl, meterRegistry);
+    }
+
+    public List<DisponibilidadResponse> disponibilidad(Integer idHotel, Integer idTipo, LocalDate fechaInicio,
+                                                       LocalDate fechaFin,
+                                                       Supplier<List<DisponibilidadResponse>> consulta) {
+        return disponibilidad.ejecutar(new ClaveDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin), consulta);
+    }
+
+    public List<DisponibilidadNochesResponse> disponibilidadPorNoche(
+            LocalDate fechaInicio, LocalDate fechaFin, Supplier<List<DisponibilidadNochesResponse>> consulta) {
+        return disponibilidadPorNoche.ejecutar(new ClaveRango(fechaInicio, fechaFin), consulta);
+    }
+
+    private record ClaveDisponibilidad(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin) {
+    }
+
+    private record ClaveRango(LocalDate fechaInicio, LocalDate fechaFin) {
+    }
+}
@@ -0,0 +1,30 @@
+package reservahoteles.reservahoteles.Service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Cambio de la ocupación de una combinación hotel/tipo en el libro de
+ * disponibilidad, sobre las noches [fechaInicio, fechaFin). Se publica una vez por
+ * reserva creada o cambiada y por retención creada, liberada o vencida.
+ *
+ * Una recarga completa del libro se publica sin hotel, tipo ni fechas.
+ */
+@Data
+@AllArgsConstructor
+public class DisponibilidadCambiadaEvent {
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+
+    static DisponibilidadCambiadaEvent recarga() {
+        return new DisponibilidadCambiadaEvent(null, null, null, null);
+    }
+
+    public boolean esRecarga() {
+        return idHotel == null;
+    }
+}
@@ -0,0 +1,338 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadEvento;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flujo de disponibilidad por Server-Sent Events.
+ *
+ * Cada suscriptor sigue una combinación hotel/tipo y un rango de noches. Por cada
+ * {@link DisponibilidadCambiadaEvent} del libro se buscan, en el índice por
+ * combinación, los suscriptores cuyo rango se solapa con las noches cambiadas, y a
+ * cada uno se le envía la disponibilidad actual calculada en memoria.
+ *
+ * - Las conexiones son asíncronas ({@link SseEmitter}): un suscriptor inactivo no
+ *   ocupa ningún hilo, solo su socket. El número de suscriptores por instancia está
+ *   acotado por 'reservas.sse.maximo-suscriptores'.
+ * - La cola de cada suscriptor tiene un solo elemento, el valor más reciente: si
+ *   llegan varios cambios antes de enviarlo, se envía una sola vez la disponibilidad
+ *   del momento del envío. La cola del pool tiene como mucho una tarea por
+ *   suscriptor; si aun así se llena, el suscriptor que no cabe se desconecta.
+ * - El latido solo se encola para los suscriptores sin nada pendiente.
+ * - Los envíos los hace un pool pequeño. Un envío que sigue bloqueado después de
+ *   'reservas.sse.envio-maximo' (el cliente no lee) desconecta al suscriptor y el
+ *   pool arranca un hilo de reemplazo mientras el envío no termine, hasta
+ *   'reservas.sse.maximo-lentos', para que los demás suscriptores no esperen.
+ * - Solo se envía cuando la disponibilidad del rango cambió respecto al último
+ *   valor enviado a ese suscriptor.
+ * - Solo se aceptan rangos que el libro puede responder: fuera de su ventana no hay
+ *   eventos de cambio que enviar.
+ */
+@Slf4j
+@Service
+public class DisponibilidadFeed {
+
+    private final DisponibilidadLedger disponibilidadLedger;
+    private final int maximoSuscriptores;
+    private final Duration duracion;
+    private final int hilos;
+    private final int maximoLentos;
+    private final long envioMaximoNanos;
+    private final ThreadPoolExecutor envios;
+    private final Counter eventosEnviados;
+    private final Counter desconectadosLentos;
+    private final Counter desconectadosCola;
+
+    private final Map<Long, Set<Suscripcion>> porCombinacion = new ConcurrentHashMap<>();
+    private final AtomicInteger suscriptores = new AtomicInteger();
+    /** Suscripciones desconectadas por lentas cuyo envío sigue bloqueado. */
+    private final Set<Suscripcion> bloqueadas = ConcurrentHashMap.newKeySet();
+
+    public DisponibilidadFeed(DisponibilidadLedger disponibilidadLedger,
+                              MeterRegistry meterRegistry,
+                              @Value("${reservas.sse.maximo-suscriptores:1000}") int maximoSuscriptores,
+                              @Value("${reservas.sse.duracion:PT30M}") Duration duracion,
+                              @Value("${reservas.sse.hilos:2}") int hilos,
+                              @Value("${reservas.sse.envio-maximo:PT10S}") Duration envioMaximo,
+                              @Value("${reservas.sse.maximo-lentos:8}") int maximoLentos) {
+        this.disponibilidadLedger = disponibilidadLedger;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.duracion = duracion;
+        this.hilos = hilos;
+        this.maximoLentos = maximoLentos;
+        this.envioMaximoNanos = envioMaximo.toNanos();
+        AtomicInteger numero = new AtomicInteger();
+        this.envios = new ThreadPoolExecutor(hilos, hilos + maximoLentos, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(maximoSuscriptores), tarea -> {
+                Thread hilo = new Thread(tarea, "sse-envios-" + numero.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        this.eventosEnviados = Counter.builder("reservas.sse.eventos").register(meterRegistry);
+        this.desconectadosLentos = Counter.builder("reservas.sse.desconectados")
+            .tag("motivo", "lento").register(meterRegistry);
+        this.desconectadosCola = Counter.builder("reservas.sse.desconectados")
+            .tag("motivo", "cola").register(meterRegistry);
+        Gauge.builder("reservas.sse.suscriptores", suscriptores, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Indica si el libro puede responder el rango: la combinación existe y las
+     * noches caen dentro de su ventana. Solo esos rangos reciben eventos de cambio.
+     */
+    public boolean cubre(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin) {
+        return disponibilidadLedger.consultar(idHotel, idTipo, fechaInicio, fechaFin).isPresent();
+    }
+
+    /**
+     * Abre una suscripción. El primer evento, con la disponibilidad actual, se envía
+     * en cuanto la conexión queda abierta.
+     *
+     * @return el emisor de la suscripción, o vacío si la instancia ya tiene el máximo
+     *         de suscriptores
+     */
+    public Optional<SseEmitter> suscribir(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin) {
+        if (suscriptores.incrementAndGet() > maximoSuscriptores) {
+            suscriptores.decrementAndGet();
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(duracion.toMillis());
+        Suscripcion suscripcion = new Suscripcion(idHotel, idTipo, fechaInicio, fechaFin, emitter);
+        porCombinacion.computeIfAbsent(DisponibilidadLedger.clave(idHotel, idTipo),
+            clave -> ConcurrentHashMap.newKeySet()).add(suscripcion);
+        emitter.onCompletion(() -> quitar(suscripcion));
+        emitter.onTimeout(() -> quitar(suscripcion));
+        emitter.onError(error -> quitar(suscripcion));
+        programar(suscripcion, true);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Reparte un cambio del libro entre los suscriptores afectados. Se ejecuta en el
+     * hilo que hizo el cambio, así que solo marca y encola; el envío es asíncrono.
+     */
+    @EventListener
+    public void alCambiarDisponibilidad(DisponibilidadCambiadaEvent evento) {
+        if (evento.esRecarga()) {
+            porCombinacion.values().forEach(suscripciones ->
+                suscripciones.forEach(suscripcion -> programar(suscripcion, true)));
+            return;
+        }
+        Set<Suscripcion> suscripciones =
+            porCombinacion.get(DisponibilidadLedger.clave(evento.getIdHotel(), evento.getIdTipo()));
+        if (suscripciones == null) {
+            return;
+        }
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.fechaInicio.isBefore(evento.getFechaFin())
+                    && evento.getFechaInicio().isBefore(suscripcion.fechaFin)) {
+                programar(suscripcion, true);
+            }
+        }
+    }
+
+    /**
+     * Envía un comentario vacío a los suscriptores sin nada pendiente, para que los
+     * proxies no cierren las conexiones inactivas y para detectar los clientes
+     * desconectados. También desconecta a los suscriptores con un envío bloqueado
+     * más de 'reservas.sse.envio-maximo' y ajusta los hilos de reemplazo.
+     */
+    @Scheduled(fixedDelayString = "${reservas.sse.latido:PT30S}")
+    public void latir() {
+        long ahora = System.nanoTime();
+        porCombinacion.values().forEach(suscripciones -> suscripciones.forEach(suscripcion -> {
+            long desde = suscripcion.enviandoDesde;
+            if (desde != 0 && ahora - desde > envioMaximoNanos) {
+                desconectarLenta(suscripcion);
+            } else {
+                programar(suscripcion, false);
+            }
+        }));
+        envios.setCorePoolSize(hilos + Math.min(bloqueadas.size(), maximoLentos));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        porCombinacion.values().forEach(suscripciones -> suscripciones.forEach(suscripcion ->
+            suscripcion.emitter.complete()));
+        envios.shutdown();
+    }
+
+    /**
+     * Encola una tarea para el suscriptor si no tiene ya una. Con 'cambio', la tarea
+     * envía la disponibilidad; sin él, es un latido y solo se encola si la cola del
+     * suscriptor está vacía.
+     */
+    private void programar(Suscripcion suscripcion, boolean cambio) {
+        if (cambio) {
+            suscripcion.cambio.set(true);
+        }
+        if (!suscripcion.activa.get() || !suscripcion.pendiente.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            envios.execute(() -> atender(suscripcion));
+        } catch (RejectedExecutionException e) {
+            suscripcion.pendiente.set(false);
+            if (!envios.isShutdown() && quitar(suscripcion)) {
+                desconectadosCola.increment();
+                log.warn("Cola de envíos SSE llena: suscriptor desconectado");
+                suscripcion.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Envía la disponibilidad si hay un cambio pendiente, o un latido si no. Un
+     * cambio que llega mientras tanto encuentra la tarea aún pendiente; por eso se
+     * vuelve a programar al terminar si quedó marcado.
+     */
+    private void atender(Suscripcion suscripcion) {
+        try {
+            if (suscripcion.cambio.getAndSet(false)) {
+                actualizar(suscripcion);
+            } else {
+                enviar(suscripcion, SseEmitter.event().comment(""));
+            }
+        } finally {
+            suscripcion.pendiente.set(false);
+            if (suscripcion.cambio.get()) {
+                programar(suscripcion, false);
+            }
+        }
+    }
+
+    /** Calcula la disponibilidad del rango y la envía si cambió. */
+    private void actualizar(Suscripcion suscripcion) {
+        synchronized (suscripcion) {
+            Optional<DisponibilidadResponse> disponibilidad = disponibilidadLedger.consultar(
+                suscripcion.idHotel, suscripcion.idTipo, suscripcion.fechaInicio, suscripcion.fechaFin);
+            if (disponibilidad.isEmpty() || disponibilidad.get().getCantidadDisponible() == suscripcion.ultimo) {
+                return;
+            }
+            int disponible = disponibilidad.get().getCantidadDisponible();
+            DisponibilidadEvento evento = new DisponibilidadEvento(suscripcion.idHotel, suscripcion.idTipo,
+                suscripcion.fechaInicio, suscripcion.fechaFin, disponibilidad.get().getCantidadTotal(), disponible,
+                suscripcion.ultimo < 0 ? 0 : disponible - suscripcion.ultimo);
+            SseEmitter.SseEventBuilder mensaje = SseEmitter.event()
+                .name("disponibilidad")
+                .data(evento, MediaType.APPLICATION_JSON);
+            disponibilidadLedger.version(suscripcion.idHotel, suscripcion.idTipo,
+                suscripcion.fechaInicio, suscripcion.fechaFin).ifPresent(mensaje::id);
+            if (enviar(suscripcion, mensaje)) {
+                suscripcion.ultimo = disponible;
+                eventosEnviados.increment();
+            }
+        }
+    }
+
+    /**
+     * Envía un mensaje y marca cuánto tarda. Si el suscriptor se desconectó por lento
+     * mientras el envío estaba bloqueado, el emisor se cierra al terminar.
+     */
+    private boolean enviar(Suscripcion suscripcion, SseEmitter.SseEventBuilder mensaje) {
+        if (!suscripcion.activa.get()) {
+            return false;
+        }
+        suscripcion.enviandoDesde = System.nanoTime();
+        try {
+            suscripcion.emitter.send(mensaje);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Suscriptor de disponibilidad desconectado: {}", e.getMessage());
+            bloqueadas.remove(suscripcion);
+            quitar(suscripcion);
+            suscripcion.emitter.completeWithError(e);
+            return false;
+        } finally {
+            suscripcion.enviandoDesde = 0;
+            if (bloqueadas.remove(suscripcion)) {
+                suscripcion.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Desconecta a un suscriptor que no lee. El envío bloqueado no puede cortarse
+     * desde aquí (el emisor lo protege con su propio cerrojo) y termina cuando vence
+     * la escritura en el socket; hasta entonces un hilo de reemplazo atiende a los
+     * demás.
+     */
+    private void desconectarLenta(Suscripcion suscripcion) {
+        if (quitar(suscripcion)) {
+            bloqueadas.add(suscripcion);
+            if (suscripcion.enviandoDesde == 0 && bloqueadas.remove(suscripcion)) {
+                // El envío terminó justo antes de marcarla
+                suscripcion.emitter.complete();
+            }
+            desconectadosLentos.increment();
+            log.warn("Suscriptor SSE desconectado: un envío lleva más de {} ms bloqueado",
+                TimeUnit.NANOSECONDS.toMillis(envioMaximoNanos));
+        }
+    }
+
+    private boolean quitar(Suscripcion suscripcion) {
+        if (suscripcion.activa.compareAndSet(true, false)) {
+            Set<Suscripcion> suscripciones =
+                porCombinacion.get(DisponibilidadLedger.clave(suscripcion.idHotel, suscripcion.idTipo));
+            if (suscripciones != null) {
+                suscripciones.remove(suscripcion);
+            }
+            suscriptores.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Suscripcion {
+        private final Integer idHotel;
+        private final Integer idTipo;
+        private final LocalDate fechaInicio;
+        private final LocalDate fechaFin;
+        private final SseEmitter emitter;
+        /** Hay una tarea encolada o en curso para este suscriptor. */
+        private final AtomicBoolean pendiente = new AtomicBoolean();
+        /** Hay un cambio sin enviar: la cola de un elemento con el valor más reciente. */
+        private final AtomicBoolean cambio = new AtomicBoolean();
+        private final AtomicBoolean activa = new AtomicBoolean(true);
+        /** System.nanoTime() del envío en curso; 0 si no hay ninguno. */
+        private volatile long enviandoDesde;
+        /** Última disponibilidad enviada; -1 antes del primer envío. */
+        private int ultimo = -1;
+
+        private Suscripcion(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin,
+                            SseEmitter emitter) {
+            this.idHotel = idHotel;
+            this.idTipo = idTipo;
+            this.fechaInicio = fechaInicio;
+            this.fechaFin = fechaFin;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Retencion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiPredicate;
+
+/**
+ * Libro de ocupación en memoria por (hotel, tipo de habitación, noche).
+ *
+ * Se construye al arrancar a partir de 'inventario_habitaciones', de las reservas
+ * confirmadas y de las retenciones vigentes, y se actualiza con cada reserva creada
+ * y cada retención creada, liberada o vencida. Las habitaciones retenidas cuentan
+ * como ocupadas. Los cambios hechos por otras instancias llegan por
+ * {@link CoherenciaCaches}, que relee la ocupación de la combinación afectada.
+ * Permite responder consultas de disponibilidad como el mínimo de habitaciones
+ * libres sobre las noches del rango, sin acceder a la base de datos.
+ *
+ * Solo cubre la ventana [fechaBase, fechaBase + horizonteDias). Las consultas fuera
+ * de la ventana, o sobre combinaciones sin inventario, devuelven vacío para que el
+ * servicio recurra a 'verificar_disponibilidad_pool'.
+ *
+ * Cada combinación lleva un número de versión que aumenta con cada cambio de su
+ * ocupación, y cada carga del libro una generación aleatoria, de modo que una
+ * versión no se repite entre recargas ni entre instancias. Cada cambio y cada
+ * recarga se publican como {@link DisponibilidadCambiadaEvent}.
+ *
+ * Los cambios que se registran mientras una recarga lee la base de datos no se
+ * pierden: si hubo alguno, la recarga se repite, y si siguen llegando en el último
+ * intento se vuelven a leer, después de sustituir el libro, las combinaciones que
+ * tocaron.
+ */
+@Slf4j
+@Component
+public class DisponibilidadLedger {
+
+    private static final String CONFIRMADA = "Confirmada";
+    private static final int INTENTOS_RECARGA = 3;
+
+    private final InventarioHabitacionesRepository inventarioRepository;
+    private final ReservaRepository reservaRepository;
+    private final RetencionRepository retencionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int horizonteDias;
+
+    private volatile Estado estado;
+
+    /** Protege {@link #cambios} y {@link #pendientes} y la sustitución de {@link #estado}. */
+    private final Object registro = new Object();
+    private long cambios;
+    private List<Cambio> pendientes;
+
+    public DisponibilidadLedger(InventarioHabitacionesRepository inventarioRepository,
+                                ReservaRepository reservaRepository,
+                                RetencionRepository retencionRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${reservas.disponibilidad.horizonte-dias:730}") int horizonteDias) {
+        this.inventarioRepository = inventarioRepository;
+        this.reservaRepository = reservaRepository;
+        this.retencionRepository = retencionRepository;
+        this.eventPublisher = eventPublisher;
+        this.horizonteDias = horizonteDias;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            recargar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo cargar el libro de disponibilidad, se usará la base de datos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruye el libro completo desde la base de datos. Se ejecuta también de
+     * forma programada para desplazar la ventana de noches hacia adelante.
+     */
+    @Scheduled(cron = "${reservas.disponibilidad.recarga-cron:0 0 3 * * *}")
+    public synchronized void recargar() {
+        List<Cambio> concurrentes = List.of();
+        for (int intento = 1; ; intento++) {
+            long cambiosAntes;
+            synchronized (registro) {
+                cambiosAntes = cambios;
+                pendientes = new ArrayList<>();
+            }
+            Estado nuevo = leer();
+            synchronized (registro) {
+                boolean ultimo = intento == INTENTOS_RECARGA;
+                if (cambios == cambiosAntes || ultimo) {
+                    concurrentes = pendientes;
+                    pendientes = null;
+                    this.estado = nuevo;
+                    break;
+                }
+                pendientes = null;
+            }
+        }
+        releerConcurrentes(concurrentes);
+        eventPublisher.publishEvent(DisponibilidadCambiadaEvent.recarga());
+    }
+
+    /**
+     * Vuelve a leer las combinaciones con cambios registrados durante la lectura del
+     * último intento: la lectura pudo incluirlos o no, así que sumarlos podría
+     * contarlos dos veces. Si una combinación no puede releerse se suman sus cambios,
+     * porque perder uno aceptaría reservas que la base de datos rechaza, mientras que
+     * contarlo dos veces solo rechaza de más hasta la siguiente recarga.
+     */
+    private void releerConcurrentes(List<Cambio> concurrentes) {
+        Map<Long, List<Cambio>> porCombinacion = new LinkedHashMap<>();
+        for (Cambio cambio : concurrentes) {
+            porCombinacion.computeIfAbsent(clave(cambio.idHotel(), cambio.idTipo()), k -> new ArrayList<>()).add(cambio);
+        }
+        for (List<Cambio> grupo : porCombinacion.values()) {
+            Cambio primero = grupo.get(0);
+            if (recargarCombinacion(primero.idHotel(), primero.idTipo())) {
+                continue;
+            }
+            log.warn("No se pudo releer hotel: {}, tipo: {} tras la recarga, se suman sus {} cambios concurrentes",
+                primero.idHotel(), primero.idTipo(), grupo.size());
+            synchronized (registro) {
+                for (Cambio cambio : grupo) {
+                    estado.sumar(cambio.idHotel(), cambio.idTipo(), cambio.fechaInicio(),
+                        cambio.fechaFin(), cambio.cantidad());
+                }
+            }
+        }
+    }
+
+    private Estado leer() {
+        LocalDate fechaBase = LocalDate.now();
+        List<InventarioHabitaciones> inventario = inventarioRepository.findAllConDetalle();
+        List<Object[]> reservas = reservaRepository.findOcupacionConfirmadaDesde(fechaBase);
+        List<Retencion> retenciones = retencionRepository.findVigentes(Instant.now());
+
+        Map<Long, Ocupacion> ocupaciones = new HashMap<>();
+        for (InventarioHabitaciones item : inventario) {
+            ocupaciones.put(clave(item.getHotel().getIdHotel(), item.getTipoHabitacion().getIdTipo()),
+                new Ocupacion(
+                    item.getHotel().getIdHotel(),
+                    item.getTipoHabitacion().getIdTipo(),
+                    item.getTipoHabitacion().getNombre(),
+                    item.getTipoHabitacion().getCapacidadPersonas(),
+                    item.getCantidadTotal(),
+                    new int[horizonteDias]
+                ));
+        }
+
+        Estado nuevo = new Estado(fechaBase, ThreadLocalRandom.current().nextLong(), ocupaciones);
+        for (Object[] row : reservas) {
+            nuevo.sumar(
+                ((Number) row[0]).intValue(),
+                ((Number) row[1]).intValue(),
+                (LocalDate) row[2],
+                (LocalDate) row[3],
+                ((Number) row[4]).intValue()
+            );
+        }
+        for (Retencion retencion : retenciones) {
+            nuevo.sumar(retencion.getIdHotel(), retencion.getIdTipo(), retencion.getFechaInicio(),
+                retencion.getFechaFin(), retencion.getCantidadHabitaciones());
+        }
+        log.info("Libro de disponibilidad cargado: {} combinaciones hotel/tipo, {} reservas, {} retenciones, desde {}",
+            ocupaciones.size(), reservas.size(), retenciones.size(), fechaBase);
+        return nuevo;
+    }
+
+    /**
+     * Vuelve a leer de la base de datos la ocupación de una combinación hotel/tipo,
+     * por ejemplo porque otra instancia registró una reserva. Si mientras se lee
+     * se aplica un cambio local sobre la combinación, la lectura se descarta y se
+     * repite, para no perder ese cambio.
+     *
+     * @return false si el libro no tiene la combinación, no está cargado o los
+     *         cambios locales descartaron todos los intentos; en ese caso la
+     *         combinación no refleja la base de datos y quien llama debe recargar
+     */
+    public boolean recargarCombinacion(Integer idHotel, Integer idTipo) {
+        Estado actual = estado;
+        Ocupacion ocupacion = actual != null ? actual.ocupaciones.get(clave(idHotel, idTipo)) : null;
+        if (ocupacion == null) {
+            return false;
+        }
+        LocalDate fechaBase = LocalDate.ofEpochDay(actual.epochBase);
+        for (int intento = 0; intento < INTENTOS_RECARGA; intento++) {
+            long version = ocupacion.version();
+            int[] ocupadas = new int[horizonteDias];
+            for (Object[] row : reservaRepository.findOcupacionConfirmadaDesde(idHotel, idTipo, fechaBase)) {
+                Ocupacion.acumular(ocupadas, actual.indice((LocalDate) row[2]), actual.indice((LocalDate) row[3]),
+                    ((Number) row[4]).intValue());
+            }
+            for (Retencion retencion : retencionRepository.findVigentes(idHotel, idTipo, Instant.now())) {
+                Ocupacion.acumular(ocupadas, actual.indice(retencion.getFechaInicio()),
+                    actual.indice(retencion.getFechaFin()), retencion.getCantidadHabitaciones());
+            }
+            if (ocupacion.reemplazar(version, ocupadas)) {
+                eventPublisher.publishEvent(new DisponibilidadCambiadaEvent(idHotel, idTipo,
+                    fechaBase, fechaBase.plusDays(horizonteDias)));
+                return true;
+            }
+        }
+        log.debug("Recarga de hotel: {}, tipo: {} descartada por cambios locales concurrentes", idHotel, idTipo);
+        return false;
+    }
+
+    /**
+     * Consulta la disponibilidad de un tipo de habitación en un hotel para el rango
+     * [fechaInicio, fechaFin) usando solo memoria.
+     *
+     * @return la disponibilidad calculada, o vacío si el libro no puede responder
+     */
+    public Optional<DisponibilidadResponse> consultar(Integer idHotel, Integer idTipo,
+                                                      LocalDate fechaInicio, LocalDate fechaFin) {
+        Estado actual = estado;
+        if (actual == null || idHotel == null || idTipo == null) {
+            return Optional.empty();
+        }
+        Ocupacion ocupacion = actual.ocupaciones.get(clave(idHotel, idTipo));
+        int desde = actual.indice(fechaInicio);
+        int hasta = actual.indice(fechaFin);
+        if (ocupacion == null || !ocupacion.cubre(desde, hasta)) {
+            return Optional.empty();
+        }
+        return Optional.of(new DisponibilidadResponse(
+            ocupacion.tipoHabitacion,
+            ocupacion.cantidadTotal,
+            ocupacion.disponibles(desde, hasta),
+            ocupacion.capacidadPersonas
+        ));
+    }
+
+    /**
+     * Consulta en una sola pasada la disponibilidad noche a noche de todas las
+     * combinaciones hotel/tipo aceptadas por el filtro, ordenadas por hotel y tipo.
+     *
+     * @return la matriz de disponibilidad, o vacío si el libro no está cargado o el
+     *         rango queda fuera de la ventana
+     */
+    public Optional<List<DisponibilidadNochesResponse>> consultarNoches(BiPredicate<Integer, Integer> filtro,
+                                                                       LocalDate fechaInicio, LocalDate fechaFin) {
+        Estado actual = estado;
+        if (actual == null) {
+            return Optional.empty();
+        }
+        int desde = actual.indice(fechaInicio);
+        int hasta = actual.indice(fechaFin);
+        List<DisponibilidadNochesResponse> resultados = new ArrayList<>();
+        for (Ocupacion ocupacion : actual.ocupaciones.values()) {
+            if (!filtro.test(ocupacion.idHotel, ocupacion.idTipo)) {
+                continue;
+            }
+            if (!ocupacion.cubre(desde, hasta)) {
+                return Optional.empty();
+            }
+            List<Integer> porNoche = ocupacion.disponiblesPorNoche(desde, hasta);
+            resultados.add(new DisponibilidadNochesResponse(
+                ocupacion.idHotel,
+                ocupacion.idTipo,
+                ocupacion.tipoHabitacion,
+                ocupacion.cantidadTotal,
+                ocupacion.capacidadPersonas,
+                Collections.min(porNoche),
+                porNoche
+            ));
+        }
+        resultados.sort(Comparator.comparing(DisponibilidadNochesResponse::getIdHotel)
+            .thenComparing(DisponibilidadNochesResponse::getIdTipo));
+        return Optional.of(resultados);
+    }
+
+    /**
+     * Versión de la ocupación de una combinación hotel/tipo, para usarla como ETag
+     * de las consultas de disponibilidad sobre [fechaInicio, fechaFin).
+     *
+     * @return la versión, o vacío si el libro no puede responder la consulta (y por
+     *         tanto la respuesta sale de la base de datos)
+     */
+    public Optional<String> version(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin) {
+        Estado actual = estado;
+        if (actual == null || idHotel == null || idTipo == null) {
+            return Optional.empty();
+        }
+        Ocupacion ocupacion = actual.ocupaciones.get(clave(idHotel, idTipo));
+        if (ocupacion == null || !ocupacion.cubre(actual.indice(fechaInicio), actual.indice(fechaFin))) {
+            return Optional.empty();
+        }
+        return Optional.of(Long.toHexString(actual.generacion) + '.' + ocupacion.version());
+    }
+
+    /**
+     * Registra una reserva confirmada en el libro. Las noches fuera de la ventana
+     * se ignoran, ya que esas consultas se resuelven contra la base de datos.
+     */
+    public void registrarReserva(Integer idHotel, Integer idTipo, LocalDate fechaInicio,
+                                 LocalDate fechaFin, int cantidadHabitaciones) {
+        synchronized (registro) {
+            Estado actual = estado;
+            if (actual == null) {
+                return;
+            }
+            actual.sumar(idHotel, idTipo, fechaInicio, fechaFin, cantidadHabitaciones);
+            cambios++;
+            if (pendientes != null) {
+                pendientes.add(new Cambio(idHotel, idTipo, fechaInicio, fechaFin, cantidadHabitaciones));
+            }
+        }
+        eventPublisher.publishEvent(new DisponibilidadCambiadaEvent(idHotel, idTipo, fechaInicio, fechaFin));
+    }
+
+    /**
+     * Registra una retención: sus habitaciones cuentan como ocupadas hasta que se
+     * libere con {@link #liberarRetencion}.
+     */
+    public void registrarRetencion(Retencion retencion) {
+        registrarReserva(retencion.getIdHotel(), retencion.getIdTipo(), retencion.getFechaInicio(),
+            retencion.getFechaFin(), retencion.getCantidadHabitaciones());
+    }
+
+    /**
+     * Devuelve al libro las habitaciones de una retención liberada, vencida o
+     * convertida en reserva (en este último caso, después de registrar la reserva).
+     */
+    public void liberarRetencion(Retencion retencion) {
+        registrarReserva(retencion.getIdHotel(), retencion.getIdTipo(), retencion.getFechaInicio(),
+            retencion.getFechaFin(), -retencion.getCantidadHabitaciones());
+    }
+
+    /**
+     * Aplica un cambio de estado confirmado: si la reserva deja de estar confirmada
+     * libera sus noches, y si pasa a estarlo las ocupa. Solo se recorren las noches
+     * de la reserva.
+     */
+    @EventListener
+    public void alCambiarReserva(ReservaCambiadaEvent evento) {
+        boolean antes = CONFIRMADA.equals(evento.getEstadoAnterior());
+        boolean despues = CONFIRMADA.equals(evento.getEstadoNuevo());
+        if (antes == despues) {
+            return;
+        }
+        registrarReserva(evento.getIdHotel(), evento.getIdTipo(), evento.getFechaInicio(), evento.getFechaFin(),
+            despues ? evento.getCantidadHabitaciones() : -evento.getCantidadHabitaciones());
+    }
+
+    public boolean isCargado() {
+        return estado != null;
+    }
+
+    /**
+     * Indica si la combinación hotel/tipo tiene inventario según la última carga.
+     * Con el libro sin cargar devuelve false.
+     */
+    public boolean existe(Integer idHotel, Integer idTipo) {
+        Estado actual = estado;
+        return actual != null && idHotel != null && idTipo != null
+            && actual.ocupaciones.containsKey(clave(idHotel, idTipo));
+    }
+
+    static long clave(int idHotel, int idTipo) {
+        return ((long) idHotel << 32) | (idTipo & 0xFFFFFFFFL);
+    }
+
+    private record Cambio(int idHotel, int idTipo, LocalDate fechaInicio, LocalDate fechaFin, int cantidad) {
+    }
+
+    private static final class Estado {
+        private final long epochBase;
+        private final long generacion;
+        private final Map<Long, Ocupacion> ocupaciones;
+
+        private Estado(LocalDate fechaBase, long generacion, Map<Long, Ocupacion> ocupaciones) {
+            this.epochBase = fechaBase.toEpochDay();
+            this.generacion = generacion;
+            this.ocupaciones = ocupaciones;
+        }
+
+        private int indice(LocalDate fecha) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, fecha.toEpochDay() - epochBase));
+        }
+
+        private void sumar(int idHotel, int idTipo, LocalDate fechaInicio, LocalDate fechaFin, int cantidad) {
+            Ocupacion ocupacion = ocupaciones.get(clave(idHotel, idTipo));
+            if (ocupacion != null) {
+                ocupacion.sumar(indice(fechaInicio), indice(fechaFin), cantidad);
+            }
+        }
+    }
+
+    /**
+     * Ocupación por noche de una combinación hotel/tipo. El índice de cada posición
+     * es el número de días desde la fecha base del libro.
+     */
+    private static final class Ocupacion {
+        private final int idHotel;
+        private final int idTipo;
+        private final String tipoHabitacion;
+        private final int capacidadPersonas;
+        private final int cantidadTotal;
+        private final int[] ocupadas;
+        private long version;
+
+        private Ocupacion(int idHotel, int idTipo, String tipoHabitacion, int capacidadPersonas,
+                          int cantidadTotal, int[] ocupadas) {
+            this.idHotel = idHotel;
+            this.idTipo = idTipo;
+            this.tipoHabitacion = tipoHabitacion;
+            this.capacidadPersonas = capacidadPersonas;
+            this.cantidadTotal = cantidadTotal;
+            this.ocupadas = ocupadas;
+        }
+
+        private boolean cubre(int desde, int hasta) {
+            return desde >= 0 && hasta <= ocupadas.length && desde < hasta;
+        }
+
+        private synchronized int disponibles(int desde, int hasta) {
+            int maximo = 0;
+            for (int noche = desde; noche < hasta; noche++) {
+                maximo = Math.max(maximo, ocupadas[noche]);
+            }
+            return Math.max(0, cantidadTotal - maximo);
+        }
+
+        private synchronized List<Integer> disponiblesPorNoche(int desde, int hasta) {
+            List<Integer> disponibles = new ArrayList<>(hasta - desde);
+            for (int noche = desde; noche < hasta; noche++) {
+                disponibles.add(Math.max(0, cantidadTotal - ocupadas[noche]));
+            }
+            return disponibles;
+        }
+
+        private synchronized long version() {
+            return version;
+        }
+
+        private synchronized void sumar(int desde, int hasta, int cantidad) {
+            version++;
+            acumular(ocupadas, desde, hasta, cantidad);
+        }
+
+        /**
+         * Sustituye la ocupación por una leída de la base de datos, solo si no hubo
+         * cambios desde que se leyó la versión indicada.
+         */
+        private synchronized boolean reemplazar(long versionLeida, int[] leidas) {
+            if (version != versionLeida) {
+                return false;
+            }
+            version++;
+            System.arraycopy(leidas, 0, ocupadas, 0, ocupadas.length);
+            return true;
+        }
+
+        private static void acumular(int[] ocupadas, int desde, int hasta, int cantidad) {
+            int inicio = Math.max(0, desde);
+            int fin = Math.min(ocupadas.length, hasta);
+            for (int noche = inicio; noche < fin; noche++) {
+                ocupadas[noche] = Math.max(0, ocupadas[noche] + cantidad);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.FormatoExportacion;
+import reservahoteles.reservahoteles.DTO.ReservaExportacion;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Exportación de reservas para conciliación.
+ *
+ * Las filas se leen con un cursor de la base de datos y se escriben en la salida a
+ * medida que llegan, así que la memoria usada no depende de cuántas reservas se
+ * exporten.
+ */
+@Slf4j
+@Service
+public class ExportacionService {
+
+    private static final String ENCABEZADO_CSV = "id_reserva,id_hotel,id_tipo,fecha_inicio,fecha_fin," +
+        "numero_personas,cantidad_habitaciones,total_calculado,estado,fecha_creacion,id_lote";
+
+    private final ReservaRepository reservaRepository;
+    private final TransactionTemplate lectura;
+    private final JsonMapper jsonMapper;
+
+    public ExportacionService(ReservaRepository reservaRepository,
+                              PlatformTransactionManager transactionManager,
+                              JsonMapper jsonMapper) {
+        this.reservaRepository = reservaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Escribe en la salida las reservas con fecha de inicio en [fechaDesde, fechaHasta),
+     * opcionalmente filtradas por hotel y estado.
+     */
+    public void exportar(Integer idHotel, LocalDate fechaDesde, LocalDate fechaHasta, String estado,
+                         FormatoExportacion formato, OutputStream salida) throws IOException {
+        log.info("Exportando reservas en {} para hotel: {}, desde: {}, hasta: {}, estado: {}",
+            formato, idHotel, fechaDesde, fechaHasta, estado);
+        try {
+            if (formato == FormatoExportacion.NDJSON) {
+                exportarNdjson(idHotel, fechaDesde, fechaHasta, estado, salida);
+            } else {
+                exportarCsv(idHotel, fechaDesde, fechaHasta, estado, salida);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportarCsv(Integer idHotel, LocalDate fechaDesde, LocalDate fechaHasta, String estado,
+                             OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write(ENCABEZADO_CSV);
+        writer.write('\n');
+        lectura.executeWithoutResult(status ->
+            reservaRepository.recorrerReservas(idHotel, fechaDesde, fechaHasta, estado, reserva -> {
+                try {
+                    escribirCsv(writer, reserva);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        writer.flush();
+    }
+
+    private void exportarNdjson(Integer idHotel, LocalDate fechaDesde, LocalDate fechaHasta, String estado,
+                                OutputStream salida) {
+        try (SequenceWriter writer = jsonMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(salida)) {
+            lectura.executeWithoutResult(status ->
+                reservaRepository.recorrerReservas(idHotel, fechaDesde, fechaHasta, estado, writer::write));
+        }
+    }
+
+    static void escribirCsv(Writer writer, ReservaExportacion reserva) throws IOException {
+        writer.write(String.valueOf(reserva.getIdReserva()));
+        writer.write(',');
+        writer.write(String.valueOf(reserva.getIdHotel()));
+        writer.write(',');
+        writer.write(String.valueOf(reserva.getIdTipo()));
+        writer.write(',');
+        writer.write(valor(reserva.getFechaInicio()));
+        writer.write(',');
+        writer.write(valor(reserva.getFechaFin()));
+        writer.write(',');
+        writer.write(valor(reserva.getNumeroPersonas()));
+        writer.write(',');
+        writer.write(valor(reserva.getCantidadHabitaciones()));
+        writer.write(',');
+        writer.write(reserva.getTotalCalculado() != null ? reserva.getTotalCalculado().toPlainString() : "");
+        writer.write(',');
+        writer.write(valor(reserva.getEstado()));
+        writer.write(',');
+        writer.write(valor(reserva.getFechaCreacion()));
+        writer.write(',');
+        writer.write(valor(reserva.getIdLote()));
+        writer.write('\n');
+    }
+
+    private static String valor(Object valor) {
+        return valor != null ? valor.toString() : "";
+    }
+}
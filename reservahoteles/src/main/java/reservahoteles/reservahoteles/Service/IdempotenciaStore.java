@@ -0,0 +1,135 @@
+package reservahoteles.reservahoteles.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Resultados de operaciones de escritura indexados por clave de idempotencia
+ * ('Idempotency-Key').
+ *
+ * La primera solicitud con una clave ejecuta la operación; las repeticiones
+ * reciben el mismo resultado sin volver a ejecutarla. Si la repetición llega
+ * mientras la primera sigue en curso, espera su resultado en lugar de ejecutar
+ * en paralelo. Si la operación falla con una excepción, la clave se libera para
+ * que un reintento pueda ejecutarla de nuevo.
+ *
+ * Junto al resultado se guarda una huella del cuerpo de la solicitud: una
+ * repetición con la misma clave y otro cuerpo es un error del cliente y recibe
+ * {@link ClaveIdempotenciaReutilizadaException} en lugar del resultado original.
+ *
+ * El almacén está acotado en tamaño y las entradas expiran por tiempo. Sus
+ * estadísticas se publican en Micrometer como 'cache.*' con cache=idempotencia.
+ */
+@Component
+public class IdempotenciaStore {
+
+    private final Cache<String, Entrada> resultados;
+    private final Counter repeticiones;
+    private final Counter reutilizaciones;
+
+    public IdempotenciaStore(MeterRegistry meterRegistry,
+                             @Value("${reservas.idempotencia.maximo:100000}") long maximo,
+                             @Value("${reservas.idempotencia.ttl:PT24H}") Duration ttl) {
+        this.resultados = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, resultados, "idempotencia");
+        this.repeticiones = Counter.builder("reservas.idempotencia.repeticiones")
+            .register(meterRegistry);
+        this.reutilizaciones = Counter.builder("reservas.idempotencia.reutilizaciones")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Huella SHA-256 de un cuerpo de solicitud, a partir de su representación en
+     * texto (el toString de Lombok incluye todos los campos).
+     */
+    public static String huella(Object cuerpo) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(String.valueOf(cuerpo).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ejecuta una operación sin cuerpo (la ruta ya identifica el recurso) una sola
+     * vez por clave.
+     */
+    public <T> T ejecutar(String operacion, String clave, Supplier<T> accion) {
+        return ejecutar(operacion, clave, null, accion);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave.
+     *
+     * @param operacion nombre de la operación, para que la misma clave usada en
+     *                  operaciones distintas no se confunda
+     * @param clave     clave de idempotencia enviada por el cliente; si es null la
+     *                  operación se ejecuta siempre
+     * @param huella    huella del cuerpo de la solicitud ({@link #huella}), o null
+     *                  si la operación no tiene cuerpo
+     * @throws ClaveIdempotenciaReutilizadaException si la clave ya se usó con otra huella
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String operacion, String clave, String huella, Supplier<T> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+
+        String id = operacion + ':' + clave;
+        Entrada propia = new Entrada(huella, new CompletableFuture<>());
+        Entrada existente = resultados.asMap().putIfAbsent(id, propia);
+        if (existente != null) {
+            if (!Objects.equals(existente.huella(), huella)) {
+                reutilizaciones.increment();
+                throw new ClaveIdempotenciaReutilizadaException(clave);
+            }
+            repeticiones.increment();
+            try {
+                return (T) existente.resultado().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T resultado = accion.get();
+            propia.resultado().complete(resultado);
+            return resultado;
+        } catch (Throwable e) {
+            // También con un Error: si el futuro no se completa, las repeticiones se quedan bloqueadas
+            resultados.asMap().remove(id, propia);
+            propia.resultado().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private record Entrada(String huella, CompletableFuture<Object> resultado) {
+    }
+}
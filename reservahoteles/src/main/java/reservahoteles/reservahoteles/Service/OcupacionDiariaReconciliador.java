@@ -0,0 +1,55 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Conciliación periódica de 'ocupacion_diaria' contra la tabla de reservas.
+ *
+ * La tabla la mantiene un trigger en cada escritura sobre 'reservas'; este proceso
+ * solo cubre los casos en que se haya desviado (cargas manuales con el trigger
+ * deshabilitado, restauraciones parciales). Solo compara las noches desde hoy: las
+ * pasadas ya no se venden, y con ellas el costo de la verificación crecería con
+ * cada año de historia. Si encuentra diferencias, reconstruye esas mismas noches
+ * en una transacción propia.
+ */
+@Slf4j
+@Component
+public class OcupacionDiariaReconciliador {
+
+    private final ReservaRepository reservaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter discrepancias;
+
+    public OcupacionDiariaReconciliador(ReservaRepository reservaRepository,
+                                        TransactionTemplate transactionTemplate,
+                                        MeterRegistry meterRegistry) {
+        this.reservaRepository = reservaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.discrepancias = Counter.builder("reservas.ocupacion.discrepancias")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${reservas.ocupacion.reconciliacion-cron:0 30 3 * * *}")
+    public void reconciliar() {
+        LocalDate hoy = LocalDate.now();
+        Integer diferencias = transactionTemplate.execute(status -> reservaRepository.verificarOcupacionDiaria(hoy));
+        if (diferencias == null || diferencias == 0) {
+            log.info("Ocupación diaria consistente con las reservas");
+            return;
+        }
+
+        discrepancias.increment(diferencias);
+        log.warn("Ocupación diaria difiere de las reservas en {} noches, se reconstruye desde {}", diferencias, hoy);
+        Integer filas = transactionTemplate.execute(status -> reservaRepository.reconstruirOcupacionDiaria(hoy));
+        log.info("Ocupación diaria reconstruida: {} filas", filas);
+    }
+}
@@ -0,0 +1,115 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.DesglosePrecio;
+import reservahoteles.reservahoteles.DTO.PrecioNoche;
+import reservahoteles.reservahoteles.DTO.TarifaTemporada;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Motor de precios en memoria equivalente a la función 'calcular_precio_reserva'.
+ *
+ * Usa las tarifas, temporadas y capacidades de {@link TarifaCache}, por lo que una
+ * cotización no requiere acceso a la base de datos. A diferencia de la función
+ * almacenada, que aplica a toda la estadía la tarifa de la temporada de la fecha de
+ * inicio, cada noche se cobra con la tarifa de la temporada a la que pertenece.
+ * Para estadías dentro de una sola temporada el resultado es idéntico.
+ */
+@Component
+@RequiredArgsConstructor
+public class PricingEngine {
+
+    private final TarifaCache tarifaCache;
+
+    /**
+     * Calcula el precio de una estadía.
+     *
+     * Las noches que no caen en ninguna temporada se cobran con la tarifa de la
+     * fecha de inicio, como hace la función almacenada. Si tampoco existe tarifa
+     * para la fecha de inicio, la respuesta solo informa el número de noches.
+     *
+     * @param request parámetros de la cotización
+     * @return precio total, precio por noche, temporada(s) y desglose por noche
+     */
+    public CalculoPrecioResponse cotizar(CalculoPrecioRequest request) {
+        return cotizar(request.getIdHotel(), request.getIdTipo(), request.getFechaInicio(),
+            request.getFechaFin(), request.getCantidadHabitaciones(), request.getNumeroPersonas());
+    }
+
+    public CalculoPrecioResponse cotizar(Integer idHotel, Integer idTipo, LocalDate fechaInicio,
+                                         LocalDate fechaFin, int cantidadHabitaciones, int numeroPersonas) {
+        int numeroNoches = (int) ChronoUnit.DAYS.between(fechaInicio, fechaFin);
+        Optional<TarifaTemporada> tarifaInicial = tarifaCache.tarifaVigente(idHotel, idTipo, fechaInicio);
+        if (tarifaInicial.isEmpty()) {
+            return new CalculoPrecioResponse(null, null, numeroNoches, null, null);
+        }
+
+        int capacidadBase = tarifaCache.tipoHabitacion(idTipo).map(TipoHabitacion::getCapacidadPersonas).orElse(0);
+        int personasExtra = Math.max(0, numeroPersonas - capacidadBase * cantidadHabitaciones);
+        BigDecimal habitaciones = BigDecimal.valueOf(cantidadHabitaciones);
+        BigDecimal extra = BigDecimal.valueOf(personasExtra);
+
+        BigDecimal subtotalHabitaciones = BigDecimal.ZERO;
+        BigDecimal subtotalPersonasExtra = BigDecimal.ZERO;
+        BigDecimal primerPrecio = tarifaInicial.get().getPrecioBaseNoche();
+        boolean precioUniforme = true;
+        Set<String> temporadas = new LinkedHashSet<>();
+        List<PrecioNoche> noches = new ArrayList<>(Math.max(0, numeroNoches));
+
+        TarifaTemporada tarifa = tarifaInicial.get();
+        for (LocalDate noche = fechaInicio; noche.isBefore(fechaFin); noche = noche.plusDays(1)) {
+            if (noche.isAfter(tarifa.getFechaFinTemporada()) || noche.isBefore(tarifa.getFechaInicioTemporada())) {
+                tarifa = tarifaCache.tarifaVigente(idHotel, idTipo, noche).orElse(tarifaInicial.get());
+            }
+            BigDecimal adicional = precioPersonaAdicional(tarifa);
+            BigDecimal costoHabitaciones = tarifa.getPrecioBaseNoche().multiply(habitaciones);
+            BigDecimal costoExtra = adicional.multiply(extra);
+
+            subtotalHabitaciones = subtotalHabitaciones.add(costoHabitaciones);
+            subtotalPersonasExtra = subtotalPersonasExtra.add(costoExtra);
+            precioUniforme &= tarifa.getPrecioBaseNoche().compareTo(primerPrecio) == 0;
+            temporadas.add(tarifa.getTemporada());
+            noches.add(new PrecioNoche(noche, tarifa.getTemporada(), tarifa.getPrecioBaseNoche(),
+                adicional, costoHabitaciones.add(costoExtra)));
+        }
+
+        BigDecimal precioPorNoche = precioUniforme || numeroNoches <= 0
+            ? primerPrecio
+            : subtotalHabitaciones.divide(habitaciones.multiply(BigDecimal.valueOf(numeroNoches)), 2, RoundingMode.HALF_UP);
+        DesglosePrecio desglose = new DesglosePrecio(
+            precioPorNoche,
+            numeroNoches,
+            cantidadHabitaciones,
+            subtotalHabitaciones,
+            personasExtra,
+            precioPersonaAdicional(tarifaInicial.get()),
+            subtotalPersonasExtra,
+            noches
+        );
+        return new CalculoPrecioResponse(
+            subtotalHabitaciones.add(subtotalPersonasExtra),
+            precioPorNoche,
+            numeroNoches,
+            String.join(", ", temporadas.isEmpty() ? Set.of(tarifaInicial.get().getTemporada()) : temporadas),
+            desglose
+        );
+    }
+
+    private static BigDecimal precioPersonaAdicional(TarifaTemporada tarifa) {
+        return tarifa.getPrecioPersonaAdicional() != null ? tarifa.getPrecioPersonaAdicional() : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,24 @@
+package reservahoteles.reservahoteles.Service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Cambio de estado de una reserva ya confirmado en la base de datos. Se publica
+ * después del commit para que las estructuras derivadas (libro de disponibilidad,
+ * cachés) actualicen solo las noches de la combinación hotel/tipo afectada.
+ */
+@Data
+@AllArgsConstructor
+public class ReservaCambiadaEvent {
+    private Integer idReserva;
+    private Integer idHotel;
+    private Integer idTipo;
+    private LocalDate fechaInicio;
+    private LocalDate fechaFin;
+    private Integer cantidadHabitaciones;
+    private String estadoAnterior;
+    private String estadoNuevo;
+}
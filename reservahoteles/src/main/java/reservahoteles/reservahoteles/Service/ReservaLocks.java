@@ -0,0 +1,87 @@
+package reservahoteles.reservahoteles.Service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Candados en memoria por combinación (hotel, tipo de habitación), repartidos en
+ * un número fijo de franjas.
+ *
+ * Cada combinación usa el candado de su franja, así que dos combinaciones solo
+ * compiten si caen en la misma. El número de candados no depende de los ids que
+ * envíen los clientes: una combinación inventada no reserva memoria.
+ */
+@Component
+public class ReservaLocks {
+
+    /** Potencia de dos, para elegir la franja con una máscara. */
+    static final int FRANJAS = 1024;
+
+    private final ReentrantLock[] locks = new ReentrantLock[FRANJAS];
+
+    public ReservaLocks() {
+        for (int i = 0; i < FRANJAS; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Ejecuta la acción con el candado de la combinación hotel/tipo tomado.
+     */
+    public <T> T ejecutar(int idHotel, int idTipo, Supplier<T> accion) {
+        ReentrantLock lock = locks[franja(DisponibilidadLedger.clave(idHotel, idTipo))];
+        lock.lock();
+        try {
+            return accion.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta la acción con los candados de varias combinaciones tomados. Las
+     * franjas se adquieren una vez cada una y en orden ascendente, para que dos
+     * lotes que comparten franjas no puedan bloquearse mutuamente.
+     *
+     * @param claves claves generadas con {@link DisponibilidadLedger#clave(int, int)}
+     */
+    public <T> T ejecutar(Collection<Long> claves, Supplier<T> accion) {
+        TreeSet<Integer> franjas = new TreeSet<>();
+        for (Long clave : claves) {
+            franjas.add(franja(clave));
+        }
+        List<ReentrantLock> tomados = new ArrayList<>(franjas.size());
+        try {
+            for (int franja : franjas) {
+                ReentrantLock lock = locks[franja];
+                lock.lock();
+                tomados.add(lock);
+            }
+            return accion.get();
+        } finally {
+            for (int i = tomados.size() - 1; i >= 0; i--) {
+                tomados.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Franja de una clave: mezcla sus bits (finalizador de MurmurHash3) para que
+     * los ids consecutivos de hotel y tipo no se concentren en pocas franjas.
+     */
+    static int franja(long clave) {
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e2fd8fa7bL;
+        h ^= h >>> 33;
+        return (int) h & (FRANJAS - 1);
+    }
+}
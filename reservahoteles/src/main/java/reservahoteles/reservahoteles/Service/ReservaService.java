@@ -2,21 +2,51 @@ package reservahoteles.reservahoteles.Service;
 
 import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
 import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.BusquedaReservasResponse;
 import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CambioEstadoResponse;
 import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.CursorBusqueda;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteResponse;
 import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.SugerenciaReserva;
 import reservahoteles.reservahoteles.DTO.TarifaResponse;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 public interface ReservaService {
     List<DisponibilidadResponse> consultarDisponibilidad(Integer idHotel, Integer idTipo,
             LocalDate fechaInicio, LocalDate fechaFin);
 
+    DisponibilidadLoteResponse consultarDisponibilidadLote(DisponibilidadLoteRequest request);
+
+    Optional<String> versionDisponibilidad(Integer idHotel, Integer idTipo, LocalDate fechaInicio, LocalDate fechaFin);
+
     List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio);
 
+    String versionTarifas(Integer idHotel, Integer idTipo);
+
     CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request);
 
-    CrearReservaResponse crearReserva(CrearReservaRequest request);
+    BusquedaReservasResponse buscarReservas(Integer idHotel, Integer idTipo, LocalDate fechaDesde,
+            LocalDate fechaHasta, String estado, CursorBusqueda cursor, int limite);
+
+    List<SugerenciaReserva> sugerirAlternativas(CrearReservaRequest request, int dias,
+            boolean otrosTipos, boolean otrosHoteles, int limite);
+
+    CrearReservaResponse crearReserva(CrearReservaRequest request, String claveIdempotencia);
+
+    CrearReservasLoteResponse crearReservas(CrearReservasLoteRequest request);
+
+    CambioEstadoResponse cancelarReserva(Integer idReserva, String claveIdempotencia);
+
+    CambioEstadoResponse completarReserva(Integer idReserva, String claveIdempotencia);
+
+    CambioEstadoResponse cancelarLote(UUID idLote, String claveIdempotencia);
 }
@@ -2,53 +2,654 @@ package reservahoteles.reservahoteles.Service;
 
 import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
 import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.BusquedaReservasResponse;
 import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CambioEstadoResponse;
 import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.CursorBusqueda;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadLoteResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
 import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+import reservahoteles.reservahoteles.DTO.ModoLote;
+import reservahoteles.reservahoteles.DTO.ParHotelTipo;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.DTO.SugerenciaReserva;
 import reservahoteles.reservahoteles.DTO.TarifaResponse;
+import reservahoteles.reservahoteles.Entity.Reserva;
 import reservahoteles.reservahoteles.Repository.ReservaRepository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.BiPredicate;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReservaServiceImpl implements ReservaService {
 
+    private static final String SIN_DISPONIBILIDAD = "No hay suficientes habitaciones disponibles";
+    private static final String ESTANCIA_DEMASIADO_LARGA =
+        "La estancia no puede superar " + ReservaRepository.MAXIMO_NOCHES + " noches";
+    private static final String ERROR_CREACION = "Error al crear reserva";
+    private static final String RETENCION_EN_LOTE = "Las reservas con retención deben crearse de una en una";
+    private static final String CONFIRMADA = "Confirmada";
+    private static final String CANCELADA = "Cancelada";
+    private static final String COMPLETADA = "Completada";
+    private static final String DESCONOCIDO = "desconocido";
+    private static final int SUGERENCIAS_POR_COMBINACION = 3;
+
     private final ReservaRepository reservaRepository;
+    private final DisponibilidadLedger disponibilidadLedger;
+    private final ReservaLocks reservaLocks;
+    private final TarifaCache tarifaCache;
+    private final PricingEngine pricingEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final IdempotenciaStore idempotenciaStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConsultasCompartidas consultasCompartidas;
+    private final RetencionService retencionService;
+
+    @Value("${reservas.disponibilidad.verificar-consistencia:false}")
+    private boolean verificarConsistencia;
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<DisponibilidadResponse> consultarDisponibilidad(Integer idHotel, Integer idTipo, 
                                                                  LocalDate fechaInicio, LocalDate fechaFin) {
         log.info("Consultando disponibilidad pool para hotel: {}, tipo: {}", idHotel, idTipo);
-        return reservaRepository.verificarDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin);
+        Optional<DisponibilidadResponse> enMemoria =
+            disponibilidadLedger.consultar(idHotel, idTipo, fechaInicio, fechaFin);
+        if (enMemoria.isEmpty()) {
+            return consultasCompartidas.disponibilidad(idHotel, idTipo, fechaInicio, fechaFin,
+                () -> reservaRepository.verificarDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin));
+        }
+        if (verificarConsistencia) {
+            List<DisponibilidadResponse> enBaseDatos = consultasCompartidas.disponibilidad(idHotel, idTipo,
+                fechaInicio, fechaFin,
+                () -> reservaRepository.verificarDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin));
+            if (!enBaseDatos.equals(List.of(enMemoria.get()))) {
+                log.warn("Disponibilidad en memoria {} difiere de la base de datos {} para hotel: {}, tipo: {}",
+                    enMemoria.get(), enBaseDatos, idHotel, idTipo);
+            }
+        }
+        return List.of(enMemoria.get());
+    }
+
+    /**
+     * Versión de la disponibilidad de una combinación en el libro en memoria, o vacío
+     * si la consulta se respondería desde la base de datos.
+     */
+    @Override
+    public Optional<String> versionDisponibilidad(Integer idHotel, Integer idTipo,
+                                                  LocalDate fechaInicio, LocalDate fechaFin) {
+        return disponibilidadLedger.version(idHotel, idTipo, fechaInicio, fechaFin);
+    }
+
+    /**
+     * Resuelve la disponibilidad noche a noche de varias combinaciones hotel/tipo
+     * con una sola pasada por el libro en memoria o, si este no puede responder,
+     * con una sola consulta a la base de datos.
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public DisponibilidadLoteResponse consultarDisponibilidadLote(DisponibilidadLoteRequest request) {
+        log.info("Consultando disponibilidad en lote: {}", request);
+        List<ParHotelTipo> pares = request.getPares() != null ? request.getPares() : List.of();
+        BiPredicate<Integer, Integer> filtro = (idHotel, idTipo) -> pares.isEmpty() || pares.stream().anyMatch(par ->
+            (par.getIdHotel() == null || par.getIdHotel().equals(idHotel))
+                && (par.getIdTipo() == null || par.getIdTipo().equals(idTipo)));
+
+        List<DisponibilidadNochesResponse> resultados =
+            disponibilidadPorNoche(filtro, request.getFechaInicio(), request.getFechaFin());
+        return new DisponibilidadLoteResponse(request.getFechaInicio(), request.getFechaFin(), resultados);
+    }
+
+    /**
+     * Sugiere estadías de la misma duración cuando la solicitada no tiene
+     * disponibilidad: otras fechas de entrada hasta 'dias' antes o después y,
+     * opcionalmente, otros tipos de habitación y otros hoteles.
+     * 
+     * La disponibilidad noche a noche de todo el rango sale del libro en memoria o de
+     * una sola consulta, y las habitaciones libres de cada fecha de entrada se
+     * obtienen con un mínimo deslizante ({@link VentanasDisponibles}). De cada
+     * combinación hotel/tipo se toman las fechas con cupo más cercanas a la pedida,
+     * se cotizan con las tarifas en memoria y se ordenan por precio total.
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<SugerenciaReserva> sugerirAlternativas(CrearReservaRequest request, int dias,
+                                                       boolean otrosTipos, boolean otrosHoteles, int limite) {
+        log.info("Buscando alternativas a ±{} días para: {}", dias, request);
+        int noches = (int) ChronoUnit.DAYS.between(request.getFechaInicio(), request.getFechaFin());
+        LocalDate hoy = LocalDate.now();
+        LocalDate desde = request.getFechaInicio().minusDays(dias).isBefore(hoy)
+            ? hoy
+            : request.getFechaInicio().minusDays(dias);
+        LocalDate hasta = request.getFechaFin().plusDays(dias);
+        if (ChronoUnit.DAYS.between(desde, hasta) < noches) {
+            return List.of();
+        }
+        int entradaPedida = (int) ChronoUnit.DAYS.between(desde, request.getFechaInicio());
+        BiPredicate<Integer, Integer> filtro = (idHotel, idTipo) ->
+            (otrosHoteles || idHotel.equals(request.getIdHotel())) && (otrosTipos || idTipo.equals(request.getIdTipo()));
+
+        List<SugerenciaReserva> sugerencias = new ArrayList<>();
+        for (DisponibilidadNochesResponse fila : disponibilidadPorNoche(filtro, desde, hasta)) {
+            int[] libres = VentanasDisponibles.minimos(fila.getDisponiblesPorNoche(), noches);
+            List<Integer> entradas = new ArrayList<>();
+            for (int entrada = 0; entrada < libres.length; entrada++) {
+                if (libres[entrada] >= request.getCantidadHabitaciones()) {
+                    entradas.add(entrada);
+                }
+            }
+            entradas.sort(Comparator.comparingInt((Integer entrada) -> Math.abs(entrada - entradaPedida))
+                .thenComparingInt(entrada -> entrada));
+            for (Integer entrada : entradas.subList(0, Math.min(SUGERENCIAS_POR_COMBINACION, entradas.size()))) {
+                LocalDate fechaInicio = desde.plusDays(entrada);
+                CalculoPrecioResponse precio = pricingEngine.cotizar(fila.getIdHotel(), fila.getIdTipo(),
+                    fechaInicio, fechaInicio.plusDays(noches),
+                    request.getCantidadHabitaciones(), request.getNumeroPersonas());
+                sugerencias.add(new SugerenciaReserva(
+                    fila.getIdHotel(),
+                    fila.getIdTipo(),
+                    fila.getTipoHabitacion(),
+                    fechaInicio,
+                    fechaInicio.plusDays(noches),
+                    entrada - entradaPedida,
+                    libres[entrada],
+                    precio.getPrecioTotal(),
+                    precio.getPrecioPorNoche()
+                ));
+            }
+        }
+        sugerencias.sort(Comparator.comparing(SugerenciaReserva::getTotalEstimado,
+                Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(sugerencia -> Math.abs(sugerencia.getDiasDiferencia()))
+            .thenComparing(SugerenciaReserva::getIdHotel)
+            .thenComparing(SugerenciaReserva::getIdTipo));
+        return sugerencias.size() > limite ? List.copyOf(sugerencias.subList(0, limite)) : sugerencias;
+    }
+
+    private List<DisponibilidadNochesResponse> disponibilidadPorNoche(BiPredicate<Integer, Integer> filtro,
+                                                                      LocalDate fechaInicio, LocalDate fechaFin) {
+        return disponibilidadLedger
+            .consultarNoches(filtro, fechaInicio, fechaFin)
+            .orElseGet(() -> consultasCompartidas
+                .disponibilidadPorNoche(fechaInicio, fechaFin, () -> reservaRepository
+                    .verificarDisponibilidadPorNoche(fechaInicio, fechaFin))
+                .stream()
+                .filter(fila -> filtro.test(fila.getIdHotel(), fila.getIdTipo()))
+                .toList());
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fechaInicio) {
         log.info("Obteniendo tarifas para hotel: {}, tipo: {}, fecha: {}", idHotel, idTipo, fechaInicio);
-        return reservaRepository.obtenerTarifas(idHotel, idTipo, fechaInicio);
+        return tarifaCache.obtenerTarifas(idHotel, idTipo, fechaInicio);
+    }
+
+    @Override
+    public String versionTarifas(Integer idHotel, Integer idTipo) {
+        return tarifaCache.version(idHotel, idTipo);
+    }
+
+    /**
+     * Busca reservas de un hotel por páginas. Se pide una fila más que el límite
+     * para saber si hay página siguiente sin contar el total.
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public BusquedaReservasResponse buscarReservas(Integer idHotel, Integer idTipo, LocalDate fechaDesde,
+                                                   LocalDate fechaHasta, String estado, CursorBusqueda cursor,
+                                                   int limite) {
+        List<ReservaResumen> reservas = reservaRepository.buscarReservas(idHotel, idTipo, fechaDesde, fechaHasta,
+            estado, cursor != null ? cursor.fechaInicio() : null, cursor != null ? cursor.idReserva() : null,
+            limite + 1);
+        if (reservas.size() <= limite) {
+            return new BusquedaReservasResponse(reservas, null);
+        }
+        List<ReservaResumen> pagina = reservas.subList(0, limite);
+        return new BusquedaReservasResponse(pagina, CursorBusqueda.de(pagina.get(limite - 1)).codificar());
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public CalculoPrecioResponse calcularPrecio(CalculoPrecioRequest request) {
         log.info("Calculando precio para reserva: {}", request);
-        return reservaRepository.calcularPrecio(request);
+        return pricingEngine.cotizar(request);
     }
 
+    /**
+     * Crea una reserva serializando las solicitudes por combinación hotel/tipo.
+     *
+     * El candado en memoria se toma antes de abrir la transacción y se libera después
+     * del commit, así que dentro de una instancia nunca hay dos reservas de la misma
+     * combinación verificando disponibilidad a la vez. El bloqueo de la fila de
+     * inventario cubre el caso de varias instancias contra la misma base de datos.
+     *
+     * Con clave de idempotencia, las repeticiones reciben la respuesta original: en
+     * esta instancia desde {@link IdempotenciaStore} (esperando a la primera si sigue
+     * en curso) y, tras un reinicio o desde otra instancia, desde la reserva guardada
+     * con esa clave.
+     *
+     * Con 'idRetencion', las habitaciones retenidas pasan a la reserva: si la
+     * retención es de esta instancia, está vigente y cubre la solicitud, la reserva
+     * se crea sin candado ni verificación de disponibilidad; si no, se sigue el
+     * camino normal y 'crear_reserva' decide con la retención guardada.
+     *
+     * Qué camino se toma depende solo del cuerpo de la solicitud, no de la clave de
+     * idempotencia: la clave solo decide si antes de responder se busca la reserva
+     * original, también cuando el libro rechaza la solicitud sin abrir transacción.
+     */
     @Override
-    @Transactional
-    public CrearReservaResponse crearReserva(CrearReservaRequest request) {
+    public CrearReservaResponse crearReserva(CrearReservaRequest request, String claveIdempotencia) {
         log.info("Creando reserva: {}", request);
-        return reservaRepository.crearReserva(request);
+        return idempotenciaStore.ejecutar("crear", claveIdempotencia, IdempotenciaStore.huella(request), () -> {
+            try {
+                Creacion creacion = crearReservaConCandado(request, claveIdempotencia);
+                contarResultado(request, creacion.response(), creacion.repetida());
+                return creacion.response();
+            } catch (RuntimeException e) {
+                contarResultado(request, null, false);
+                throw e;
+            }
+        });
+    }
+
+    private Creacion crearReservaConCandado(CrearReservaRequest request, String claveIdempotencia) {
+        if (ChronoUnit.DAYS.between(request.getFechaInicio(), request.getFechaFin()) > ReservaRepository.MAXIMO_NOCHES) {
+            return new Creacion(new CrearReservaResponse(null, false, ESTANCIA_DEMASIADO_LARGA, BigDecimal.ZERO),
+                false);
+        }
+        if (retencionService.cubre(request)) {
+            return convertirRetencion(request, claveIdempotencia);
+        }
+        return reservaLocks.ejecutar(request.getIdHotel(), request.getIdTipo(), () -> {
+            if (request.getIdRetencion() == null) {
+                Optional<DisponibilidadResponse> disponibilidad = disponibilidadLedger.consultar(
+                    request.getIdHotel(), request.getIdTipo(), request.getFechaInicio(), request.getFechaFin());
+                if (disponibilidad.isPresent()
+                        && disponibilidad.get().getCantidadDisponible() < request.getCantidadHabitaciones()) {
+                    // Una repetición de una reserva ya creada no debe recibir el rechazo
+                    Optional<CrearReservaResponse> original = claveIdempotencia != null
+                        ? reservaRepository.findRespuestaPorClaveIdempotencia(claveIdempotencia)
+                        : Optional.empty();
+                    return original.map(response -> new Creacion(response, true))
+                        .orElseGet(() -> new Creacion(
+                            new CrearReservaResponse(null, false, SIN_DISPONIBILIDAD, BigDecimal.ZERO), false));
+                }
+            }
+
+            BigDecimal total = pricingEngine.cotizar(request.getIdHotel(), request.getIdTipo(),
+                request.getFechaInicio(), request.getFechaFin(),
+                request.getCantidadHabitaciones(), request.getNumeroPersonas()).getPrecioTotal();
+            Creacion creacion = crearEnTransaccion(request, total, claveIdempotencia, true);
+            if (!creacion.repetida()) {
+                registrarCreacion(request, creacion.response());
+            }
+            return creacion;
+        });
+    }
+
+    /**
+     * Convierte en reserva una retención vigente de esta instancia. Sus habitaciones
+     * ya están descontadas, así que no hace falta el candado de la combinación ni
+     * verificar la disponibilidad: 'crear_reserva' consume la retención y tampoco
+     * bloquea el inventario.
+     */
+    private Creacion convertirRetencion(CrearReservaRequest request, String claveIdempotencia) {
+        BigDecimal total = pricingEngine.cotizar(request.getIdHotel(), request.getIdTipo(),
+            request.getFechaInicio(), request.getFechaFin(),
+            request.getCantidadHabitaciones(), request.getNumeroPersonas()).getPrecioTotal();
+        Creacion creacion = crearEnTransaccion(request, total, claveIdempotencia, false);
+        if (!creacion.repetida()) {
+            registrarCreacion(request, creacion.response());
+        }
+        return creacion;
+    }
+
+    /**
+     * Llama a 'crear_reserva' en una transacción, devolviendo antes la reserva
+     * original si la clave de idempotencia ya tenía una. Nunca devuelve una
+     * respuesta nula.
+     */
+    private Creacion crearEnTransaccion(CrearReservaRequest request, BigDecimal total, String claveIdempotencia,
+                                        boolean bloquear) {
+        Creacion creacion = transactionTemplate.execute(status -> {
+            if (bloquear) {
+                reservaRepository.bloquearInventario(request.getIdHotel(), request.getIdTipo());
+            }
+            if (claveIdempotencia != null) {
+                Optional<CrearReservaResponse> original =
+                    reservaRepository.findRespuestaPorClaveIdempotencia(claveIdempotencia);
+                if (original.isPresent()) {
+                    return new Creacion(original.get(), true);
+                }
+            }
+            return new Creacion(reservaRepository.crearReserva(request, total, claveIdempotencia), false);
+        });
+        if (creacion == null || creacion.response() == null) {
+            return new Creacion(new CrearReservaResponse(null, false, ERROR_CREACION, BigDecimal.ZERO), false);
+        }
+        return creacion;
+    }
+
+    /**
+     * Lleva al libro el resultado de 'crear_reserva': la reserva creada y, después,
+     * la retención que la función consumió. Si la reserva no se creó, la retención
+     * sigue en la base de datos y en memoria.
+     */
+    private void registrarCreacion(CrearReservaRequest request, CrearReservaResponse response) {
+        if (response != null && Boolean.TRUE.equals(response.getExito())) {
+            disponibilidadLedger.registrarReserva(
+                request.getIdHotel(), request.getIdTipo(),
+                request.getFechaInicio(), request.getFechaFin(),
+                request.getCantidadHabitaciones());
+            retencionService.consumida(request);
+        }
+    }
+
+    /**
+     * Resultado de una creación; 'repetida' indica que la clave de idempotencia ya
+     * tenía una reserva y se devolvió la original.
+     */
+    private record Creacion(CrearReservaResponse response, boolean repetida) {
+    }
+
+    /**
+     * Crea un lote de reservas con una sola verificación de disponibilidad y una
+     * sola inserción por lotes.
+     *
+     * Se toman los candados de las franjas de todas las combinaciones del lote (en orden) y, dentro
+     * de una única transacción, se bloquean sus filas de inventario, se obtiene con
+     * una consulta la disponibilidad por noche de esas combinaciones (cada una solo en
+     * el rango de sus reservas) y se admiten las reservas en orden descontando lo ya
+     * asignado. Las reservas con retención se rechazan. En modo
+     * {@link ModoLote#TODO_O_NADA} cualquier rechazo anula el lote completo.
+     */
+    @Override
+    public CrearReservasLoteResponse crearReservas(CrearReservasLoteRequest request) {
+        long inicio = System.nanoTime();
+        List<CrearReservaRequest> reservas = request.getReservas();
+        UUID idLote = UUID.randomUUID();
+        ModoLote modo = request.getModo() != null ? request.getModo() : ModoLote.MEJOR_ESFUERZO;
+        log.info("Creando lote de {} reservas en modo {}", reservas.size(), modo);
+
+        Set<Long> claves = new TreeSet<>();
+        for (CrearReservaRequest reserva : reservas) {
+            claves.add(DisponibilidadLedger.clave(reserva.getIdHotel(), reserva.getIdTipo()));
+        }
+
+        List<CrearReservaResponse> resultados = reservaLocks.ejecutar(claves, () -> {
+            List<CrearReservaResponse> admitidas = transactionTemplate.execute(status ->
+                admitirLote(reservas, claves, modo == ModoLote.TODO_O_NADA, idLote));
+            for (int i = 0; i < reservas.size(); i++) {
+                if (Boolean.TRUE.equals(admitidas.get(i).getExito())) {
+                    CrearReservaRequest reserva = reservas.get(i);
+                    disponibilidadLedger.registrarReserva(reserva.getIdHotel(), reserva.getIdTipo(),
+                        reserva.getFechaInicio(), reserva.getFechaFin(), reserva.getCantidadHabitaciones());
+                }
+            }
+            return admitidas;
+        });
+        for (int i = 0; i < reservas.size(); i++) {
+            contarResultado(reservas.get(i), resultados.get(i), false);
+        }
+
+        int exitosas = (int) resultados.stream().filter(r -> Boolean.TRUE.equals(r.getExito())).count();
+        long duracionNanos = System.nanoTime() - inicio;
+        double reservasPorSegundo = exitosas * 1_000_000_000.0 / Math.max(1, duracionNanos);
+        log.info("Lote procesado: {} exitosas, {} fallidas en {} ms ({} reservas/s)",
+            exitosas, resultados.size() - exitosas, duracionNanos / 1_000_000, Math.round(reservasPorSegundo));
+        return new CrearReservasLoteResponse(exitosas > 0 ? idLote : null, modo, exitosas, resultados.size() - exitosas,
+            duracionNanos / 1_000_000, reservasPorSegundo, resultados);
+    }
+
+    private List<CrearReservaResponse> admitirLote(List<CrearReservaRequest> reservas, Set<Long> claves,
+                                                   boolean todoONada, UUID idLote) {
+        for (Long clave : claves) {
+            reservaRepository.bloquearInventario((int) (clave >> 32), (int) (long) clave);
+        }
+
+        // Rango de noches de cada combinación, solo con las reservas que pueden admitirse
+        String[] rechazos = new String[reservas.size()];
+        Map<Long, LocalDate[]> rangos = new TreeMap<>();
+        for (int i = 0; i < reservas.size(); i++) {
+            CrearReservaRequest reserva = reservas.get(i);
+            rechazos[i] = rechazoPrevio(reserva);
+            if (rechazos[i] == null) {
+                rangos.merge(DisponibilidadLedger.clave(reserva.getIdHotel(), reserva.getIdTipo()),
+                    new LocalDate[] { reserva.getFechaInicio(), reserva.getFechaFin() },
+                    (actual, nuevo) -> new LocalDate[] {
+                        actual[0].isBefore(nuevo[0]) ? actual[0] : nuevo[0],
+                        actual[1].isAfter(nuevo[1]) ? actual[1] : nuevo[1] });
+            }
+        }
+        Map<Long, int[]> libres = new HashMap<>();
+        if (!rangos.isEmpty()) {
+            List<RangoCombinacion> consulta = new ArrayList<>(rangos.size());
+            rangos.forEach((clave, rango) ->
+                consulta.add(new RangoCombinacion((int) (clave >> 32), (int) (long) clave, rango[0], rango[1])));
+            for (DisponibilidadNochesResponse fila : reservaRepository.verificarDisponibilidadPorNoche(consulta)) {
+                libres.put(DisponibilidadLedger.clave(fila.getIdHotel(), fila.getIdTipo()),
+                    fila.getDisponiblesPorNoche().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+
+        List<CrearReservaResponse> resultados = new ArrayList<>(reservas.size());
+        List<CrearReservaRequest> aceptadas = new ArrayList<>();
+        List<BigDecimal> totales = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < reservas.size(); i++) {
+            CrearReservaRequest reserva = reservas.get(i);
+            long clave = DisponibilidadLedger.clave(reserva.getIdHotel(), reserva.getIdTipo());
+            String rechazo = rechazos[i];
+            BigDecimal total = null;
+            int[] noches = libres.get(clave);
+            int primera = 0;
+            int ultima = 0;
+            if (rechazo == null) {
+                // 'noches' empieza en la primera fecha consultada para esta combinación
+                LocalDate desde = rangos.get(clave)[0];
+                primera = (int) ChronoUnit.DAYS.between(desde, reserva.getFechaInicio());
+                ultima = (int) ChronoUnit.DAYS.between(desde, reserva.getFechaFin());
+                if (noches == null || !alcanzan(noches, primera, ultima, reserva.getCantidadHabitaciones())) {
+                    rechazo = SIN_DISPONIBILIDAD;
+                } else {
+                    total = pricingEngine.cotizar(reserva.getIdHotel(), reserva.getIdTipo(), reserva.getFechaInicio(),
+                        reserva.getFechaFin(), reserva.getCantidadHabitaciones(), reserva.getNumeroPersonas()).getPrecioTotal();
+                    if (total == null) {
+                        rechazo = "No hay tarifa para las fechas solicitadas";
+                    }
+                }
+            }
+
+            if (rechazo != null) {
+                resultados.add(new CrearReservaResponse(null, false, rechazo, BigDecimal.ZERO));
+                continue;
+            }
+            for (int noche = primera; noche < ultima; noche++) {
+                noches[noche] -= reserva.getCantidadHabitaciones();
+            }
+            resultados.add(null);
+            aceptadas.add(reserva);
+            totales.add(total);
+            posiciones.add(i);
+        }
+
+        if (todoONada && aceptadas.size() < reservas.size()) {
+            for (int posicion : posiciones) {
+                resultados.set(posicion, new CrearReservaResponse(null, false,
+                    "Lote rechazado: otra reserva del lote no pudo crearse", BigDecimal.ZERO));
+            }
+            return resultados;
+        }
+
+        List<Integer> ids = aceptadas.isEmpty() ? List.of() : reservaRepository.insertarReservas(aceptadas, totales, idLote);
+        for (int i = 0; i < posiciones.size(); i++) {
+            resultados.set(posiciones.get(i),
+                new CrearReservaResponse(ids.get(i), true, "Reserva creada exitosamente", totales.get(i)));
+        }
+        return resultados;
+    }
+
+    @Override
+    public CambioEstadoResponse cancelarReserva(Integer idReserva, String claveIdempotencia) {
+        return idempotenciaStore.ejecutar("cancelar:" + idReserva, claveIdempotencia,
+            () -> cambiarEstado(idReserva, CANCELADA, "Reserva cancelada exitosamente"));
+    }
+
+    @Override
+    public CambioEstadoResponse completarReserva(Integer idReserva, String claveIdempotencia) {
+        return idempotenciaStore.ejecutar("completar:" + idReserva, claveIdempotencia,
+            () -> cambiarEstado(idReserva, COMPLETADA, "Reserva completada exitosamente"));
+    }
+
+    /**
+     * Cancela con un solo UPDATE todas las reservas confirmadas creadas en el mismo
+     * lote. Las filas se bloquean antes para saber exactamente qué noches liberar.
+     */
+    @Override
+    public CambioEstadoResponse cancelarLote(UUID idLote, String claveIdempotencia) {
+        return idempotenciaStore.ejecutar("cancelar-lote:" + idLote, claveIdempotencia, () -> {
+            log.info("Cancelando lote de reservas: {}", idLote);
+            List<ReservaCambiadaEvent> eventos = transactionTemplate.execute(status -> {
+                List<Reserva> confirmadas = reservaRepository.findConfirmadasPorLote(idLote);
+                if (!confirmadas.isEmpty()) {
+                    reservaRepository.cancelarLote(idLote);
+                }
+                return confirmadas.stream().map(reserva -> evento(reserva, CANCELADA)).toList();
+            });
+            if (eventos == null || eventos.isEmpty()) {
+                return new CambioEstadoResponse(List.of(), null, false, "El lote no tiene reservas confirmadas");
+            }
+            eventos.forEach(eventPublisher::publishEvent);
+            return new CambioEstadoResponse(eventos.stream().map(ReservaCambiadaEvent::getIdReserva).toList(),
+                CANCELADA, true, eventos.size() + " reservas canceladas");
+        });
+    }
+
+    /**
+     * Pasa una reserva confirmada al estado indicado con un UPDATE condicional y,
+     * tras el commit, publica el cambio para liberar sus noches.
+     */
+    private CambioEstadoResponse cambiarEstado(Integer idReserva, String nuevo, String mensaje) {
+        log.info("Cambiando reserva {} a estado {}", idReserva, nuevo);
+        ReservaCambiadaEvent evento = transactionTemplate.execute(status -> {
+            if (reservaRepository.actualizarEstado(idReserva, CONFIRMADA, nuevo) == 0) {
+                return null;
+            }
+            return reservaRepository.findById(idReserva).map(reserva -> evento(reserva, nuevo)).orElse(null);
+        });
+        if (evento == null) {
+            return reservaRepository.findById(idReserva)
+                .map(reserva -> new CambioEstadoResponse(List.of(idReserva), reserva.getEstado(), false,
+                    "La reserva no está confirmada (estado actual: " + reserva.getEstado() + ")"))
+                .orElseGet(() -> new CambioEstadoResponse(List.of(), null, false, "Reserva no encontrada"));
+        }
+        eventPublisher.publishEvent(evento);
+        return new CambioEstadoResponse(List.of(idReserva), nuevo, true, mensaje);
+    }
+
+    private static ReservaCambiadaEvent evento(Reserva reserva, String nuevo) {
+        return new ReservaCambiadaEvent(
+            reserva.getIdReserva(),
+            reserva.getHotel().getIdHotel(),
+            reserva.getTipoHabitacion().getIdTipo(),
+            reserva.getFechaInicio(),
+            reserva.getFechaFin(),
+            reserva.getCantidadHabitaciones(),
+            CONFIRMADA,
+            nuevo
+        );
+    }
+
+    /**
+     * Cuenta el resultado de una solicitud de reserva en 'reservas.crear'. Las
+     * etiquetas se limitan a hotel, tipo y resultado; las fechas nunca se usan
+     * como etiqueta.
+     *
+     * @param response respuesta obtenida, o null si la creación lanzó una excepción
+     * @param repetida si la respuesta es la original de una clave de idempotencia ya usada
+     */
+    private void contarResultado(CrearReservaRequest request, CrearReservaResponse response, boolean repetida) {
+        String resultado;
+        if (response == null) {
+            resultado = "error";
+        } else if (repetida) {
+            resultado = "repetida";
+        } else if (Boolean.TRUE.equals(response.getExito())) {
+            resultado = "exitosa";
+        } else if (SIN_DISPONIBILIDAD.equals(response.getMensaje())) {
+            resultado = "sin_disponibilidad";
+        } else {
+            resultado = "rechazada";
+        }
+        // Los ids vienen del cliente: solo se usan como etiqueta si la combinación existe,
+        // para que ids inventados no creen una serie nueva cada uno
+        boolean conocida = Boolean.TRUE.equals(response != null ? response.getExito() : null)
+            || disponibilidadLedger.existe(request.getIdHotel(), request.getIdTipo());
+        Counter.builder("reservas.crear")
+            .tag("hotel", conocida ? String.valueOf(request.getIdHotel()) : DESCONOCIDO)
+            .tag("tipo", conocida ? String.valueOf(request.getIdTipo()) : DESCONOCIDO)
+            .tag("resultado", resultado)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Motivo para rechazar una reserva del lote sin mirar la disponibilidad, o null.
+     * Las reservas con retención no se admiten en lote: consumir la retención exige
+     * el mismo camino que {@link #crearReserva}, y admitirlas aquí contaría dos veces
+     * las habitaciones ya retenidas.
+     */
+    private static String rechazoPrevio(CrearReservaRequest reserva) {
+        if (reserva.getIdRetencion() != null) {
+            return RETENCION_EN_LOTE;
+        }
+        if (!reserva.getFechaFin().isAfter(reserva.getFechaInicio())) {
+            return "La fecha de fin debe ser posterior a la fecha de inicio";
+        }
+        if (ChronoUnit.DAYS.between(reserva.getFechaInicio(), reserva.getFechaFin()) > ReservaRepository.MAXIMO_NOCHES) {
+            return ESTANCIA_DEMASIADO_LARGA;
+        }
+        return null;
+    }
+
+    private static boolean alcanzan(int[] noches, int primera, int ultima, int cantidad) {
+        for (int noche = primera; noche < ultima; noche++) {
+            if (noches[noche] < cantidad) {
+                return false;
+            }
+        }
+        return true;
     }
 }
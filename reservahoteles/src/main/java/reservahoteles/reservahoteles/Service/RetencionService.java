@@ -0,0 +1,310 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearRetencionRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RetencionResponse;
+import reservahoteles.reservahoteles.Entity.Retencion;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retenciones de habitaciones durante el pago.
+ *
+ * Una retención aparta habitaciones de un hotel/tipo para un rango de noches
+ * durante unos minutos: mientras está vigente cuenta como ocupada en el libro de
+ * disponibilidad y en 'verificar_disponibilidad_pool', y al crear la reserva con
+ * su 'idRetencion' las habitaciones pasan a la reserva sin volver a verificar la
+ * disponibilidad.
+ *
+ * Las retenciones de esta instancia se guardan en memoria y vencen con una
+ * {@link RuedaTemporizadora}; la tabla 'retenciones' solo tiene las vigentes y se
+ * lee al arrancar para recuperarlas después de un reinicio.
+ *
+ * El libro solo resta las habitaciones de una retención que esta instancia tiene
+ * en memoria y que acaba de borrar de la base de datos. Cuando la borra otra
+ * instancia (liberada o convertida en reserva), la que la borra relee la
+ * combinación, y la dueña la quita del libro al releer por la notificación del
+ * cambio y no la vuelve a restar al vencer.
+ */
+@Slf4j
+@Service
+public class RetencionService {
+
+    private static final String SIN_DISPONIBILIDAD = "No hay suficientes habitaciones disponibles";
+
+    private final RetencionRepository retencionRepository;
+    private final ReservaRepository reservaRepository;
+    private final DisponibilidadLedger disponibilidadLedger;
+    private final ReservaLocks reservaLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration duracion;
+    private final Duration duracionMaxima;
+
+    private final Map<UUID, Activa> activas = new ConcurrentHashMap<>();
+    private final RuedaTemporizadora<UUID> rueda;
+
+    public RetencionService(RetencionRepository retencionRepository,
+                            ReservaRepository reservaRepository,
+                            DisponibilidadLedger disponibilidadLedger,
+                            ReservaLocks reservaLocks,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${reservas.retenciones.duracion:PT10M}") Duration duracion,
+                            @Value("${reservas.retenciones.duracion-maxima:PT30M}") Duration duracionMaxima,
+                            @Value("${reservas.retenciones.tick:PT1S}") Duration tick,
+                            @Value("${reservas.retenciones.ranuras:512}") int ranuras) {
+        this.retencionRepository = retencionRepository;
+        this.reservaRepository = reservaRepository;
+        this.disponibilidadLedger = disponibilidadLedger;
+        this.reservaLocks = reservaLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.duracion = duracion;
+        this.duracionMaxima = duracionMaxima;
+        this.rueda = new RuedaTemporizadora<>(ranuras, tick, System.currentTimeMillis());
+    }
+
+    /**
+     * Recupera las retenciones vigentes guardadas antes de un reinicio y borra las
+     * que vencieron mientras la aplicación estaba detenida. El libro de
+     * disponibilidad las lee por su cuenta al cargarse.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recuperar() {
+        try {
+            Instant ahora = Instant.now();
+            int vencidas = retencionRepository.eliminarVencidas(ahora);
+            List<Retencion> vigentes = retencionRepository.findVigentes(ahora);
+            vigentes.forEach(this::programar);
+            log.info("Retenciones recuperadas: {} vigentes, {} vencidas borradas", vigentes.size(), vencidas);
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron recuperar las retenciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Retiene habitaciones si hay disponibilidad. La verificación se hace contra la
+     * base de datos con el inventario bloqueado, igual que al crear una reserva, para
+     * que otra instancia no pueda vender las mismas habitaciones.
+     *
+     * La duración pedida se limita a 'reservas.retenciones.duracion-maxima'.
+     */
+    public RetencionResponse retener(CrearRetencionRequest request) {
+        log.info("Creando retención: {}", request);
+        Duration vigencia = request.getMinutos() != null ? Duration.ofMinutes(request.getMinutos()) : duracion;
+        Duration limitada = vigencia.compareTo(duracionMaxima) > 0 ? duracionMaxima : vigencia;
+
+        return reservaLocks.ejecutar(request.getIdHotel(), request.getIdTipo(), () -> {
+            Optional<DisponibilidadResponse> enMemoria = disponibilidadLedger.consultar(
+                request.getIdHotel(), request.getIdTipo(), request.getFechaInicio(), request.getFechaFin());
+            if (enMemoria.isPresent() && enMemoria.get().getCantidadDisponible() < request.getCantidadHabitaciones()) {
+                return new RetencionResponse(null, false, SIN_DISPONIBILIDAD, null);
+            }
+
+            Retencion retencion = transactionTemplate.execute(status -> {
+                reservaRepository.bloquearInventario(request.getIdHotel(), request.getIdTipo());
+                List<DisponibilidadResponse> disponibilidad = reservaRepository.verificarDisponibilidad(
+                    request.getIdHotel(), request.getIdTipo(), request.getFechaInicio(), request.getFechaFin());
+                if (disponibilidad.isEmpty()
+                        || disponibilidad.get(0).getCantidadDisponible() < request.getCantidadHabitaciones()) {
+                    return null;
+                }
+                Retencion nueva = new Retencion();
+                nueva.setIdHotel(request.getIdHotel());
+                nueva.setIdTipo(request.getIdTipo());
+                nueva.setFechaInicio(request.getFechaInicio());
+                nueva.setFechaFin(request.getFechaFin());
+                nueva.setCantidadHabitaciones(request.getCantidadHabitaciones().shortValue());
+                nueva.setExpiraEn(Instant.now().plus(limitada));
+                return retencionRepository.save(nueva);
+            });
+            if (retencion == null) {
+                return new RetencionResponse(null, false, SIN_DISPONIBILIDAD, null);
+            }
+
+            disponibilidadLedger.registrarRetencion(retencion);
+            programar(retencion);
+            return new RetencionResponse(retencion.getIdRetencion(), true, "Retención creada exitosamente",
+                retencion.getExpiraEn());
+        });
+    }
+
+    /**
+     * Libera una retención antes de su vencimiento, por ejemplo si el pago se
+     * abandona. Sirve también para retenciones creadas por otra instancia.
+     */
+    public RetencionResponse liberar(UUID idRetencion) {
+        log.info("Liberando retención: {}", idRetencion);
+        // Una retención de otra instancia no está en memoria: se lee antes de borrarla
+        // para saber qué combinación releer
+        Optional<Retencion> ajena = activas.containsKey(idRetencion)
+            ? Optional.empty()
+            : retencionRepository.findById(idRetencion);
+        int borradas = retencionRepository.eliminar(idRetencion);
+        Activa activa = activas.remove(idRetencion);
+        if (activa != null) {
+            cancelar(activa);
+            disponibilidadLedger.liberarRetencion(activa.retencion());
+        } else if (borradas > 0) {
+            ajena.ifPresent(retencion -> releer(retencion.getIdHotel(), retencion.getIdTipo()));
+        }
+        if (borradas == 0 && activa == null) {
+            return new RetencionResponse(idRetencion, false, "La retención no existe o ya venció", null);
+        }
+        return new RetencionResponse(idRetencion, true, "Retención liberada exitosamente", null);
+    }
+
+    /**
+     * Indica si la solicitud corresponde a una retención vigente de esta instancia
+     * que cubre todas las habitaciones pedidas, de modo que la reserva puede
+     * crearse sin verificar la disponibilidad.
+     */
+    public boolean cubre(CrearReservaRequest request) {
+        Activa activa = request.getIdRetencion() != null ? activas.get(request.getIdRetencion()) : null;
+        return activa != null
+            && corresponde(activa.retencion(), request)
+            && activa.retencion().getCantidadHabitaciones() >= request.getCantidadHabitaciones()
+            && activa.retencion().getExpiraEn().isAfter(Instant.now());
+    }
+
+    /**
+     * Quita del libro la retención que 'crear_reserva' acaba de consumir. La función
+     * borra la retención si la reserva se insertó y la retención coincide en hotel,
+     * tipo y fechas, aunque haya vencido, así que aquí se aplica la misma condición.
+     * Debe llamarse solo si la reserva se creó, después de registrarla en el libro.
+     *
+     * Si la retención no está en memoria (es de otra instancia o ya venció aquí), no
+     * se sabe qué cuenta el libro de ella y se relee la combinación.
+     */
+    public void consumida(CrearReservaRequest request) {
+        if (request.getIdRetencion() == null) {
+            return;
+        }
+        Activa activa = activas.get(request.getIdRetencion());
+        if (activa == null) {
+            releer(request.getIdHotel(), request.getIdTipo());
+        } else if (corresponde(activa.retencion(), request) && activas.remove(request.getIdRetencion(), activa)) {
+            cancelar(activa);
+            disponibilidadLedger.liberarRetencion(activa.retencion());
+        }
+    }
+
+    /**
+     * Avanza la rueda y libera las retenciones vencidas: primero en la base de datos,
+     * con un solo DELETE, y después en el libro. Si el DELETE borra menos de las
+     * esperadas, otra instancia ya liberó o convirtió alguna y la notificación de ese
+     * cambio pudo quitarla ya del libro, así que sus combinaciones se releen en lugar
+     * de restarlas.
+     */
+    @Scheduled(fixedDelayString = "${reservas.retenciones.tick:PT1S}")
+    public void vencer() {
+        List<UUID> vencidas;
+        synchronized (rueda) {
+            vencidas = rueda.avanzar(System.currentTimeMillis());
+        }
+        if (vencidas.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(vencidas.size());
+        List<Retencion> liberadas = new ArrayList<>(vencidas.size());
+        for (UUID idRetencion : vencidas) {
+            Activa activa = activas.remove(idRetencion);
+            if (activa != null) {
+                ids.add(idRetencion);
+                liberadas.add(activa.retencion());
+            }
+        }
+        if (liberadas.isEmpty()) {
+            return;
+        }
+        int borradas;
+        try {
+            borradas = retencionRepository.eliminarTodas(ids);
+        } catch (RuntimeException e) {
+            // Las vencidas ya no cuentan en la base de datos; el barrido las borrará
+            log.warn("No se pudieron borrar {} retenciones vencidas: {}", liberadas.size(), e.getMessage());
+            borradas = liberadas.size();
+        }
+        if (borradas == liberadas.size()) {
+            liberadas.forEach(disponibilidadLedger::liberarRetencion);
+        } else {
+            liberadas.stream()
+                .map(retencion -> List.of(retencion.getIdHotel(), retencion.getIdTipo()))
+                .distinct()
+                .forEach(combinacion -> releer(combinacion.get(0), combinacion.get(1)));
+        }
+        log.debug("Retenciones vencidas: {}, ya borradas por otra instancia: {}",
+            liberadas.size(), liberadas.size() - borradas);
+    }
+
+    /**
+     * Borra las retenciones vencidas que ninguna instancia ha borrado, por ejemplo
+     * las de una instancia detenida.
+     */
+    @Scheduled(fixedDelayString = "${reservas.retenciones.barrido:PT1M}")
+    public void barrer() {
+        try {
+            int borradas = retencionRepository.eliminarVencidas(Instant.now());
+            if (borradas > 0) {
+                log.info("Barrido de retenciones: {} vencidas borradas", borradas);
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo ejecutar el barrido de retenciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Programa el vencimiento y registra la retención con la rueda bloqueada, para
+     * que un avance no la vea vencer antes de estar en 'activas'.
+     */
+    private void programar(Retencion retencion) {
+        synchronized (rueda) {
+            activas.put(retencion.getIdRetencion(), new Activa(retencion,
+                rueda.programar(retencion.getIdRetencion(), retencion.getExpiraEn().toEpochMilli())));
+        }
+    }
+
+    /**
+     * Relee una combinación cuya cuenta de retenciones en el libro no se conoce. Si
+     * no puede releerse queda desajustada hasta la próxima recarga del libro.
+     */
+    private void releer(Integer idHotel, Integer idTipo) {
+        if (!disponibilidadLedger.recargarCombinacion(idHotel, idTipo) && disponibilidadLedger.isCargado()) {
+            log.warn("No se pudo releer la ocupación de hotel: {}, tipo: {} tras una retención de otra instancia",
+                idHotel, idTipo);
+        }
+    }
+
+    private void cancelar(Activa activa) {
+        synchronized (rueda) {
+            rueda.cancelar(activa.temporizador());
+        }
+    }
+
+    private static boolean corresponde(Retencion retencion, CrearReservaRequest request) {
+        return Objects.equals(retencion.getIdHotel(), request.getIdHotel())
+            && Objects.equals(retencion.getIdTipo(), request.getIdTipo())
+            && Objects.equals(retencion.getFechaInicio(), request.getFechaInicio())
+            && Objects.equals(retencion.getFechaFin(), request.getFechaFin());
+    }
+
+    private record Activa(Retencion retencion, RuedaTemporizadora.Temporizador<UUID> temporizador) {
+    }
+}
@@ -0,0 +1,155 @@
+package reservahoteles.reservahoteles.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de temporizadores (hashed timing wheel) para vencimientos.
+ *
+ * El tiempo se divide en ticks de duración fija y cada tick cae en una de las
+ * ranuras de la rueda (tick módulo número de ranuras). Programar y cancelar son
+ * O(1): se enlaza o desenlaza el nodo de la lista de su ranura. Al avanzar se
+ * recorren solo las ranuras de los ticks transcurridos; los vencimientos a más de
+ * una vuelta de distancia se quedan en su ranura hasta la vuelta que les toca.
+ *
+ * Un temporizador nunca vence antes de su instante, y vence como mucho un tick
+ * después de él (más el retraso de quien llame a {@link #avanzar}). No es segura
+ * para varios hilos por sí misma; quien la usa sincroniza el acceso.
+ */
+final class RuedaTemporizadora<T> {
+
+    private final long inicioMillis;
+    private final long tickMillis;
+    private final Nodo<T>[] ranuras;
+    private final int mascara;
+
+    /** Siguiente tick por procesar. */
+    private long tick;
+    private int tamanio;
+
+    /**
+     * @param ranuras número de ranuras; se redondea a la siguiente potencia de dos
+     * @param tick duración de cada tick, que es la resolución de los vencimientos
+     * @param ahoraMillis instante de referencia del tick 0
+     */
+    @SuppressWarnings("unchecked")
+    RuedaTemporizadora(int ranuras, Duration tick, long ahoraMillis) {
+        if (ranuras < 1 || tick.toMillis() < 1) {
+            throw new IllegalArgumentException("La rueda necesita al menos una ranura y un tick de 1 ms");
+        }
+        int potencia = Integer.highestOneBit(ranuras) == ranuras ? ranuras : Integer.highestOneBit(ranuras) << 1;
+        this.ranuras = (Nodo<T>[]) new Nodo[potencia];
+        this.mascara = potencia - 1;
+        this.tickMillis = tick.toMillis();
+        this.inicioMillis = ahoraMillis;
+    }
+
+    /**
+     * Programa el vencimiento de un valor. Si el instante ya pasó, vence en el
+     * siguiente avance.
+     *
+     * @return el temporizador, para cancelarlo
+     */
+    Temporizador<T> programar(T valor, long venceMillis) {
+        long vence = Math.max(tick, Math.floorDiv(venceMillis - inicioMillis + tickMillis - 1, tickMillis));
+        Nodo<T> nodo = new Nodo<>(valor, vence, (int) (vence & mascara));
+        nodo.siguiente = ranuras[nodo.ranura];
+        if (nodo.siguiente != null) {
+            nodo.siguiente.anterior = nodo;
+        }
+        ranuras[nodo.ranura] = nodo;
+        tamanio++;
+        return nodo;
+    }
+
+    /**
+     * Cancela un temporizador pendiente.
+     *
+     * @return false si ya había vencido o se había cancelado
+     */
+    boolean cancelar(Temporizador<T> temporizador) {
+        Nodo<T> nodo = (Nodo<T>) temporizador;
+        if (!nodo.pendiente) {
+            return false;
+        }
+        desenlazar(nodo);
+        return true;
+    }
+
+    /**
+     * Procesa los ticks transcurridos hasta el instante indicado y devuelve los
+     * valores vencidos. Si pasó más de una vuelta desde el último avance, cada
+     * ranura se recorre una sola vez.
+     */
+    List<T> avanzar(long ahoraMillis) {
+        long hasta = Math.floorDiv(ahoraMillis - inicioMillis, tickMillis);
+        if (hasta < tick) {
+            return List.of();
+        }
+        List<T> vencidos = new ArrayList<>();
+        long ultimo = Math.min(hasta, tick + mascara);
+        for (long t = tick; t <= ultimo; t++) {
+            Nodo<T> nodo = ranuras[(int) (t & mascara)];
+            while (nodo != null) {
+                Nodo<T> siguiente = nodo.siguiente;
+                if (nodo.vence <= hasta) {
+                    desenlazar(nodo);
+                    vencidos.add(nodo.valor);
+                }
+                nodo = siguiente;
+            }
+        }
+        tick = hasta + 1;
+        return vencidos;
+    }
+
+    /**
+     * Número de temporizadores pendientes.
+     */
+    int tamanio() {
+        return tamanio;
+    }
+
+    private void desenlazar(Nodo<T> nodo) {
+        if (nodo.anterior != null) {
+            nodo.anterior.siguiente = nodo.siguiente;
+        } else {
+            ranuras[nodo.ranura] = nodo.siguiente;
+        }
+        if (nodo.siguiente != null) {
+            nodo.siguiente.anterior = nodo.anterior;
+        }
+        nodo.anterior = null;
+        nodo.siguiente = null;
+        nodo.pendiente = false;
+        tamanio--;
+    }
+
+    /**
+     * Temporizador programado en la rueda.
+     */
+    interface Temporizador<T> {
+        T valor();
+    }
+
+    private static final class Nodo<T> implements Temporizador<T> {
+        private final T valor;
+        private final long vence;
+        private final int ranura;
+        private Nodo<T> anterior;
+        private Nodo<T> siguiente;
+        private boolean pendiente = true;
+
+        private Nodo(T valor, long vence, int ranura) {
+            this.valor = valor;
+            this.vence = vence;
+            this.ranura = ranura;
+        }
+
+        @Override
+        public T valor() {
+            return valor;
+        }
+    }
+}
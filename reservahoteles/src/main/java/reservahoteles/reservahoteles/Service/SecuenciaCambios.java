@@ -0,0 +1,76 @@
+package reservahoteles.reservahoteles.Service;
+
+import java.util.TreeSet;
+
+/**
+ * Seguimiento de las versiones de cambio recibidas para detectar notificaciones
+ * perdidas.
+ *
+ * Cada transacción confirmada toma la versión siguiente de 'cambios_version' al
+ * confirmarse, y todas sus notificaciones la repiten. Las versiones no dejan huecos
+ * (una transacción revertida deshace la suya) y PostgreSQL entrega las
+ * notificaciones en el orden de confirmación, así que un hueco es una notificación
+ * perdida. Aun así se tolera el desorden durante un tiempo de espera antes de darlo
+ * por perdido; pasado ese tiempo quien usa la secuencia resincroniza.
+ *
+ * No es segura para varios hilos; la usa solo el hilo que escucha los cambios.
+ */
+final class SecuenciaCambios {
+
+    /** Última versión hasta la que se recibieron todas. */
+    private long ultima;
+    /** Versiones recibidas por encima de 'ultima', con algún hueco antes. */
+    private final TreeSet<Long> adelantadas = new TreeSet<>();
+    /** Instante desde el que 'ultima + 1' falta, o -1 si no hay hueco. */
+    private long huecoDesdeMillis = -1;
+
+    SecuenciaCambios(long ultima) {
+        this.ultima = ultima;
+    }
+
+    /**
+     * Registra una versión recibida.
+     *
+     * @return false si la versión ya estaba cubierta (repetida, o anterior al punto
+     *         de partida); el cambio igual debe aplicarse, ya que invalidar es idempotente
+     */
+    boolean registrar(long version, long ahoraMillis) {
+        if (version <= ultima || !adelantadas.add(version)) {
+            return false;
+        }
+        boolean avanzo = false;
+        while (!adelantadas.isEmpty() && adelantadas.first() == ultima + 1) {
+            ultima = adelantadas.pollFirst();
+            avanzo = true;
+        }
+        if (adelantadas.isEmpty()) {
+            huecoDesdeMillis = -1;
+        } else if (avanzo || huecoDesdeMillis < 0) {
+            huecoDesdeMillis = ahoraMillis;
+        }
+        return true;
+    }
+
+    /**
+     * Indica si hay un hueco sin llenar desde hace al menos la espera indicada.
+     */
+    boolean huecoVencido(long ahoraMillis, long esperaMillis) {
+        return huecoDesdeMillis >= 0 && ahoraMillis - huecoDesdeMillis >= esperaMillis;
+    }
+
+    /**
+     * Da por recibidas todas las versiones hasta la mayor vista, después de una
+     * resincronización.
+     */
+    void saltarHuecos() {
+        if (!adelantadas.isEmpty()) {
+            ultima = adelantadas.last();
+            adelantadas.clear();
+        }
+        huecoDesdeMillis = -1;
+    }
+
+    long ultima() {
+        return ultima;
+    }
+}
@@ -0,0 +1,113 @@
+package reservahoteles.reservahoteles.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas idénticas concurrentes: mientras una llamada con una clave está
+ * en curso, las demás con la misma clave esperan su resultado en lugar de
+ * ejecutarla otra vez. El resultado se sigue compartiendo durante un TTL corto
+ * después de completarse; con TTL cero solo se comparte mientras está en curso.
+ *
+ * Los errores no se comparten después de completarse: la siguiente llamada vuelve
+ * a ejecutar.
+ *
+ * Publica 'reservas.singleflight.llamadas' con las etiquetas 'operacion' y
+ * 'resultado' (ejecutada o compartida).
+ */
+public class SingleFlight<K, V> {
+
+    private static final int LIMITE_PURGA = 1024;
+
+    private final ConcurrentHashMap<K, Vuelo<V>> vuelos = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final Counter ejecutadas;
+    private final Counter compartidas;
+
+    public SingleFlight(String operacion, Duration ttl, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.ejecutadas = Counter.builder("reservas.singleflight.llamadas")
+            .tag("operacion", operacion)
+            .tag("resultado", "ejecutada")
+            .register(meterRegistry);
+        this.compartidas = Counter.builder("reservas.singleflight.llamadas")
+            .tag("operacion", operacion)
+            .tag("resultado", "compartida")
+            .register(meterRegistry);
+    }
+
+    public V ejecutar(K clave, Supplier<V> llamada) {
+        while (true) {
+            Vuelo<V> existente = vuelos.get(clave);
+            if (existente != null) {
+                if (existente.vigente(System.nanoTime())) {
+                    compartidas.increment();
+                    return esperar(existente);
+                }
+                vuelos.remove(clave, existente);
+                continue;
+            }
+
+            Vuelo<V> propio = new Vuelo<>();
+            if (vuelos.putIfAbsent(clave, propio) != null) {
+                continue;
+            }
+            if (vuelos.size() > LIMITE_PURGA) {
+                purgar();
+            }
+
+            ejecutadas.increment();
+            try {
+                V resultado = llamada.get();
+                propio.expiraNanos = System.nanoTime() + ttlNanos;
+                propio.futuro.complete(resultado);
+                if (ttlNanos <= 0) {
+                    vuelos.remove(clave, propio);
+                }
+                return resultado;
+            } catch (Throwable e) {
+                // También con un Error: si el futuro no se completa, quien espere la clave se queda bloqueado
+                vuelos.remove(clave, propio);
+                propio.futuro.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private void purgar() {
+        long ahora = System.nanoTime();
+        vuelos.entrySet().removeIf(entrada -> !entrada.getValue().vigente(ahora));
+    }
+
+    private static <V> V esperar(Vuelo<V> vuelo) {
+        try {
+            return vuelo.futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Vuelo<V> {
+        private final CompletableFuture<V> futuro = new CompletableFuture<>();
+        private volatile long expiraNanos;
+
+        private boolean vigente(long ahora) {
+            if (!futuro.isDone()) {
+                return true;
+            }
+            return !futuro.isCompletedExceptionally() && ahora - expiraNanos < 0;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package reservahoteles.reservahoteles.Service;
+
+import reservahoteles.reservahoteles.DTO.CacheEstadisticasResponse;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+import reservahoteles.reservahoteles.DTO.TarifaTemporada;
+import reservahoteles.reservahoteles.Entity.Tarifa;
+import reservahoteles.reservahoteles.Entity.Temporada;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.TarifaRepository;
+import reservahoteles.reservahoteles.Repository.TemporadaRepository;
+import reservahoteles.reservahoteles.Repository.TipoHabitacionRepository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de tarifas por (hotel, tipo de habitación, temporada) y del catálogo de
+ * temporadas y tipos de habitación.
+ *
+ * Estos datos cambian pocas veces al año, así que se mantienen en memoria con
+ * expiración por tiempo y límite de tamaño. Las combinaciones sin tarifa también
+ * se guardan (como vacío) para no repetir la consulta. La caché se precarga al
+ * arrancar y se invalida cuando {@link CoherenciaCaches} recibe un cambio de
+ * tarifas o temporadas. Sus estadísticas se publican en Micrometer como 'cache.*'
+ * con la etiqueta cache=tarifas o cache=catalogo.
+ *
+ * Cada combinación hotel/tipo tiene una versión que cambia antes de que sus tarifas
+ * puedan recargarse (invalidación o expiración), y el catálogo una generación que
+ * cambia cuando se recarga o se invalida todo. Ambas forman el ETag de las
+ * respuestas de tarifas.
+ */
+@Slf4j
+@Component
+public class TarifaCache {
+
+    private static final String CATALOGO = "catalogo";
+
+    private final TarifaRepository tarifaRepository;
+    private final TemporadaRepository temporadaRepository;
+    private final TipoHabitacionRepository tipoHabitacionRepository;
+
+    private final Cache<Clave, Optional<TarifaTemporada>> tarifas;
+    private final LoadingCache<String, Catalogo> catalogo;
+
+    private final AtomicLong generacion = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final Map<Long, Long> versiones = new ConcurrentHashMap<>();
+
+    public TarifaCache(TarifaRepository tarifaRepository,
+                       TemporadaRepository temporadaRepository,
+                       TipoHabitacionRepository tipoHabitacionRepository,
+                       MeterRegistry meterRegistry,
+                       @Value("${reservas.tarifas.cache.maximo:10000}") long maximo,
+                       @Value("${reservas.tarifas.cache.ttl:PT6H}") Duration ttl) {
+        this.tarifaRepository = tarifaRepository;
+        this.temporadaRepository = temporadaRepository;
+        this.tipoHabitacionRepository = tipoHabitacionRepository;
+        this.tarifas = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfterWrite(ttl)
+            .evictionListener((Clave clave, Optional<TarifaTemporada> valor, RemovalCause causa) ->
+                cambiarVersion(clave.idHotel, clave.idTipo))
+            .recordStats()
+            .build();
+        this.catalogo = Caffeine.newBuilder()
+            .maximumSize(1)
+            .expireAfterWrite(ttl)
+            .evictionListener((String clave, Catalogo valor, RemovalCause causa) -> generacion.incrementAndGet())
+            .recordStats()
+            .build(clave -> cargarCatalogo());
+        CaffeineCacheMetrics.monitor(meterRegistry, tarifas, "tarifas");
+        CaffeineCacheMetrics.monitor(meterRegistry, catalogo, CATALOGO);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        try {
+            catalogo.get(CATALOGO);
+            List<Tarifa> todas = tarifaRepository.findAllConDetalle();
+            for (Tarifa tarifa : todas) {
+                TarifaTemporada valor = convertir(tarifa);
+                tarifas.put(new Clave(valor.getIdHotel(), valor.getIdTipo(), valor.getIdTemporada()),
+                    Optional.of(valor));
+            }
+            generacion.incrementAndGet();
+            log.info("Caché de tarifas precargada con {} tarifas", todas.size());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo precargar la caché de tarifas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve las tarifas de un hotel vigentes en la fecha indicada, con el mismo
+     * contenido y orden (por nombre del tipo de habitación) que la consulta SQL.
+     *
+     * @param idTipo tipo de habitación, o null para todos los tipos
+     */
+    public List<TarifaResponse> obtenerTarifas(Integer idHotel, Integer idTipo, LocalDate fecha) {
+        Catalogo actual = catalogo.get(CATALOGO);
+        List<TarifaTemporada> encontradas = new ArrayList<>();
+        for (Temporada temporada : actual.temporadasEn(fecha)) {
+            for (TipoHabitacion tipo : actual.tipos.values()) {
+                if (idTipo == null || idTipo.equals(tipo.getIdTipo())) {
+                    buscar(idHotel, tipo.getIdTipo(), temporada.getIdTemporada()).ifPresent(encontradas::add);
+                }
+            }
+        }
+        encontradas.sort(Comparator.comparing(TarifaTemporada::getTipoHabitacion));
+
+        List<TarifaResponse> responses = new ArrayList<>(encontradas.size());
+        for (TarifaTemporada tarifa : encontradas) {
+            responses.add(new TarifaResponse(
+                tarifa.getIdTarifa(),
+                tarifa.getHotel(),
+                tarifa.getTipoHabitacion(),
+                tarifa.getTemporada(),
+                tarifa.getPrecioBaseNoche(),
+                tarifa.getPrecioPersonaAdicional()
+            ));
+        }
+        return responses;
+    }
+
+    /**
+     * Devuelve la tarifa de la combinación hotel/tipo para la primera temporada que
+     * contiene la fecha, o vacío si no hay ninguna.
+     */
+    public Optional<TarifaTemporada> tarifaVigente(Integer idHotel, Integer idTipo, LocalDate fecha) {
+        for (Temporada temporada : catalogo.get(CATALOGO).temporadasEn(fecha)) {
+            Optional<TarifaTemporada> tarifa = buscar(idHotel, idTipo, temporada.getIdTemporada());
+            if (tarifa.isPresent()) {
+                return tarifa;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Versión de las tarifas de una combinación hotel/tipo. Debe leerse antes de
+     * consultar las tarifas: si cambian entre ambas lecturas, el ETag entregado ya
+     * no coincide con la versión nueva y la siguiente petición recibe el contenido
+     * completo.
+     */
+    public String version(Integer idHotel, Integer idTipo) {
+        return Long.toHexString(generacion.get()) + '.'
+            + versiones.getOrDefault(DisponibilidadLedger.clave(idHotel, idTipo), 0L);
+    }
+
+    public Optional<TipoHabitacion> tipoHabitacion(Integer idTipo) {
+        return Optional.ofNullable(catalogo.get(CATALOGO).tipos.get(idTipo));
+    }
+
+    /**
+     * Invalida las tarifas de un hotel, de un tipo de habitación o de ambos. Sin
+     * filtros se invalida todo, incluido el catálogo de temporadas y tipos.
+     *
+     * La versión cambia después de quitar las entradas, para que ninguna respuesta
+     * con la versión nueva se haya armado con las tarifas anteriores.
+     */
+    public void invalidar(Integer idHotel, Integer idTipo) {
+        if (idHotel == null && idTipo == null) {
+            tarifas.invalidateAll();
+            catalogo.invalidateAll();
+            generacion.incrementAndGet();
+            log.info("Caché de tarifas invalidada por completo");
+            return;
+        }
+        tarifas.asMap().keySet().removeIf(clave ->
+            (idHotel == null || clave.idHotel == idHotel) && (idTipo == null || clave.idTipo == idTipo));
+        if (idHotel != null && idTipo != null) {
+            cambiarVersion(idHotel, idTipo);
+        } else {
+            generacion.incrementAndGet();
+        }
+        log.info("Caché de tarifas invalidada para hotel: {}, tipo: {}", idHotel, idTipo);
+    }
+
+    public List<CacheEstadisticasResponse> estadisticas() {
+        return List.of(
+            estadisticas("tarifas", tarifas.estimatedSize(), tarifas.stats()),
+            estadisticas("catalogo", catalogo.estimatedSize(), catalogo.stats())
+        );
+    }
+
+    private Optional<TarifaTemporada> buscar(int idHotel, int idTipo, int idTemporada) {
+        return tarifas.get(new Clave(idHotel, idTipo, idTemporada), clave ->
+            tarifaRepository.findConDetalle(clave.idHotel, clave.idTipo, clave.idTemporada).map(TarifaCache::convertir));
+    }
+
+    private void cambiarVersion(int idHotel, int idTipo) {
+        versiones.merge(DisponibilidadLedger.clave(idHotel, idTipo), 1L, Long::sum);
+    }
+
+    private Catalogo cargarCatalogo() {
+        List<Temporada> temporadas = new ArrayList<>(temporadaRepository.findAll());
+        temporadas.sort(Comparator.comparing(Temporada::getFechaInicio));
+        Map<Integer, TipoHabitacion> tipos = new LinkedHashMap<>();
+        for (TipoHabitacion tipo : tipoHabitacionRepository.findAll()) {
+            tipos.put(tipo.getIdTipo(), tipo);
+        }
+        return new Catalogo(temporadas, tipos);
+    }
+
+    private static TarifaTemporada convertir(Tarifa tarifa) {
+        return new TarifaTemporada(
+            tarifa.getIdTarifa(),
+            tarifa.getHotel().getIdHotel(),
+            tarifa.getHotel().getNombre(),
+            tarifa.getTipoHabitacion().getIdTipo(),
+            tarifa.getTipoHabitacion().getNombre(),
+            tarifa.getTemporada().getIdTemporada(),
+            tarifa.getTemporada().getNombre(),
+            tarifa.getTemporada().getFechaInicio(),
+            tarifa.getTemporada().getFechaFin(),
+            tarifa.getPrecioBaseNoche(),
+            tarifa.getPrecioPersonaAdicional()
+        );
+    }
+
+    private static CacheEstadisticasResponse estadisticas(String nombre, long entradas, CacheStats stats) {
+        return new CacheEstadisticasResponse(
+            nombre, entradas, stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+
+    private record Clave(int idHotel, int idTipo, int idTemporada) {
+    }
+
+    private record Catalogo(List<Temporada> temporadas, Map<Integer, TipoHabitacion> tipos) {
+
+        /**
+         * Temporadas que contienen la fecha, con ambos extremos incluidos como en
+         * 'BETWEEN temp.fecha_inicio AND temp.fecha_fin'.
+         */
+        private List<Temporada> temporadasEn(LocalDate fecha) {
+            List<Temporada> vigentes = new ArrayList<>(1);
+            for (Temporada temporada : temporadas) {
+                if (!fecha.isBefore(temporada.getFechaInicio()) && !fecha.isAfter(temporada.getFechaFin())) {
+                    vigentes.add(temporada);
+                }
+            }
+            return vigentes;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package reservahoteles.reservahoteles.Service;
+
+import java.util.List;
+
+/**
+ * Mínimo deslizante sobre la disponibilidad por noche.
+ *
+ * Para una estadía de k noches, las habitaciones libres de cada fecha de entrada
+ * posible son el mínimo de k noches consecutivas. Con una cola monotónica de
+ * índices todos esos mínimos salen de una sola pasada, O(n), en lugar de recorrer
+ * k noches por cada fecha de entrada.
+ */
+final class VentanasDisponibles {
+
+    private VentanasDisponibles() {
+    }
+
+    /**
+     * @param porNoche Habitaciones disponibles en cada noche
+     * @param noches Largo de la estadía
+     * @return el mínimo de cada ventana de 'noches' posiciones consecutivas; la
+     *         posición i corresponde a la entrada en la noche i. Vacío si la estadía
+     *         es más larga que la lista
+     */
+    static int[] minimos(List<Integer> porNoche, int noches) {
+        int n = porNoche.size();
+        if (noches <= 0 || noches > n) {
+            return new int[0];
+        }
+        int[] valores = new int[n];
+        for (int i = 0; i < n; i++) {
+            valores[i] = porNoche.get(i);
+        }
+
+        // Índices con valores estrictamente crecientes; el primero es el mínimo de la ventana
+        int[] cola = new int[n];
+        int cabeza = 0;
+        int fin = 0;
+        int[] minimos = new int[n - noches + 1];
+        for (int i = 0; i < n; i++) {
+            while (fin > cabeza && valores[cola[fin - 1]] >= valores[i]) {
+                fin--;
+            }
+            cola[fin++] = i;
+            if (cola[cabeza] <= i - noches) {
+                cabeza++;
+            }
+            if (i >= noches - 1) {
+                minimos[i - noches + 1] = valores[cola[cabeza]];
+            }
+        }
+        return minimos;
+    }
+}
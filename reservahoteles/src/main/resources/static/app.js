@@ -9,6 +9,9 @@ const resultsContainer = document.getElementById('resultsContainer');
 const errorSection = document.getElementById('errorSection');
 const errorMessage = document.getElementById('errorMessage');
 
+// Suscripción a los cambios de disponibilidad de la búsqueda actual
+let disponibilidadEventos = null;
+
 // Establecer fecha mínima como hoy
 const today = new Date().toISOString().split('T')[0];
 document.getElementById('fechaInicio').setAttribute('min', today);
@@ -139,6 +142,49 @@ function displayResults(results, tarifas, idHotel, idTipo, fechaInicio, fechaFin
     
     resultsSection.style.display = 'block';
     resultsSection.scrollIntoView({ behavior: 'smooth', block: 'nearest' });
+
+    suscribirDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin);
+}
+
+// Abre un flujo de eventos con la disponibilidad del rango buscado; el servidor
+// envía un evento cada vez que una reserva, cancelación o retención la cambia
+function suscribirDisponibilidad(idHotel, idTipo, fechaInicio, fechaFin) {
+    cerrarSuscripcionDisponibilidad();
+    if (typeof EventSource === 'undefined') {
+        return;
+    }
+    const url = `${API_BASE_URL}/disponibilidad/eventos?idHotel=${idHotel}&idTipo=${idTipo}&fechaInicio=${fechaInicio}&fechaFin=${fechaFin}`;
+    disponibilidadEventos = new EventSource(url);
+    disponibilidadEventos.addEventListener('disponibilidad', (evento) => {
+        actualizarDisponibilidad(JSON.parse(evento.data));
+    });
+}
+
+function cerrarSuscripcionDisponibilidad() {
+    if (disponibilidadEventos) {
+        disponibilidadEventos.close();
+        disponibilidadEventos = null;
+    }
+}
+
+function actualizarDisponibilidad(disponibilidad) {
+    const total = disponibilidad.cantidadTotal || 0;
+    const disponible = disponibilidad.cantidadDisponible || 0;
+    resultsContainer.querySelectorAll('.result-card').forEach(card => {
+        const disponibles = card.querySelector('[data-campo="disponibles"]');
+        const ocupadas = card.querySelector('[data-campo="ocupadas"]');
+        const reservar = card.querySelector('.btn-reservar');
+        if (!disponibles || !ocupadas) {
+            return;
+        }
+        disponibles.textContent = disponible;
+        disponibles.style.color = disponible > 0 ? 'var(--success)' : 'var(--error)';
+        ocupadas.textContent = total - disponible;
+        if (reservar) {
+            reservar.setAttribute('onclick', reservar.getAttribute('onclick')
+                .replace(/, \d+, (\d+)\)$/, `, ${disponible}, $1)`));
+        }
+    });
 }
 
 function createResultCard(result, tarifa, index, idHotel, idTipo, fechaInicio, fechaFin) {
@@ -179,13 +225,13 @@ function createResultCard(result, tarifa, index, idHotel, idTipo, fechaInicio, f
             </div>
             <div class="info-item">
                 <span class="info-label">Habitaciones Disponibles</span>
-                <span class="info-value" style="color: ${result.cantidadDisponible > 0 ? 'var(--success)' : 'var(--error)'}">
+                <span class="info-value" data-campo="disponibles" style="color: ${result.cantidadDisponible > 0 ? 'var(--success)' : 'var(--error)'}">
                     ${result.cantidadDisponible || 0}
                 </span>
             </div>
             <div class="info-item">
                 <span class="info-label">Habitaciones Ocupadas</span>
-                <span class="info-value">${(result.cantidadTotal || 0) - (result.cantidadDisponible || 0)}</span>
+                <span class="info-value" data-campo="ocupadas">${(result.cantidadTotal || 0) - (result.cantidadDisponible || 0)}</span>
             </div>
             ${tarifa ? `
             <div class="tarifa-info">
@@ -237,6 +283,7 @@ function hideError() {
 }
 
 function hideResults() {
+    cerrarSuscripcionDisponibilidad();
     resultsSection.style.display = 'none';
 }
 
@@ -324,12 +371,7 @@ calcularPrecioBtn.addEventListener('click', async () => {
 });
 
 function mostrarPrecio(precioData) {
-    let desglose = {};
-    try {
-        desglose = JSON.parse(precioData.desglose || '{}');
-    } catch (e) {
-        desglose = {};
-    }
+    const desglose = precioData.desglose || {};
     
     precioDetails.innerHTML = `
         <div class="precio-summary">
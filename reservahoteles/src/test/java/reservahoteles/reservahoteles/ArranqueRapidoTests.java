@@ -0,0 +1,47 @@
+package reservahoteles.reservahoteles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Arranque con el perfil 'arranque-rapido' sin base de datos.
+ *
+ * La base de datos apunta a un puerto cerrado: el perfil no debe necesitar una
+ * conexión para arrancar (sin validación de esquema ni metadatos JDBC, y sin la
+ * conexión inicial de Hikari), así que la sonda de liveness responde igualmente.
+ * El tiempo hasta la primera respuesta solo se registra; depende de la máquina y
+ * no se comprueba aquí.
+ */
+@Slf4j
+class ArranqueRapidoTests {
+
+	@Test
+	void respondeLaPrimeraSolicitudSinBaseDeDatos() throws Exception {
+		long inicio = System.nanoTime();
+		try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ReservahotelesApplication.class)
+				.profiles("arranque-rapido")
+				.run(
+						"--server.port=0",
+						"--spring.datasource.url=jdbc:postgresql://127.0.0.1:9/reservas",
+						"--spring.datasource.hikari.connection-timeout=250")) {
+			int puerto = contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+			HttpResponse<String> respuesta = HttpClient.newHttpClient().send(
+					HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + puerto + "/actuator/health/liveness")).build(),
+					HttpResponse.BodyHandlers.ofString());
+			log.info("Primera respuesta en {} ms", Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+
+			assertThat(respuesta.statusCode()).isEqualTo(200);
+			assertThat(respuesta.body()).contains("\"status\":\"UP\"");
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package reservahoteles.reservahoteles.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import reservahoteles.reservahoteles.Controller.ReservaController;
+import reservahoteles.reservahoteles.Service.ExportacionService;
+import reservahoteles.reservahoteles.Service.ReservaService;
+
+/**
+ * Reparto de permisos a partir del pool de conexiones y clasificación de las
+ * solicitudes en compartimentos.
+ */
+class BulkheadInterceptorTests {
+
+	@Test
+	void losPermisosSeRepartenSobreElPoolDeHikari() {
+		DbBulkhead cinco = bulkhead(5);
+		assertThat(cinco.permisosDisponibles(DbBulkhead.Tipo.ESCRITURA)).isEqualTo(2);
+		assertThat(cinco.permisosDisponibles(DbBulkhead.Tipo.EXPORTACION)).isEqualTo(1);
+		assertThat(cinco.permisosDisponibles(DbBulkhead.Tipo.LECTURA)).isEqualTo(2);
+
+		DbBulkhead veinte = bulkhead(20);
+		assertThat(veinte.permisosDisponibles(DbBulkhead.Tipo.ESCRITURA)).isEqualTo(8);
+		assertThat(veinte.permisosDisponibles(DbBulkhead.Tipo.LECTURA)).isEqualTo(11);
+
+		DbBulkhead dos = bulkhead(2);
+		assertThat(dos.permisosDisponibles(DbBulkhead.Tipo.ESCRITURA)).isEqualTo(1);
+		assertThat(dos.permisosDisponibles(DbBulkhead.Tipo.LECTURA)).isEqualTo(1);
+	}
+
+	@Test
+	void retencionesAnaliticaYExportacionTienenCompartimento() {
+		assertThat(BulkheadInterceptor.clasificar(new MockHttpServletRequest("POST", "/api/reservas/retenciones")))
+				.isEqualTo(DbBulkhead.Tipo.ESCRITURA);
+		assertThat(BulkheadInterceptor.clasificar(new MockHttpServletRequest("DELETE",
+				"/api/reservas/retenciones/0b6f4c1e-3a52-4f7e-9d0a-5b1c2d3e4f50"))).isEqualTo(DbBulkhead.Tipo.ESCRITURA);
+		assertThat(BulkheadInterceptor.clasificar(new MockHttpServletRequest("GET", "/api/analitica/ocupacion")))
+				.isEqualTo(DbBulkhead.Tipo.LECTURA);
+		assertThat(BulkheadInterceptor.clasificar(new MockHttpServletRequest("GET", "/api/reservas/exportar")))
+				.isEqualTo(DbBulkhead.Tipo.EXPORTACION);
+		assertThat(BulkheadInterceptor.clasificar(new MockHttpServletRequest("GET", "/api/reservas/disponibilidad/eventos")))
+				.isNull();
+	}
+
+	@Test
+	void laExportacionConservaSuPermisoHastaTerminarDeEscribir() throws Exception {
+		DbBulkhead bulkhead = bulkhead(5);
+		ExportacionService exportacionService = mock(ExportacionService.class);
+		CountDownLatch terminar = new CountDownLatch(1);
+		doAnswer(invocation -> terminar.await(10, TimeUnit.SECONDS))
+				.when(exportacionService).exportar(any(), any(), any(), any(), any(), any());
+		MockMvc mockMvc = MockMvcBuilders
+				.standaloneSetup(new ReservaController(mock(ReservaService.class), exportacionService))
+				.addInterceptors(new BulkheadInterceptor(bulkhead))
+				.build();
+
+		MvcResult exportacion = mockMvc.perform(get("/api/reservas/exportar")
+				.param("fechaDesde", "2026-01-01")
+				.param("fechaHasta", "2026-02-01"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(bulkhead.permisosDisponibles(DbBulkhead.Tipo.EXPORTACION)).isZero();
+
+		mockMvc.perform(get("/api/reservas/exportar")
+				.param("fechaDesde", "2026-01-01")
+				.param("fechaHasta", "2026-02-01"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+		terminar.countDown();
+		exportacion.getAsyncResult(Duration.ofSeconds(10).toMillis());
+		mockMvc.perform(asyncDispatch(exportacion)).andExpect(status().isOk());
+		assertThat(bulkhead.permisosDisponibles(DbBulkhead.Tipo.EXPORTACION)).isEqualTo(1);
+	}
+
+	private static DbBulkhead bulkhead(int tamanoPool) {
+		return new DbBulkhead(new SimpleMeterRegistry(), tamanoPool, 0.4, 1, 50, Duration.ofSeconds(2));
+	}
+}
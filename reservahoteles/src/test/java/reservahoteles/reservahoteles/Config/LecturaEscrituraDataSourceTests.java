@@ -0,0 +1,104 @@
+package reservahoteles.reservahoteles.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Enrutamiento entre primaria y réplica según la transacción, el estado de la
+ * réplica y la marca de read-your-writes.
+ */
+class LecturaEscrituraDataSourceTests {
+
+	private final Connection conexionPrimaria = mock(Connection.class);
+	private final Connection conexionReplica = mock(Connection.class);
+	private final DataSource primaria = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final ResultSet retraso = mock(ResultSet.class);
+
+	private ReplicaLectura replicaLectura;
+	private LecturaEscrituraDataSource.Enrutador enrutador;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		Statement statement = mock(Statement.class);
+		when(primaria.getConnection()).thenReturn(conexionPrimaria);
+		when(replica.getConnection()).thenReturn(conexionReplica);
+		when(conexionReplica.createStatement()).thenReturn(statement);
+		when(statement.executeQuery(anyString())).thenReturn(retraso);
+		when(retraso.next()).thenReturn(true);
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		replicaLectura = new ReplicaLectura(replica, Duration.ofSeconds(5), meterRegistry);
+		enrutador = new LecturaEscrituraDataSource.Enrutador(primaria, replicaLectura, meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		ConsistenciaLecturas.liberar();
+	}
+
+	@Test
+	void lasLecturasVanALaReplicaSoloTrasVerificarla() throws SQLException {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(enrutador.getConnection()).isSameAs(conexionPrimaria);
+
+		when(retraso.getDouble(1)).thenReturn(0.2);
+		replicaLectura.verificar();
+
+		assertThat(enrutador.getConnection()).isSameAs(conexionReplica);
+	}
+
+	@Test
+	void lasEscriturasVanSiempreALaPrimaria() throws SQLException {
+		replicaLectura.verificar();
+
+		assertThat(enrutador.getConnection()).isSameAs(conexionPrimaria);
+	}
+
+	@Test
+	void conRetrasoExcesivoLasLecturasVuelvenALaPrimaria() throws SQLException {
+		replicaLectura.verificar();
+		when(retraso.getDouble(1)).thenReturn(12.5);
+		replicaLectura.verificar();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(replicaLectura.disponible()).isFalse();
+		assertThat(enrutador.getConnection()).isSameAs(conexionPrimaria);
+	}
+
+	@Test
+	void unFalloAlConectarConLaReplicaCaeALaPrimaria() throws SQLException {
+		replicaLectura.verificar();
+		when(replica.getConnection()).thenThrow(new SQLException("Connection is not available"));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(enrutador.getConnection()).isSameAs(conexionPrimaria);
+		assertThat(replicaLectura.disponible()).isFalse();
+	}
+
+	@Test
+	void trasEscribirElClienteLeeDeLaPrimaria() throws SQLException {
+		replicaLectura.verificar();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		ConsistenciaLecturas.fijarPrimaria();
+
+		assertThat(enrutador.getConnection()).isSameAs(conexionPrimaria);
+	}
+}
@@ -0,0 +1,49 @@
+package reservahoteles.reservahoteles.Controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import reservahoteles.reservahoteles.Service.TarifaCache;
+
+/**
+ * Invalidación manual de las tarifas y su desactivación por configuración.
+ */
+class AdminControllerTests {
+
+	private TarifaCache tarifaCache;
+
+	@BeforeEach
+	void setUp() {
+		tarifaCache = mock(TarifaCache.class);
+	}
+
+	@Test
+	void invalidaLasTarifasDeLaCombinacionIndicada() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AdminController(tarifaCache, true)).build();
+
+		mockMvc.perform(delete("/api/admin/cache/tarifas").param("idHotel", "1").param("idTipo", "2"))
+				.andExpect(status().isNoContent());
+		mockMvc.perform(delete("/api/admin/cache/tarifas")).andExpect(status().isNoContent());
+
+		verify(tarifaCache).invalidar(1, 2);
+		verify(tarifaCache).invalidar(null, null);
+	}
+
+	@Test
+	void desactivadaRespondeNoEncontrado() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AdminController(tarifaCache, false)).build();
+
+		mockMvc.perform(delete("/api/admin/cache/tarifas")).andExpect(status().isNotFound());
+
+		verify(tarifaCache, never()).invalidar(any(), any());
+	}
+}
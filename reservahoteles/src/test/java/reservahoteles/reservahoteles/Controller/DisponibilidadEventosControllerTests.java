@@ -0,0 +1,180 @@
+package reservahoteles.reservahoteles.Controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+import reservahoteles.reservahoteles.Service.DisponibilidadCambiadaEvent;
+import reservahoteles.reservahoteles.Service.DisponibilidadFeed;
+import reservahoteles.reservahoteles.Service.DisponibilidadLedger;
+
+/**
+ * Flujo de disponibilidad por SSE: el libro publica cada cambio y el suscriptor
+ * recibe la disponibilidad nueva de su rango.
+ */
+class DisponibilidadEventosControllerTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final LocalDate FIN = INICIO.plusDays(3);
+
+	private DisponibilidadLedger ledger;
+	private DisponibilidadFeed feed;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		ReservaRepository reservaRepository = mock(ReservaRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario(1, 1), inventario(1, 2)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(List.of());
+
+		AtomicReference<DisponibilidadFeed> suscrito = new AtomicReference<>();
+		ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, mock(RetencionRepository.class),
+				evento -> {
+					if (suscrito.get() != null) {
+						suscrito.get().alCambiarDisponibilidad((DisponibilidadCambiadaEvent) evento);
+					}
+				}, 365);
+		ledger.recargar();
+		feed = new DisponibilidadFeed(ledger, new SimpleMeterRegistry(), 1, Duration.ofMinutes(1), 1,
+				Duration.ofSeconds(10), 1);
+		suscrito.set(feed);
+		mockMvc = MockMvcBuilders.standaloneSetup(new DisponibilidadEventosController(feed)).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		feed.cerrar();
+	}
+
+	@Test
+	void elSuscriptorRecibeLaDisponibilidadInicialYCadaCambio() throws Exception {
+		MvcResult result = mockMvc.perform(eventos(INICIO, FIN))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		MockHttpServletResponse response = result.getResponse();
+
+		esperar(response, contenido -> contenido.contains("\"cantidadDisponible\":10"));
+		assertThat(response.getContentAsString())
+				.contains("event:disponibilidad")
+				.contains("\"cambio\":0");
+
+		ledger.registrarReserva(1, 1, FIN.minusDays(1), FIN.plusDays(2), 3);
+
+		esperar(response, contenido -> contenido.contains("\"cantidadDisponible\":7"));
+		assertThat(response.getContentAsString()).contains("\"cambio\":-3");
+	}
+
+	@Test
+	void losCambiosDeOtroTipoOFueraDelRangoNoSeEnvian() throws Exception {
+		MockHttpServletResponse response = mockMvc.perform(eventos(INICIO, FIN))
+				.andExpect(request().asyncStarted())
+				.andReturn()
+				.getResponse();
+		esperar(response, contenido -> contenido.contains("\"cantidadDisponible\":10"));
+
+		ledger.registrarReserva(1, 2, INICIO, FIN, 4);
+		ledger.registrarReserva(1, 1, FIN, FIN.plusDays(2), 4);
+		ledger.registrarReserva(1, 1, INICIO, FIN, 1);
+
+		esperar(response, contenido -> contenido.contains("\"cantidadDisponible\":9"));
+		assertThat(response.getContentAsString()).doesNotContain("\"cantidadDisponible\":6");
+	}
+
+	@Test
+	void conElMaximoDeSuscriptoresResponde503() throws Exception {
+		mockMvc.perform(eventos(INICIO, FIN)).andExpect(request().asyncStarted());
+
+		mockMvc.perform(eventos(INICIO, FIN))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+	}
+
+	@Test
+	void unRangoInvalidoEsUnaPeticionIncorrecta() throws Exception {
+		mockMvc.perform(eventos(FIN, INICIO)).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void unRangoFueraDelLibroSeRechaza() throws Exception {
+		mockMvc.perform(eventos(INICIO.plusDays(400), INICIO.plusDays(402)))
+				.andExpect(status().isUnprocessableContent());
+	}
+
+	@Test
+	void elLatidoSoloSeEnviaSinCambiosPendientes() throws Exception {
+		MockHttpServletResponse response = mockMvc.perform(eventos(INICIO, FIN))
+				.andExpect(request().asyncStarted())
+				.andReturn()
+				.getResponse();
+		esperar(response, contenido -> contenido.contains("\"cantidadDisponible\":10"));
+
+		// Mientras el primer envío sigue pendiente, el latido no se encola
+		long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!response.getContentAsString().endsWith(":\n\n") && System.nanoTime() < limite) {
+			feed.latir();
+			Thread.sleep(10);
+		}
+
+		assertThat(response.getContentAsString()).endsWith(":\n\n");
+		assertThat(response.getContentAsString().split("event:disponibilidad", -1)).hasSize(2);
+	}
+
+	private static MockHttpServletRequestBuilder eventos(LocalDate fechaInicio, LocalDate fechaFin) {
+		return get("/api/reservas/disponibilidad/eventos")
+				.param("idHotel", "1")
+				.param("idTipo", "1")
+				.param("fechaInicio", fechaInicio.toString())
+				.param("fechaFin", fechaFin.toString());
+	}
+
+	private static void esperar(MockHttpServletResponse response, Predicate<String> condicion) throws Exception {
+		long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condicion.test(response.getContentAsString()) && System.nanoTime() < limite) {
+			Thread.sleep(10);
+		}
+		assertThat(response.getContentAsString()).matches(condicion);
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Tipo " + idTipo);
+		tipo.setCapacidadPersonas(4);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(10);
+		return inventario;
+	}
+}
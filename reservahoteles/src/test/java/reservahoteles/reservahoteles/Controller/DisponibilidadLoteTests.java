@@ -0,0 +1,158 @@
+package reservahoteles.reservahoteles.Controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+import reservahoteles.reservahoteles.Service.ConsultasCompartidas;
+import reservahoteles.reservahoteles.Service.DisponibilidadLedger;
+import reservahoteles.reservahoteles.Service.ExportacionService;
+import reservahoteles.reservahoteles.Service.IdempotenciaStore;
+import reservahoteles.reservahoteles.Service.PricingEngine;
+import reservahoteles.reservahoteles.Service.ReservaLocks;
+import reservahoteles.reservahoteles.Service.ReservaServiceImpl;
+import reservahoteles.reservahoteles.Service.RetencionService;
+import reservahoteles.reservahoteles.Service.TarifaCache;
+
+/**
+ * Disponibilidad noche a noche de varias combinaciones en una sola llamada, desde
+ * el libro en memoria y, fuera de su horizonte, desde la base de datos.
+ */
+class DisponibilidadLoteTests {
+
+	private static final int HORIZONTE = 60;
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final LocalDate FIN = INICIO.plusDays(3);
+
+	private final List<Object[]> reservasEnBaseDatos = new ArrayList<>();
+
+	private ReservaRepository reservaRepository;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		reservaRepository = mock(ReservaRepository.class);
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(
+				inventario(1, 1, 10), inventario(1, 2, 4), inventario(2, 1, 6)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(reservasEnBaseDatos);
+
+		DisponibilidadLedger ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository,
+				retencionRepository, evento -> {
+				}, HORIZONTE);
+		ReservaLocks locks = new ReservaLocks();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		TarifaCache tarifaCache = mock(TarifaCache.class);
+		ReservaServiceImpl service = new ReservaServiceImpl(reservaRepository, ledger, locks, tarifaCache,
+				new PricingEngine(tarifaCache), transactionTemplate, new SimpleMeterRegistry(),
+				new IdempotenciaStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)), evento -> { },
+				new ConsultasCompartidas(new SimpleMeterRegistry(), Duration.ZERO),
+				new RetencionService(retencionRepository, reservaRepository, ledger, locks, transactionTemplate,
+						Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 64));
+		mockMvc = MockMvcBuilders
+				.standaloneSetup(new ReservaController(service, mock(ExportacionService.class)))
+				.build();
+
+		reservasEnBaseDatos.add(new Object[] { 1, 1, INICIO.plusDays(1), INICIO.plusDays(2), 7 });
+		ledger.recargar();
+	}
+
+	@Test
+	void devuelveCadaNocheSoloDeLasCombinacionesPedidas() throws Exception {
+		mockMvc.perform(lote("[{\"idHotel\":1,\"idTipo\":1},{\"idHotel\":2}]", INICIO, FIN))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.resultados.length()").value(2))
+				.andExpect(jsonPath("$.resultados[0].idHotel").value(1))
+				.andExpect(jsonPath("$.resultados[0].idTipo").value(1))
+				.andExpect(jsonPath("$.resultados[0].cantidadDisponible").value(3))
+				.andExpect(content().json("{\"resultados\":[{\"disponiblesPorNoche\":[10,3,10]},"
+						+ "{\"idHotel\":2,\"idTipo\":1,\"disponiblesPorNoche\":[6,6,6]}]}"));
+		verify(reservaRepository, never()).verificarDisponibilidadPorNoche(any(), any());
+	}
+
+	@Test
+	void sinCombinacionesDevuelveTodoElInventario() throws Exception {
+		mockMvc.perform(lote("[]", INICIO, FIN))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.resultados.length()").value(3))
+				.andExpect(jsonPath("$.resultados[1].idTipo").value(2))
+				.andExpect(jsonPath("$.resultados[1].cantidadDisponible").value(4));
+	}
+
+	@Test
+	void fueraDelHorizonteDelLibroConsultaLaBaseDeDatos() throws Exception {
+		LocalDate inicio = LocalDate.now().plusDays(HORIZONTE + 5);
+		LocalDate fin = inicio.plusDays(2);
+		when(reservaRepository.verificarDisponibilidadPorNoche(inicio, fin)).thenReturn(List.of(
+				new DisponibilidadNochesResponse(1, 1, "Tipo 1", 10, 4, 8, List.of(9, 8)),
+				new DisponibilidadNochesResponse(1, 2, "Tipo 2", 4, 4, 4, List.of(4, 4)),
+				new DisponibilidadNochesResponse(2, 1, "Tipo 1", 6, 4, 6, List.of(6, 6))));
+
+		mockMvc.perform(lote("[{\"idHotel\":1,\"idTipo\":1}]", inicio, fin))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.resultados.length()").value(1))
+				.andExpect(jsonPath("$.resultados[0].disponiblesPorNoche[1]").value(8));
+		verify(reservaRepository).verificarDisponibilidadPorNoche(inicio, fin);
+	}
+
+	@Test
+	void rangosVaciosODemasiadoLargosSeRechazan() throws Exception {
+		mockMvc.perform(lote("[]", INICIO, INICIO))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(lote("[]", INICIO, INICIO.plusDays(367)))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(post("/api/reservas/disponibilidad/lote")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"fechaInicio\":\"" + INICIO + "\"}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private static MockHttpServletRequestBuilder lote(String pares, LocalDate inicio, LocalDate fin) {
+		return post("/api/reservas/disponibilidad/lote")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"pares\":" + pares + ",\"fechaInicio\":\"" + inicio + "\",\"fechaFin\":\"" + fin + "\"}");
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo, int cantidad) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Tipo " + idTipo);
+		tipo.setCapacidadPersonas(4);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(cantidad);
+		return inventario;
+	}
+}
@@ -0,0 +1,112 @@
+package reservahoteles.reservahoteles.Controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.TarifaResponse;
+import reservahoteles.reservahoteles.Service.ExportacionService;
+import reservahoteles.reservahoteles.Service.ReservaService;
+
+/**
+ * GET condicional de disponibilidad y tarifas: con un 'If-None-Match' vigente la
+ * respuesta es 304 y el servicio no calcula el contenido.
+ */
+class ReservaControllerCacheTests {
+
+	private static final LocalDate INICIO = LocalDate.of(2026, 11, 2);
+	private static final LocalDate FIN = INICIO.plusDays(3);
+
+	private ReservaService service;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		service = mock(ReservaService.class);
+		when(service.consultarDisponibilidad(anyInt(), anyInt(), any(), any()))
+				.thenReturn(List.of(new DisponibilidadResponse("Estándar", 20, 12, 4)));
+		when(service.obtenerTarifas(anyInt(), anyInt(), any())).thenReturn(List.of(new TarifaResponse(
+				1, "Hotel Barranquilla", "Estándar", "Alta", new BigDecimal("250000.00"), new BigDecimal("40000.00"))));
+		mockMvc = MockMvcBuilders
+				.standaloneSetup(new ReservaController(service, mock(ExportacionService.class)))
+				.build();
+	}
+
+	@Test
+	void disponibilidadVigenteResponde304SinConsultar() throws Exception {
+		when(service.versionDisponibilidad(1, 1, INICIO, FIN)).thenReturn(Optional.of("a1.7"));
+
+		mockMvc.perform(disponibilidad().header(HttpHeaders.IF_NONE_MATCH, "W/\"da1.7\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"da1.7\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+		verify(service, never()).consultarDisponibilidad(anyInt(), anyInt(), any(), any());
+	}
+
+	@Test
+	void disponibilidadConOtraVersionDevuelveElContenido() throws Exception {
+		when(service.versionDisponibilidad(1, 1, INICIO, FIN)).thenReturn(Optional.of("a1.8"));
+
+		mockMvc.perform(disponibilidad().header(HttpHeaders.IF_NONE_MATCH, "W/\"da1.7\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"da1.8\""))
+				.andExpect(content().json("[{\"tipoHabitacion\":\"Estándar\",\"cantidadDisponible\":12}]"));
+	}
+
+	@Test
+	void disponibilidadFueraDelLibroNoLlevaEtag() throws Exception {
+		when(service.versionDisponibilidad(1, 1, INICIO, FIN)).thenReturn(Optional.empty());
+
+		mockMvc.perform(disponibilidad().header(HttpHeaders.IF_NONE_MATCH, "*"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG));
+	}
+
+	@Test
+	void tarifasVigentesResponden304ConMaxAge() throws Exception {
+		when(service.versionTarifas(1, 1)).thenReturn("b2.0");
+
+		mockMvc.perform(tarifas())
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "W/\"tb2.0\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, must-revalidate"));
+		mockMvc.perform(tarifas().header(HttpHeaders.IF_NONE_MATCH, "W/\"tb2.0\""))
+				.andExpect(status().isNotModified());
+		verify(service).obtenerTarifas(1, 1, INICIO);
+	}
+
+	private MockHttpServletRequestBuilder disponibilidad() {
+		return get("/api/reservas/disponibilidad")
+				.param("idHotel", "1")
+				.param("idTipo", "1")
+				.param("fechaInicio", INICIO.toString())
+				.param("fechaFin", FIN.toString());
+	}
+
+	private MockHttpServletRequestBuilder tarifas() {
+		return get("/api/reservas/tarifas")
+				.param("idHotel", "1")
+				.param("idTipo", "1")
+				.param("fechaInicio", INICIO.toString());
+	}
+}
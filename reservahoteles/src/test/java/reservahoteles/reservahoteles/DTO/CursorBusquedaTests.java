@@ -0,0 +1,55 @@
+package reservahoteles.reservahoteles.DTO;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Cursor opaco de la búsqueda de reservas: ida y vuelta, y rechazo de cursores
+ * alterados o inventados con {@link IllegalArgumentException} (el controlador
+ * responde 400).
+ */
+class CursorBusquedaTests {
+
+	@Test
+	void codificarYDecodificarDevuelveLaMismaPosicion() {
+		CursorBusqueda cursor = new CursorBusqueda(LocalDate.of(2026, 11, 2), 123456);
+
+		String texto = cursor.codificar();
+
+		assertThat(texto).doesNotContain("=", "+", "/", ":");
+		assertThat(CursorBusqueda.decodificar(texto)).isEqualTo(cursor);
+	}
+
+	@Test
+	void seConstruyeDesdeLaUltimaReservaDeLaPagina() {
+		ReservaResumen reserva = new ReservaResumen(42, 1, 2, LocalDate.of(2026, 1, 5), LocalDate.of(2026, 1, 7),
+				2, 1, null, "Confirmada");
+
+		assertThat(CursorBusqueda.decodificar(CursorBusqueda.de(reserva).codificar()))
+				.isEqualTo(new CursorBusqueda(LocalDate.of(2026, 1, 5), 42));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "%%%", "no es base64!", "" })
+	void unTextoQueNoEsBase64SeRechaza(String cursor) {
+		assertThatThrownBy(() -> CursorBusqueda.decodificar(cursor)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "basura", "2026-11-02", "2026-13-01:5", "2026-11-02:", "2026-11-02:uno",
+			":5", "2026-11-02:99999999999" })
+	void unContenidoAlteradoSeRechaza(String contenido) {
+		String cursor = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(contenido.getBytes(StandardCharsets.UTF_8));
+
+		assertThatThrownBy(() -> CursorBusqueda.decodificar(cursor)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,84 @@
+package reservahoteles.reservahoteles.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Base de datos PostgreSQL real para las pruebas que la necesitan.
+ *
+ * Esas pruebas solo se ejecutan si la variable de entorno {@value #VARIABLE} tiene la
+ * URL JDBC de una base de datos desechable (usuario y contraseña en
+ * RESERVAS_TEST_DB_USER y RESERVAS_TEST_DB_PASSWORD). La primera vez se aplica
+ * database_schema.sql y cada prueba vacía las tablas y carga los mismos datos: dos
+ * hoteles, dos tipos, una temporada que cubre todas las fechas y sus tarifas.
+ */
+public final class BaseDatosPrueba {
+
+	public static final String VARIABLE = "RESERVAS_TEST_DB_URL";
+
+	private static DataSource dataSource;
+
+	private BaseDatosPrueba() {
+	}
+
+	public static synchronized DataSource dataSource() {
+		if (dataSource == null) {
+			DriverManagerDataSource nuevo = new DriverManagerDataSource(System.getenv(VARIABLE),
+					System.getenv().getOrDefault("RESERVAS_TEST_DB_USER", "postgres"),
+					System.getenv().getOrDefault("RESERVAS_TEST_DB_PASSWORD", ""));
+			new JdbcTemplate(nuevo).execute(esquema());
+			dataSource = nuevo;
+		}
+		return dataSource;
+	}
+
+	/** Vuelve a ejecutar database_schema.sql, como en un nuevo despliegue. */
+	public static void aplicarEsquema() {
+		new JdbcTemplate(dataSource()).execute(esquema());
+	}
+
+	/**
+	 * Vacía las tablas y carga los datos de prueba. El hotel 1 tiene 10 habitaciones
+	 * del tipo 1 y 3 del tipo 2; el hotel 2, 5 del tipo 1.
+	 */
+	public static JdbcTemplate reiniciar() {
+		JdbcTemplate jdbcTemplate = vaciar();
+		jdbcTemplate.execute("""
+				INSERT INTO hoteles (nombre, cupo_maximo_personas) VALUES ('Hotel Uno', 100), ('Hotel Dos', 50);
+				INSERT INTO tipos_habitacion (nombre, capacidad_personas) VALUES ('Doble', 2), ('Suite', 4);
+				INSERT INTO inventario_habitaciones (id_hotel, id_tipo, cantidad_total)
+				VALUES (1, 1, 10), (1, 2, 3), (2, 1, 5);
+				INSERT INTO temporadas (nombre, fecha_inicio, fecha_fin, anio)
+				VALUES ('Todo el año', '2000-01-01', '2099-12-31', 2000);
+				INSERT INTO tarifas (id_hotel, id_tipo, id_temporada, precio_base_noche, precio_persona_adicional)
+				VALUES (1, 1, 1, 100, 20), (1, 2, 1, 200, 30), (2, 1, 1, 80, 10);
+				""");
+		return jdbcTemplate;
+	}
+
+	/**
+	 * Vacía todas las tablas y reinicia sus secuencias, para las pruebas que cargan
+	 * sus propios datos.
+	 */
+	public static JdbcTemplate vaciar() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource());
+		jdbcTemplate.execute("TRUNCATE hoteles, tipos_habitacion, temporadas, reservas, reservas_claves_idempotencia, "
+				+ "retenciones, ocupacion_diaria RESTART IDENTITY CASCADE");
+		return jdbcTemplate;
+	}
+
+	private static String esquema() {
+		try {
+			return Files.readString(Path.of("database_schema.sql"));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
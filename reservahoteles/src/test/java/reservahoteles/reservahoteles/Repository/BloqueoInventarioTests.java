@@ -0,0 +1,128 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+
+/**
+ * Bloqueo de la fila de inventario contra PostgreSQL: es lo que serializa las
+ * reservas de una combinación entre instancias, donde el candado en memoria de
+ * {@code ReservaLocks} no llega. Cada transacción usa su propia conexión, como lo
+ * haría otra instancia.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class BloqueoInventarioTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final LocalDate FIN = INICIO.plusDays(2);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	private JdbcTemplate jdbcTemplate;
+	private ReservaConsultasJdbc consultas;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = BaseDatosPrueba.reiniciar();
+		consultas = new ReservaConsultasJdbc(jdbcTemplate, new RepositorioMetricas(new SimpleMeterRegistry()));
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(BaseDatosPrueba.dataSource()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void otraTransaccionEsperaAlCommitParaBloquearLaMismaCombinacion() throws Exception {
+		CountDownLatch bloqueado = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		executor.submit(() -> transactionTemplate.execute(status -> {
+			consultas.bloquearInventario(1, 1);
+			bloqueado.countDown();
+			try {
+				return liberar.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		assertThat(bloqueado.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Future<Long> mismaCombinacion = executor.submit(() -> transactionTemplate.execute(status -> {
+			consultas.bloquearInventario(1, 1);
+			return System.nanoTime();
+		}));
+		Future<Long> otroTipo = executor.submit(() -> transactionTemplate.execute(status -> {
+			consultas.bloquearInventario(1, 2);
+			return System.nanoTime();
+		}));
+
+		assertThat(otroTipo.get(5, TimeUnit.SECONDS)).isNotNull();
+		Thread.sleep(300);
+		assertThat(mismaCombinacion.isDone()).isFalse();
+
+		long liberado = System.nanoTime();
+		liberar.countDown();
+		assertThat(mismaCombinacion.get(5, TimeUnit.SECONDS)).isGreaterThanOrEqualTo(liberado);
+	}
+
+	@Test
+	void reservasConcurrentesDesdeVariasConexionesNoSobrevenden() throws Exception {
+		List<Future<CrearReservaResponse>> resultados = new ArrayList<>();
+		CountDownLatch salida = new CountDownLatch(1);
+		for (int i = 0; i < 24; i++) {
+			resultados.add(executor.submit(() -> {
+				salida.await();
+				return transactionTemplate.execute(status -> {
+					consultas.bloquearInventario(1, 1);
+					return consultas.crearReserva(solicitud(1), BigDecimal.TEN, null);
+				});
+			}));
+		}
+		salida.countDown();
+
+		int exitosas = 0;
+		for (Future<CrearReservaResponse> resultado : resultados) {
+			if (Boolean.TRUE.equals(resultado.get(30, TimeUnit.SECONDS).getExito())) {
+				exitosas++;
+			}
+		}
+
+		assertThat(exitosas).isEqualTo(10);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT SUM(cantidad_habitaciones) FROM reservas WHERE id_hotel = 1 AND id_tipo = 1", Integer.class))
+				.isEqualTo(10);
+	}
+
+	private static CrearReservaRequest solicitud(int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(1);
+		request.setIdTipo(1);
+		request.setFechaInicio(INICIO);
+		request.setFechaFin(FIN);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+}
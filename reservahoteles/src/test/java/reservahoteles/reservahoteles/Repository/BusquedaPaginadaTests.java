@@ -0,0 +1,121 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.BusquedaReservasResponse;
+import reservahoteles.reservahoteles.DTO.CursorBusqueda;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+import reservahoteles.reservahoteles.Service.ConsultasCompartidas;
+import reservahoteles.reservahoteles.Service.DisponibilidadLedger;
+import reservahoteles.reservahoteles.Service.IdempotenciaStore;
+import reservahoteles.reservahoteles.Service.PricingEngine;
+import reservahoteles.reservahoteles.Service.ReservaLocks;
+import reservahoteles.reservahoteles.Service.ReservaServiceImpl;
+import reservahoteles.reservahoteles.Service.RetencionService;
+import reservahoteles.reservahoteles.Service.TarifaCache;
+
+/**
+ * Búsqueda de reservas paginada por clave contra PostgreSQL: recorrer todas las
+ * páginas con el cursor opaco entrega cada reserva una sola vez y en el orden de
+ * (fecha_inicio, id_reserva), también cuando varias reservas empatan en fecha
+ * justo en el borde de una página.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class BusquedaPaginadaTests {
+
+	private static final LocalDate BASE = LocalDate.of(2031, 3, 1);
+	private static final int POR_PAGINA = 5;
+
+	private JdbcTemplate jdbcTemplate;
+	private ReservaServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = BaseDatosPrueba.reiniciar();
+		// 23 reservas del hotel 1 en 5 fechas de inicio, alternando tipo; una de cada 4 cancelada
+		jdbcTemplate.execute("INSERT INTO reservas (id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, "
+				+ "cantidad_habitaciones, total_calculado, estado) "
+				+ "SELECT 1, 1 + x % 2, DATE '" + BASE + "' + x % 5, DATE '" + BASE + "' + x % 5 + 2, 2, 1, 100, "
+				+ "CASE WHEN x % 4 = 0 THEN 'Cancelada' ELSE 'Confirmada' END FROM generate_series(1, 23) x");
+		// Fuera del filtro: otro hotel y otra fecha
+		jdbcTemplate.execute("INSERT INTO reservas (id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, "
+				+ "cantidad_habitaciones, total_calculado, estado) VALUES "
+				+ "(2, 1, DATE '" + BASE + "', DATE '" + BASE + "' + 1, 2, 1, 100, 'Confirmada'), "
+				+ "(1, 1, DATE '" + BASE + "' + 40, DATE '" + BASE + "' + 41, 2, 1, 100, 'Confirmada')");
+
+		RepositorioMetricas metricas = new RepositorioMetricas(new SimpleMeterRegistry());
+		ReservaCustomRepositoryImpl repositorio = new ReservaCustomRepositoryImpl(jdbcTemplate, metricas,
+				new ReservaConsultasJdbc(jdbcTemplate, metricas));
+		ReservaRepository reservaRepository = mock(ReservaRepository.class);
+		when(reservaRepository.buscarReservas(anyInt(), any(), any(), any(), any(), any(), any(), anyInt()))
+				.thenAnswer(invocation -> repositorio.buscarReservas(invocation.getArgument(0),
+						invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3),
+						invocation.getArgument(4), invocation.getArgument(5), invocation.getArgument(6),
+						invocation.getArgument(7)));
+		service = new ReservaServiceImpl(reservaRepository, mock(DisponibilidadLedger.class), new ReservaLocks(),
+				mock(TarifaCache.class), mock(PricingEngine.class), mock(TransactionTemplate.class),
+				new SimpleMeterRegistry(), mock(IdempotenciaStore.class), evento -> {
+				}, mock(ConsultasCompartidas.class), mock(RetencionService.class));
+	}
+
+	@Test
+	void recorrerTodasLasPaginasEntregaCadaReservaUnaVezYEnOrden() {
+		List<Integer> recorridas = recorrer(null, null);
+
+		assertThat(recorridas).hasSize(23).doesNotHaveDuplicates().isEqualTo(esperadas(""));
+	}
+
+	@Test
+	void losFiltrosSeMantienenEntrePaginas() {
+		List<Integer> recorridas = recorrer(2, "Confirmada");
+
+		assertThat(recorridas).isNotEmpty()
+				.isEqualTo(esperadas("AND id_tipo = 2 AND estado = 'Confirmada' "));
+	}
+
+	@Test
+	void unaPaginaExactamenteLlenaNoDevuelveCursor() {
+		BusquedaReservasResponse response = service.buscarReservas(1, null, BASE, BASE.plusDays(30), null, null, 23);
+
+		assertThat(response.getReservas()).hasSize(23);
+		assertThat(response.getSiguienteCursor()).isNull();
+	}
+
+	private List<Integer> recorrer(Integer idTipo, String estado) {
+		List<Integer> ids = new ArrayList<>();
+		CursorBusqueda cursor = null;
+		for (int pagina = 0; pagina < 20; pagina++) {
+			BusquedaReservasResponse response = service.buscarReservas(1, idTipo, BASE, BASE.plusDays(30), estado,
+					cursor, POR_PAGINA);
+			assertThat(response.getReservas()).hasSizeLessThanOrEqualTo(POR_PAGINA);
+			response.getReservas().stream().map(ReservaResumen::getIdReserva).forEach(ids::add);
+			if (response.getSiguienteCursor() == null) {
+				return ids;
+			}
+			assertThat(response.getReservas()).hasSize(POR_PAGINA);
+			cursor = CursorBusqueda.decodificar(response.getSiguienteCursor());
+		}
+		throw new AssertionError("La paginación no terminó");
+	}
+
+	private List<Integer> esperadas(String filtro) {
+		return jdbcTemplate.queryForList("SELECT id_reserva FROM reservas WHERE id_hotel = 1 "
+				+ "AND fecha_inicio >= ? AND fecha_inicio < ? " + filtro + "ORDER BY fecha_inicio, id_reserva",
+				Integer.class, BASE, BASE.plusDays(30));
+	}
+}
@@ -0,0 +1,230 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+
+/**
+ * Las dos implementaciones de {@link ReservaConsultas} contra PostgreSQL: las
+ * mismas llamadas devuelven los mismos DTOs, y 'crear_reserva' recibe bien los
+ * parámetros opcionales (total, clave de idempotencia y retención) por los dos
+ * caminos.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class ConsultasParidadTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(20);
+
+	private static SessionFactory sessionFactory;
+
+	private JdbcTemplate jdbcTemplate;
+	private EntityManager entityManager;
+	private ReservaConsultasHibernate hibernate;
+	private ReservaConsultasJdbc jdbc;
+
+	@BeforeAll
+	static void crearSessionFactory() {
+		sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder()
+				.applySetting(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, BaseDatosPrueba.dataSource())
+				.build()).buildMetadata().buildSessionFactory();
+	}
+
+	@AfterAll
+	static void cerrarSessionFactory() {
+		sessionFactory.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = BaseDatosPrueba.reiniciar();
+		entityManager = sessionFactory.createEntityManager();
+		hibernate = new ReservaConsultasHibernate(entityManager, new RepositorioMetricas(new SimpleMeterRegistry()));
+		jdbc = new ReservaConsultasJdbc(jdbcTemplate, new RepositorioMetricas(new SimpleMeterRegistry()));
+		// Ocupación previa para que la disponibilidad no sea el inventario completo
+		jdbc.crearReserva(solicitud(1, 1, INICIO.plusDays(1), INICIO.plusDays(3), 4), null, null);
+		jdbc.crearReserva(solicitud(1, 2, INICIO, INICIO.plusDays(2), 2), null, null);
+	}
+
+	@AfterEach
+	void tearDown() {
+		entityManager.close();
+	}
+
+	@Test
+	void lasConsultasDeLecturaDevuelvenLoMismo() {
+		mismoResultado(c -> c.verificarDisponibilidad(1, 1, INICIO, INICIO.plusDays(4)));
+		mismoResultado(c -> c.verificarDisponibilidad(1, 2, INICIO, INICIO.plusDays(1)));
+		mismoResultado(c -> c.verificarDisponibilidadPorNoche(INICIO, INICIO.plusDays(4)));
+		mismoResultado(c -> c.verificarDisponibilidadPorNoche(List.of(
+				new RangoCombinacion(1, 1, INICIO.plusDays(2), INICIO.plusDays(5)),
+				new RangoCombinacion(1, 2, INICIO, INICIO.plusDays(1)),
+				new RangoCombinacion(2, 2, INICIO, INICIO.plusDays(1)))));
+		mismoResultado(c -> c.obtenerTarifas(1, null, INICIO));
+		mismoResultado(c -> c.obtenerTarifas(1, 2, INICIO));
+		mismoResultado(c -> c.obtenerTarifas(1, 1, LocalDate.of(2100, 1, 1)));
+		mismoResultado(c -> c.calcularPrecio(calculo(1, 2, 3, 2)));
+		mismoResultado(c -> c.calcularPrecio(calculo(2, 1, 1, 1)));
+		mismoResultado(c -> c.verificarOcupacionDiaria(LocalDate.now()));
+	}
+
+	@Test
+	void crearReservaDevuelveLoMismoConYSinDisponibilidad() {
+		CrearReservaResponse porHibernate = crear("hibernate", solicitud(2, 1, INICIO, INICIO.plusDays(2), 3), null,
+				null);
+		CrearReservaResponse porJdbc = crear("jdbc", solicitud(2, 1, INICIO, INICIO.plusDays(2), 2), null, null);
+		assertThat(porHibernate.getExito()).isTrue();
+		assertThat(porJdbc).usingRecursiveComparison().ignoringFields("idReserva")
+				.isEqualTo(new CrearReservaResponse(null, true, porHibernate.getMensaje(),
+						new BigDecimal("320.00")));
+
+		// El hotel 2 ya no tiene habitaciones del tipo 1 esas noches
+		assertThat(crear("hibernate", solicitud(2, 1, INICIO, INICIO.plusDays(1), 1), null, null))
+				.usingRecursiveComparison()
+				.isEqualTo(crear("jdbc", solicitud(2, 1, INICIO, INICIO.plusDays(1), 1), null, null));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "hibernate", "jdbc" })
+	void sinParametrosOpcionalesElPrecioLoCalculaLaBase(String acceso) {
+		CrearReservaResponse response = crear(acceso, solicitud(1, 1, INICIO, INICIO.plusDays(2), 1), null, null);
+
+		assertThat(response.getExito()).isTrue();
+		assertThat(response.getTotalCalculado()).isEqualByComparingTo("200");
+		assertThat(fila(response, "total_calculado", BigDecimal.class)).isEqualByComparingTo("200");
+		assertThat(fila(response, "clave_idempotencia", String.class)).isNull();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "hibernate", "jdbc" })
+	void elTotalCalculadoSeGuardaTalCual(String acceso) {
+		CrearReservaResponse response = crear(acceso, solicitud(1, 1, INICIO, INICIO.plusDays(2), 1),
+				new BigDecimal("123.45"), null);
+
+		assertThat(response.getTotalCalculado()).isEqualByComparingTo("123.45");
+		assertThat(fila(response, "total_calculado", BigDecimal.class)).isEqualByComparingTo("123.45");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "hibernate", "jdbc" })
+	void laClaveDeIdempotenciaSeGuardaYNoSeReutiliza(String acceso) {
+		CrearReservaResponse response = crear(acceso, solicitud(1, 1, INICIO, INICIO.plusDays(2), 1), null,
+				"clave-" + acceso);
+		CrearReservaResponse repetida = crear(acceso, solicitud(1, 1, INICIO, INICIO.plusDays(2), 1), null,
+				"clave-" + acceso);
+
+		assertThat(fila(response, "clave_idempotencia", String.class)).isEqualTo("clave-" + acceso);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT id_reserva FROM reservas_claves_idempotencia WHERE clave_idempotencia = ?", Integer.class,
+				"clave-" + acceso)).isEqualTo(response.getIdReserva());
+		assertThat(repetida.getExito()).isFalse();
+		assertThat(repetida.getMensaje()).isEqualTo("La clave de idempotencia ya fue usada");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "hibernate", "jdbc" })
+	void laRetencionSeConsumeAunqueNoQuedeInventarioLibre(String acceso) {
+		UUID idRetencion = UUID.randomUUID();
+		jdbcTemplate.update("INSERT INTO retenciones (id_retencion, id_hotel, id_tipo, fecha_inicio, fecha_fin, "
+				+ "cantidad_habitaciones, expira_en) VALUES (?, 1, 2, ?, ?, 1, NOW() + interval '5 minutes')",
+				idRetencion, INICIO, INICIO.plusDays(2));
+		CrearReservaRequest request = solicitud(1, 2, INICIO, INICIO.plusDays(2), 1);
+		request.setIdRetencion(idRetencion);
+
+		CrearReservaResponse response = crear(acceso, request, new BigDecimal("400"), "retencion-" + acceso);
+
+		assertThat(response.getExito()).isTrue();
+		assertThat(fila(response, "clave_idempotencia", String.class)).isEqualTo("retencion-" + acceso);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM retenciones WHERE id_retencion = ?",
+				Integer.class, idRetencion)).isZero();
+		// Sin retención, el tipo 2 del hotel 1 ya está completo
+		assertThat(crear(acceso, solicitud(1, 2, INICIO, INICIO.plusDays(2), 1), null, null).getExito()).isFalse();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "hibernate", "jdbc" })
+	void unaClaveRepetidaNoConsumeLaRetencion(String acceso) {
+		crear(acceso, solicitud(1, 1, INICIO, INICIO.plusDays(2), 1), null, "repetida-" + acceso);
+		UUID idRetencion = UUID.randomUUID();
+		jdbcTemplate.update("INSERT INTO retenciones (id_retencion, id_hotel, id_tipo, fecha_inicio, fecha_fin, "
+				+ "cantidad_habitaciones, expira_en) VALUES (?, 1, 1, ?, ?, 1, NOW() + interval '5 minutes')",
+				idRetencion, INICIO, INICIO.plusDays(2));
+		CrearReservaRequest request = solicitud(1, 1, INICIO, INICIO.plusDays(2), 1);
+		request.setIdRetencion(idRetencion);
+
+		CrearReservaResponse repetida = crear(acceso, request, null, "repetida-" + acceso);
+
+		assertThat(repetida.getExito()).isFalse();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM retenciones WHERE id_retencion = ?",
+				Integer.class, idRetencion)).isEqualTo(1);
+	}
+
+	private void mismoResultado(Function<ReservaConsultas, Object> consulta) {
+		Object porHibernate = consulta.apply(hibernate);
+		Object porJdbc = consulta.apply(jdbc);
+		assertThat(porJdbc).usingRecursiveComparison().withEqualsForType(
+				(a, b) -> a.compareTo(b) == 0, BigDecimal.class).isEqualTo(porHibernate);
+	}
+
+	private CrearReservaResponse crear(String acceso, CrearReservaRequest request, BigDecimal total, String clave) {
+		if (acceso.equals("jdbc")) {
+			return jdbc.crearReserva(request, total, clave);
+		}
+		entityManager.getTransaction().begin();
+		CrearReservaResponse response = hibernate.crearReserva(request, total, clave);
+		entityManager.getTransaction().commit();
+		return response;
+	}
+
+	private <T> T fila(CrearReservaResponse response, String columna, Class<T> tipo) {
+		return jdbcTemplate.queryForObject("SELECT " + columna + " FROM reservas WHERE id_reserva = ?", tipo,
+				response.getIdReserva());
+	}
+
+	private static CrearReservaRequest solicitud(int idHotel, int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(inicio);
+		request.setFechaFin(fin);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+
+	private static CalculoPrecioRequest calculo(int idHotel, int idTipo, int noches, int personas) {
+		CalculoPrecioRequest request = new CalculoPrecioRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(INICIO);
+		request.setFechaFin(INICIO.plusDays(noches));
+		request.setNumeroPersonas(personas);
+		request.setCantidadHabitaciones(1);
+		return request;
+	}
+}
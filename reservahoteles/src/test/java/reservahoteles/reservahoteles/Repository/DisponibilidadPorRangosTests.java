@@ -0,0 +1,69 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+
+/**
+ * Disponibilidad por noche de los lotes contra PostgreSQL: solo las combinaciones
+ * pedidas, cada una en su propio rango de noches.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class DisponibilidadPorRangosTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+
+	private ReservaConsultasJdbc consultas;
+
+	@BeforeEach
+	void setUp() {
+		consultas = new ReservaConsultasJdbc(BaseDatosPrueba.reiniciar(),
+				new RepositorioMetricas(new SimpleMeterRegistry()));
+	}
+
+	@Test
+	void devuelveSoloLasCombinacionesYNochesPedidas() {
+		consultas.crearReserva(solicitud(1, 2, INICIO.plusDays(1), INICIO.plusDays(2), 2), BigDecimal.TEN, null);
+
+		List<DisponibilidadNochesResponse> filas = consultas.verificarDisponibilidadPorNoche(List.of(
+				new RangoCombinacion(1, 2, INICIO, INICIO.plusDays(3)),
+				new RangoCombinacion(2, 1, INICIO.plusDays(30), INICIO.plusDays(32))));
+
+		assertThat(filas).hasSize(2);
+		assertThat(filas.get(0).getIdHotel()).isEqualTo(1);
+		assertThat(filas.get(0).getIdTipo()).isEqualTo(2);
+		assertThat(filas.get(0).getDisponiblesPorNoche()).containsExactly(3, 1, 3);
+		assertThat(filas.get(0).getCantidadDisponible()).isEqualTo(1);
+		assertThat(filas.get(1).getIdHotel()).isEqualTo(2);
+		assertThat(filas.get(1).getDisponiblesPorNoche()).containsExactly(5, 5);
+	}
+
+	@Test
+	void unaCombinacionSinInventarioNoDevuelveFilas() {
+		assertThat(consultas.verificarDisponibilidadPorNoche(List.of(
+				new RangoCombinacion(2, 2, INICIO, INICIO.plusDays(1))))).isEmpty();
+	}
+
+	private static CrearReservaRequest solicitud(int idHotel, int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(inicio);
+		request.setFechaFin(fin);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+}
@@ -0,0 +1,131 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Notificaciones de 'notificar_cambio' contra PostgreSQL: una versión por
+ * transacción confirmada, sin huecos por las revertidas, y la instancia que hizo
+ * el cambio. También la de 'archivar_particion_reservas', cuyo DETACH no dispara
+ * los triggers.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class NotificacionCambiosTests {
+
+	private static final String PARTICION_ARCHIVADA = "reservas_2001_01";
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	private Connection escucha;
+	private Connection cambios;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		BaseDatosPrueba.reiniciar();
+		escucha = BaseDatosPrueba.dataSource().getConnection();
+		try (Statement statement = escucha.createStatement()) {
+			statement.execute("LISTEN reservas_cambios");
+		}
+		cambios = BaseDatosPrueba.dataSource().getConnection();
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		ejecutar("DROP TABLE IF EXISTS archivo." + PARTICION_ARCHIVADA);
+		escucha.close();
+		cambios.close();
+	}
+
+	@Test
+	void cadaTransaccionConfirmadaTomaLaVersionSiguiente() throws SQLException {
+		long inicial = versionActual();
+		cambios.setAutoCommit(false);
+		ejecutar("UPDATE tarifas SET precio_base_noche = precio_base_noche + 1 WHERE id_hotel = 1");
+		cambios.commit();
+		ejecutar("UPDATE tarifas SET precio_base_noche = precio_base_noche + 1 WHERE id_hotel = 2");
+		cambios.rollback();
+		ejecutar("UPDATE tarifas SET precio_base_noche = precio_base_noche + 1 WHERE id_hotel = 2");
+		cambios.commit();
+
+		List<JsonNode> recibidas = recibir(3);
+
+		assertThat(recibidas).extracting(carga -> carga.get("version").asLong())
+				.containsExactly(inicial + 1, inicial + 1, inicial + 2);
+		assertThat(recibidas).extracting(carga -> carga.get("idHotel").asInt()).containsExactly(1, 1, 2);
+		assertThat(versionActual()).isEqualTo(inicial + 2);
+	}
+
+	@Test
+	void laNotificacionLlevaLaInstanciaDeLaSesion() throws SQLException {
+		ejecutar("SELECT set_config('reservas.instancia', 'instancia-a', false)");
+		ejecutar("UPDATE temporadas SET nombre = 'Otro nombre'");
+		try (Connection otra = BaseDatosPrueba.dataSource().getConnection();
+				Statement statement = otra.createStatement()) {
+			statement.execute("UPDATE temporadas SET nombre = 'Sin instancia'");
+		}
+
+		List<JsonNode> recibidas = recibir(2);
+
+		assertThat(recibidas.get(0).get("instancia").asString()).isEqualTo("instancia-a");
+		assertThat(recibidas.get(1).get("instancia").isNull()).isTrue();
+	}
+
+	@Test
+	void archivarUnaParticionPublicaUnCambioDeArchivo() throws SQLException {
+		ejecutar("SELECT crear_particiones_reservas('2001-01-01', '2001-02-01')");
+		long inicial = versionActual();
+		ejecutar("SELECT set_config('reservas.instancia', 'instancia-a', false)");
+		ejecutar("SELECT archivar_particion_reservas('2001-02-01')");
+
+		JsonNode recibida = recibir(1).get(0);
+
+		assertThat(recibida.get("tabla").asString()).isEqualTo("archivo");
+		assertThat(recibida.get("version").asLong()).isEqualTo(inicial + 1);
+		assertThat(recibida.get("instancia").asString()).isEqualTo("instancia-a");
+	}
+
+	private void ejecutar(String sql) throws SQLException {
+		try (Statement statement = cambios.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private long versionActual() throws SQLException {
+		try (Statement statement = cambios.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT version FROM cambios_version")) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private List<JsonNode> recibir(int cantidad) throws SQLException {
+		List<JsonNode> recibidas = new ArrayList<>();
+		PGConnection pg = escucha.unwrap(PGConnection.class);
+		long limite = System.currentTimeMillis() + 5_000;
+		while (recibidas.size() < cantidad && System.currentTimeMillis() < limite) {
+			PGNotification[] notificaciones = pg.getNotifications(200);
+			if (notificaciones != null) {
+				for (PGNotification notificacion : notificaciones) {
+					recibidas.add(jsonMapper.readTree(notificacion.getParameter()));
+				}
+			}
+		}
+		assertThat(recibidas).hasSize(cantidad);
+		return recibidas;
+	}
+}
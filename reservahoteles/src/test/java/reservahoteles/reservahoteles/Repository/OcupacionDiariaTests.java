@@ -0,0 +1,120 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.Service.OcupacionDiariaReconciliador;
+
+/**
+ * 'ocupacion_diaria' contra PostgreSQL: el trigger al liberar noches, la conciliación
+ * limitada a las noches desde hoy y la reconstrucción al volver a aplicar el esquema.
+ */
+@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+class OcupacionDiariaTests {
+
+	private static final LocalDate HOY = LocalDate.now();
+	private static final LocalDate INICIO = HOY.plusDays(10);
+
+	private JdbcTemplate jdbcTemplate;
+	private ReservaConsultasJdbc consultas;
+	private SimpleMeterRegistry meterRegistry;
+	private OcupacionDiariaReconciliador reconciliador;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = BaseDatosPrueba.reiniciar();
+		consultas = new ReservaConsultasJdbc(jdbcTemplate, new RepositorioMetricas(new SimpleMeterRegistry()));
+		ReservaRepository reservaRepository = mock(ReservaRepository.class);
+		when(reservaRepository.verificarOcupacionDiaria(any()))
+				.thenAnswer(invocation -> consultas.verificarOcupacionDiaria(invocation.getArgument(0)));
+		when(reservaRepository.reconstruirOcupacionDiaria(any()))
+				.thenAnswer(invocation -> consultas.reconstruirOcupacionDiaria(invocation.getArgument(0)));
+		meterRegistry = new SimpleMeterRegistry();
+		reconciliador = new OcupacionDiariaReconciliador(reservaRepository,
+				new TransactionTemplate(new DataSourceTransactionManager(BaseDatosPrueba.dataSource())), meterRegistry);
+	}
+
+	@Test
+	void cancelarYBorrarReservasLiberaSusNoches() {
+		consultas.crearReserva(solicitud(INICIO, INICIO.plusDays(2), 3), BigDecimal.TEN, null);
+		consultas.crearReserva(solicitud(INICIO.plusDays(1), INICIO.plusDays(3), 2), BigDecimal.TEN, null);
+
+		jdbcTemplate.update("UPDATE reservas SET estado = 'Cancelada' WHERE cantidad_habitaciones = 3");
+		assertThat(ocupadas(INICIO)).isZero();
+		assertThat(ocupadas(INICIO.plusDays(1))).isEqualTo(2);
+
+		jdbcTemplate.update("DELETE FROM reservas WHERE cantidad_habitaciones = 2");
+		assertThat(ocupadas(INICIO.plusDays(1))).isZero();
+		assertThat(ocupadas(INICIO.plusDays(2))).isZero();
+		assertThat(consultas.verificarOcupacionDiaria(HOY.minusYears(1))).isZero();
+	}
+
+	@Test
+	void elReconciliadorSoloRevisaYReparaLasNochesDesdeHoy() {
+		insertarReserva(HOY.minusDays(20), HOY.minusDays(18), 1);
+		consultas.crearReserva(solicitud(INICIO, INICIO.plusDays(2), 1), BigDecimal.TEN, null);
+		jdbcTemplate.update("UPDATE ocupacion_diaria SET habitaciones_ocupadas = 7 WHERE fecha IN (?, ?)",
+				HOY.minusDays(20), INICIO);
+
+		assertThat(consultas.verificarOcupacionDiaria(HOY)).isEqualTo(1);
+		assertThat(consultas.verificarOcupacionDiaria(HOY.minusDays(30))).isEqualTo(2);
+
+		reconciliador.reconciliar();
+
+		assertThat(ocupadas(INICIO)).isEqualTo(1);
+		assertThat(ocupadas(INICIO.plusDays(1))).isEqualTo(1);
+		assertThat(ocupadas(HOY.minusDays(20))).isEqualTo(7);
+		assertThat(meterRegistry.get("reservas.ocupacion.discrepancias").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void volverAAplicarElEsquemaSoloReconstruyeSiCambiaLaVersion() {
+		consultas.crearReserva(solicitud(INICIO, INICIO.plusDays(1), 1), BigDecimal.TEN, null);
+		jdbcTemplate.update("UPDATE ocupacion_diaria SET habitaciones_ocupadas = 7");
+
+		BaseDatosPrueba.aplicarEsquema();
+		assertThat(ocupadas(INICIO)).isEqualTo(7);
+
+		jdbcTemplate.update("UPDATE esquema_versiones SET version = version - 1 WHERE componente = 'ocupacion_diaria'");
+		BaseDatosPrueba.aplicarEsquema();
+		assertThat(ocupadas(INICIO)).isEqualTo(1);
+	}
+
+	private int ocupadas(LocalDate fecha) {
+		Integer ocupadas = jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(habitaciones_ocupadas), 0)::int FROM ocupacion_diaria "
+						+ "WHERE id_hotel = 1 AND id_tipo = 1 AND fecha = ?", Integer.class, fecha);
+		return ocupadas != null ? ocupadas : 0;
+	}
+
+	private void insertarReserva(LocalDate inicio, LocalDate fin, int habitaciones) {
+		jdbcTemplate.update("INSERT INTO reservas (id_hotel, id_tipo, fecha_inicio, fecha_fin, numero_personas, "
+				+ "cantidad_habitaciones, total_calculado, estado) VALUES (1, 1, ?, ?, 2, ?, 100, 'Confirmada')",
+				inicio, fin, habitaciones);
+	}
+
+	private static CrearReservaRequest solicitud(LocalDate inicio, LocalDate fin, int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(1);
+		request.setIdTipo(1);
+		request.setFechaInicio(inicio);
+		request.setFechaFin(fin);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+}
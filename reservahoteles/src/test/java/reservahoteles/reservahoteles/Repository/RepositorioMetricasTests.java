@@ -0,0 +1,42 @@
+package reservahoteles.reservahoteles.Repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RepositorioMetricasTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RepositorioMetricas metricas = new RepositorioMetricas(registry);
+
+	@Test
+	void laEsperaPorConexionSeDescuentaDeLaEjecucion() {
+		List<String> filas = metricas.ejecutar("obtenerTarifas", () -> {
+			metricas.registrarConexion(TimeUnit.SECONDS.toNanos(10));
+			return List.of("fila");
+		});
+		metricas.mapear("obtenerTarifas", () -> filas.size());
+
+		assertThat(timer("obtenerTarifas", "conexion").totalTime(TimeUnit.SECONDS)).isEqualTo(10.0);
+		assertThat(timer("obtenerTarifas", "ejecucion").count()).isEqualTo(1);
+		assertThat(timer("obtenerTarifas", "ejecucion").totalTime(TimeUnit.SECONDS)).isLessThan(1.0);
+		assertThat(timer("obtenerTarifas", "mapeo").count()).isEqualTo(1);
+	}
+
+	@Test
+	void lasConexionesFueraDeUnMetodoSeAtribuyenALaTransaccion() {
+		metricas.registrarConexion(1_000);
+
+		assertThat(timer("transaccion", "conexion").count()).isEqualTo(1);
+	}
+
+	private Timer timer(String metodo, String fase) {
+		return registry.get("reservas.repositorio").tag("metodo", metodo).tag("fase", fase).timer();
+	}
+}
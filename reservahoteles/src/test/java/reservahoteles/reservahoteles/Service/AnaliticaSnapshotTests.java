@@ -0,0 +1,124 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import reservahoteles.reservahoteles.DTO.AnaliticaFila;
+import reservahoteles.reservahoteles.DTO.ReservaResumen;
+
+class AnaliticaSnapshotTests {
+
+	private static final LocalDate DESDE = LocalDate.of(2026, 12, 10);
+	private static final LocalDate HASTA = LocalDate.of(2027, 1, 5);
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void calculaOcupacionAdrYRevparPorTemporada() {
+		AnaliticaSnapshot snapshot = cargador()
+				.reserva(reserva(1, 1, 1, "2026-12-13", "2026-12-17", 2, "1000000.03"))
+				.reserva(reserva(2, 1, 2, "2026-12-20", "2026-12-22", 1, "600000.00"))
+				.reserva(reserva(3, 9, 1, "2026-12-20", "2026-12-22", 1, "100000.00"))
+				.reserva(reserva(4, 1, 1, "2026-11-01", "2026-11-03", 1, "100000.00"))
+				.construir(LocalDateTime.now());
+
+		List<AnaliticaFila> filas = snapshot.calcular(DESDE, HASTA, null, null, pool);
+
+		assertThat(filas).extracting(AnaliticaFila::getTipoHabitacion, AnaliticaFila::getTemporada)
+				.containsExactly(
+						tuple("Estándar", "Alta"),
+						tuple("Estándar", AnaliticaSnapshot.SIN_TEMPORADA),
+						tuple("Suite", "Alta"),
+						tuple("Suite", AnaliticaSnapshot.SIN_TEMPORADA));
+
+		AnaliticaFila estandarAlta = filas.get(0);
+		assertThat(estandarAlta.getNochesDisponibles()).isEqualTo(170);
+		assertThat(estandarAlta.getNochesVendidas()).isEqualTo(4);
+		assertThat(estandarAlta.getOcupacion()).isEqualByComparingTo("2.35");
+		assertThat(estandarAlta.getIngresos()).isEqualByComparingTo("500000.00");
+		assertThat(estandarAlta.getAdr()).isEqualByComparingTo("125000.00");
+		assertThat(estandarAlta.getRevpar()).isEqualByComparingTo("2941.18");
+		assertThat(estandarAlta.getTarifaBase()).isEqualByComparingTo("250000.00");
+
+		AnaliticaFila estandarSinTemporada = filas.get(1);
+		assertThat(estandarSinTemporada.getNochesDisponibles()).isEqualTo(90);
+		assertThat(estandarSinTemporada.getNochesVendidas()).isEqualTo(4);
+		assertThat(estandarSinTemporada.getIngresos()).isEqualByComparingTo("500000.03");
+		assertThat(estandarSinTemporada.getTarifaBase()).isNull();
+
+		AnaliticaFila suiteAlta = filas.get(2);
+		assertThat(suiteAlta.getNochesDisponibles()).isEqualTo(34);
+		assertThat(suiteAlta.getNochesVendidas()).isEqualTo(2);
+		assertThat(suiteAlta.getAdr()).isEqualByComparingTo("300000.00");
+	}
+
+	@Test
+	void actualizarAgregaNuevasYAnulaCanceladas() {
+		AnaliticaSnapshot snapshot = cargador()
+				.reserva(reserva(1, 1, 1, "2026-12-15", "2026-12-17", 2, "1000000.00"))
+				.construir(LocalDateTime.now());
+
+		AnaliticaSnapshot actualizado = snapshot.actualizar(
+				List.of(reserva(5, 1, 1, "2026-12-20", "2026-12-21", 3, "750000.00")),
+				Set.of(1), LocalDateTime.now());
+
+		assertThat(actualizado.ultimoId()).isEqualTo(5);
+		AnaliticaFila estandarAlta = actualizado.calcular(DESDE, HASTA, 1, 1, pool).get(0);
+		assertThat(estandarAlta.getNochesVendidas()).isEqualTo(3);
+		assertThat(estandarAlta.getIngresos()).isEqualByComparingTo("750000.00");
+
+		AnaliticaFila original = snapshot.calcular(DESDE, HASTA, 1, 1, pool).get(0);
+		assertThat(original.getNochesVendidas()).isEqualTo(4);
+	}
+
+	@Test
+	void elCalculoParaleloCoincideConElSecuencial() {
+		AnaliticaSnapshot.Cargador cargador = cargador();
+		Random random = new Random(42);
+		for (int id = 1; id <= 50_000; id++) {
+			LocalDate inicio = DESDE.minusDays(10).plusDays(random.nextInt(40));
+			cargador.reserva(reserva(id, 1, 1 + random.nextInt(2), inicio.toString(),
+					inicio.plusDays(1 + random.nextInt(7)).toString(), 1 + random.nextInt(3),
+					BigDecimal.valueOf(100_000 + random.nextInt(1_000_000), 2).toString()));
+		}
+		AnaliticaSnapshot snapshot = cargador.construir(LocalDateTime.now());
+
+		ForkJoinPool secuencial = new ForkJoinPool(1);
+		try {
+			assertThat(snapshot.calcular(DESDE, HASTA, null, null, pool))
+					.isEqualTo(snapshot.calcular(DESDE, HASTA, null, null, secuencial));
+		} finally {
+			secuencial.shutdown();
+		}
+	}
+
+	private static AnaliticaSnapshot.Cargador cargador() {
+		return AnaliticaSnapshot.cargador()
+				.inventario(1, "Hotel Barranquilla", 2, "Suite", 2)
+				.inventario(1, "Hotel Barranquilla", 1, "Estándar", 10)
+				.temporada(1, "Alta", LocalDate.of(2026, 12, 15), LocalDate.of(2026, 12, 31))
+				.tarifa(1, 1, 1, new BigDecimal("250000.00"));
+	}
+
+	private static ReservaResumen reserva(int id, int idHotel, int idTipo, String inicio, String fin,
+			int habitaciones, String total) {
+		return new ReservaResumen(id, idHotel, idTipo, LocalDate.parse(inicio), LocalDate.parse(fin), 2,
+				habitaciones, new BigDecimal(total), "Confirmada");
+	}
+}
@@ -0,0 +1,72 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+
+/**
+ * Creación y archivo de particiones mensuales de reservas.
+ */
+class ArchivoReservasTests {
+
+	private final ReservaRepository reservaRepository = mock(ReservaRepository.class);
+
+	private ArchivoReservas archivo;
+
+	@BeforeEach
+	void setUp() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		archivo = new ArchivoReservas(reservaRepository, transactionTemplate, new SimpleMeterRegistry(), 27, 24);
+	}
+
+	@Test
+	void creaLasParticionesDeLosMesesQueVienen() {
+		LocalDate hoy = LocalDate.now();
+
+		archivo.mantener();
+
+		verify(reservaRepository).crearParticiones(hoy, hoy.plusMonths(27));
+	}
+
+	@Test
+	void archivaYCompactaCadaParticionHastaQueNoQuedanMas() {
+		LocalDate antes = LocalDate.now().withDayOfMonth(1).minusMonths(24);
+		when(reservaRepository.archivarParticion(antes)).thenReturn("reservas_2023_01", "reservas_2023_02", null);
+
+		archivo.mantener();
+
+		InOrder orden = inOrder(reservaRepository);
+		orden.verify(reservaRepository).archivarParticion(antes);
+		orden.verify(reservaRepository).compactarParticionArchivada("reservas_2023_01");
+		orden.verify(reservaRepository).archivarParticion(antes);
+		orden.verify(reservaRepository).compactarParticionArchivada("reservas_2023_02");
+		orden.verify(reservaRepository).archivarParticion(antes);
+		orden.verifyNoMoreInteractions();
+	}
+
+	@Test
+	void sinBloqueoSeDejaParaLaProximaEjecucion() {
+		when(reservaRepository.crearParticiones(any(), any())).thenThrow(new CannotAcquireLockException("lock timeout"));
+		when(reservaRepository.archivarParticion(any())).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+		archivo.mantener();
+
+		verify(reservaRepository, never()).compactarParticionArchivada(anyString());
+	}
+}
@@ -0,0 +1,327 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Retencion;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+/**
+ * Traducción de las notificaciones de 'notificar_cambio' en invalidaciones, sin
+ * base de datos: la reserva hecha por "otra instancia" solo existe en el
+ * repositorio simulado. Las pruebas de retenciones levantan dos instancias sobre
+ * los mismos repositorios simulados.
+ */
+class CoherenciaCachesTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(5);
+	private static final LocalDate FIN = INICIO.plusDays(2);
+	private static final String ESTA_INSTANCIA = "a1b2";
+
+	private final List<Object[]> reservasEnBaseDatos = new ArrayList<>();
+	private final List<Retencion> retencionesEnBaseDatos = new ArrayList<>();
+
+	private InventarioHabitacionesRepository inventarioRepository;
+	private ReservaRepository reservaRepository;
+	private RetencionRepository retencionRepository;
+	private TarifaCache tarifaCache;
+	private AnaliticaService analiticaService;
+	private DisponibilidadLedger ledger;
+	private CoherenciaCaches coherencia;
+
+	@BeforeEach
+	void setUp() {
+		inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		reservaRepository = mock(ReservaRepository.class);
+		retencionRepository = mock(RetencionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario(1, 1), inventario(1, 2)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(List.of());
+		when(reservaRepository.findOcupacionConfirmadaDesde(any(), any(), any())).thenReturn(reservasEnBaseDatos);
+		when(retencionRepository.findVigentes(any())).thenAnswer(invocation -> vigentes(invocation.getArgument(0)));
+		when(retencionRepository.findVigentes(any(), any(), any()))
+				.thenAnswer(invocation -> vigentes(invocation.getArgument(2)));
+		when(retencionRepository.findById(any())).thenAnswer(invocation -> retencionesEnBaseDatos.stream()
+				.filter(retencion -> retencion.getIdRetencion().equals(invocation.getArgument(0)))
+				.findFirst());
+		when(retencionRepository.eliminar(any())).thenAnswer(invocation -> retencionesEnBaseDatos
+				.removeIf(retencion -> retencion.getIdRetencion().equals(invocation.getArgument(0))) ? 1 : 0);
+		when(retencionRepository.eliminarTodas(any())).thenAnswer(invocation -> {
+			Collection<UUID> ids = invocation.getArgument(0);
+			int antes = retencionesEnBaseDatos.size();
+			retencionesEnBaseDatos.removeIf(retencion -> ids.contains(retencion.getIdRetencion()));
+			return antes - retencionesEnBaseDatos.size();
+		});
+
+		ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, retencionRepository, evento -> {
+		}, 365);
+		ledger.recargar();
+		tarifaCache = mock(TarifaCache.class);
+		analiticaService = mock(AnaliticaService.class);
+		coherencia = new CoherenciaCaches(ledger, tarifaCache, analiticaService, JsonMapper.builder().build(), new SimpleMeterRegistry(),
+				ESTA_INSTANCIA, "jdbc:postgresql://127.0.0.1:9/reservas", "", "", false,
+				Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(5));
+		coherencia.reiniciar(100);
+	}
+
+	@Test
+	void unaReservaDeOtraInstanciaSeReflejaEnElLibro() {
+		reservasEnBaseDatos.add(new Object[] { 1, 1, INICIO, FIN, 4 });
+
+		coherencia.procesar(List.of(cambio(101, "reservas", 1, 1)), 0);
+
+		assertThat(ledger.consultar(1, 1, INICIO, FIN).orElseThrow().getCantidadDisponible()).isEqualTo(6);
+		assertThat(ledger.consultar(1, 2, INICIO, FIN).orElseThrow().getCantidadDisponible()).isEqualTo(10);
+	}
+
+	@Test
+	void losCambiosRecibidosJuntosSeAplicanUnaVezPorCombinacion() {
+		coherencia.procesar(List.of(
+				cambio(101, "reservas", 1, 1),
+				cambio(102, "retenciones", 1, 1),
+				cambio(103, "tarifas", 1, 2),
+				cambio(104, "tarifas", 1, 2)), 0);
+
+		verify(reservaRepository, times(1)).findOcupacionConfirmadaDesde(any(), any(), any());
+		verify(tarifaCache, times(1)).invalidar(1, 2);
+	}
+
+	@Test
+	void temporadasEInventarioInvalidanTodo() {
+		coherencia.procesar(List.of(cambio(101, "temporadas", null, null)), 0);
+		verify(tarifaCache).invalidar(null, null);
+
+		coherencia.procesar(List.of(cambio(102, "inventario_habitaciones", 1, 1)), 0);
+		verify(inventarioRepository, times(2)).findAllConDetalle();
+	}
+
+	@Test
+	void unaVersionPerdidaProvocaUnaResincronizacion() {
+		coherencia.procesar(List.of(cambio(102, "reservas", 1, 1)), 0);
+		coherencia.procesar(List.of(), 5_000);
+		verify(tarifaCache, never()).invalidar(null, null);
+
+		coherencia.procesar(List.of(), 10_000);
+
+		verify(tarifaCache).invalidar(null, null);
+		verify(inventarioRepository, times(2)).findAllConDetalle();
+
+		// La versión que faltaba llega tarde: se aplica, pero no vuelve a resincronizar
+		coherencia.procesar(List.of(cambio(101, "reservas", 1, 1)), 20_000);
+		verify(tarifaCache, times(1)).invalidar(null, null);
+	}
+
+	@Test
+	void unaVersionDesordenadaQueLlegaATiempoNoResincroniza() {
+		coherencia.procesar(List.of(cambio(102, "reservas", 1, 1)), 0);
+		coherencia.procesar(List.of(cambio(101, "reservas", 1, 2)), 3_000);
+		coherencia.procesar(List.of(), 60_000);
+
+		verify(tarifaCache, never()).invalidar(null, null);
+		verify(inventarioRepository, times(1)).findAllConDetalle();
+	}
+
+	@Test
+	void losCambiosDeEstaInstanciaSoloCuentanParaLasVersiones() {
+		coherencia.procesar(List.of(
+				cambio(101, ESTA_INSTANCIA, "reservas", 1, 1),
+				cambio(101, ESTA_INSTANCIA, "tarifas", 1, 2)), 0);
+		coherencia.procesar(List.of(cambio(102, "otra", "tarifas", 1, 1)), 0);
+		coherencia.procesar(List.of(), 60_000);
+
+		verify(reservaRepository, never()).findOcupacionConfirmadaDesde(any(), any(), any());
+		verify(tarifaCache, never()).invalidar(1, 2);
+		verify(tarifaCache).invalidar(1, 1);
+		verify(tarifaCache, never()).invalidar(null, null);
+	}
+
+	@Test
+	void unaCombinacionQueNoPuedeReleerseProvocaUnaResincronizacion() {
+		// Cada lectura coincide con un cambio local: los tres intentos se descartan
+		when(reservaRepository.findOcupacionConfirmadaDesde(any(), any(), any())).thenAnswer(invocation -> {
+			ledger.registrarReserva(1, 1, INICIO, FIN, 1);
+			return reservasEnBaseDatos;
+		});
+
+		coherencia.procesar(List.of(cambio(101, "reservas", 1, 1)), 0);
+		coherencia.procesar(List.of(), 1_000);
+
+		verify(reservaRepository, times(3)).findOcupacionConfirmadaDesde(any(), any(), any());
+		verify(tarifaCache).invalidar(null, null);
+		verify(inventarioRepository, times(2)).findAllConDetalle();
+	}
+
+	@Test
+	void unaParticionArchivadaRecargaElLibroYLaAnalitica() {
+		coherencia.procesar(List.of(cambio(101, "reservas", 1, 1)), 0);
+		verify(analiticaService, never()).recargar();
+
+		// También si archivó esta instancia: el archivo no se aplica en memoria
+		coherencia.procesar(List.of(cambio(102, ESTA_INSTANCIA, "archivo", null, null)), 0);
+
+		verify(tarifaCache).invalidar(null, null);
+		verify(inventarioRepository, times(2)).findAllConDetalle();
+		verify(analiticaService).recargar();
+	}
+
+	@Test
+	void unaRetencionLiberadaPorOtraInstanciaNoSeRestaDosVeces() throws Exception {
+		Retencion retencion = retencionEnBaseDatos(3);
+		Instancia a = new Instancia("a");
+		Instancia b = new Instancia("b");
+		a.retenciones.recuperar();
+		assertThat(a.disponibles()).isEqualTo(6);
+		assertThat(b.disponibles()).isEqualTo(6);
+
+		assertThat(b.retenciones.liberar(retencion.getIdRetencion()).getExito()).isTrue();
+		assertThat(b.disponibles()).isEqualTo(9);
+
+		notificar(101, "b", "retenciones", a, b);
+		assertThat(a.disponibles()).isEqualTo(9);
+		assertThat(b.disponibles()).isEqualTo(9);
+
+		// El temporizador de la dueña vence la retención que ya no existe
+		a.vencerHasta(retencion.getExpiraEn());
+		assertThat(a.disponibles()).isEqualTo(9);
+	}
+
+	@Test
+	void unaRetencionConvertidaPorOtraInstanciaNoSigueContando() throws Exception {
+		Retencion retencion = retencionEnBaseDatos(3);
+		Instancia a = new Instancia("a");
+		Instancia b = new Instancia("b");
+		a.retenciones.recuperar();
+
+		// 'crear_reserva' en la instancia b consume la retención de a e inserta la reserva
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(1);
+		request.setIdTipo(1);
+		request.setFechaInicio(INICIO);
+		request.setFechaFin(FIN);
+		request.setCantidadHabitaciones(3);
+		request.setIdRetencion(retencion.getIdRetencion());
+		retencionesEnBaseDatos.remove(retencion);
+		reservasEnBaseDatos.add(new Object[] { 1, 1, INICIO, FIN, 3 });
+		b.ledger.registrarReserva(1, 1, INICIO, FIN, 3);
+		b.retenciones.consumida(request);
+		assertThat(b.disponibles()).isEqualTo(6);
+
+		notificar(101, "b", "reservas", a, b);
+		notificar(101, "b", "retenciones", a, b);
+		assertThat(a.disponibles()).isEqualTo(6);
+
+		a.vencerHasta(retencion.getExpiraEn());
+		assertThat(a.disponibles()).isEqualTo(6);
+		assertThat(b.disponibles()).isEqualTo(6);
+	}
+
+	/**
+	 * Una instancia con su propio libro, retenciones y escucha de cambios sobre la
+	 * misma base de datos simulada.
+	 */
+	private final class Instancia {
+
+		private final DisponibilidadLedger ledger;
+		private final RetencionService retenciones;
+		private final CoherenciaCaches coherencia;
+
+		private Instancia(String id) {
+			ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, retencionRepository, evento -> {
+			}, 365);
+			when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(reservasEnBaseDatos);
+			ledger.recargar();
+			retenciones = new RetencionService(retencionRepository, reservaRepository, ledger, new ReservaLocks(),
+					new TransactionTemplate(mock(PlatformTransactionManager.class)), Duration.ofMinutes(10),
+					Duration.ofMinutes(30), Duration.ofMillis(10), 64);
+			coherencia = new CoherenciaCaches(ledger, mock(TarifaCache.class), mock(AnaliticaService.class),
+					JsonMapper.builder().build(), new SimpleMeterRegistry(), id, "jdbc:postgresql://127.0.0.1:9/reservas",
+					"", "", false, Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(5));
+			coherencia.reiniciar(100);
+		}
+
+		private int disponibles() {
+			return ledger.consultar(1, 1, INICIO, FIN).orElseThrow().getCantidadDisponible();
+		}
+
+		private void vencerHasta(Instant expira) throws InterruptedException {
+			while (Instant.now().isBefore(expira.plusMillis(100))) {
+				Thread.sleep(10);
+				retenciones.vencer();
+			}
+		}
+	}
+
+	/** Entrega la notificación de un cambio a todas las instancias, como NOTIFY. */
+	private static void notificar(long version, String origen, String tabla, Instancia... instancias) {
+		for (Instancia instancia : instancias) {
+			instancia.coherencia.procesar(List.of(cambio(version, origen, tabla, 1, 1)), 0);
+		}
+	}
+
+	/** Una reserva de una habitación y una retención de otras tantas en la combinación 1/1. */
+	private Retencion retencionEnBaseDatos(int habitaciones) {
+		reservasEnBaseDatos.add(new Object[] { 1, 1, INICIO, FIN, 1 });
+		Retencion retencion = new Retencion();
+		retencion.setIdRetencion(UUID.randomUUID());
+		retencion.setIdHotel(1);
+		retencion.setIdTipo(1);
+		retencion.setFechaInicio(INICIO);
+		retencion.setFechaFin(FIN);
+		retencion.setCantidadHabitaciones((short) habitaciones);
+		retencion.setExpiraEn(Instant.now().plusMillis(300));
+		retencionesEnBaseDatos.add(retencion);
+		return retencion;
+	}
+
+	private List<Retencion> vigentes(Instant ahora) {
+		return retencionesEnBaseDatos.stream().filter(retencion -> retencion.getExpiraEn().isAfter(ahora)).toList();
+	}
+
+	private static String cambio(long version, String tabla, Integer idHotel, Integer idTipo) {
+		return cambio(version, "otra", tabla, idHotel, idTipo);
+	}
+
+	private static String cambio(long version, String instancia, String tabla, Integer idHotel, Integer idTipo) {
+		return "{\"version\":" + version + ",\"instancia\":\"" + instancia + "\",\"tabla\":\"" + tabla
+				+ "\",\"idHotel\":" + idHotel + ",\"idTipo\":" + idTipo + "}";
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Tipo " + idTipo);
+		tipo.setCapacidadPersonas(4);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(10);
+		return inventario;
+	}
+}
@@ -0,0 +1,167 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+/**
+ * Recarga completa del libro mientras se registran reservas: ningún cambio
+ * registrado durante la lectura de la base de datos se pierde ni se cuenta dos
+ * veces si la combinación puede releerse.
+ */
+class DisponibilidadLedgerTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(3);
+	private static final LocalDate FIN = INICIO.plusDays(1);
+	private static final int TOTAL = 100_000;
+
+	/** Reservas confirmadas "en la base de datos": se añaden antes de registrarse en el libro. */
+	private final List<Object[]> baseDatos = new ArrayList<>();
+
+	private ReservaRepository reservaRepository;
+	private DisponibilidadLedger ledger;
+
+	@BeforeEach
+	void setUp() {
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		reservaRepository = mock(ReservaRepository.class);
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario()));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenAnswer(invocation -> leerBaseDatos());
+		when(reservaRepository.findOcupacionConfirmadaDesde(any(), any(), any()))
+				.thenAnswer(invocation -> leerBaseDatos());
+
+		ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, retencionRepository, evento -> {
+		}, 30);
+		ledger.recargar();
+	}
+
+	@Test
+	void unaReservaRegistradaDuranteLaLecturaNoSePierde() {
+		AtomicBoolean primera = new AtomicBoolean(true);
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenAnswer(invocation -> {
+			List<Object[]> leidas = leerBaseDatos();
+			if (primera.getAndSet(false)) {
+				// Otra solicitud confirma una reserva después de la lectura y antes del cambio de libro
+				reservar(5);
+			}
+			return leidas;
+		});
+
+		ledger.recargar();
+
+		assertThat(disponibles()).isEqualTo(TOTAL - 5);
+	}
+
+	@Test
+	void unCambioQueLaLecturaYaIncluiaNoSeCuentaDosVeces() {
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenAnswer(invocation -> {
+			// Cada intento ve un cambio confirmado antes de leer y registrado en el libro durante la lectura
+			synchronized (baseDatos) {
+				baseDatos.add(new Object[] { 1, 1, INICIO, FIN, 1 });
+			}
+			List<Object[]> leidas = leerBaseDatos();
+			ledger.registrarReserva(1, 1, INICIO, FIN, 1);
+			return leidas;
+		});
+
+		ledger.recargar();
+
+		assertThat(disponibles()).isEqualTo(TOTAL - 3);
+	}
+
+	@Test
+	void recargasYRegistrosConcurrentesNoPierdenReservas() throws Exception {
+		int hilos = 4;
+		int reservasPorHilo = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(hilos + 1);
+		CountDownLatch salida = new CountDownLatch(1);
+		AtomicBoolean terminado = new AtomicBoolean();
+		try {
+			Future<?> recargas = executor.submit(() -> {
+				salida.await();
+				while (!terminado.get()) {
+					ledger.recargar();
+				}
+				return null;
+			});
+			List<Future<?>> escritores = new ArrayList<>();
+			for (int i = 0; i < hilos; i++) {
+				escritores.add(executor.submit(() -> {
+					salida.await();
+					for (int j = 0; j < reservasPorHilo; j++) {
+						reservar(1);
+					}
+					return null;
+				}));
+			}
+
+			salida.countDown();
+			for (Future<?> escritor : escritores) {
+				escritor.get(30, TimeUnit.SECONDS);
+			}
+			terminado.set(true);
+			recargas.get(30, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Un cambio puede contarse dos veces si tampoco se puede releer su combinación, nunca perderse
+		assertThat(disponibles()).isLessThanOrEqualTo(TOTAL - hilos * reservasPorHilo);
+
+		ledger.recargar();
+		assertThat(disponibles()).isEqualTo(TOTAL - hilos * reservasPorHilo);
+	}
+
+	private void reservar(int habitaciones) {
+		synchronized (baseDatos) {
+			baseDatos.add(new Object[] { 1, 1, INICIO, FIN, habitaciones });
+		}
+		ledger.registrarReserva(1, 1, INICIO, FIN, habitaciones);
+	}
+
+	private List<Object[]> leerBaseDatos() {
+		synchronized (baseDatos) {
+			return new ArrayList<>(baseDatos);
+		}
+	}
+
+	private int disponibles() {
+		return ledger.consultar(1, 1, INICIO, FIN).orElseThrow().getCantidadDisponible();
+	}
+
+	private static InventarioHabitaciones inventario() {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(1);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(1);
+		tipo.setNombre("Doble");
+		tipo.setCapacidadPersonas(2);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(TOTAL);
+		return inventario;
+	}
+}
@@ -0,0 +1,73 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import reservahoteles.reservahoteles.DTO.FormatoExportacion;
+import reservahoteles.reservahoteles.DTO.ReservaExportacion;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import tools.jackson.databind.json.JsonMapper;
+
+class ExportacionServiceTests {
+
+	private static final LocalDate DESDE = LocalDate.parse("2026-07-01");
+	private static final LocalDate HASTA = LocalDate.parse("2026-08-01");
+
+	private ExportacionService service;
+
+	@BeforeEach
+	void setUp() {
+		ReservaRepository reservaRepository = mock(ReservaRepository.class);
+		doAnswer(invocation -> {
+			Consumer<ReservaExportacion> consumidor = invocation.getArgument(4);
+			consumidor.accept(new ReservaExportacion(1, 1, 2, DESDE, DESDE.plusDays(3), 2, 1,
+					new BigDecimal("960000.00"), "Confirmada", LocalDateTime.parse("2026-06-20T10:15:30"), null));
+			consumidor.accept(new ReservaExportacion(2, 1, 1, DESDE.plusDays(5), DESDE.plusDays(6), 1, 1,
+					new BigDecimal("250000.00"), "Cancelada", null, null));
+			return null;
+		}).when(reservaRepository).recorrerReservas(eq(1), eq(DESDE), eq(HASTA), isNull(), any());
+
+		service = new ExportacionService(reservaRepository, mock(PlatformTransactionManager.class),
+				JsonMapper.builder().build());
+	}
+
+	@Test
+	void exportaCsvConEncabezadoYUnaLineaPorReserva() throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+		service.exportar(1, DESDE, HASTA, null, FormatoExportacion.CSV, salida);
+
+		assertThat(salida.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+				"id_reserva,id_hotel,id_tipo,fecha_inicio,fecha_fin,numero_personas,cantidad_habitaciones,"
+						+ "total_calculado,estado,fecha_creacion,id_lote",
+				"1,1,2,2026-07-01,2026-07-04,2,1,960000.00,Confirmada,2026-06-20T10:15:30,",
+				"2,1,1,2026-07-06,2026-07-07,1,1,250000.00,Cancelada,,");
+	}
+
+	@Test
+	void exportaUnObjetoJsonPorLinea() throws Exception {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+		service.exportar(1, DESDE, HASTA, null, FormatoExportacion.NDJSON, salida);
+
+		String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lineas).hasSize(2);
+		assertThat(lineas[0]).startsWith("{\"idReserva\":1,").contains("\"fechaInicio\":\"2026-07-01\"");
+		assertThat(lineas[1]).startsWith("{\"idReserva\":2,").contains("\"estado\":\"Cancelada\"");
+	}
+}
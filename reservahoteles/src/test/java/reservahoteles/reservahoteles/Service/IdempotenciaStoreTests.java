@@ -0,0 +1,144 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+
+class IdempotenciaStoreTests {
+
+	private final IdempotenciaStore store = new IdempotenciaStore(new SimpleMeterRegistry(), 100,
+			Duration.ofMinutes(5));
+
+	private final AtomicInteger ejecuciones = new AtomicInteger();
+
+	@Test
+	void unaRepeticionDevuelveElResultadoOriginalSinEjecutar() {
+		String primero = store.ejecutar("cancelar:1", "clave", () -> "resultado-" + ejecuciones.incrementAndGet());
+		String repetido = store.ejecutar("cancelar:1", "clave", () -> "resultado-" + ejecuciones.incrementAndGet());
+
+		assertThat(repetido).isEqualTo(primero);
+		assertThat(ejecuciones).hasValue(1);
+	}
+
+	@Test
+	void laMismaClaveEnOtraOperacionSeEjecutaAparte() {
+		store.ejecutar("cancelar:1", "clave", ejecuciones::incrementAndGet);
+		store.ejecutar("cancelar:2", "clave", ejecuciones::incrementAndGet);
+		store.ejecutar("cancelar:2", null, ejecuciones::incrementAndGet);
+
+		assertThat(ejecuciones).hasValue(3);
+	}
+
+	@Test
+	void unaRepeticionConcurrenteEsperaALaPrimera() throws Exception {
+		CountDownLatch enCurso = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> primera = executor.submit(() -> store.ejecutar("crear", "clave", () -> {
+				enCurso.countDown();
+				await(liberar);
+				return ejecuciones.incrementAndGet();
+			}));
+			enCurso.await(5, TimeUnit.SECONDS);
+			Future<Integer> segunda = executor.submit(
+					() -> store.ejecutar("crear", "clave", ejecuciones::incrementAndGet));
+			Thread.sleep(50);
+			assertThat(segunda).isNotDone();
+
+			liberar.countDown();
+
+			assertThat(primera.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+			assertThat(segunda.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+			assertThat(ejecuciones).hasValue(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void unFalloLiberaLaClaveParaReintentar() {
+		assertThatThrownBy(() -> store.ejecutar("crear", "clave", () -> {
+			throw new IllegalStateException("sin conexión");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(store.ejecutar("crear", "clave", ejecuciones::incrementAndGet)).isEqualTo(1);
+	}
+
+	@Test
+	void unErrorTambienLiberaLaClave() {
+		assertThatThrownBy(() -> store.ejecutar("crear", "clave", () -> {
+			throw new StackOverflowError("prueba");
+		})).isInstanceOf(StackOverflowError.class);
+
+		assertThat(store.ejecutar("crear", "clave", ejecuciones::incrementAndGet)).isEqualTo(1);
+	}
+
+	@Test
+	void laMismaClaveConOtroCuerpoSeRechazaSinEjecutar() {
+		CrearReservaRequest original = solicitud(2);
+		CrearReservaRequest otra = solicitud(3);
+		store.ejecutar("crear", "clave", IdempotenciaStore.huella(original), ejecuciones::incrementAndGet);
+
+		assertThatThrownBy(() -> store.ejecutar("crear", "clave", IdempotenciaStore.huella(otra),
+				ejecuciones::incrementAndGet)).isInstanceOf(ClaveIdempotenciaReutilizadaException.class);
+		assertThat(store.ejecutar("crear", "clave", IdempotenciaStore.huella(solicitud(2)),
+				ejecuciones::incrementAndGet)).isEqualTo(1);
+		assertThat(ejecuciones).hasValue(1);
+	}
+
+	@Test
+	void unCuerpoDistintoMientrasLaPrimeraSigueEnCursoTambienSeRechaza() throws Exception {
+		CountDownLatch enCurso = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Integer> primera = executor.submit(() -> store.ejecutar("crear", "clave", "a", () -> {
+				enCurso.countDown();
+				await(liberar);
+				return ejecuciones.incrementAndGet();
+			}));
+			enCurso.await(5, TimeUnit.SECONDS);
+
+			assertThatThrownBy(() -> store.ejecutar("crear", "clave", "b", ejecuciones::incrementAndGet))
+					.isInstanceOf(ClaveIdempotenciaReutilizadaException.class);
+
+			liberar.countDown();
+			assertThat(primera.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static CrearReservaRequest solicitud(int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(1);
+		request.setIdTipo(1);
+		request.setFechaInicio(LocalDate.of(2026, 11, 2));
+		request.setFechaFin(LocalDate.of(2026, 11, 4));
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
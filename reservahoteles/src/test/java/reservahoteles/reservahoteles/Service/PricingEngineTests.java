@@ -0,0 +1,228 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.PrecioNoche;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.Tarifa;
+import reservahoteles.reservahoteles.Entity.Temporada;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.BaseDatosPrueba;
+import reservahoteles.reservahoteles.Repository.TarifaRepository;
+import reservahoteles.reservahoteles.Repository.TemporadaRepository;
+import reservahoteles.reservahoteles.Repository.TipoHabitacionRepository;
+
+/**
+ * Casos dorados del motor de precios. Los valores esperados están calculados a mano
+ * con la fórmula de 'calcular_precio_reserva': (precio_base * noches *
+ * habitaciones) + (precio_adicional * personas_extra * noches). Con una base de
+ * datos de prueba (ver {@link BaseDatosPrueba}) las estadías dentro de una sola
+ * temporada se comparan además con la función almacenada.
+ */
+class PricingEngineTests {
+
+	private static final Hotel HOTEL = hotel(1, "Hotel Barranquilla");
+	private static final TipoHabitacion ESTANDAR = tipo(1, "Estándar", 4);
+	private static final TipoHabitacion PREMIUM = tipo(2, "Premium", 6);
+	private static final Temporada BAJA = temporada(1, "Baja", "2026-01-16", "2026-06-14");
+	private static final Temporada ALTA = temporada(2, "Alta", "2026-06-15", "2026-08-31");
+	private static final List<Tarifa> TARIFAS = List.of(
+			tarifa(1, ESTANDAR, BAJA, "150000.00", "30000.00"),
+			tarifa(2, ESTANDAR, ALTA, "250000.00", "40000.00"),
+			tarifa(3, PREMIUM, BAJA, "220000.00", "45000.00"),
+			tarifa(4, PREMIUM, ALTA, "320000.00", "50000.00"));
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private PricingEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		TarifaRepository tarifaRepository = mock(TarifaRepository.class);
+		TemporadaRepository temporadaRepository = mock(TemporadaRepository.class);
+		TipoHabitacionRepository tipoHabitacionRepository = mock(TipoHabitacionRepository.class);
+		when(temporadaRepository.findAll()).thenReturn(List.of(BAJA, ALTA));
+		when(tipoHabitacionRepository.findAll()).thenReturn(List.of(ESTANDAR, PREMIUM));
+		when(tarifaRepository.findConDetalle(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> TARIFAS.stream()
+				.filter(t -> t.getHotel().getIdHotel().equals(invocation.getArgument(0))
+						&& t.getTipoHabitacion().getIdTipo().equals(invocation.getArgument(1))
+						&& t.getTemporada().getIdTemporada().equals(invocation.getArgument(2)))
+				.findFirst());
+
+		engine = new PricingEngine(new TarifaCache(tarifaRepository, temporadaRepository, tipoHabitacionRepository,
+				meterRegistry, 100, Duration.ofHours(1)));
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			// tipo, inicio, fin, habitaciones, personas, total, precio por noche, noches, temporada, personas extra
+			"1, 2026-02-01, 2026-02-04, 1, 2, 450000.00, 150000.00, 3, Baja, 0",
+			"1, 2026-02-01, 2026-02-04, 2, 10, 1080000.00, 150000.00, 3, Baja, 2",
+			"1, 2026-06-14, 2026-06-15, 1, 4, 150000.00, 150000.00, 1, Baja, 0",
+			"2, 2026-07-01, 2026-07-08, 1, 8, 2940000.00, 320000.00, 7, Alta, 2",
+			"2, 2026-03-10, 2026-03-12, 3, 20, 1500000.00, 220000.00, 2, Baja, 2",
+			"1, 2026-08-30, 2026-09-02, 1, 4, 750000.00, 250000.00, 3, Alta, 0"
+	})
+	void calculaLasEstadiasDentroDeUnaTemporada(int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones, int personas, String total, String precioPorNoche, int noches, String temporada,
+			int personasExtra) {
+		CalculoPrecioResponse response = engine.cotizar(1, idTipo, inicio, fin, habitaciones, personas);
+
+		assertThat(response.getPrecioTotal()).isEqualTo(new BigDecimal(total));
+		assertThat(response.getPrecioPorNoche()).isEqualTo(new BigDecimal(precioPorNoche));
+		assertThat(response.getNumeroNoches()).isEqualTo(noches);
+		assertThat(response.getTemporada()).isEqualTo(temporada);
+		assertThat(response.getDesglose().getPersonasExtra()).isEqualTo(personasExtra);
+		assertThat(response.getDesglose().getSubtotalHabitaciones()
+				.add(response.getDesglose().getSubtotalPersonasExtra())).isEqualTo(response.getPrecioTotal());
+		assertThat(response.getDesglose().getNoches()).hasSize(noches);
+	}
+
+	@ParameterizedTest
+	@EnabledIfEnvironmentVariable(named = BaseDatosPrueba.VARIABLE, matches = ".+")
+	@CsvSource({
+			// tipo, inicio, fin, habitaciones, personas
+			"1, 2026-02-01, 2026-02-04, 1, 2",
+			"1, 2026-02-01, 2026-02-04, 2, 10",
+			"1, 2026-06-14, 2026-06-15, 1, 4",
+			"2, 2026-07-01, 2026-07-08, 1, 8",
+			"2, 2026-03-10, 2026-03-12, 3, 20",
+			"2, 2026-06-15, 2026-06-16, 2, 13"
+	})
+	void coincideConLaFuncionAlmacenadaDentroDeUnaTemporada(int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones, int personas) {
+		JdbcTemplate jdbcTemplate = cargarEnBaseDatos();
+		Map<String, Object> esperado = jdbcTemplate.queryForMap(
+				"SELECT precio_total, precio_por_noche, numero_noches, temporada "
+						+ "FROM calcular_precio_reserva(1, ?, ?, ?, ?, ?)",
+				idTipo, inicio, fin, habitaciones, personas);
+
+		CalculoPrecioResponse response = engine.cotizar(1, idTipo, inicio, fin, habitaciones, personas);
+
+		assertThat(response.getPrecioTotal()).isEqualByComparingTo((BigDecimal) esperado.get("precio_total"));
+		assertThat(response.getPrecioPorNoche()).isEqualByComparingTo((BigDecimal) esperado.get("precio_por_noche"));
+		assertThat(response.getNumeroNoches()).isEqualTo(esperado.get("numero_noches"));
+		assertThat(response.getTemporada()).isEqualTo(esperado.get("temporada"));
+	}
+
+	@Test
+	void cobraCadaNocheConLaTemporadaQueLeCorresponde() {
+		CalculoPrecioResponse response = engine.cotizar(1, 1, LocalDate.parse("2026-06-13"),
+				LocalDate.parse("2026-06-17"), 1, 5);
+
+		assertThat(response.getPrecioTotal()).isEqualTo(new BigDecimal("940000.00"));
+		assertThat(response.getPrecioPorNoche()).isEqualTo(new BigDecimal("200000.00"));
+		assertThat(response.getTemporada()).isEqualTo("Baja, Alta");
+		assertThat(response.getDesglose().getNoches())
+				.extracting(PrecioNoche::getTemporada, PrecioNoche::getSubtotal)
+				.containsExactly(
+						tuple("Baja", new BigDecimal("180000.00")),
+						tuple("Baja", new BigDecimal("180000.00")),
+						tuple("Alta", new BigDecimal("290000.00")),
+						tuple("Alta", new BigDecimal("290000.00")));
+	}
+
+	@Test
+	void sinTarifaSoloInformaElNumeroDeNoches() {
+		CalculoPrecioResponse response = engine.cotizar(9, 1, LocalDate.parse("2026-02-01"),
+				LocalDate.parse("2026-02-03"), 1, 2);
+
+		assertThat(response.getPrecioTotal()).isNull();
+		assertThat(response.getNumeroNoches()).isEqualTo(2);
+		assertThat(response.getDesglose()).isNull();
+	}
+
+	@Test
+	void losAciertosYFallosDeLaCacheDeTarifasSePublicanEnMicrometer() {
+		engine.cotizar(1, 1, LocalDate.parse("2026-02-01"), LocalDate.parse("2026-02-03"), 1, 2);
+		engine.cotizar(1, 1, LocalDate.parse("2026-02-01"), LocalDate.parse("2026-02-03"), 1, 2);
+
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "tarifas").tag("result", "miss")
+				.functionCounter().count()).isEqualTo(1.0);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "tarifas").tag("result", "hit")
+				.functionCounter().count()).isGreaterThanOrEqualTo(1.0);
+		assertThat(meterRegistry.get("cache.size").tag("cache", "catalogo").gauge().value()).isEqualTo(1.0);
+	}
+
+	/**
+	 * Carga en la base de datos de prueba el mismo hotel, tipos, temporadas y tarifas
+	 * que usa el motor.
+	 */
+	private static JdbcTemplate cargarEnBaseDatos() {
+		JdbcTemplate jdbcTemplate = BaseDatosPrueba.vaciar();
+		jdbcTemplate.update("INSERT INTO hoteles (id_hotel, nombre, cupo_maximo_personas) VALUES (?, ?, 100)",
+				HOTEL.getIdHotel(), HOTEL.getNombre());
+		for (TipoHabitacion tipo : List.of(ESTANDAR, PREMIUM)) {
+			jdbcTemplate.update("INSERT INTO tipos_habitacion (id_tipo, nombre, capacidad_personas) VALUES (?, ?, ?)",
+					tipo.getIdTipo(), tipo.getNombre(), tipo.getCapacidadPersonas());
+		}
+		for (Temporada temporada : List.of(BAJA, ALTA)) {
+			jdbcTemplate.update("INSERT INTO temporadas (id_temporada, nombre, fecha_inicio, fecha_fin, anio) "
+					+ "VALUES (?, ?, ?, ?, ?)", temporada.getIdTemporada(), temporada.getNombre(),
+					temporada.getFechaInicio(), temporada.getFechaFin(), temporada.getAnio());
+		}
+		for (Tarifa tarifa : TARIFAS) {
+			jdbcTemplate.update("INSERT INTO tarifas (id_tarifa, id_hotel, id_tipo, id_temporada, precio_base_noche, "
+					+ "precio_persona_adicional) VALUES (?, ?, ?, ?, ?, ?)", tarifa.getIdTarifa(),
+					tarifa.getHotel().getIdHotel(), tarifa.getTipoHabitacion().getIdTipo(),
+					tarifa.getTemporada().getIdTemporada(), tarifa.getPrecioBaseNoche(),
+					tarifa.getPrecioPersonaAdicional());
+		}
+		return jdbcTemplate;
+	}
+
+	private static Hotel hotel(int id, String nombre) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(id);
+		hotel.setNombre(nombre);
+		return hotel;
+	}
+
+	private static TipoHabitacion tipo(int id, String nombre, int capacidad) {
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(id);
+		tipo.setNombre(nombre);
+		tipo.setCapacidadPersonas(capacidad);
+		return tipo;
+	}
+
+	private static Temporada temporada(int id, String nombre, String inicio, String fin) {
+		Temporada temporada = new Temporada();
+		temporada.setIdTemporada(id);
+		temporada.setNombre(nombre);
+		temporada.setFechaInicio(LocalDate.parse(inicio));
+		temporada.setFechaFin(LocalDate.parse(fin));
+		temporada.setAnio(2026);
+		return temporada;
+	}
+
+	private static Tarifa tarifa(int id, TipoHabitacion tipo, Temporada temporada, String base, String adicional) {
+		Tarifa tarifa = new Tarifa();
+		tarifa.setIdTarifa(id);
+		tarifa.setHotel(HOTEL);
+		tarifa.setTipoHabitacion(tipo);
+		tarifa.setTemporada(temporada);
+		tarifa.setPrecioBaseNoche(new BigDecimal(base));
+		tarifa.setPrecioPersonaAdicional(new BigDecimal(adicional));
+		return tarifa;
+	}
+}
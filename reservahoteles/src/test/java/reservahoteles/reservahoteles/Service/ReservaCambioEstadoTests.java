@@ -0,0 +1,247 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.CambioEstadoResponse;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Reserva;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+/**
+ * Cancelación y finalización de reservas: el UPDATE condicional desde
+ * 'Confirmada', el {@link ReservaCambiadaEvent} publicado, las noches que se
+ * liberan en el libro, la cancelación de un lote completo y la repetición con la
+ * misma clave de idempotencia. La base de datos es un mapa de reservas detrás del
+ * repositorio simulado.
+ */
+class ReservaCambioEstadoTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final int INVENTARIO = 3;
+	private static final UUID LOTE = UUID.randomUUID();
+
+	private final Map<Integer, Reserva> reservasEnBaseDatos = new LinkedHashMap<>();
+	private final List<ReservaCambiadaEvent> eventos = new ArrayList<>();
+
+	private ReservaRepository reservaRepository;
+	private DisponibilidadLedger ledger;
+	private ReservaServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		guardar(reserva(1, 1, 1, INICIO, INICIO.plusDays(2), 2, null));
+		guardar(reserva(2, 1, 1, INICIO.plusDays(1), INICIO.plusDays(3), 1, null));
+		guardar(reserva(3, 1, 1, INICIO.plusDays(5), INICIO.plusDays(6), 1, LOTE));
+		guardar(reserva(4, 1, 2, INICIO.plusDays(5), INICIO.plusDays(7), 2, LOTE));
+
+		reservaRepository = mock(ReservaRepository.class);
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario(1, 1), inventario(1, 2)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenAnswer(invocation -> reservasEnBaseDatos
+				.values().stream()
+				.filter(reserva -> "Confirmada".equals(reserva.getEstado()))
+				.map(reserva -> new Object[] { reserva.getHotel().getIdHotel(), reserva.getTipoHabitacion().getIdTipo(),
+						reserva.getFechaInicio(), reserva.getFechaFin(), reserva.getCantidadHabitaciones() })
+				.toList());
+		when(reservaRepository.findById(anyInt()))
+				.thenAnswer(invocation -> Optional.ofNullable(reservasEnBaseDatos.get(invocation.<Integer>getArgument(0))));
+		when(reservaRepository.actualizarEstado(anyInt(), anyString(), anyString())).thenAnswer(invocation -> {
+			Reserva reserva = reservasEnBaseDatos.get(invocation.<Integer>getArgument(0));
+			if (reserva == null || !reserva.getEstado().equals(invocation.getArgument(1))) {
+				return 0;
+			}
+			reserva.setEstado(invocation.getArgument(2));
+			return 1;
+		});
+		when(reservaRepository.findConfirmadasPorLote(any())).thenAnswer(invocation -> reservasEnBaseDatos.values()
+				.stream()
+				.filter(reserva -> invocation.getArgument(0).equals(reserva.getIdLote()))
+				.filter(reserva -> "Confirmada".equals(reserva.getEstado()))
+				.toList());
+		when(reservaRepository.cancelarLote(any())).thenAnswer(invocation -> {
+			int canceladas = 0;
+			for (Reserva reserva : reservasEnBaseDatos.values()) {
+				if (invocation.getArgument(0).equals(reserva.getIdLote()) && "Confirmada".equals(reserva.getEstado())) {
+					reserva.setEstado("Cancelada");
+					canceladas++;
+				}
+			}
+			return canceladas;
+		});
+
+		ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, retencionRepository, evento -> {
+		}, 365);
+		ledger.recargar();
+
+		ReservaLocks locks = new ReservaLocks();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		TarifaCache tarifaCache = mock(TarifaCache.class);
+		RetencionService retencionService = new RetencionService(retencionRepository, reservaRepository, ledger,
+				locks, transactionTemplate, Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 64);
+		// Como el publicador de Spring: el libro recibe cada cambio confirmado
+		service = new ReservaServiceImpl(reservaRepository, ledger, locks, tarifaCache, new PricingEngine(tarifaCache),
+				transactionTemplate, new SimpleMeterRegistry(),
+				new IdempotenciaStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)), evento -> {
+					ReservaCambiadaEvent cambio = (ReservaCambiadaEvent) evento;
+					eventos.add(cambio);
+					ledger.alCambiarReserva(cambio);
+				}, new ConsultasCompartidas(new SimpleMeterRegistry(), Duration.ZERO), retencionService);
+	}
+
+	@Test
+	void cancelarPasaDeConfirmadaACanceladaYPublicaElCambio() {
+		CambioEstadoResponse response = service.cancelarReserva(1, null);
+
+		assertThat(response).isEqualTo(new CambioEstadoResponse(List.of(1), "Cancelada", true,
+				"Reserva cancelada exitosamente"));
+		assertThat(reservasEnBaseDatos.get(1).getEstado()).isEqualTo("Cancelada");
+		assertThat(eventos).singleElement().isEqualTo(new ReservaCambiadaEvent(1, 1, 1, INICIO, INICIO.plusDays(2), 2,
+				"Confirmada", "Cancelada"));
+	}
+
+	@Test
+	void unaSegundaCancelacionFallaSinPublicarNada() {
+		service.cancelarReserva(1, null);
+
+		CambioEstadoResponse repetida = service.cancelarReserva(1, null);
+
+		assertThat(repetida.getExito()).isFalse();
+		assertThat(repetida.getEstado()).isEqualTo("Cancelada");
+		assertThat(repetida.getMensaje()).isEqualTo("La reserva no está confirmada (estado actual: Cancelada)");
+		assertThat(eventos).hasSize(1);
+		assertThat(service.completarReserva(1, null).getExito()).isFalse();
+		assertThat(service.cancelarReserva(99, null).getMensaje()).isEqualTo("Reserva no encontrada");
+		assertThat(eventos).hasSize(1);
+	}
+
+	@Test
+	void completarPasaDeConfirmadaACompletadaUnaSolaVez() {
+		CambioEstadoResponse response = service.completarReserva(2, null);
+
+		assertThat(response).isEqualTo(new CambioEstadoResponse(List.of(2), "Completada", true,
+				"Reserva completada exitosamente"));
+		assertThat(eventos).singleElement().extracting(ReservaCambiadaEvent::getEstadoNuevo).isEqualTo("Completada");
+		assertThat(service.completarReserva(2, null).getExito()).isFalse();
+		assertThat(service.cancelarReserva(2, null).getMensaje())
+				.isEqualTo("La reserva no está confirmada (estado actual: Completada)");
+	}
+
+	@Test
+	void soloSeLiberanLasNochesDeLaReserva() {
+		assertThat(disponibles(1, 1, INICIO)).isEqualTo(1);
+		assertThat(disponibles(1, 1, INICIO.plusDays(1))).isEqualTo(0);
+		assertThat(disponibles(1, 1, INICIO.plusDays(2))).isEqualTo(2);
+
+		service.cancelarReserva(1, null);
+
+		assertThat(disponibles(1, 1, INICIO)).isEqualTo(3);
+		assertThat(disponibles(1, 1, INICIO.plusDays(1))).isEqualTo(2);
+		assertThat(disponibles(1, 1, INICIO.plusDays(2))).isEqualTo(2);
+		assertThat(disponibles(1, 1, INICIO.plusDays(5))).isEqualTo(2);
+	}
+
+	@Test
+	void cancelarUnLoteLiberaTodasSusReservas() {
+		CambioEstadoResponse response = service.cancelarLote(LOTE, null);
+
+		assertThat(response).isEqualTo(new CambioEstadoResponse(List.of(3, 4), "Cancelada", true,
+				"2 reservas canceladas"));
+		assertThat(eventos).extracting(ReservaCambiadaEvent::getIdReserva).containsExactly(3, 4);
+		assertThat(disponibles(1, 1, INICIO.plusDays(5))).isEqualTo(3);
+		assertThat(disponibles(1, 2, INICIO.plusDays(5))).isEqualTo(3);
+		assertThat(disponibles(1, 2, INICIO.plusDays(6))).isEqualTo(3);
+		// Las reservas fuera del lote no cambian
+		assertThat(disponibles(1, 1, INICIO.plusDays(1))).isEqualTo(0);
+
+		CambioEstadoResponse repetida = service.cancelarLote(LOTE, null);
+		assertThat(repetida.getExito()).isFalse();
+		assertThat(repetida.getMensaje()).isEqualTo("El lote no tiene reservas confirmadas");
+		assertThat(eventos).hasSize(2);
+	}
+
+	@Test
+	void unaRepeticionConLaMismaClaveDevuelveLaMismaRespuesta() {
+		CambioEstadoResponse primera = service.cancelarReserva(1, "cancelar-1");
+		CambioEstadoResponse repetida = service.cancelarReserva(1, "cancelar-1");
+		CambioEstadoResponse lote = service.cancelarLote(LOTE, "cancelar-lote");
+		CambioEstadoResponse loteRepetido = service.cancelarLote(LOTE, "cancelar-lote");
+
+		assertThat(repetida).isEqualTo(primera);
+		assertThat(repetida.getExito()).isTrue();
+		assertThat(loteRepetido).isEqualTo(lote);
+		assertThat(loteRepetido.getExito()).isTrue();
+		verify(reservaRepository, times(1)).actualizarEstado(1, "Confirmada", "Cancelada");
+		verify(reservaRepository, times(1)).cancelarLote(LOTE);
+		assertThat(eventos).hasSize(3);
+		assertThat(disponibles(1, 1, INICIO)).isEqualTo(3);
+	}
+
+	private int disponibles(int idHotel, int idTipo, LocalDate noche) {
+		return ledger.consultar(idHotel, idTipo, noche, noche.plusDays(1)).orElseThrow().getCantidadDisponible();
+	}
+
+	private void guardar(Reserva reserva) {
+		reservasEnBaseDatos.put(reserva.getIdReserva(), reserva);
+	}
+
+	private static Reserva reserva(int idReserva, int idHotel, int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones, UUID idLote) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		Reserva reserva = new Reserva();
+		reserva.setIdReserva(idReserva);
+		reserva.setHotel(hotel);
+		reserva.setTipoHabitacion(tipo);
+		reserva.setFechaInicio(inicio);
+		reserva.setFechaFin(fin);
+		reserva.setNumeroPersonas(2);
+		reserva.setCantidadHabitaciones(habitaciones);
+		reserva.setTotalCalculado(BigDecimal.TEN);
+		reserva.setIdLote(idLote);
+		return reserva;
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Doble");
+		tipo.setCapacidadPersonas(2);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(INVENTARIO);
+		return inventario;
+	}
+}
@@ -0,0 +1,68 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Candados por franjas: un número fijo de candados sea cual sea la combinación, y
+ * lotes que se cruzan sin bloquearse mutuamente.
+ */
+class ReservaLocksTests {
+
+	private final ReservaLocks locks = new ReservaLocks();
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void lasCombinacionesInventadasCaenEnLasFranjasExistentes() {
+		assertThat(IntStream.range(0, 100_000)
+				.map(i -> ReservaLocks.franja(DisponibilidadLedger.clave(i, -i)))
+				.allMatch(franja -> franja >= 0 && franja < ReservaLocks.FRANJAS)).isTrue();
+		assertThat(locks.ejecutar(Integer.MAX_VALUE, Integer.MIN_VALUE, () -> "hecho")).isEqualTo("hecho");
+	}
+
+	@Test
+	void lotesConLasMismasCombinacionesEnDistintoOrdenNoSeBloquean() throws Exception {
+		List<Long> claves = new ArrayList<>();
+		for (int i = 1; i <= 50; i++) {
+			claves.add(DisponibilidadLedger.clave(i, 1));
+		}
+		List<Long> invertidas = new ArrayList<>(claves);
+		Collections.reverse(invertidas);
+		CountDownLatch salida = new CountDownLatch(1);
+
+		List<Future<Integer>> lotes = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			List<Long> orden = i % 2 == 0 ? claves : invertidas;
+			lotes.add(executor.submit(() -> {
+				salida.await();
+				int hechos = 0;
+				for (int j = 0; j < 200; j++) {
+					hechos += locks.ejecutar(orden, () -> 1);
+				}
+				return hechos;
+			}));
+		}
+		salida.countDown();
+
+		for (Future<Integer> lote : lotes) {
+			assertThat(lote.get(30, TimeUnit.SECONDS)).isEqualTo(200);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.CalculoPrecioResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservasLoteResponse;
+import reservahoteles.reservahoteles.DTO.DisponibilidadNochesResponse;
+import reservahoteles.reservahoteles.DTO.ModoLote;
+import reservahoteles.reservahoteles.DTO.RangoCombinacion;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+/**
+ * Creación de reservas en lote: admisión en orden dentro del lote, modos
+ * MEJOR_ESFUERZO y TODO_O_NADA, registro en el libro y consulta de disponibilidad
+ * limitada a las combinaciones y noches del lote, y el contador 'reservas.crear'
+ * de cada resultado. La base de datos es un mock sin reservas previas.
+ */
+class ReservaLoteTests {
+
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final Map<Long, Integer> INVENTARIO = Map.of(
+			DisponibilidadLedger.clave(1, 1), 3,
+			DisponibilidadLedger.clave(2, 1), 5);
+
+	private ReservaRepository reservaRepository;
+	private DisponibilidadLedger ledger;
+	private ReservaServiceImpl service;
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		reservaRepository = mock(ReservaRepository.class);
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(inventario(1, 1), inventario(2, 1)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(List.of());
+		when(reservaRepository.verificarDisponibilidadPorNoche(anyList())).thenAnswer(invocation -> {
+			List<RangoCombinacion> rangos = invocation.getArgument(0);
+			List<DisponibilidadNochesResponse> filas = new ArrayList<>();
+			for (RangoCombinacion rango : rangos) {
+				Integer total = INVENTARIO.get(DisponibilidadLedger.clave(rango.getIdHotel(), rango.getIdTipo()));
+				if (total == null) {
+					continue;
+				}
+				List<Integer> noches = new ArrayList<>();
+				for (long i = ChronoUnit.DAYS.between(rango.getFechaInicio(), rango.getFechaFin()); i > 0; i--) {
+					noches.add(total);
+				}
+				filas.add(new DisponibilidadNochesResponse(rango.getIdHotel(), rango.getIdTipo(), "Doble", total, 2,
+						total, noches));
+			}
+			return filas;
+		});
+		when(reservaRepository.insertarReservas(anyList(), anyList(), any())).thenAnswer(invocation -> {
+			List<CrearReservaRequest> aceptadas = invocation.getArgument(0);
+			List<Integer> ids = new ArrayList<>();
+			for (int i = 0; i < aceptadas.size(); i++) {
+				ids.add(100 + i);
+			}
+			return ids;
+		});
+
+		ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository, retencionRepository, evento -> {
+		}, 365);
+		ledger.recargar();
+
+		PricingEngine pricingEngine = mock(PricingEngine.class);
+		when(pricingEngine.cotizar(any(), any(), any(), any(), anyInt(), anyInt()))
+				.thenReturn(new CalculoPrecioResponse(BigDecimal.TEN, BigDecimal.TEN, 1, "Alta", null));
+		ReservaLocks locks = new ReservaLocks();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		RetencionService retencionService = new RetencionService(retencionRepository, reservaRepository, ledger,
+				locks, transactionTemplate, Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 64);
+		meterRegistry = new SimpleMeterRegistry();
+		service = new ReservaServiceImpl(reservaRepository, ledger, locks, mock(TarifaCache.class), pricingEngine,
+				transactionTemplate, meterRegistry,
+				new IdempotenciaStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)), evento -> {
+				}, new ConsultasCompartidas(new SimpleMeterRegistry(), Duration.ZERO), retencionService);
+	}
+
+	@Test
+	void mejorEsfuerzoNoSobrevendeDentroDelLoteYRegistraLasAceptadas() {
+		CrearReservasLoteResponse response = service.crearReservas(lote(ModoLote.MEJOR_ESFUERZO,
+				solicitud(1, 1, INICIO, INICIO.plusDays(2), 2),
+				solicitud(1, 1, INICIO.plusDays(1), INICIO.plusDays(3), 2),
+				solicitud(1, 1, INICIO.plusDays(1), INICIO.plusDays(2), 1)));
+
+		assertThat(response.getResultados()).extracting(CrearReservaResponse::getExito)
+				.containsExactly(true, false, true);
+		assertThat(response.getResultados().get(1).getMensaje())
+				.isEqualTo("No hay suficientes habitaciones disponibles");
+		assertThat(response.getExitosas()).isEqualTo(2);
+		assertThat(response.getIdLote()).isNotNull();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<CrearReservaRequest>> insertadas = ArgumentCaptor.forClass(List.class);
+		verify(reservaRepository).insertarReservas(insertadas.capture(), anyList(), any(UUID.class));
+		assertThat(insertadas.getValue()).hasSize(2);
+
+		assertThat(disponibles(1, 1, INICIO, INICIO.plusDays(1))).isEqualTo(1);
+		assertThat(disponibles(1, 1, INICIO.plusDays(1), INICIO.plusDays(2))).isEqualTo(0);
+		assertThat(disponibles(1, 1, INICIO.plusDays(2), INICIO.plusDays(3))).isEqualTo(3);
+	}
+
+	@Test
+	void todoONadaNoInsertaNadaSiUnaReservaFalla() {
+		CrearReservasLoteResponse response = service.crearReservas(lote(ModoLote.TODO_O_NADA,
+				solicitud(1, 1, INICIO, INICIO.plusDays(2), 2),
+				solicitud(2, 1, INICIO, INICIO.plusDays(2), 1),
+				solicitud(1, 1, INICIO.plusDays(1), INICIO.plusDays(3), 2)));
+
+		assertThat(response.getExitosas()).isZero();
+		assertThat(response.getIdLote()).isNull();
+		assertThat(response.getResultados()).extracting(CrearReservaResponse::getMensaje).containsExactly(
+				"Lote rechazado: otra reserva del lote no pudo crearse",
+				"Lote rechazado: otra reserva del lote no pudo crearse",
+				"No hay suficientes habitaciones disponibles");
+		verify(reservaRepository, never()).insertarReservas(anyList(), anyList(), any());
+		assertThat(disponibles(1, 1, INICIO, INICIO.plusDays(2))).isEqualTo(3);
+		assertThat(disponibles(2, 1, INICIO, INICIO.plusDays(2))).isEqualTo(5);
+	}
+
+	@Test
+	void rechazaLasReservasConRetencion() {
+		CrearReservaRequest conRetencion = solicitud(1, 1, INICIO, INICIO.plusDays(1), 1);
+		conRetencion.setIdRetencion(UUID.randomUUID());
+
+		CrearReservasLoteResponse response = service.crearReservas(lote(ModoLote.MEJOR_ESFUERZO,
+				conRetencion, solicitud(1, 1, INICIO, INICIO.plusDays(1), 3)));
+
+		assertThat(response.getResultados().get(0).getExito()).isFalse();
+		assertThat(response.getResultados().get(0).getMensaje())
+				.isEqualTo("Las reservas con retención deben crearse de una en una");
+		assertThat(response.getResultados().get(1).getExito()).isTrue();
+	}
+
+	@Test
+	void consultaSoloLasCombinacionesYNochesDelLote() {
+		service.crearReservas(lote(ModoLote.MEJOR_ESFUERZO,
+				solicitud(1, 1, INICIO.plusDays(20), INICIO.plusDays(21), 1),
+				solicitud(2, 1, INICIO, INICIO.plusDays(1), 1),
+				solicitud(1, 1, INICIO.plusDays(5), INICIO.plusDays(7), 1),
+				solicitud(2, 1, INICIO.plusDays(3), INICIO, 1)));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<RangoCombinacion>> rangos = ArgumentCaptor.forClass(List.class);
+		verify(reservaRepository).verificarDisponibilidadPorNoche(rangos.capture());
+		assertThat(rangos.getValue()).containsExactly(
+				new RangoCombinacion(1, 1, INICIO.plusDays(5), INICIO.plusDays(21)),
+				new RangoCombinacion(2, 1, INICIO, INICIO.plusDays(1)));
+		verify(reservaRepository, never()).verificarDisponibilidadPorNoche(any(LocalDate.class), any(LocalDate.class));
+	}
+
+	@Test
+	void elContadorNoEtiquetaCombinacionesInexistentes() {
+		service.crearReservas(lote(ModoLote.MEJOR_ESFUERZO,
+				solicitud(1, 1, INICIO, INICIO.plusDays(1), 1),
+				solicitud(2, 1, INICIO, INICIO.plusDays(1), 9),
+				solicitud(777, 31337, INICIO, INICIO.plusDays(1), 1)));
+
+		assertThat(contador("1", "1", "exitosa")).isEqualTo(1);
+		assertThat(contador("2", "1", "sin_disponibilidad")).isEqualTo(1);
+		assertThat(contador("desconocido", "desconocido", "sin_disponibilidad")).isEqualTo(1);
+		assertThat(meterRegistry.find("reservas.crear").tag("hotel", "777").counters()).isEmpty();
+	}
+
+	private double contador(String hotel, String tipo, String resultado) {
+		return meterRegistry.get("reservas.crear").tag("hotel", hotel).tag("tipo", tipo).tag("resultado", resultado)
+				.counter().count();
+	}
+
+	private int disponibles(int idHotel, int idTipo, LocalDate inicio, LocalDate fin) {
+		return ledger.consultar(idHotel, idTipo, inicio, fin).orElseThrow().getCantidadDisponible();
+	}
+
+	private static CrearReservasLoteRequest lote(ModoLote modo, CrearReservaRequest... reservas) {
+		CrearReservasLoteRequest request = new CrearReservasLoteRequest();
+		request.setModo(modo);
+		request.setReservas(List.of(reservas));
+		return request;
+	}
+
+	private static CrearReservaRequest solicitud(int idHotel, int idTipo, LocalDate inicio, LocalDate fin,
+			int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(inicio);
+		request.setFechaFin(fin);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Doble");
+		tipo.setCapacidadPersonas(2);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(INVENTARIO.get(DisponibilidadLedger.clave(idHotel, idTipo)));
+		return inventario;
+	}
+}
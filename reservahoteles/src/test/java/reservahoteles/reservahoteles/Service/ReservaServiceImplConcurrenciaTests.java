@@ -0,0 +1,351 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import reservahoteles.reservahoteles.DTO.CrearReservaRequest;
+import reservahoteles.reservahoteles.DTO.CrearReservaResponse;
+import reservahoteles.reservahoteles.DTO.CrearRetencionRequest;
+import reservahoteles.reservahoteles.DTO.DisponibilidadResponse;
+import reservahoteles.reservahoteles.DTO.RetencionResponse;
+import reservahoteles.reservahoteles.Entity.Hotel;
+import reservahoteles.reservahoteles.Entity.InventarioHabitaciones;
+import reservahoteles.reservahoteles.Entity.Retencion;
+import reservahoteles.reservahoteles.Entity.TipoHabitacion;
+import reservahoteles.reservahoteles.Repository.InventarioHabitacionesRepository;
+import reservahoteles.reservahoteles.Repository.ReservaRepository;
+import reservahoteles.reservahoteles.Repository.RetencionRepository;
+
+/**
+ * Prueba de estrés de sobreventa: el repositorio simula 'crear_reserva' sin
+ * bloqueo de filas (lee la ocupación, espera y luego inserta), de modo que solo
+ * la ruta de admisión del servicio puede evitar vender más habitaciones de las
+ * que hay en inventario.
+ *
+ * 'bloquearInventario' es un mock que no bloquea nada: estas pruebas cubren solo
+ * el candado en memoria de una instancia. El bloqueo de la fila de inventario
+ * entre instancias se prueba contra PostgreSQL en {@code BloqueoInventarioTests}.
+ */
+class ReservaServiceImplConcurrenciaTests {
+
+	private static final int HABITACIONES = 10;
+	private static final LocalDate INICIO = LocalDate.now().plusDays(10);
+	private static final LocalDate FIN = INICIO.plusDays(3);
+
+	private final Map<Long, Integer> ocupadasEnBaseDatos = new ConcurrentHashMap<>();
+	private final Map<Long, CountDownLatch> pausas = new ConcurrentHashMap<>();
+
+	private ReservaRepository reservaRepository;
+	private ReservaLocks locks;
+	private ExecutorService executor;
+	private ReservaServiceImpl service;
+	private RetencionService retencionService;
+
+	@BeforeEach
+	void setUp() {
+		reservaRepository = mock(ReservaRepository.class);
+		InventarioHabitacionesRepository inventarioRepository = mock(InventarioHabitacionesRepository.class);
+
+		when(inventarioRepository.findAllConDetalle()).thenReturn(List.of(
+				inventario(1, 1), inventario(1, 2), inventario(2, 1)));
+		when(reservaRepository.findOcupacionConfirmadaDesde(any())).thenReturn(List.of());
+		when(reservaRepository.crearReserva(any(), any(), any())).thenAnswer(invocation -> {
+			CrearReservaRequest request = invocation.getArgument(0);
+			long clave = DisponibilidadLedger.clave(request.getIdHotel(), request.getIdTipo());
+			CountDownLatch pausa = pausas.get(clave);
+			if (pausa != null) {
+				pausa.await(5, TimeUnit.SECONDS);
+			}
+			int ocupadas = ocupadasEnBaseDatos.getOrDefault(clave, 0);
+			Thread.sleep(1);
+			if (request.getIdRetencion() == null && ocupadas + request.getCantidadHabitaciones() > HABITACIONES) {
+				return new CrearReservaResponse(null, false, "No hay suficientes habitaciones disponibles",
+						BigDecimal.ZERO);
+			}
+			ocupadasEnBaseDatos.put(clave, ocupadas + request.getCantidadHabitaciones());
+			return new CrearReservaResponse(1, true, "Reserva creada exitosamente", BigDecimal.TEN);
+		});
+
+		when(reservaRepository.verificarDisponibilidad(any(), any(), any(), any())).thenAnswer(invocation -> {
+			long clave = DisponibilidadLedger.clave(invocation.getArgument(0), invocation.getArgument(1));
+			return List.of(new DisponibilidadResponse("Tipo", HABITACIONES,
+					HABITACIONES - ocupadasEnBaseDatos.getOrDefault(clave, 0), 4));
+		});
+		RetencionRepository retencionRepository = mock(RetencionRepository.class);
+		when(retencionRepository.save(any())).thenAnswer(invocation -> {
+			Retencion retencion = invocation.getArgument(0);
+			retencion.setIdRetencion(UUID.randomUUID());
+			return retencion;
+		});
+
+		DisponibilidadLedger ledger = new DisponibilidadLedger(inventarioRepository, reservaRepository,
+				retencionRepository, evento -> {
+				}, 365);
+		ledger.recargar();
+
+		locks = new ReservaLocks();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		retencionService = new RetencionService(retencionRepository, reservaRepository, ledger, locks,
+				transactionTemplate, Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 64);
+		TarifaCache tarifaCache = mock(TarifaCache.class);
+		service = new ReservaServiceImpl(reservaRepository, ledger, locks, tarifaCache,
+				new PricingEngine(tarifaCache), transactionTemplate,
+				new SimpleMeterRegistry(), new IdempotenciaStore(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)),
+				evento -> { }, new ConsultasCompartidas(new SimpleMeterRegistry(), Duration.ZERO), retencionService);
+		executor = Executors.newFixedThreadPool(32);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void reservasConcurrentesNoSobrevendenElInventario() throws Exception {
+		List<Future<CrearReservaResponse>> resultados = new ArrayList<>();
+		CountDownLatch salida = new CountDownLatch(1);
+		for (int i = 0; i < 200; i++) {
+			int idTipo = i % 2 == 0 ? 1 : 2;
+			resultados.add(executor.submit(() -> {
+				salida.await();
+				return service.crearReserva(solicitud(1, idTipo, 1), null);
+			}));
+		}
+		salida.countDown();
+
+		int exitosas = 0;
+		for (Future<CrearReservaResponse> resultado : resultados) {
+			if (Boolean.TRUE.equals(resultado.get(30, TimeUnit.SECONDS).getExito())) {
+				exitosas++;
+			}
+		}
+
+		assertThat(exitosas).isEqualTo(2 * HABITACIONES);
+		assertThat(ocupadasEnBaseDatos.get(DisponibilidadLedger.clave(1, 1))).isEqualTo(HABITACIONES);
+		assertThat(ocupadasEnBaseDatos.get(DisponibilidadLedger.clave(1, 2))).isEqualTo(HABITACIONES);
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible()).isZero();
+	}
+
+	@Test
+	void combinacionesDistintasNoCompitenPorElMismoCandado() throws Exception {
+		CountDownLatch pausa = new CountDownLatch(1);
+		pausas.put(DisponibilidadLedger.clave(1, 1), pausa);
+
+		Future<CrearReservaResponse> bloqueada = executor.submit(() -> service.crearReserva(solicitud(1, 1, 1), null));
+		Future<CrearReservaResponse> otroTipo = executor.submit(() -> service.crearReserva(solicitud(1, 2, 1), null));
+		Future<CrearReservaResponse> otroHotel = executor.submit(() -> service.crearReserva(solicitud(2, 1, 1), null));
+
+		assertThat(otroTipo.get(5, TimeUnit.SECONDS).getExito()).isTrue();
+		assertThat(otroHotel.get(5, TimeUnit.SECONDS).getExito()).isTrue();
+		assertThat(bloqueada.isDone()).isFalse();
+
+		pausa.countDown();
+		assertThat(bloqueada.get(5, TimeUnit.SECONDS).getExito()).isTrue();
+	}
+
+	@Test
+	void repeticionesConcurrentesConLaMismaClaveCreanUnaSolaReserva() throws Exception {
+		List<Future<CrearReservaResponse>> resultados = new ArrayList<>();
+		CountDownLatch salida = new CountDownLatch(1);
+		for (int i = 0; i < 20; i++) {
+			resultados.add(executor.submit(() -> {
+				salida.await();
+				return service.crearReserva(solicitud(1, 1, 1), "clave-1");
+			}));
+		}
+		salida.countDown();
+
+		for (Future<CrearReservaResponse> resultado : resultados) {
+			assertThat(resultado.get(30, TimeUnit.SECONDS).getExito()).isTrue();
+		}
+		verify(reservaRepository, times(1)).crearReserva(any(), any(), eq("clave-1"));
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible())
+				.isEqualTo(HABITACIONES - 1);
+	}
+
+	@Test
+	void unaRepeticionSinEstadoEnMemoriaDevuelveLaReservaGuardada() {
+		when(reservaRepository.findRespuestaPorClaveIdempotencia("clave-2")).thenReturn(
+				Optional.of(new CrearReservaResponse(7, true, "Reserva creada exitosamente", BigDecimal.TEN)));
+
+		CrearReservaResponse response = service.crearReserva(solicitud(1, 1, 1), "clave-2");
+
+		assertThat(response.getIdReserva()).isEqualTo(7);
+		verify(reservaRepository, never()).crearReserva(any(), any(), any());
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible())
+				.isEqualTo(HABITACIONES);
+	}
+
+	@Test
+	void conLaCombinacionAgotadaUnaRepeticionRecibeLaReservaOriginal() {
+		for (int i = 0; i < HABITACIONES; i++) {
+			assertThat(service.crearReserva(solicitud(1, 1, 1), null).getExito()).isTrue();
+		}
+		when(reservaRepository.findRespuestaPorClaveIdempotencia("clave-3")).thenReturn(
+				Optional.of(new CrearReservaResponse(8, true, "Reserva creada exitosamente", BigDecimal.TEN)));
+
+		CrearReservaResponse repeticion = service.crearReserva(solicitud(1, 1, 1), "clave-3");
+		CrearReservaResponse nueva = service.crearReserva(solicitud(1, 1, 1), "clave-4");
+
+		assertThat(repeticion.getIdReserva()).isEqualTo(8);
+		assertThat(nueva.getExito()).isFalse();
+		verify(reservaRepository, never()).crearReserva(any(), any(), eq("clave-4"));
+	}
+
+	@Test
+	void unaRetencionConClaveDeIdempotenciaTambienSeConvierteSinCandado() throws Exception {
+		RetencionResponse retencion = retencionService.retener(retencion(1, 1, 2));
+		CountDownLatch liberarCandado = new CountDownLatch(1);
+		CountDownLatch candadoTomado = new CountDownLatch(1);
+		executor.submit(() -> locks.ejecutar(1, 1, () -> {
+			candadoTomado.countDown();
+			try {
+				return liberarCandado.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		assertThat(candadoTomado.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CrearReservaRequest conRetencion = solicitud(1, 1, 2);
+		conRetencion.setIdRetencion(retencion.getIdRetencion());
+		Future<CrearReservaResponse> convertida = executor.submit(() -> service.crearReserva(conRetencion, "clave-5"));
+		assertThat(convertida.get(5, TimeUnit.SECONDS).getExito()).isTrue();
+		liberarCandado.countDown();
+
+		verify(reservaRepository).crearReserva(any(), any(), eq("clave-5"));
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible())
+				.isEqualTo(HABITACIONES - 2);
+	}
+
+	@Test
+	void sinResultadoDeCrearReservaLaRespuestaNoEsNula() {
+		doReturn(null).when(reservaRepository).crearReserva(any(), any(), any());
+
+		CrearReservaResponse response = service.crearReserva(solicitud(1, 1, 1), null);
+
+		assertThat(response).isNotNull();
+		assertThat(response.getExito()).isFalse();
+	}
+
+	@Test
+	void unaRetencionSeConvierteAunqueElRestoDelInventarioSeAgote() throws Exception {
+		RetencionResponse retencion = retencionService.retener(retencion(1, 1, 2));
+		assertThat(retencion.getExito()).isTrue();
+
+		List<Future<CrearReservaResponse>> resultados = new ArrayList<>();
+		CountDownLatch salida = new CountDownLatch(1);
+		for (int i = 0; i < 50; i++) {
+			resultados.add(executor.submit(() -> {
+				salida.await();
+				return service.crearReserva(solicitud(1, 1, 1), null);
+			}));
+		}
+		salida.countDown();
+		int exitosas = 0;
+		for (Future<CrearReservaResponse> resultado : resultados) {
+			if (Boolean.TRUE.equals(resultado.get(30, TimeUnit.SECONDS).getExito())) {
+				exitosas++;
+			}
+		}
+		assertThat(exitosas).isEqualTo(HABITACIONES - 2);
+
+		// Con el candado de la combinación tomado por otra solicitud, la conversión no espera
+		CountDownLatch liberarCandado = new CountDownLatch(1);
+		CountDownLatch candadoTomado = new CountDownLatch(1);
+		executor.submit(() -> locks.ejecutar(1, 1, () -> {
+			candadoTomado.countDown();
+			try {
+				return liberarCandado.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		assertThat(candadoTomado.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CrearReservaRequest conRetencion = solicitud(1, 1, 2);
+		conRetencion.setIdRetencion(retencion.getIdRetencion());
+		Future<CrearReservaResponse> convertida = executor.submit(() -> service.crearReserva(conRetencion, null));
+		assertThat(convertida.get(5, TimeUnit.SECONDS).getExito()).isTrue();
+		liberarCandado.countDown();
+
+		assertThat(retencionService.cubre(conRetencion)).isFalse();
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible()).isZero();
+	}
+
+	@Test
+	void liberarUnaRetencionDevuelveLasHabitaciones() {
+		RetencionResponse retencion = retencionService.retener(retencion(1, 1, 3));
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible())
+				.isEqualTo(HABITACIONES - 3);
+
+		retencionService.liberar(retencion.getIdRetencion());
+
+		assertThat(service.consultarDisponibilidad(1, 1, INICIO, FIN).get(0).getCantidadDisponible())
+				.isEqualTo(HABITACIONES);
+	}
+
+	private static CrearRetencionRequest retencion(int idHotel, int idTipo, int habitaciones) {
+		CrearRetencionRequest request = new CrearRetencionRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(INICIO);
+		request.setFechaFin(FIN);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+
+	private static CrearReservaRequest solicitud(int idHotel, int idTipo, int habitaciones) {
+		CrearReservaRequest request = new CrearReservaRequest();
+		request.setIdHotel(idHotel);
+		request.setIdTipo(idTipo);
+		request.setFechaInicio(INICIO);
+		request.setFechaFin(FIN);
+		request.setNumeroPersonas(2);
+		request.setCantidadHabitaciones(habitaciones);
+		return request;
+	}
+
+	private static InventarioHabitaciones inventario(int idHotel, int idTipo) {
+		Hotel hotel = new Hotel();
+		hotel.setIdHotel(idHotel);
+		TipoHabitacion tipo = new TipoHabitacion();
+		tipo.setIdTipo(idTipo);
+		tipo.setNombre("Tipo " + idTipo);
+		tipo.setCapacidadPersonas(4);
+		InventarioHabitaciones inventario = new InventarioHabitaciones();
+		inventario.setHotel(hotel);
+		inventario.setTipoHabitacion(tipo);
+		inventario.setCantidadTotal(HABITACIONES);
+		return inventario;
+	}
+}
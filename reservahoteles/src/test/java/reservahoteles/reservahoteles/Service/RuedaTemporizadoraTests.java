@@ -0,0 +1,67 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class RuedaTemporizadoraTests {
+
+	private static final long INICIO = 1_000_000L;
+
+	private final RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(8, Duration.ofMillis(100), INICIO);
+
+	@Test
+	void unTemporizadorNoVenceAntesDeSuInstante() {
+		rueda.programar("a", INICIO + 250);
+
+		assertThat(rueda.avanzar(INICIO + 200)).isEmpty();
+		assertThat(rueda.avanzar(INICIO + 299)).isEmpty();
+		assertThat(rueda.avanzar(INICIO + 300)).containsExactly("a");
+		assertThat(rueda.tamanio()).isZero();
+	}
+
+	@Test
+	void losVencimientosAVariasVueltasEsperanSuVuelta() {
+		// 8 ranuras de 100 ms: una vuelta son 800 ms, y los dos caen en la misma ranura
+		rueda.programar("cerca", INICIO + 300);
+		rueda.programar("lejos", INICIO + 300 + 2 * 800);
+
+		assertThat(rueda.avanzar(INICIO + 300)).containsExactly("cerca");
+		assertThat(rueda.avanzar(INICIO + 1100)).isEmpty();
+		assertThat(rueda.avanzar(INICIO + 1899)).isEmpty();
+		assertThat(rueda.avanzar(INICIO + 1900)).containsExactly("lejos");
+	}
+
+	@Test
+	void unAvanceTardioVenceTodoLoPendiente() {
+		rueda.programar("a", INICIO + 100);
+		rueda.programar("b", INICIO + 700);
+		rueda.programar("c", INICIO + 5_000);
+		rueda.programar("d", INICIO + 20_000);
+
+		assertThat(rueda.avanzar(INICIO + 10_000)).containsExactlyInAnyOrder("a", "b", "c");
+		assertThat(rueda.tamanio()).isEqualTo(1);
+		assertThat(rueda.avanzar(INICIO + 20_000)).containsExactly("d");
+	}
+
+	@Test
+	void losCanceladosNoVencen() {
+		RuedaTemporizadora.Temporizador<String> a = rueda.programar("a", INICIO + 200);
+		rueda.programar("b", INICIO + 200);
+
+		assertThat(rueda.cancelar(a)).isTrue();
+		assertThat(rueda.cancelar(a)).isFalse();
+		assertThat(rueda.avanzar(INICIO + 200)).containsExactly("b");
+	}
+
+	@Test
+	void unInstanteYaPasadoVenceEnElSiguienteTick() {
+		rueda.avanzar(INICIO + 500);
+		rueda.programar("tarde", INICIO + 100);
+
+		assertThat(rueda.avanzar(INICIO + 500)).isEmpty();
+		assertThat(rueda.avanzar(INICIO + 600)).containsExactly("tarde");
+	}
+}
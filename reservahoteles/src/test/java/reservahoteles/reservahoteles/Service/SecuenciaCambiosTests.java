@@ -0,0 +1,54 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SecuenciaCambiosTests {
+
+	private static final long ESPERA = 1_000;
+
+	private final SecuenciaCambios secuencia = new SecuenciaCambios(10);
+
+	@Test
+	void lasVersionesConsecutivasNoDejanHuecos() {
+		assertThat(secuencia.registrar(11, 0)).isTrue();
+		assertThat(secuencia.registrar(12, 0)).isTrue();
+
+		assertThat(secuencia.ultima()).isEqualTo(12);
+		assertThat(secuencia.huecoVencido(10_000, ESPERA)).isFalse();
+	}
+
+	@Test
+	void unHuecoQueSeLlenaAntesDeLaEsperaNoVence() {
+		secuencia.registrar(12, 0);
+		secuencia.registrar(13, 100);
+		assertThat(secuencia.huecoVencido(500, ESPERA)).isFalse();
+
+		secuencia.registrar(11, 600);
+
+		assertThat(secuencia.ultima()).isEqualTo(13);
+		assertThat(secuencia.huecoVencido(5_000, ESPERA)).isFalse();
+	}
+
+	@Test
+	void unHuecoSinLlenarVenceTrasLaEspera() {
+		secuencia.registrar(12, 0);
+
+		assertThat(secuencia.huecoVencido(999, ESPERA)).isFalse();
+		assertThat(secuencia.huecoVencido(1_000, ESPERA)).isTrue();
+
+		secuencia.saltarHuecos();
+		assertThat(secuencia.ultima()).isEqualTo(12);
+		assertThat(secuencia.huecoVencido(5_000, ESPERA)).isFalse();
+	}
+
+	@Test
+	void lasVersionesRepetidasOAnterioresNoCuentan() {
+		secuencia.registrar(11, 0);
+
+		assertThat(secuencia.registrar(11, 0)).isFalse();
+		assertThat(secuencia.registrar(7, 0)).isFalse();
+		assertThat(secuencia.ultima()).isEqualTo(11);
+	}
+}
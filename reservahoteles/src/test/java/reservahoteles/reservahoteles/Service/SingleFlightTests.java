@@ -0,0 +1,113 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SingleFlightTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final AtomicInteger llamadas = new AtomicInteger();
+	private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void llamadasConcurrentesIdenticasCompartenUnaEjecucion() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>("prueba", Duration.ZERO, registry);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch enCurso = new CountDownLatch(1);
+
+		List<Future<Integer>> resultados = new ArrayList<>();
+		resultados.add(executor.submit(() -> singleFlight.ejecutar("1-1", () -> {
+			enCurso.countDown();
+			await(liberar);
+			return llamadas.incrementAndGet();
+		})));
+		enCurso.await(5, TimeUnit.SECONDS);
+		for (int i = 0; i < 15; i++) {
+			resultados.add(executor.submit(() -> singleFlight.ejecutar("1-1", llamadas::incrementAndGet)));
+		}
+		Thread.sleep(100);
+		liberar.countDown();
+
+		for (Future<Integer> resultado : resultados) {
+			assertThat(resultado.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		}
+		assertThat(llamadas).hasValue(1);
+		assertThat(contador("ejecutada")).isEqualTo(1);
+		assertThat(contador("compartida")).isEqualTo(15);
+	}
+
+	@Test
+	void elResultadoSeComparteSoloDuranteElTtl() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>("prueba", Duration.ofMillis(50), registry);
+
+		singleFlight.ejecutar("1-1", llamadas::incrementAndGet);
+		assertThat(singleFlight.ejecutar("1-1", llamadas::incrementAndGet)).isEqualTo(1);
+		Thread.sleep(80);
+		assertThat(singleFlight.ejecutar("1-1", llamadas::incrementAndGet)).isEqualTo(2);
+		assertThat(singleFlight.ejecutar("2-1", llamadas::incrementAndGet)).isEqualTo(3);
+	}
+
+	@Test
+	void losErroresNoSeGuardan() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>("prueba", Duration.ofMinutes(1), registry);
+
+		assertThatThrownBy(() -> singleFlight.ejecutar("1-1", () -> {
+			throw new IllegalStateException("pool agotado");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(singleFlight.ejecutar("1-1", llamadas::incrementAndGet)).isEqualTo(1);
+	}
+
+	@Test
+	void unErrorLlegaATodosYLiberaLaClave() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>("prueba", Duration.ofMinutes(1), registry);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch enCurso = new CountDownLatch(1);
+
+		Future<Integer> primera = executor.submit(() -> singleFlight.ejecutar("1-1", () -> {
+			enCurso.countDown();
+			await(liberar);
+			throw new StackOverflowError("prueba");
+		}));
+		enCurso.await(5, TimeUnit.SECONDS);
+		Future<Integer> compartida = executor.submit(() -> singleFlight.ejecutar("1-1", llamadas::incrementAndGet));
+		Thread.sleep(100);
+		liberar.countDown();
+
+		assertThatThrownBy(() -> primera.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+		assertThatThrownBy(() -> compartida.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+		assertThat(singleFlight.ejecutar("1-1", llamadas::incrementAndGet)).isEqualTo(1);
+	}
+
+	private double contador(String resultado) {
+		return registry.get("reservas.singleflight.llamadas").tag("resultado", resultado).counter().count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package reservahoteles.reservahoteles.Service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class VentanasDisponiblesTests {
+
+	@Test
+	void calculaElMinimoDeCadaFechaDeEntrada() {
+		List<Integer> porNoche = List.of(5, 3, 4, 0, 6, 6, 2, 7);
+
+		assertThat(VentanasDisponibles.minimos(porNoche, 3)).containsExactly(3, 0, 0, 0, 2, 2);
+		assertThat(VentanasDisponibles.minimos(porNoche, 1)).containsExactly(5, 3, 4, 0, 6, 6, 2, 7);
+		assertThat(VentanasDisponibles.minimos(porNoche, 8)).containsExactly(0);
+		assertThat(VentanasDisponibles.minimos(porNoche, 9)).isEmpty();
+	}
+
+	@Test
+	void coincideConElRecorridoNocheANoche() {
+		Random random = new Random(7);
+		List<Integer> porNoche = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			porNoche.add(random.nextInt(12));
+		}
+		for (int noches = 1; noches <= 30; noches++) {
+			int[] minimos = VentanasDisponibles.minimos(porNoche, noches);
+			assertThat(minimos).hasSize(porNoche.size() - noches + 1);
+			for (int entrada = 0; entrada < minimos.length; entrada++) {
+				int esperado = Integer.MAX_VALUE;
+				for (int noche = entrada; noche < entrada + noches; noche++) {
+					esperado = Math.min(esperado, porNoche.get(noche));
+				}
+				assertThat(minimos[entrada]).isEqualTo(esperado);
+			}
+		}
+	}
+}